@@ -116,6 +116,18 @@ public abstract class AbstractAtnStateTokenClassifier implements AtnStateTokenCl
     return tokenClassifierHelper.getMaxWordCount();
   }
 
+  /**
+   * Determine whether this classifier's results (including any features it
+   * sets on the token) depend only on the token and not on the atnState or
+   * on features set by others, such that results can be memoized for reuse
+   * across states (see AtnParseChart).
+   * <p>
+   * Default implementation conservatively returns false.
+   */
+  public boolean isContextFree() {
+    return false;
+  }
+
   /**
    * Get the classifier's name.
    */
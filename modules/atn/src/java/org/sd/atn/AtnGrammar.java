@@ -185,6 +185,7 @@ public class AtnGrammar {
 
   private List<DomElement> grammarNodes;
   private List<AtnRule> startRules;
+  private boolean compiled;
 
   AtnGrammar(DomElement grammarNode, ResourceManager resourceManager) {
 
@@ -273,10 +274,31 @@ public class AtnGrammar {
    * as an initialization node.
    */
   public void supplement(DomNode supplementNode) {
+    if (compiled) {
+      throw new IllegalStateException("Can't supplement a compiled grammar!");
+    }
     final DomElement grammarElement = getGrammarElement((DomElement)supplementNode);
     doSupplement(grammarElement);
   }
 
+  /**
+   * Mark this grammar as compiled, after which it can no longer be
+   * supplemented.
+   * <p>
+   * A compiled grammar (with its classifiers and resources) is only read
+   * while parsing, all parse state being kept in each parse's AtnParseResult
+   * and AtnStates, so a single instance can be shared by any number of
+   * threads parsing concurrently.
+   */
+  public AtnGrammar compile() {
+    this.compiled = true;
+    return this;
+  }
+
+  public boolean isCompiled() {
+    return compiled;
+  }
+
   /**
    * Get the grammar xml nodes (primary and supplements) defining this grammar.
    */
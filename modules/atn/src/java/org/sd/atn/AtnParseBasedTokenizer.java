@@ -27,6 +27,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import org.sd.token.Break;
+import org.sd.token.BreakMap;
 import org.sd.token.FeatureConstraint;
 import org.sd.token.CategorizedToken;
 import org.sd.token.Token;
@@ -272,8 +273,8 @@ public class AtnParseBasedTokenizer extends StandardTokenizer {
     return result;
   }
 
-  protected Map<Integer, Break> createBreaks() {
-    final Map<Integer, Break> result = super.createBreaks();
+  protected BreakMap createBreaks() {
+    final BreakMap result = super.createBreaks();
     final Set<Integer> tokenEnds = getTokenEnds();
 
     // set hard breaks, if any
@@ -308,7 +309,7 @@ public class AtnParseBasedTokenizer extends StandardTokenizer {
     // get the ranges covered by parses
     final IntegerRange parseSpans = getParseSpans();
 
-    final Map<Integer, Break> standardBreaks = retainEndBreaks ? super.createBreaks() : null;
+    final BreakMap standardBreaks = retainEndBreaks ? super.createBreaks() : null;
 
     // turn boundaries between parses into hard breaks; within parse alternatives as soft breaks; clearing other breaks
     for (Map.Entry<Integer, TokenInfoContainer<MyTokenInfo>> mapEntry : pos2tokenInfoContainer.entrySet()) {
@@ -372,7 +373,7 @@ public class AtnParseBasedTokenizer extends StandardTokenizer {
   /**
    * Clear the breaks in the range, but preserve "tokenEnds" as soft.
    */
-  private final void doClearBreaks(Map<Integer, Break> result, int startPos, int endPos, Set<Integer> tokenEnds) {
+  private final void doClearBreaks(BreakMap result, int startPos, int endPos, Set<Integer> tokenEnds) {
     for (int breakIndex = startPos; breakIndex < endPos; ++breakIndex) {
       if (tokenEnds.contains(breakIndex)) {
         // keep tokenEnd break(s), but flip from hard to soft
@@ -0,0 +1,367 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.atn;
+
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.sd.token.Features;
+import org.sd.token.Token;
+import org.sd.token.Tokenizer;
+
+/**
+ * Chart of memoized token classification results over a tokenizer's text.
+ * <p>
+ * While parsing, the same token is classified by the same classifier many
+ * times as different rule steps (and, when seeking, different start
+ * positions, each building a new AtnParseResult) revisit it. A chart shared
+ * across a parse's states and results remembers each context free
+ * classifier's match result for a token (identified by its start, end, and
+ * revision) along with the token features the classification generated, so
+ * that revisits only replay the features instead of re-classifying.
+ * <p>
+ * Classifications made through AtnState.classify, including those of
+ * sub-classifiers referenced by RoteListClassifiers, are charted.
+ * <p>
+ * Rule step matches are also charted by (rule, rule step, token start, end,
+ * and revision) when a step's outcome can't depend on the state path: the
+ * step has no tests and all of its category's classifiers are context
+ * free. Such steps, revisited by states from other start positions or
+ * queued while applying pops, then replay their match result and features
+ * without re-running their classifiers.
+ * <p>
+ * Only classifiers that report themselves as context free (see
+ * AbstractAtnStateTokenClassifier.isContextFree) are charted. Step tests,
+ * requirements, and pop verification depend on the state path and are
+ * always applied, so charted parses are identical to uncharted parses.
+ * Likewise, states themselves (with their push, cluster, and duplicate
+ * checks against the state tree) are path dependent and are always
+ * explored.
+ *
+ * @author Spence Koehler
+ */
+public class AtnParseChart {
+  
+  private Tokenizer tokenizer;
+  private Map<ChartKey, ChartEntry> entries;
+  private Map<StepKey, ChartEntry> stepEntries;
+  private Map<AtnRuleStep, Boolean> chartableSteps;
+  private long hits;
+  private long misses;
+  private long uncharted;
+  private long stepHits;
+  private long stepMisses;
+
+  /**
+   * Construct a chart for parsing over the given tokenizer's tokens.
+   */
+  public AtnParseChart(Tokenizer tokenizer) {
+    this.tokenizer = tokenizer;
+    this.entries = new HashMap<ChartKey, ChartEntry>();
+    this.stepEntries = new HashMap<StepKey, ChartEntry>();
+    this.chartableSteps = new HashMap<AtnRuleStep, Boolean>();
+    this.hits = 0;
+    this.misses = 0;
+    this.uncharted = 0;
+    this.stepHits = 0;
+    this.stepMisses = 0;
+  }
+
+  public Tokenizer getTokenizer() {
+    return tokenizer;
+  }
+
+  /** Get the number of classifications served from this chart. */
+  public long getHits() {
+    return hits;
+  }
+
+  /** Get the number of classifications computed and added to this chart. */
+  public long getMisses() {
+    return misses;
+  }
+
+  /** Get the number of classifications that could not be charted. */
+  public long getUncharted() {
+    return uncharted;
+  }
+
+  /** Get the number of rule step matches served from this chart. */
+  public long getStepHits() {
+    return stepHits;
+  }
+
+  /** Get the number of rule step matches computed and added to this chart. */
+  public long getStepMisses() {
+    return stepMisses;
+  }
+
+  /** Get the fraction of chartable classifications served from this chart. */
+  public double getHitRate() {
+    final long total = hits + misses;
+    return (total == 0) ? 0.0 : ((double)hits / (double)total);
+  }
+
+  /** Get the number of entries in this chart. */
+  public int size() {
+    return entries.size() + stepEntries.size();
+  }
+
+  /** Clear this chart's entries and statistics. */
+  public void clear() {
+    entries.clear();
+    stepEntries.clear();
+    hits = 0;
+    misses = 0;
+    uncharted = 0;
+    stepHits = 0;
+    stepMisses = 0;
+  }
+
+  /**
+   * Match the state's token to its rule step's category, using the charted
+   * result when possible.
+   */
+  MatchResult matchStep(AtnState atnState, AtnGrammar grammar) {
+    final Token token = atnState.getInputToken();
+    if (token.getTokenizer() != tokenizer || !isChartable(atnState.getRuleStep(), grammar)) {
+      return atnState.computeTokenMatch(grammar);
+    }
+
+    final StepKey key = new StepKey(atnState.getRule(), atnState.getStepNum(), token);
+    ChartEntry entry = stepEntries.get(key);
+
+    if (entry == null) {
+      ++stepMisses;
+
+      // collect the match's features in isolation for later replay
+      final Features priorFeatures = token.getFeatures();
+      token.setFeatures(null);
+      MatchResult matchResult = null;
+      Features features = null;
+      try {
+        matchResult = atnState.computeTokenMatch(grammar);
+      }
+      finally {
+        features = token.getFeatures();
+        token.setFeatures(priorFeatures);
+      }
+
+      entry = new ChartEntry(matchResult, features);
+      stepEntries.put(key, entry);
+    }
+    else {
+      ++stepHits;
+    }
+
+    token.addFeatures(entry.features);
+
+    return entry.matchResult;
+  }
+
+  /**
+   * Classify the token through the classifier, using the charted result
+   * when possible.
+   */
+  MatchResult classify(AtnStateTokenClassifier classifier, Token token, AtnState atnState) {
+    if (!isChartable(classifier, token)) {
+      ++uncharted;
+      return classifier.classify(token, atnState);
+    }
+
+    final ChartKey key = new ChartKey(classifier, token);
+    ChartEntry entry = entries.get(key);
+
+    if (entry == null) {
+      ++misses;
+
+      // collect the classification's features in isolation for later replay
+      final Features priorFeatures = token.getFeatures();
+      token.setFeatures(null);
+      MatchResult matchResult = null;
+      Features features = null;
+      try {
+        matchResult = classifier.classify(token, atnState);
+      }
+      finally {
+        features = token.getFeatures();
+        token.setFeatures(priorFeatures);
+      }
+
+      entry = new ChartEntry(matchResult, features);
+      entries.put(key, entry);
+    }
+    else {
+      ++hits;
+    }
+
+    token.addFeatures(entry.features);
+
+    return entry.matchResult;
+  }
+
+  private final boolean isChartable(AtnStateTokenClassifier classifier, Token token) {
+    return
+      token.getTokenizer() == tokenizer &&
+      classifier instanceof AbstractAtnStateTokenClassifier &&
+      ((AbstractAtnStateTokenClassifier)classifier).isContextFree();
+  }
+
+  /**
+   * Determine whether the rule step's match depends only on its token,
+   * being free of tests and matched through context free classifiers.
+   */
+  private final boolean isChartable(AtnRuleStep ruleStep, AtnGrammar grammar) {
+    Boolean result = chartableSteps.get(ruleStep);
+
+    if (result == null) {
+      boolean chartable = false;
+
+      final List<AtnStateTokenClassifier> classifiers = grammar.getCat2Classifiers().get(ruleStep.getCategory());
+      if (classifiers != null && !ruleStep.getIgnoreToken() && !ruleStep.getVerbose() &&
+          ruleStep.getTestContainer().isEmpty()) {
+        chartable = true;
+        for (AtnStateTokenClassifier classifier : classifiers) {
+          if (!(classifier instanceof AbstractAtnStateTokenClassifier) ||
+              !((AbstractAtnStateTokenClassifier)classifier).isContextFree()) {
+            chartable = false;
+            break;
+          }
+        }
+      }
+
+      result = chartable;
+      chartableSteps.put(ruleStep, result);
+    }
+
+    return result;
+  }
+
+  public String toString() {
+    final StringBuilder result = new StringBuilder();
+
+    result.
+      append("AtnParseChart[entries=").append(entries.size()).
+      append(", hits=").append(hits).
+      append(", misses=").append(misses).
+      append(", uncharted=").append(uncharted).
+      append(", stepEntries=").append(stepEntries.size()).
+      append(", stepHits=").append(stepHits).
+      append(", stepMisses=").append(stepMisses).
+      append(']');
+
+    return result.toString();
+  }
+
+
+  private static final class ChartKey {
+    private AtnStateTokenClassifier classifier;
+    private int startIndex;
+    private int endIndex;
+    private int revisionNumber;
+
+    ChartKey(AtnStateTokenClassifier classifier, Token token) {
+      this.classifier = classifier;
+      this.startIndex = token.getStartIndex();
+      this.endIndex = token.getEndIndex();
+      this.revisionNumber = token.getRevisionNumber();
+    }
+
+    public boolean equals(Object other) {
+      boolean result = (this == other);
+
+      if (!result && other instanceof ChartKey) {
+        final ChartKey otherKey = (ChartKey)other;
+        result =
+          classifier == otherKey.classifier &&
+          startIndex == otherKey.startIndex &&
+          endIndex == otherKey.endIndex &&
+          revisionNumber == otherKey.revisionNumber;
+      }
+
+      return result;
+    }
+
+    public int hashCode() {
+      int result = 17;
+
+      result = result * 31 + System.identityHashCode(classifier);
+      result = result * 31 + startIndex;
+      result = result * 31 + endIndex;
+      result = result * 31 + revisionNumber;
+
+      return result;
+    }
+  }
+
+  private static final class StepKey {
+    private AtnRule rule;
+    private int stepNum;
+    private int startIndex;
+    private int endIndex;
+    private int revisionNumber;
+
+    StepKey(AtnRule rule, int stepNum, Token token) {
+      this.rule = rule;
+      this.stepNum = stepNum;
+      this.startIndex = token.getStartIndex();
+      this.endIndex = token.getEndIndex();
+      this.revisionNumber = token.getRevisionNumber();
+    }
+
+    public boolean equals(Object other) {
+      boolean result = (this == other);
+
+      if (!result && other instanceof StepKey) {
+        final StepKey otherKey = (StepKey)other;
+        result =
+          rule == otherKey.rule &&
+          stepNum == otherKey.stepNum &&
+          startIndex == otherKey.startIndex &&
+          endIndex == otherKey.endIndex &&
+          revisionNumber == otherKey.revisionNumber;
+      }
+
+      return result;
+    }
+
+    public int hashCode() {
+      int result = 17;
+
+      result = result * 31 + System.identityHashCode(rule);
+      result = result * 31 + stepNum;
+      result = result * 31 + startIndex;
+      result = result * 31 + endIndex;
+      result = result * 31 + revisionNumber;
+
+      return result;
+    }
+  }
+
+  private static final class ChartEntry {
+    public final MatchResult matchResult;
+    public final Features features;
+
+    ChartEntry(MatchResult matchResult, Features features) {
+      this.matchResult = matchResult;
+      this.features = features;
+    }
+  }
+}
@@ -97,6 +97,63 @@ public class AtnParseOptions {
     this.adjustInputForTokens = adjustInputForTokens;
   }
 
+  private boolean chartParsing;
+  /**
+   * A flag to memoize (context free) token classifications in a chart
+   * that is shared across the states of a parse and across the start
+   * positions considered while seeking parses.
+   * 
+   * Charted parses are identical to uncharted parses, but avoid repeatedly
+   * classifying the same tokens as rule steps revisit them.
+   */
+  public boolean getChartParsing() {
+    return chartParsing;
+  }
+  public void setChartParsing(boolean chartParsing) {
+    this.chartParsing = chartParsing;
+  }
+
+  private boolean trace;
+  /**
+   * A flag to trace (debug) AtnStates while parsing with these options.
+   */
+  public boolean getTrace() {
+    return trace;
+  }
+  public void setTrace(boolean trace) {
+    this.trace = trace;
+  }
+
+  private boolean traceflow;
+  /**
+   * A flag to trace AtnState flow while parsing with these options.
+   */
+  public boolean getTraceFlow() {
+    return traceflow;
+  }
+  public void setTraceFlow(boolean traceflow) {
+    this.traceflow = traceflow;
+  }
+
+  private String stepThruRuleId;
+  private String stepThruRuleStep;
+  private String stepThruText;
+  /**
+   * Identify the state (by rule id, rule step category, and token text) at
+   * which to stop when step-thru debugging parses made with these options.
+   */
+  public void setStepThruDebugging(String ruleId, String ruleStep, String text) {
+    this.stepThruRuleId = ruleId;
+    this.stepThruRuleStep = ruleStep;
+    this.stepThruText = text;
+  }
+  public boolean hasStepThru() {
+    return stepThruRuleId != null && stepThruRuleStep != null && stepThruText != null;
+  }
+  boolean isStepThru(String ruleId, String ruleStep, String text) {
+    return hasStepThru() && stepThruRuleId.equals(ruleId) && stepThruRuleStep.equals(ruleStep) && stepThruText.equals(text);
+  }
+
   private ParseInterpreter parseInterpreter;
   /**
    * An interpreter to use with parses.
@@ -137,6 +194,9 @@ public class AtnParseOptions {
    * SkipTokenLimit = 0;             (doesn't allow for any skipped tokens)
    * FirstParseOnly = false;         (exhaust all parses)
    * AdjustInputForTokens = false;   (don't adjust input granularity)
+   * ChartParsing = false;           (don't memoize classifications across seeks)
+   * Trace = false;                  (don't trace AtnStates)
+   * TraceFlow = false;              (don't trace AtnState flow)
    * ParseInterpreter = null;        (no parse interpreter)
    * StartRules = null;              (use grammar's start rules)
    * 
@@ -147,6 +207,9 @@ public class AtnParseOptions {
     this.skipTokenLimit = 0;
     this.firstParseOnly = false;
     this.adjustInputForTokens = false;
+    this.chartParsing = false;
+    this.trace = false;
+    this.traceflow = false;
     this.parseInterpreter = null;
     this.startRules = null;
   }
@@ -159,6 +222,9 @@ public class AtnParseOptions {
    *   <skipTokenLimit>0</skipTokenLimit>
    *   <firstParseOnly>false</firstParseOnly>
    *   <adjustInputForTokens>false</adjustInputForTokens>
+   *   <chartParsing>false</chartParsing>
+   *   <trace>false</trace>
+   *   <traceflow>false</traceflow>
    *   <parseInterpreter><class>IParseInterpreter-class</class><dll>parse-interpreter-dll</dll></parseInterpreter>
    *   <start>acceptable-start-category-1</start>
    *   <start>acceptable-start-category-2</start>
@@ -178,6 +244,9 @@ public class AtnParseOptions {
    * skipTokenLimit (default=0)
    * firstParseOnly (default=false)
    * adjustInputForTokens (default=false)
+   * chartParsing (default=false)
+   * trace (default=false)
+   * traceflow (default=false)
    * parseInterpreter (default=null)
    * 
    * multiple "start" options sought from options' xml.
@@ -197,6 +266,12 @@ public class AtnParseOptions {
     this.skipTokenLimit = options.skipTokenLimit;
     this.firstParseOnly = options.firstParseOnly;
     this.adjustInputForTokens = options.adjustInputForTokens;
+    this.chartParsing = options.chartParsing;
+    this.trace = options.trace;
+    this.traceflow = options.traceflow;
+    this.stepThruRuleId = options.stepThruRuleId;
+    this.stepThruRuleStep = options.stepThruRuleStep;
+    this.stepThruText = options.stepThruText;
     this.parseInterpreter = options.parseInterpreter;
     this.startRules = options.startRules;
   }
@@ -208,6 +283,9 @@ public class AtnParseOptions {
     //   <skipTokenLimit>0</skipTokenLimit>
     //   <firstParseOnly>false</firstParseOnly>
     //   <adjustInputForTokens>false</adjustInputForTokens>
+    //   <chartParsing>false</chartParsing>
+    //   <trace>false</trace>
+    //   <traceflow>false</traceflow>
     //   <parseInterpreter><class>IParseInterpreter-class</class><dll>parse-interpreter-dll</dll></parseInterpreter>
     //   <start>acceptable-start-category-1</start>
     //   <start>acceptable-start-category-2</start>
@@ -225,6 +303,9 @@ public class AtnParseOptions {
     this.skipTokenLimit = options.getInt("skipTokenLimit", 0);
     this.firstParseOnly = options.getBoolean("firstParseOnly", false);
     this.adjustInputForTokens = options.getBoolean("adjustInputForTokens", false);
+    this.chartParsing = options.getBoolean("chartParsing", false);
+    this.trace = options.getBoolean("trace", false);
+    this.traceflow = options.getBoolean("traceflow", false);
 
     final DomElement parseInterpreterNode = (DomElement)options.getDomElement().selectSingleNode("parseInterpreter");
     setParseInterpreter(parseInterpreterNode);
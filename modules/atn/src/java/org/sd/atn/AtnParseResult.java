@@ -86,6 +86,8 @@ public class AtnParseResult {
   private int startRuleIndex;
   private DataProperties overrides;
 
+  private AtnParseChart chart;
+
   private List<AtnParse> _parses;
   private int[] _parsedRange;
   private List<ParseInterpretation> _selectedInterps;
@@ -116,7 +118,15 @@ public class AtnParseResult {
   AtnParseResult(AtnGrammar grammar, Token firstToken, int seekStartIndex,
                  AtnParseOptions options, Set<Integer> stopList,
                  DataProperties overrides, AtomicBoolean die) {
+    this(grammar, firstToken, seekStartIndex, options, stopList, overrides, die, null);
+  }
+
+  /** Construct with a (possibly null) chart shared across results. */
+  AtnParseResult(AtnGrammar grammar, Token firstToken, int seekStartIndex,
+                 AtnParseOptions options, Set<Integer> stopList,
+                 DataProperties overrides, AtomicBoolean die, AtnParseChart chart) {
     this.grammar = grammar;
+    this.chart = chart;
     this.firstToken = firstToken;
     this.seekStartIndex = seekStartIndex;
     this.options = options;
@@ -147,6 +157,14 @@ public class AtnParseResult {
     return overrides;
   }
 
+  /**
+   * Get the chart used (and shared) while computing this result's parses,
+   * or null if not chart parsing.
+   */
+  public AtnParseChart getChart() {
+    return chart;
+  }
+
   /**
    * Get the number of parses currently available in this result.
    * 
@@ -358,7 +376,7 @@ public class AtnParseResult {
       }
 
       final AtnState state = states.size() > 0 ? states.getFirst() : skipStates.getFirst();
-      success = AtnState.matchTokenToRule(grammar, states, skipStates, stopList, die);
+      success = AtnState.matchTokenToRule(grammar, states, skipStates, stopList, die, chart);
       // if (!success) System.out.println(AtnStateUtil.showStateTree(state.parentStateNode))
 
       if (success && options.getFirstParseOnly()) {
@@ -98,7 +98,10 @@ import org.sd.xml.XmlLite;
   )
 public class AtnParseRunner {
   
-  private enum InputUpdateStrategy { RESET, BROADEN, XML };
+  /**
+   * Strategy for re-presenting input to each successive ParserFlow.
+   */
+  public enum InputUpdateStrategy { RESET, BROADEN, XML };
 
 
   protected DataProperties options;
@@ -110,15 +113,23 @@ public class AtnParseRunner {
   private List<ParserFlow> activeFlow;
 
   public AtnParseRunner(DataProperties dataProperties) throws IOException {
+    this(dataProperties, ParseConfig.buildInstance(dataProperties));
+  }
+
+  /**
+   * Construct with an already loaded parseConfig.
+   */
+  public AtnParseRunner(DataProperties dataProperties, ParseConfig parseConfig) {
     this.options = dataProperties;
-    this.parseConfig = ParseConfig.buildInstance(options);
+    this.parseConfig = parseConfig;
     this.verbose = false;
     this.id2parserFlow = createParserFlow();
     this.activeFlowSpec = null;
     this.activeFlow = new ArrayList<ParserFlow>();
 
-    if (dataProperties.getBoolean("trace", false)) AtnState.setTrace(true);
-    if (dataProperties.getBoolean("traceflow", false)) AtnState.setTraceFlow(true);
+    final boolean trace = dataProperties.getBoolean("trace", false);
+    final boolean traceflow = dataProperties.getBoolean("traceflow", false);
+    if (trace || traceflow) parseConfig.setParseTrace(trace, traceflow);
 
     updateOptions();
   }
@@ -544,6 +555,19 @@ public class AtnParseRunner {
     return parseInput(inputContextIterator, InputUpdateStrategy.RESET, null, overrides, die);
   }
 
+  /**
+   * Parse input using the given inputContext iterator for input, updating
+   * the input between parser flows according to the given strategy.
+   * <p>
+   * Note that this method only reads shared parse configuration state, so
+   * it can be called concurrently over distinct inputs (see ParallelParseEngine).
+   */
+  public ParseOutputCollector parseInput(InputContextIterator inputContextIterator,
+                                         InputUpdateStrategy inputUpdateStrategy,
+                                         DataProperties overrides, AtomicBoolean die) {
+    return parseInput(inputContextIterator, inputUpdateStrategy, null, overrides, die);
+  }
+
   protected ParseOutputCollector parseInput(InputContextIterator inputContextIterator,
                                             InputUpdateStrategy inputUpdateStrategy, ParseOutputCollector result,
                                             DataProperties overrides, AtomicBoolean die) {
@@ -66,6 +66,17 @@ public class AtnParser {
     this.grammar = grammar;
   }
 
+  /**
+   * Compile this parser's grammar so that this instance can be shared by
+   * multiple threads parsing concurrently.
+   *
+   * @return this instance.
+   */
+  public AtnParser compile() {
+    grammar.compile();
+    return this;
+  }
+
   /**
    * Parse the from the tokenizer's first token according to the options.
    */
@@ -79,7 +90,7 @@ public class AtnParser {
    */
   public AtnParseResult parse(Token firstToken, AtnParseOptions options, Set<Integer> stopList,
                               DataProperties overrides, AtomicBoolean die) {
-    final AtnParseResult result = buildParseResult(firstToken, firstToken.getStartIndex(), options, stopList, overrides, die);
+    final AtnParseResult result = buildParseResult(firstToken, firstToken.getStartIndex(), options, stopList, overrides, die, buildChart(firstToken, options));
 
     // Compute at least the first parse now.
     result.continueParsing();
@@ -112,6 +123,15 @@ public class AtnParser {
    */
   public AtnParseResult seekParse(Token firstToken, AtnParseOptions options, Set<Integer> stopList,
                                   DataProperties overrides, AtomicBoolean die) {
+    return seekParse(firstToken, options, stopList, overrides, die, buildChart(firstToken, options));
+  }
+
+  /**
+   * Seek a valid parse starting with the first token, sharing the (possibly
+   * null) chart across the attempted start positions.
+   */
+  private final AtnParseResult seekParse(Token firstToken, AtnParseOptions options, Set<Integer> stopList,
+                                         DataProperties overrides, AtomicBoolean die, AtnParseChart chart) {
     if (firstToken == null) return null;
 
     // //NOTE: when seeking, must be able to leave unconsumed text.
@@ -121,23 +141,23 @@ public class AtnParser {
     //   options.setConsumeAllText(false);
     // }
 
-    if (AtnState.getTraceFlow()) {
+    if (options.getTraceFlow()) {
       System.out.println("\tAtnParser seeking from firstToken=" + firstToken);
     }
 
     final int seekStartIndex = firstToken.getStartIndex();
-    AtnParseResult result = buildParseResult(firstToken, seekStartIndex, options, stopList, overrides, die);
+    AtnParseResult result = buildParseResult(firstToken, seekStartIndex, options, stopList, overrides, die, chart);
     result.continueParsing();
 
     while (result.getNumParses() == 0 && !options.getConsumeAllText()) {
       firstToken = getSmallestToken(firstToken).getNextToken();
       if (firstToken == null) break;
 
-      if (AtnState.getTraceFlow()) {
+      if (options.getTraceFlow()) {
         System.out.println("\tAtnParser re-seeking from firstToken=" + firstToken);
       }
 
-      result = buildParseResult(firstToken, seekStartIndex, options, stopList, overrides, die);
+      result = buildParseResult(firstToken, seekStartIndex, options, stopList, overrides, die, chart);
       result.continueParsing();
     }
 
@@ -149,9 +169,12 @@ public class AtnParser {
    */
   public AtnParseResult seekNextParse(AtnParse lastParse, AtnParseOptions options, Set<Integer> stopList,
                                       DataProperties overrides, AtomicBoolean die) {
+    AtnParseChart chart = lastParse.getParseResult().getChart();
+    if (chart == null) chart = buildChart(lastParse.getNextToken(), options);
+
     return
       (!options.getConsumeAllText() && lastParse.getNextToken() != null) ?
-      seekParse(lastParse.getNextToken(), options, stopList, overrides, die) :
+      seekParse(lastParse.getNextToken(), options, stopList, overrides, die, chart) :
       null;
   }
 
@@ -220,8 +243,17 @@ public class AtnParser {
   }
 
   private final AtnParseResult buildParseResult(Token firstToken, int seekStartIndex, AtnParseOptions options,
-                                                Set<Integer> stopList, DataProperties overrides, AtomicBoolean die) {
-    return new AtnParseResult(grammar, firstToken, seekStartIndex, options, stopList, overrides, die);
+                                                Set<Integer> stopList, DataProperties overrides, AtomicBoolean die,
+                                                AtnParseChart chart) {
+    return new AtnParseResult(grammar, firstToken, seekStartIndex, options, stopList, overrides, die, chart);
+  }
+
+  /**
+   * Build a chart for the token's tokenizer if the options call for chart
+   * parsing; otherwise, null.
+   */
+  private final AtnParseChart buildChart(Token firstToken, AtnParseOptions options) {
+    return (firstToken != null && options.getChartParsing()) ? new AtnParseChart(firstToken.getTokenizer()) : null;
   }
 
   private final Token getSmallestToken(Token firstToken) {
@@ -0,0 +1,246 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.atn;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.sd.io.FileUtil;
+import org.sd.token.StandardTokenizerFactory;
+import org.sd.token.StandardTokenizerOptions;
+import org.sd.token.TokenRevisionStrategy;
+import org.sd.token.Tokenizer;
+import org.sd.util.StatsAccumulator;
+import org.sd.util.tree.Tree;
+import org.sd.xml.DomElement;
+import org.sd.xml.XmlFactory;
+
+/**
+ * Simple utility to compare seekAll parsing speed with and without chart
+ * parsing.
+ * <p>
+ * Each input is parsed both ways, verifying that the parses are identical
+ * and accumulating times for each. When no grammar is given, a sample
+ * grammar is applied to generated multi-kilobyte text.
+ *
+ * @author Spence Koehler
+ */
+public class AtnParserSpeedTest {
+  
+  public static final String SAMPLE_GRAMMAR =
+    "<grammar>" +
+    "<classifiers>" +
+    "<month><jclass>org.sd.atn.RoteListClassifier</jclass><terms caseSensitive='false'>" +
+    "<term>january</term><term>february</term><term>march</term><term>april</term><term>may</term><term>june</term>" +
+    "<term>july</term><term>august</term><term>september</term><term>october</term><term>november</term><term>december</term>" +
+    "</terms></month>" +
+    "<num><jclass>org.sd.atn.RoteListClassifier</jclass><regexes><regex type='matches'>^[0-9]+$</regex></regexes></num>" +
+    "<word><jclass>org.sd.atn.RoteListClassifier</jclass><regexes><regex type='matches'>^[A-Za-z]+$</regex></regexes></word>" +
+    "</classifiers>" +
+    "<rules>" +
+    "<event start='true'><word repeats='true'/><date/></event>" +
+    "<date><month/><num/><num optional='true'/></date>" +
+    "</rules>" +
+    "</grammar>";
+
+  private static final String[] SAMPLE_WORDS = new String[] {
+    "the", "meeting", "was", "moved", "after", "a", "long", "discussion", "about", "budget",
+    "and", "plans", "for", "next", "year", "with", "all", "members", "present",
+  };
+
+  private static final String SAMPLE_DATE = "March 14 2011";
+  private static final String SAMPLE_NUMBER = "42";
+
+
+  private AtnParser parser;
+  private AtnParseOptions options;
+  private AtnParseOptions chartOptions;
+  private StandardTokenizerOptions tokenizerOptions;
+  private StatsAccumulator unchartedTimes;
+  private StatsAccumulator chartedTimes;
+  private long chartHits;
+  private long chartMisses;
+  private long chartStepHits;
+  private int numMismatches;
+
+  public AtnParserSpeedTest(AtnParser parser, AtnParseOptions options, StandardTokenizerOptions tokenizerOptions) {
+    this.parser = parser;
+    this.options = new AtnParseOptions(options);
+    this.options.setChartParsing(false);
+    this.chartOptions = new AtnParseOptions(options);
+    this.chartOptions.setChartParsing(true);
+    this.tokenizerOptions = tokenizerOptions == null ? StandardTokenizerFactory.DEFAULT_OPTIONS : tokenizerOptions;
+
+    this.unchartedTimes = new StatsAccumulator("unchartedTimes");
+    this.chartedTimes = new StatsAccumulator("chartedTimes");
+    this.chartHits = 0;
+    this.chartMisses = 0;
+    this.chartStepHits = 0;
+    this.numMismatches = 0;
+  }
+
+  public StatsAccumulator getUnchartedTimes() {
+    return unchartedTimes;
+  }
+
+  public StatsAccumulator getChartedTimes() {
+    return chartedTimes;
+  }
+
+  public long getChartHits() {
+    return chartHits;
+  }
+
+  public long getChartMisses() {
+    return chartMisses;
+  }
+
+  public long getChartStepHits() {
+    return chartStepHits;
+  }
+
+  /**
+   * Get the number of inputs whose charted parses differed from uncharted.
+   */
+  public int getNumMismatches() {
+    return numMismatches;
+  }
+
+  public void analyze(File file) throws IOException {
+    analyze(FileUtil.readAsString(file));
+  }
+
+  public void analyze(String inputString) {
+    final long unchartedStart = System.currentTimeMillis();
+    final List<String> uncharted = seekAll(inputString, options);
+    unchartedTimes.add(System.currentTimeMillis() - unchartedStart);
+
+    final long chartedStart = System.currentTimeMillis();
+    final List<String> charted = seekAll(inputString, chartOptions);
+    chartedTimes.add(System.currentTimeMillis() - chartedStart);
+
+    if (!uncharted.equals(charted)) {
+      ++numMismatches;
+    }
+  }
+
+  private final List<String> seekAll(String inputString, AtnParseOptions options) {
+    final List<String> result = new ArrayList<String>();
+
+    final Tokenizer tokenizer = StandardTokenizerFactory.getTokenizer(inputString, tokenizerOptions);
+    final List<AtnParseResult> parseResults = parser.seekAll(tokenizer, options, null, null, null);
+
+    for (AtnParseResult parseResult : parseResults) {
+      parseResult.generateParses(0);
+      for (int parseNum = 0; parseNum < parseResult.getNumParses(); ++parseNum) {
+        final AtnParse parse = parseResult.getParse(parseNum);
+        if (parse.getSelected()) {
+          final Tree<String> parseTree = parse.getParseTree();
+          result.add(parse.getStartIndex() + ":" + parseTree.toString());
+        }
+      }
+
+      final AtnParseChart chart = parseResult.getChart();
+      if (chart != null) {
+        // NOTE: results from a single seekAll share the chart, so just keep the latest counts
+        chartHits = chart.getHits();
+        chartMisses = chart.getMisses();
+        chartStepHits = chart.getStepHits();
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Generate sample text having numWords words where every segmentSize words
+   * are followed alternately by a date or by a lone number.
+   * <p>
+   * Words before a lone number can't be parsed, so seeking re-parses from
+   * each of the segment's start positions up to the number.
+   */
+  public static String generateSampleText(int numWords, int segmentSize) {
+    final StringBuilder result = new StringBuilder();
+
+    for (int wordNum = 0; wordNum < numWords; ++wordNum) {
+      if (result.length() > 0) result.append(' ');
+      result.append(SAMPLE_WORDS[wordNum % SAMPLE_WORDS.length]);
+
+      if (((wordNum + 1) % segmentSize) == 0) {
+        final boolean addDate = (((wordNum + 1) / segmentSize) % 2) == 0;
+        result.append(' ').append(addDate ? SAMPLE_DATE : SAMPLE_NUMBER);
+      }
+    }
+
+    return result.toString();
+  }
+
+
+  //java -Xmx640m org.sd.atn.AtnParserSpeedTest [grammarFile [input ...]]
+  public static void main(String[] args) throws IOException {
+    final DomElement grammarElement =
+      args.length > 0 ?
+      (DomElement)XmlFactory.loadDocument(new File(args[0]), false).getDocumentElement() :
+      (DomElement)XmlFactory.loadDocument(SAMPLE_GRAMMAR, false).getDocumentElement();
+
+    final ResourceManager resourceManager = new ResourceManager();
+    final AtnParser parser = new AtnParser(grammarElement, resourceManager);
+    final AtnParseOptions options = new AtnParseOptions(resourceManager);
+
+    final AtnParserSpeedTest tester = new AtnParserSpeedTest(parser, options, null);
+
+    if (args.length > 1) {
+      for (int argNum = 1; argNum < args.length; ++argNum) {
+        final File file = new File(args[argNum]);
+        if (file.exists()) {
+          tester.analyze(file);
+        }
+        else {
+          tester.analyze(args[argNum]);
+        }
+      }
+    }
+    else {
+      // time increasing input sizes (~2K to ~16K characters) over single-word tokens
+      final StandardTokenizerOptions tokenizerOptions = new StandardTokenizerOptions();
+      tokenizerOptions.setRevisionStrategy(TokenRevisionStrategy.SO);
+
+      for (int numWords = 400; numWords <= 3200; numWords *= 2) {
+        final String text = generateSampleText(numWords, 100);
+        final AtnParserSpeedTest sizeTester = new AtnParserSpeedTest(parser, options, tokenizerOptions);
+        for (int rep = 0; rep < 3; ++rep) {
+          sizeTester.analyze(text);
+        }
+        System.out.println(text.length() + " chars: uncharted=" + sizeTester.getUnchartedTimes().getMean() +
+                           "ms charted=" + sizeTester.getChartedTimes().getMean() + "ms" +
+                           " chartHits=" + sizeTester.getChartHits() + " chartMisses=" + sizeTester.getChartMisses() +
+                           " chartStepHits=" + sizeTester.getChartStepHits() +
+                           " mismatches=" + sizeTester.getNumMismatches());
+      }
+      return;
+    }
+
+    System.out.println(tester.getUnchartedTimes());
+    System.out.println(tester.getChartedTimes());
+    System.out.println("chartHits=" + tester.getChartHits() + " chartMisses=" + tester.getChartMisses() +
+                       " chartStepHits=" + tester.getChartStepHits() + " mismatches=" + tester.getNumMismatches());
+  }
+}
@@ -79,6 +79,23 @@ public class AtnState {
   AtnParseOptions parseOptions;
   int skipNum;
 
+  private AtnParseChart chart;
+  /**
+   * Get the (possibly null) chart memoizing classifications for the parse
+   * in which this state is being matched.
+   */
+  public AtnParseChart getChart() {
+    return chart;
+  }
+
+  /**
+   * Classify the token in the context of this state, using the parse's
+   * chart (if any) for memoized classifications.
+   */
+  public MatchResult classify(AtnStateTokenClassifier classifier, Token token) {
+    return (chart == null) ? classifier.classify(token, this) : chart.classify(classifier, token, this);
+  }
+
 
   private MatchResult matchResult;
   public boolean getMatched() {
@@ -176,6 +193,14 @@ public class AtnState {
     return pushState == getParentState();
   }
 
+  private final boolean trace() {
+    return parseOptions.getTrace();
+  }
+
+  private final boolean traceflow() {
+    return parseOptions.getTraceFlow();
+  }
+
   private boolean verifyPop() {
     return rule.verifyPop(this.inputToken, this);
   }
@@ -223,6 +248,7 @@ public class AtnState {
     this.stepNum = other.stepNum;
     this.parentStateNode = other.parentStateNode;
     this.parseOptions = other.parseOptions;
+    this.chart = other.chart;
     this.repeatNum = other.repeatNum;
     this.skipNum = other.skipNum;
     this.matchResult = other.matchResult;
@@ -353,12 +379,12 @@ public class AtnState {
 //        final int repeatNum = AtnStateUtil.countRepeats(this);
         result = (repeatNum + 1) >= stepRepeatLimit;
 
-        if (traceflow || ruleStep.getVerbose()) {
+        if (traceflow() || ruleStep.getVerbose()) {
           System.out.println("traceflow--AtnState repeatNum=" + repeatNum + " (" + this.repeatNum + ") " + this.toString());
         }
 
         if (result) {
-          if (traceflow || ruleStep.getVerbose()) {
+          if (traceflow() || ruleStep.getVerbose()) {
             System.out.println("traceflow--AtnState reachedRepeatLimit " + this.toString());
           }
         }
@@ -384,7 +410,7 @@ public class AtnState {
         result = constituentTokenCount >= ruleTokenLimit;
 
         if (result) {
-          if (traceflow || getRuleStep().getVerbose()) {
+          if (traceflow() || getRuleStep().getVerbose()) {
             System.out.println("traceflow--AtnState reachedTokenLimit " + this.toString());
           }
         }
@@ -623,7 +649,7 @@ public class AtnState {
       }
     }
     
-    if (traceflow || step.getVerbose()) {
+    if (traceflow() || step.getVerbose()) {
       final boolean hasRequire = step.getRequire() != null;
       final boolean hasUnless = step.getUnless() != null;
       if (hasRequire || hasUnless) {
@@ -797,9 +823,18 @@ public class AtnState {
 
   /**
    * Determine whether this instance's token matches the step category
-   * according to the grammar.
+   * according to the grammar, using the parse's chart (if any) for a
+   * memoized step match.
    */
   MatchResult tokenMatchesStepCategory(AtnGrammar grammar) {
+    return (chart == null) ? computeTokenMatch(grammar) : chart.matchStep(this, grammar);
+  }
+
+  /**
+   * Compute whether this instance's token matches the step category
+   * according to the grammar.
+   */
+  MatchResult computeTokenMatch(AtnGrammar grammar) {
     MatchResult result = null;
     boolean matched = false;
 
@@ -813,7 +848,7 @@ public class AtnState {
 
       if (grammar.getCat2Classifiers().containsKey(category)) {
         for (AtnStateTokenClassifier classifier : grammar.getCat2Classifiers().get(category)) {
-          final MatchResult matchResult = classifier.classify(inputToken, this);
+          final MatchResult matchResult = classify(classifier, inputToken);
           if (matchResult.matched()) {
             if (applyTests()) {
               result = matchResult;
@@ -939,7 +974,7 @@ public class AtnState {
         else {
           // back out of popping
           while (states.size() > statesSize) {
-            if (trace || getRuleStep().getVerbose() || popState.getRuleStep().getVerbose()) {
+            if (trace() || getRuleStep().getVerbose() || popState.getRuleStep().getVerbose()) {
               System.out.println("Failed pop backup ... removing queued state:\n  " + states.getLast().showStateContext() /*states.getLast().showStatePath()*/);
             }
             states.removeLast();
@@ -952,7 +987,7 @@ public class AtnState {
           popState.popFailed = true;
           popStateNode.addChild(popState);
 
-          if (trace || getRuleStep().getVerbose() || popState.getRuleStep().getVerbose()) {
+          if (trace() || getRuleStep().getVerbose() || popState.getRuleStep().getVerbose()) {
             System.out.println("POP tests FAILED\t" + popState.showStateContext());
             popState.applyTests();  // NOTE: this is here for debug stepping when tests fail unexpectedly
           }
@@ -965,7 +1000,7 @@ public class AtnState {
             popState.popFailed = true;
             popStateNode.addChild(popState);
 
-            if (trace || getRuleStep().getVerbose() || popState.getRuleStep().getVerbose()) {
+            if (trace() || getRuleStep().getVerbose() || popState.getRuleStep().getVerbose()) {
               System.out.println("POP verification FAILED\t" + popState.showStateContext());
             }
 
@@ -988,7 +1023,7 @@ public class AtnState {
             popState.popFailed = true;
             popStateNode.addChild(popState);
 
-            if (trace || getRuleStep().getVerbose() || popState.getRuleStep().getVerbose()) {
+            if (trace() || getRuleStep().getVerbose() || popState.getRuleStep().getVerbose()) {
               System.out.println("POP " + (!result ? "tests" : "verification") + " FAILED\t" + popState.showStateContext());
             }
 
@@ -1008,7 +1043,7 @@ public class AtnState {
 
         popStateNode = popStateNode.addChild(popState);
 
-        if (trace || getRuleStep().getVerbose() || popState.getRuleStep().getVerbose()) {
+        if (trace() || getRuleStep().getVerbose() || popState.getRuleStep().getVerbose()) {
           System.out.println("POP \t" + popState.showStateContext() /*popState.showStateTree(true)*/);
         }
 
@@ -1025,7 +1060,7 @@ public class AtnState {
             skipStatesSize = skipStates.size();
 
             if (!popState.isRuleEnd(false)) {
-              if (trace || getRuleStep().getVerbose() || popState.getRuleStep().getVerbose()) {
+              if (trace() || getRuleStep().getVerbose() || popState.getRuleStep().getVerbose()) {
                 System.out.println("\t *** POP not ruleEnd!");
               }
 
@@ -1056,7 +1091,7 @@ public class AtnState {
       }
     }
     else {
-      if (trace || getRuleStep().getVerbose() || nextStateNode.getData().getRuleStep().getVerbose()) {
+      if (trace() || getRuleStep().getVerbose() || nextStateNode.getData().getRuleStep().getVerbose()) {
         System.out.println("POP FAIL (NotRuleEnd)\t" + nextStateNode.getData().showStateContext() /*nextStateNode.getData().showStateTree(true)*/);
       }
     }
@@ -1086,7 +1121,7 @@ public class AtnState {
     // check for contradiction earlier in the state tree
     boolean result = clusterConditionFailsBackward();
 
-    if (result && (trace || getRuleStep().getVerbose())) {
+    if (result && (trace() || getRuleStep().getVerbose())) {
       System.out.println("***Cluster condition fails (backward) for state: ***\n" + showStateContext() /*showStateTree(true)*/);
     }
 
@@ -1097,7 +1132,7 @@ public class AtnState {
         // check for contradition later in the state tree
         result = clusterConditionFailsForward(hasClusterFlag);
 
-        if (result && (trace || getRuleStep().getVerbose())) {
+        if (result && (trace() || getRuleStep().getVerbose())) {
           System.out.println("***Cluster condition fails (forward) for state: ***\n" + showStateContext() /*showStateTree(true)*/);
         }
       }
@@ -1105,7 +1140,7 @@ public class AtnState {
         // check this 'cluster' state against those on the queue
         result = removeInvalidQueuedStates(states);
 
-        if (result && (trace || getRuleStep().getVerbose())) {
+        if (result && (trace() || getRuleStep().getVerbose())) {
           System.out.println("***Cluster condition fails (queued) for state: ***\n" + showStateContext() /*showStateTree(true)*/);
         }
       }
@@ -1203,7 +1238,7 @@ public class AtnState {
       final Tree<AtnState> forwardMatchNode = findNode(forwardStateNode, curCat, tokenStart, tokenEnd, hasClusterFlag);
       if (forwardMatchNode != null) {
         if (hasClusterFlag) {
-          if (trace || getRuleStep().getVerbose() ||
+          if (trace() || getRuleStep().getVerbose() ||
               forwardMatchNode.getData().getRuleStep().getVerbose() ||
               parentStateNode.getData().getRuleStep().getVerbose()) {
             System.out.println("Forward cluster failure ... moving state:\n" +
@@ -1279,7 +1314,7 @@ public class AtnState {
 
           if (thisPrecedes) {
             // if this comes sooner, remove state and don't fail to add this
-            if (trace || getRuleStep().getVerbose() || state.getRuleStep().getVerbose()) {
+            if (trace() || getRuleStep().getVerbose() || state.getRuleStep().getVerbose()) {
               System.out.println("Failed cluster condition ... removing queued state:\n" + state.showStateContext() /*state.showStatePath()*/);
             }
             stateIter.remove();
@@ -1332,7 +1367,7 @@ public class AtnState {
 
           if (thisPrecedes) {
             // if this doesn't come sooner, remove state and don't fail to add this
-            if (trace || getRuleStep().getVerbose() || state.getRuleStep().getVerbose()) {
+            if (trace() || getRuleStep().getVerbose() || state.getRuleStep().getVerbose()) {
               System.out.println("Failed cluster condition ... removing queued state:\n" + state.showStateContext() /*state.showStatePath()*/);
             }
             stateIter.remove();
@@ -1410,32 +1445,6 @@ public class AtnState {
   }
 
 
-  private static boolean trace = false;
-  private static boolean traceflow = false;
-  private static boolean stepThruFlag = false;
-  private static String stepThruRuleId = null;
-  private static String stepThruRuleStep = null;
-  private static String stepThruText = null;
-
-  public static final void setTrace(boolean traceValue) {
-    trace = traceValue;
-  }
-
-  public static final void setTraceFlow(boolean traceflowValue) {
-    traceflow = traceflowValue;
-  }
-
-  public static final boolean getTraceFlow() {
-    return traceflow;
-  }
-
-  public static final void setStepThruDebugging(String ruleId, String ruleStep, String text) {
-    stepThruFlag = (ruleId != null && ruleStep != null && text != null);
-    stepThruRuleId = ruleId;
-    stepThruRuleStep = ruleStep;
-    stepThruText = text;
-  }
-
   static List<CategorizedToken> computeTokens(Tree<AtnState> stateNode) {
     final List<CategorizedToken> result = new ArrayList<CategorizedToken>();
     final LinkedList<Tree<AtnState>> stateNodes = stateNode.getRootPath();
@@ -1452,16 +1461,19 @@ public class AtnState {
   }
 
   static boolean matchTokenToRule(AtnGrammar grammar, LinkedList<AtnState> states, LinkedList<AtnState> skipStates, Set<Integer> stopList, AtomicBoolean die) {
+    return matchTokenToRule(grammar, states, skipStates, stopList, die, null);
+  }
+
+  static boolean matchTokenToRule(AtnGrammar grammar, LinkedList<AtnState> states, LinkedList<AtnState> skipStates, Set<Integer> stopList, AtomicBoolean die, AtnParseChart chart) {
     boolean result = false;
 
     while ((states.size() + skipStates.size() > 0) && !result && (die == null || !die.get())) {
       final AtnState curstate = states.size() > 0 ? states.removeFirst() : skipStates.removeFirst();
+      curstate.chart = chart;
 
-      if (stepThruFlag || traceflow || curstate.getRuleStep().getVerbose()) {
-        if (traceflow || curstate.getRuleStep().getVerbose() ||
-            ((stepThruRuleId != null && stepThruRuleId.equals(curstate.getRule().getRuleId())) &&
-             (stepThruRuleStep != null && stepThruRuleStep.equals(curstate.getRuleStep().getCategory())) &&
-             (stepThruText != null && stepThruText.equals(curstate.getInputToken().getText())))) {
+      if (curstate.parseOptions.hasStepThru() || curstate.traceflow() || curstate.getRuleStep().getVerbose()) {
+        if (curstate.traceflow() || curstate.getRuleStep().getVerbose() ||
+            curstate.parseOptions.isStepThru(curstate.getRule().getRuleId(), curstate.getRuleStep().getCategory(), curstate.getInputToken().getText())) {
           // set a breakpoint on the following line when using stepThru debugging
           final boolean stopHere = true;
         }
@@ -1473,7 +1485,7 @@ public class AtnState {
       boolean matches = meetsRequirements;
       if (matches) {
 
-        if (traceflow || curstate.getRuleStep().getVerbose()) {
+        if (curstate.traceflow() || curstate.getRuleStep().getVerbose()) {
           System.out.println("traceflow--AtnState matching " + curstate.toString());
         }
 
@@ -1482,7 +1494,7 @@ public class AtnState {
       }
       final Tree<AtnState> nextStateNode = curstate.parentStateNode.addChild(curstate);
 
-      if (trace || curstate.getRuleStep().getVerbose()) {
+      if (curstate.trace() || curstate.getRuleStep().getVerbose()) {
         System.out.println("match=" + matches + "\t" + curstate.showStateContext() /*curstate.showStateTree(matches)*/);
       }
 
@@ -1490,7 +1502,7 @@ public class AtnState {
 
       if (matches) {
 
-        if (traceflow || curstate.getRuleStep().getVerbose()) {
+        if (curstate.traceflow() || curstate.getRuleStep().getVerbose()) {
           System.out.println("traceflow--AtnState MATCH " + curstate.toString());
         }
 
@@ -1517,7 +1529,7 @@ public class AtnState {
       success = addNextStates(grammar, states, skipStates, curstate, nextStateNode,
                               false, matches, stopList, meetsRequirements);
 
-      if ((traceflow || curstate.getRuleStep().getVerbose()) && (states.size() + skipStates.size() == 0)) {
+      if ((curstate.traceflow() || curstate.getRuleStep().getVerbose()) && (states.size() + skipStates.size() == 0)) {
         System.out.println("traceflow--AtnState EXHAUSTED at " + curstate.toString());
       }
     }
@@ -1603,7 +1615,7 @@ public class AtnState {
 
     final boolean reachedTokenLimit = curstate.reachedTokenLimit();
 
-    if ((traceflow || curstate.getRuleStep().getVerbose()) && reachedTokenLimit) {
+    if ((curstate.traceflow() || curstate.getRuleStep().getVerbose()) && reachedTokenLimit) {
       System.out.println("traceflow--AtnState reachedTokenLimit at " + curstate.toString() + " (not adding pushes or skips)");
     }
 
@@ -1730,13 +1742,13 @@ public class AtnState {
     }
 
     if (!isDup) {
-      if (trace || nextstate.getRuleStep().getVerbose()) {
+      if (nextstate.trace() || nextstate.getRuleStep().getVerbose()) {
         System.out.println("\nQueuing State: " + nextstate.showStateContext() /*nextstate.showStatePath()*/);
       }
       states.addLast(nextstate);
     }
     else {
-      if (trace || nextstate.getRuleStep().getVerbose()) {
+      if (nextstate.trace() || nextstate.getRuleStep().getVerbose()) {
         System.out.println("\nDiscarding State (clusterFail=" + !result + "): " + nextstate.showStateContext() /*nextstate.showStatePath()*/);
       }
     }
@@ -100,6 +100,14 @@ public class DigitsClassifier extends RoteListClassifier {
     this.ignoreLetters = classifierIdElement.getAttributeBoolean("ignoreLetters", false);
   }
   
+  /**
+   * Not context free because the feature is only added when the token
+   * doesn't already have one of its type.
+   */
+  public boolean isContextFree() {
+    return false;
+  }
+
   public boolean doClassify(Token token, AtnState atnState) {
     boolean result = false;
 
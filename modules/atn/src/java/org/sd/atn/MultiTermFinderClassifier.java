@@ -78,6 +78,13 @@ public class MultiTermFinderClassifier extends AbstractAtnStateTokenClassifier {
     init(supplementNode.asDomElement());
   }
 
+  /**
+   * Term finding only depends on the token's text.
+   */
+  public boolean isContextFree() {
+    return true;
+  }
+
   public boolean doClassify(Token token, AtnState atnState) {
     return doClassification(token.getTextWithDelims());
   }
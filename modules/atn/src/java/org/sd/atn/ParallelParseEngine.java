@@ -0,0 +1,373 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.atn;
+
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.sd.util.InputContextIterator;
+import org.sd.xml.DataProperties;
+import org.sd.xml.DomElement;
+
+/**
+ * Engine for parsing multiple documents concurrently through an AtnParseRunner.
+ * <p>
+ * Documents are fed through a bounded queue to a fixed number of worker
+ * threads. Each worker parses a whole document through the runner's active
+ * parser flows (honoring the document's InputUpdateStrategy between flows)
+ * into a ParseOutputCollector of its own, so no parse state is shared between
+ * workers; only the runner's grammars and resources are shared (read-only).
+ * <p>
+ * Each document's output is handed to a DocumentHandler either in document
+ * (submission) order or in completion order. Handler calls are serialized,
+ * so handlers need not be thread-safe. In document order, no more than a
+ * reorder window of documents (REORDER_FACTOR*numWorkers, but at least
+ * queueSize+numWorkers) may be submitted but undelivered, so a slow document
+ * stalls submission rather than letting completed outputs pile up behind it.
+ * <p>
+ * The runner's parse flow must not be changed while the engine is running.
+ * <p>
+ * @author Spence Koehler
+ */
+public class ParallelParseEngine {
+  
+  /**
+   * Container for a document to be parsed.
+   */
+  public static final class ParseDocument {
+    private InputContextIterator input;
+    private AtnParseRunner.InputUpdateStrategy inputUpdateStrategy;
+    private ParseSourceInfo sourceInfo;
+
+    public ParseDocument(InputContextIterator input, AtnParseRunner.InputUpdateStrategy inputUpdateStrategy, ParseSourceInfo sourceInfo) {
+      this.input = input;
+      this.inputUpdateStrategy = inputUpdateStrategy;
+      this.sourceInfo = sourceInfo;
+    }
+
+    public InputContextIterator getInput() {
+      return input;
+    }
+
+    public AtnParseRunner.InputUpdateStrategy getInputUpdateStrategy() {
+      return inputUpdateStrategy;
+    }
+
+    public ParseSourceInfo getSourceInfo() {
+      return sourceInfo;
+    }
+  }
+
+  /**
+   * Interface for receiving each document's parse output.
+   */
+  public static interface DocumentHandler {
+    /**
+     * Handle the output of the docNum-th (0-based, in submission order)
+     * document.
+     */
+    public void handle(int docNum, ParseDocument document, ParseOutputCollector output);
+  }
+
+
+  private static final long POLL_MILLIS = 100;
+
+  /**
+   * Multiple of the number of workers bounding documents awaiting ordered
+   * delivery.
+   */
+  public static final int REORDER_FACTOR = 4;
+
+  private AtnParseRunner runner;
+  private int numWorkers;
+  private int queueSize;
+  private boolean ordered;
+
+  /**
+   * Construct with settings from the runner's options:
+   * <ul>
+   * <li>numWorkers -- (optional, default=number of available processors)</li>
+   * <li>queueSize -- (optional, default=2*numWorkers) bound on queued documents</li>
+   * <li>orderedOutput -- (optional, default=true) true to deliver outputs in document order</li>
+   * </ul>
+   */
+  public ParallelParseEngine(AtnParseRunner runner) {
+    this(runner,
+         runner.getOptions().getInt("numWorkers", Runtime.getRuntime().availableProcessors()),
+         runner.getOptions().getInt("queueSize", 0),
+         runner.getOptions().getBoolean("orderedOutput", true));
+  }
+
+  /**
+   * Construct with the given settings.
+   *
+   * @param runner  the (configured) runner whose active flow is applied to each document.
+   * @param numWorkers  the number of parsing threads.
+   * @param queueSize  the maximum number of documents waiting for a worker
+   *                   (if not positive, defaults to 2*numWorkers).
+   * @param ordered  true to deliver outputs in document order; false to
+   *                 deliver outputs as soon as they are complete.
+   */
+  public ParallelParseEngine(AtnParseRunner runner, int numWorkers, int queueSize, boolean ordered) {
+    this.runner = runner;
+    this.numWorkers = Math.max(1, numWorkers);
+    this.queueSize = (queueSize > 0) ? queueSize : 2 * this.numWorkers;
+    this.ordered = ordered;
+  }
+
+  public int getNumWorkers() {
+    return numWorkers;
+  }
+
+  public int getQueueSize() {
+    return queueSize;
+  }
+
+  public boolean isOrdered() {
+    return ordered;
+  }
+
+  /**
+   * Get the maximum number of documents submitted but not yet delivered when
+   * delivering in document order.
+   */
+  public int getReorderWindow() {
+    return Math.max(REORDER_FACTOR * numWorkers, queueSize + numWorkers);
+  }
+
+  /**
+   * Parse all documents, merging their parse results into a single output
+   * collector.
+   */
+  public ParseOutputCollector parse(Iterator<ParseDocument> documents, DataProperties overrides, AtomicBoolean die) {
+    final MergingHandler mergingHandler = new MergingHandler();
+    parse(documents, overrides, mergingHandler, die);
+    return mergingHandler.getOutput();
+  }
+
+  /**
+   * Parse all documents, sending each document's output to the handler.
+   * <p>
+   * Processing stops early if die is set, in which case undelivered outputs
+   * are dropped.
+   *
+   * @return the number of documents whose output was delivered.
+   */
+  public int parse(Iterator<ParseDocument> documents, DataProperties overrides,
+                   DocumentHandler handler, AtomicBoolean die) {
+
+    final BlockingQueue<Job> queue = new ArrayBlockingQueue<Job>(queueSize);
+    final Semaphore window = ordered ? new Semaphore(getReorderWindow()) : null;
+    final Collator collator = new Collator(handler, window);
+    final AtomicBoolean halt = new AtomicBoolean(false);
+
+    final Thread[] workers = new Thread[numWorkers];
+    for (int i = 0; i < numWorkers; ++i) {
+      workers[i] = new Thread(new Worker(queue, collator, overrides, die, halt), "ParallelParseEngine-" + i);
+      workers[i].setDaemon(true);
+      workers[i].start();
+    }
+
+    try {
+      // feed the workers
+      int docNum = 0;
+      while (documents.hasNext() && !isHalted(die, halt)) {
+        if (window != null) {
+          // wait for room in the reorder window
+          boolean acquired = window.tryAcquire(POLL_MILLIS, TimeUnit.MILLISECONDS);
+          while (!acquired && !isHalted(die, halt)) {
+            acquired = window.tryAcquire(POLL_MILLIS, TimeUnit.MILLISECONDS);
+          }
+          if (!acquired) break;
+        }
+
+        final Job job = new Job(docNum++, documents.next());
+        while (!queue.offer(job, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+          if (isHalted(die, halt)) break;
+        }
+      }
+
+      // signal end of input
+      for (int i = 0; i < numWorkers; ++i) {
+        while (!queue.offer(Job.END, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+          if (isHalted(die, halt)) break;
+        }
+      }
+
+      for (Thread worker : workers) {
+        worker.join();
+      }
+    }
+    catch (InterruptedException e) {
+      halt.set(true);
+      for (Thread worker : workers) worker.interrupt();
+      Thread.currentThread().interrupt();
+    }
+
+    collator.checkError();
+
+    return collator.getNumDelivered();
+  }
+
+  private static final boolean isHalted(AtomicBoolean die, AtomicBoolean halt) {
+    return halt.get() || (die != null && die.get());
+  }
+
+
+  private static final class Job {
+    static final Job END = new Job(-1, null);
+
+    final int docNum;
+    final ParseDocument document;
+    ParseOutputCollector output;
+
+    Job(int docNum, ParseDocument document) {
+      this.docNum = docNum;
+      this.document = document;
+      this.output = null;
+    }
+  }
+
+  private final class Worker implements Runnable {
+    private BlockingQueue<Job> queue;
+    private Collator collator;
+    private DataProperties overrides;
+    private AtomicBoolean die;
+    private AtomicBoolean halt;
+
+    Worker(BlockingQueue<Job> queue, Collator collator, DataProperties overrides, AtomicBoolean die, AtomicBoolean halt) {
+      this.queue = queue;
+      this.collator = collator;
+      this.overrides = overrides;
+      this.die = die;
+      this.halt = halt;
+    }
+
+    public void run() {
+      try {
+        while (!isHalted(die, halt)) {
+          final Job job = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+          if (job == null) continue;
+          if (job == Job.END) break;
+
+          final ParseDocument document = job.document;
+          final AtnParseRunner.InputUpdateStrategy strategy =
+            (document.getInputUpdateStrategy() == null) ? AtnParseRunner.InputUpdateStrategy.RESET : document.getInputUpdateStrategy();
+
+          job.output = runner.parseInput(document.getInput(), strategy, overrides, die);
+          if (document.getSourceInfo() != null) job.output.setParseSourceInfo(document.getSourceInfo());
+
+          if (!isHalted(die, halt)) {
+            collator.deliver(job);
+          }
+        }
+      }
+      catch (InterruptedException e) {
+        // time to go
+      }
+      catch (RuntimeException e) {
+        halt.set(true);
+        collator.setError(e);
+      }
+    }
+  }
+
+  /**
+   * Serializes delivery of outputs to the handler, buffering out-of-order
+   * outputs when ordered.
+   */
+  private final class Collator {
+    private DocumentHandler handler;
+    private Semaphore window;
+    private Map<Integer, Job> pending;
+    private int nextDocNum;
+    private int numDelivered;
+    private RuntimeException error;
+
+    Collator(DocumentHandler handler, Semaphore window) {
+      this.handler = handler;
+      this.window = window;
+      this.pending = ordered ? new TreeMap<Integer, Job>() : null;
+      this.nextDocNum = 0;
+      this.numDelivered = 0;
+      this.error = null;
+    }
+
+    synchronized void deliver(Job job) {
+      if (!ordered) {
+        doDeliver(job);
+      }
+      else {
+        pending.put(job.docNum, job);
+
+        for (Job nextJob = pending.remove(nextDocNum); nextJob != null; nextJob = pending.remove(nextDocNum)) {
+          doDeliver(nextJob);
+          ++nextDocNum;
+          if (window != null) window.release();
+        }
+      }
+    }
+
+    private final void doDeliver(Job job) {
+      if (handler != null) handler.handle(job.docNum, job.document, job.output);
+      ++numDelivered;
+    }
+
+    synchronized int getNumDelivered() {
+      return numDelivered;
+    }
+
+    synchronized void setError(RuntimeException error) {
+      if (this.error == null) this.error = error;
+    }
+
+    synchronized void checkError() {
+      if (error != null) throw error;
+    }
+  }
+
+  /**
+   * Handler that merges each document's parse results into a single output.
+   */
+  private static final class MergingHandler implements DocumentHandler {
+    private ParseOutputCollector output;
+
+    MergingHandler() {
+      this.output = new ParseOutputCollector((DomElement)null);
+    }
+
+    public void handle(int docNum, ParseDocument document, ParseOutputCollector docOutput) {
+      if (docOutput.hasParseResults()) {
+        for (AtnParseResult parseResult : docOutput.getParseResults()) {
+          output.add(parseResult);
+        }
+      }
+    }
+
+    ParseOutputCollector getOutput() {
+      return output;
+    }
+  }
+}
@@ -264,6 +264,34 @@ public class ParseConfig {
     return traceflow;
   }
 
+  /**
+   * Compile the grammars of all parsers in this config so that the config
+   * can be shared by threads parsing concurrently.
+   */
+  public void compile() {
+    for (CompoundParser compoundParser : id2CompoundParser.values()) {
+      for (AtnParserWrapper parserWrapper : compoundParser.getParserWrappers().values()) {
+        parserWrapper.getParser().compile();
+      }
+    }
+  }
+
+  /**
+   * Set AtnState trace and/or traceflow (debugging) on the parse options of
+   * all parsers in this config.
+   */
+  public void setParseTrace(boolean trace, boolean traceflow) {
+    for (CompoundParser compoundParser : id2CompoundParser.values()) {
+      for (AtnParserWrapper parserWrapper : compoundParser.getParserWrappers().values()) {
+        final AtnParseOptions parseOptions = parserWrapper.getParseOptions();
+        if (parseOptions != null) {
+          parseOptions.setTrace(trace);
+          parseOptions.setTraceFlow(traceflow);
+        }
+      }
+    }
+  }
+
 
   public void close() {
     resourceManager.close();
@@ -62,6 +62,13 @@ public class RegexClassifier extends AbstractAtnStateTokenClassifier {
     return regexes == null || regexes.size() == 0;
   }
 
+  /**
+   * Regex classification only depends on the token.
+   */
+  public boolean isContextFree() {
+    return true;
+  }
+
   public boolean doClassify(Token token, AtnState atnState) {
     final String text = getTokenClassifierHelper().getNormalizedText(token);
     return doClassification(text, token);
@@ -19,8 +19,14 @@
 package org.sd.atn;
 
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
@@ -28,6 +34,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import org.sd.io.DataHelper;
 import org.sd.io.FileUtil;
 import org.sd.atn.ResourceManager;
 import org.sd.token.Feature;
@@ -61,6 +68,10 @@ import org.w3c.dom.NodeList;
  * <p>
  * If classFeature is non-empty, then all terms will receive a feature with
  * "class" as the the key and the classifer's name as the value.
+ * <p>
+ * If binaryCache is true on a textfile node, its loaded terms are cached in
+ * binary form (in a '.terms' file beside the text file) and re-loaded from
+ * the cache while the text file is unchanged.
  * 
  * @author Spence Koehler
  */
@@ -82,7 +93,7 @@ import org.w3c.dom.NodeList;
        "    ...\n" +
        "  </terms>\n" +
        "  ...\n" +
-       "  <textfile caseSensitive='...' classFeature='...' _keyFeature='...' ...collective term attributes...>\n" +
+       "  <textfile caseSensitive='...' classFeature='...' _keyFeature='...' binaryCache='true|false' ...collective term attributes...>\n" +
        "  ...\n" +
        "  <regexes ...>   see RegexData\n" +
        "    <regex ...>...</regex>\n" +
@@ -263,6 +274,14 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
     return termsAndStopwords == null || termsAndStopwords.isEmpty();
   }
 
+  /**
+   * Rote lists are context free unless they defer to other classifiers,
+   * token features, or step tests.
+   */
+  public boolean isContextFree() {
+    return termsAndStopwords == null || termsAndStopwords.isContextFree();
+  }
+
   /**
    * Supplement this classifier with the given dom node.
    */
@@ -426,7 +445,7 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
     private boolean isStopwords;
     private int userDefinedMaxWordCount;
     private int maxWordCount;
-    private Map<String, Map<String, String>> term2attributes;
+    private TermStore termStore;
     private RegexDataContainer regexes;
     private List<ClassifierContainer> classifiers;
     private Map<String, FeatureContainer> features;
@@ -443,7 +462,7 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
       this.isStopwords = isStopwords;
       this.userDefinedMaxWordCount = userDefinedMaxWordCount;
       this.maxWordCount = 0;
-      this.term2attributes = new HashMap<String, Map<String, String>>();
+      this.termStore = new TermStore();
       this.regexes = null;
       this.classifiers = null;
       this.features = null;
@@ -483,7 +502,7 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
     }
 
     public void reset() {
-      if (term2attributes != null) term2attributes.clear();
+      if (termStore != null) termStore.clear();
       this.regexes = null;
       this.classifiers = null;
       this.features = null;
@@ -493,15 +512,25 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
 
     public boolean isEmpty() {
       return
-        (term2attributes == null || term2attributes.size() == 0) &&
+        (termStore == null || termStore.size() == 0) &&
         (this.regexes == null || this.regexes.size() == 0) &&
         (this.classifiers == null || this.classifiers.size() == 0) &&
         (this.features == null || this.features.size() == 0) &&
         (this.testContainer == null || this.testContainer.isEmpty());
     }
 
-    public Map<String, Map<String, String>> getTerm2Attributes() {
-      return term2attributes;
+    /**
+     * Determine whether these terms classify by token text alone.
+     */
+    public boolean isContextFree() {
+      return
+        (this.classifiers == null || this.classifiers.size() == 0) &&
+        (this.features == null || this.features.size() == 0) &&
+        (this.testContainer == null || this.testContainer.isEmpty());
+    }
+
+    public TermStore getTermStore() {
+      return termStore;
     }
 
     public RegexDataContainer getRegexes() {
@@ -550,13 +579,13 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
           key = key.toLowerCase();
         }
 
-        if (term2attributes.containsKey(key)) {
+        if (termStore.contains(key)) {
           result = true;
         }
 
         if (!result && pluralize) {
           final String dkey = depluralize(key);
-          if (dkey != null && term2attributes.containsKey(dkey)) {
+          if (dkey != null && termStore.contains(dkey)) {
             key = dkey;
             result = true;
             token.setFeature("pluralized", "true", this);
@@ -565,7 +594,7 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
 
         if (!result && genitivize) {
           final String dkey = degenitivize(key);
-          if (dkey != null && term2attributes.containsKey(dkey)) {
+          if (dkey != null && termStore.contains(dkey)) {
             key = dkey;
             result = true;
             token.setFeature("genitivized", "true", this);
@@ -574,12 +603,12 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
 
         if (result) {
           if (trace) {
-            System.out.println("\tfound '" + key + "' in term2attributes");
+            System.out.println("\tfound '" + key + "' in termStore");
           }
 
           // only add token attributes for non stopwords
           if (!isStopwords) {
-            final Map<String, String> attributes = term2attributes.get(key);
+            final Map<String, String> attributes = termStore.get(key);
 
             if (attributes != null) {
               hasClassAttribute = attributes.containsKey("class");
@@ -662,27 +691,27 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
       boolean matched = false;
 
       // go ahead and get attributes for both terms and stopwords
-      if (term2attributes.containsKey(key)) {
+      if (termStore.contains(key)) {
         matched = true;
-        result = term2attributes.get(key);
+        result = termStore.get(key);
       }
 
       if (!matched && pluralize) {
         final String dkey = depluralize(key);
-        if (dkey != null && term2attributes.containsKey(dkey)) {
+        if (dkey != null && termStore.contains(dkey)) {
           matched = true;
           key = dkey;
-          result = new HashMap<String, String>(term2attributes.get(dkey));
+          result = copyAttributes(termStore.get(dkey));
           result.put("pluralized", "true");
         }
       }
 
       if (!matched && genitivize) {
         final String dkey = degenitivize(key);
-        if (dkey != null && term2attributes.containsKey(dkey)) {
+        if (dkey != null && termStore.contains(dkey)) {
           matched = true;
           key = dkey;
-          result = new HashMap<String, String>(term2attributes.get(dkey));
+          result = copyAttributes(termStore.get(dkey));
           result.put("genitivized", "true");
         }
       }
@@ -695,11 +724,16 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
       }
 
       //NOTE: matching raw text against classifiers can fail
+      boolean copied = false;
       if ((classifiers != null) && (!isStopwords || !matched)) {
         for (ClassifierContainer classifier : classifiers) {
           final Map<String, String> curResult = classifier.doClassify(key);
           if (curResult != null) {
-            if (result == null) result = new HashMap<String, String>();
+            if (!copied) {
+              // copy rather than modify the (shared) stored attributes
+              result = copyAttributes(result);
+              copied = true;
+            }
             result.putAll(curResult);
             matched = true;
             //keep going to add features from further matches
@@ -717,7 +751,8 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
           hasClassAttribute = result.containsKey("class");
         }
         if (!hasClassAttribute) {
-          if (result == null) result = new HashMap<String, String>();
+          // copy rather than modify the (shared) stored attributes
+          result = copyAttributes(result);
           result.put("class", classFeature);
         }
       }
@@ -729,6 +764,10 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
       return result;
     }
 
+    private final Map<String, String> copyAttributes(Map<String, String> attributes) {
+      return (attributes == null) ? new HashMap<String, String>() : new HashMap<String, String>(attributes);
+    }
+
     private final String depluralize(String key) {
       String result = null;
 
@@ -818,7 +857,7 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
         addTermAttributes(term, termAttributes);
       }
 
-      if (term2attributes != null && term2attributes.size() > 0) {
+      if (termStore != null && termStore.size() > 0) {
         hasOnlyTests = false;
       }
     }
@@ -827,9 +866,49 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
 
       final int minChars = textfileElement.getAttributeInt("minChars", 1);
       final String keyFeature = textfileElement.getAttributeValue("_keyFeature", null); 
+      final boolean binaryCache = textfileElement.getAttributeBoolean("binaryCache", false);
 
       final File textfile = resourceManager.getWorkingFile(textfileElement);
 
+      if (!binaryCache) {
+        final int fileMaxWordCount = readTextFile(textfile, termStore, minChars, keyFeature, classifierName);
+        if (fileMaxWordCount > maxWordCount) maxWordCount = fileMaxWordCount;
+      }
+      else {
+        final String signature = "caseSensitive=" + caseSensitive + ",minChars=" + minChars + ",_keyFeature=" + keyFeature + ",classifier=" + classifierName;
+        final TermsCacheFile cacheFile = new TermsCacheFile(textfile, signature);
+
+        TermStore fileTerms = cacheFile.load();
+        int fileMaxWordCount = cacheFile.getMaxWordCount();
+
+        if (fileTerms == null) {
+          fileTerms = new TermStore();
+          fileMaxWordCount = readTextFile(textfile, fileTerms, minChars, keyFeature, classifierName);
+          cacheFile.save(fileTerms, fileMaxWordCount);
+        }
+
+        if (termStore.size() == 0) {
+          termStore = fileTerms;
+        }
+        else {
+          termStore.putAll(fileTerms);
+        }
+        if (fileMaxWordCount > maxWordCount) maxWordCount = fileMaxWordCount;
+      }
+
+      if (termStore != null && termStore.size() > 0) {
+        hasOnlyTests = false;
+      }
+    }
+
+    /**
+     * Read the text file's terms into the store.
+     *
+     * @return the maximum word count of the terms read.
+     */
+    private final int readTextFile(File textfile, TermStore store, int minChars, String keyFeature, String classifierName) {
+      int result = 0;
+
       try {
         final BufferedReader reader = FileUtil.getReader(textfile);
 
@@ -858,7 +937,10 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
                 }
               }
             }
-            addTermAttributes(term, termAttributes);
+            store.put(term, termAttributes);
+
+            final int curWordCount = computeWordCount(term);
+            if (curWordCount > result) result = curWordCount;
           }
         }
 
@@ -868,9 +950,7 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
         throw new IllegalStateException(e);
       }
 
-      if (term2attributes != null && term2attributes.size() > 0) {
-        hasOnlyTests = false;
-      }
+      return result;
     }
 
     protected final void loadRegexes(DomElement regexesElement) {
@@ -966,15 +1046,7 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
     }
 
     private final void addTermAttributes(String term, Map<String, String> attributes) {
-      Map<String, String> curAttributes = term2attributes.get(term);
-      if (curAttributes == null) {
-        term2attributes.put(term, attributes);
-      }
-      else {
-        if (attributes != null) {
-          curAttributes.putAll(attributes);
-        }
-      }
+      termStore.put(term, attributes);
 
       // update max word count
       final int curWordCount = computeWordCount(term);
@@ -1063,6 +1135,12 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
         (caseInsensitiveTerms == null || caseInsensitiveTerms.isEmpty());
     }
 
+    public boolean isContextFree() {
+      return
+        (caseSensitiveTerms == null || caseSensitiveTerms.isContextFree()) &&
+        (caseInsensitiveTerms == null || caseInsensitiveTerms.isContextFree());
+    }
+
     public boolean doClassify(Token token, AtnState atnState) {
       boolean result = false;
 
@@ -1093,6 +1171,8 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
         }
         else {
           if (ciResult != null) {
+            // copy rather than modify the (shared) case sensitive result
+            result = new HashMap<String, String>(result);
             result.putAll(ciResult);
           }
         }
@@ -1266,6 +1346,10 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
       return (terms == null || terms.isEmpty()) && (stopwords == null || stopwords.isEmpty());
     }
 
+    public boolean isContextFree() {
+      return (terms == null || terms.isContextFree()) && (stopwords == null || stopwords.isContextFree());
+    }
+
     public boolean doClassify(Token token, AtnState atnState) {
       boolean result = false;
 
@@ -1332,7 +1416,7 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
   protected static final class ClassifierContainer {
     private String classifierName;
     private AtnStateTokenClassifier namedResource;      // temp storage
-    private List<AtnStateTokenClassifier> _classifiers; // delayed load
+    private volatile List<AtnStateTokenClassifier> _classifiers; // delayed load
     private boolean literalMatch;                       // delayed load
     private boolean ruleMatch;                          // delayed load
     private boolean trace;
@@ -1392,7 +1476,7 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
 
       // classify by resource and grammar classifiers
       for (AtnStateTokenClassifier classifier : classifiers) {
-        result = classifier.classify(token, atnState).matched();
+        result = atnState.classify(classifier, token).matched();
 
         if (result) {
           if (trace) {
@@ -1441,13 +1525,16 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
     }
 
     private final List<AtnStateTokenClassifier> getClassifiers(AtnState atnState) {
-      List<AtnStateTokenClassifier> result = null;
+      List<AtnStateTokenClassifier> result = _classifiers;
 
-      synchronized (classifiersMutex) {
-        if (_classifiers == null) {
-          loadClassifiers(atnState);
+      // NOTE: only lock until loaded so shared instances don't contend while parsing
+      if (result == null) {
+        synchronized (classifiersMutex) {
+          if (_classifiers == null) {
+            loadClassifiers(atnState);
+          }
+          result = _classifiers;
         }
-        result = _classifiers;
       }
 
       return result;
@@ -1464,7 +1551,7 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
         if (namedResource != null) {
           final Map<String, String> curResult = namedResource.classify(text);
           if (curResult != null) {
-            if (result == null) new HashMap<String, String>();
+            if (result == null) result = new HashMap<String, String>();
             result.putAll(curResult);
 
             if (trace) {
@@ -1478,7 +1565,7 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
         for (AtnStateTokenClassifier classifier : _classifiers) {
           final Map<String, String> curResult = classifier.classify(text);
           if (curResult != null) {
-            if (result == null) new HashMap<String, String>();
+            if (result == null) result = new HashMap<String, String>();
             result.putAll(curResult);
 
             if (trace) {
@@ -1492,17 +1579,17 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
     }
 
     private final synchronized void loadClassifiers(AtnState atnState) {
-      this._classifiers = new ArrayList<AtnStateTokenClassifier>();
+      final List<AtnStateTokenClassifier> classifiers = new ArrayList<AtnStateTokenClassifier>();
 
       if (namedResource != null) {
-        this._classifiers.add(namedResource);
+        classifiers.add(namedResource);
       }
 
       final AtnGrammar grammar = atnState.getRule().getGrammar();
       final List<AtnStateTokenClassifier> tokenClassifiers = grammar.getClassifiers(classifierName);
       if (tokenClassifiers != null) {
 //TODO: adjust maxWordCount in containing Terms instance?
-        this._classifiers.addAll(tokenClassifiers);
+        classifiers.addAll(tokenClassifiers);
       }
       else {
         if (grammar.getCat2Rules().containsKey(classifierName)) {
@@ -1512,6 +1599,9 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
           literalMatch = true;
         }
       }
+
+      // publish only once fully loaded
+      this._classifiers = classifiers;
     }
   }
 
@@ -1642,4 +1732,103 @@ public class RoteListClassifier extends AbstractAtnStateTokenClassifier {
       return result;
     }
   }  
+
+
+  /**
+   * Binary cache ('textfile.terms') of the terms loaded from a textfile,
+   * valid while the textfile and the load parameters are unchanged.
+   */
+  private static final class TermsCacheFile {
+    private File textfile;
+    private File cacheFile;
+    private String signature;
+    private int maxWordCount;
+
+    TermsCacheFile(File textfile, String signature) {
+      this.textfile = textfile;
+      this.cacheFile = new File(textfile.getAbsolutePath() + ".terms");
+      this.signature = signature;
+      this.maxWordCount = 0;
+    }
+
+    int getMaxWordCount() {
+      return maxWordCount;
+    }
+
+    /**
+     * Load the cached terms if valid.
+     *
+     * @return the cached terms or null if absent or invalid.
+     */
+    TermStore load() {
+      TermStore result = null;
+
+      if (cacheFile.exists()) {
+        try {
+          final DataInputStream dataIn = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+          try {
+            if (dataIn.readLong() == textfile.lastModified() &&
+                dataIn.readLong() == textfile.length() &&
+                signature.equals(DataHelper.readString(dataIn))) {
+              final int maxWordCount = dataIn.readInt();
+              result = TermStore.read(dataIn);
+              this.maxWordCount = maxWordCount;
+            }
+          }
+          finally {
+            dataIn.close();
+          }
+        }
+        catch (IOException e) {
+          // fall back to reading the textfile
+          result = null;
+          if (GlobalConfig.verboseLoad()) {
+            System.out.println(new Date() + ": WARNING : Unable to load terms cache '" + cacheFile + "' (" + e + ")");
+          }
+        }
+      }
+
+      if (result != null && GlobalConfig.verboseLoad()) {
+        System.out.println(new Date() + ": Loaded " + result.size() + " terms from cache '" + cacheFile + "'");
+      }
+
+      return result;
+    }
+
+    /**
+     * Save the terms to the cache, ignoring failures (i.e. for read-only
+     * resources).
+     * <p>
+     * The cache is written to a temporary file and renamed into place so
+     * that classifiers loading concurrently never read a partial cache.
+     */
+    void save(TermStore termStore, int maxWordCount) {
+      File tmpFile = null;
+      try {
+        tmpFile = File.createTempFile("tmp-", "-" + cacheFile.getName(), cacheFile.getParentFile());
+        final DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+        try {
+          dataOut.writeLong(textfile.lastModified());
+          dataOut.writeLong(textfile.length());
+          DataHelper.writeString(dataOut, signature);
+          dataOut.writeInt(maxWordCount);
+          termStore.write(dataOut);
+        }
+        finally {
+          dataOut.close();
+        }
+
+        if (!tmpFile.renameTo(cacheFile)) {
+          throw new IOException("Unable to rename '" + tmpFile + "' to '" + cacheFile + "'!");
+        }
+      }
+      catch (IOException e) {
+        if (tmpFile != null) tmpFile.delete();
+        if (GlobalConfig.verboseLoad()) {
+          System.out.println(new Date() + ": WARNING : Unable to write terms cache '" + cacheFile + "' (" + e + ")");
+        }
+      }
+      this.maxWordCount = maxWordCount;
+    }
+  }
 }
@@ -0,0 +1,483 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.atn;
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.sd.io.DataHelper;
+
+/**
+ * Compact store of terms with (optional) attributes, as used by
+ * RoteListClassifier.
+ * <p>
+ * Term characters are packed end to end in a single char array and located
+ * through an open addressing hash table of term numbers, so no per-term
+ * String or map entry objects are retained. Attribute maps are interned:
+ * terms with equal attributes share a single (unmodifiable) map instance,
+ * which lookups return directly without copying.
+ * <p>
+ * A store can be written to and read from a binary form (see write/read)
+ * that loads without re-parsing its source terms.
+ * <p>
+ * Note that org.sd.text.datrie.DoubleArrayTrie isn't used here because it
+ * is limited to 8-bit characters and doesn't map terms to values.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TermStore {
+  
+  private static final int MAGIC = 0x54524d53;  // "TRMS"
+  private static final int VERSION = 1;
+  private static final int NO_ATTRIBUTES = -1;
+
+  private char[] chars;        // packed term characters
+  private int numChars;
+  private int[] termStarts;    // termNum -> offset into chars (with termStarts[numTerms] == numChars)
+  private int[] termHashes;    // termNum -> hash
+  private int[] termAttributes;// termNum -> attribute set number or NO_ATTRIBUTES
+  private int numTerms;
+  private int[] slots;         // hash slot -> termNum + 1 (0 if empty)
+
+  private List<Map<String, String>> attributeSets;
+  private Map<Map<String, String>, Integer> attributeSet2num;
+  private Map<String, String> strings;  // pool for attribute keys and values
+
+  /**
+   * Construct an empty store.
+   */
+  public TermStore() {
+    this(16);
+  }
+
+  /**
+   * Construct an empty store sized for the given number of terms.
+   */
+  public TermStore(int expectedNumTerms) {
+    final int capacity = Math.max(expectedNumTerms, 16);
+    this.chars = new char[capacity * 8];
+    this.numChars = 0;
+    this.termStarts = new int[capacity + 1];
+    this.termHashes = new int[capacity];
+    this.termAttributes = new int[capacity];
+    this.numTerms = 0;
+    this.slots = new int[tableSize(capacity)];
+    this.attributeSets = new ArrayList<Map<String, String>>();
+    this.attributeSet2num = new HashMap<Map<String, String>, Integer>();
+    this.strings = new HashMap<String, String>();
+  }
+
+  /**
+   * Get the number of terms in this store.
+   */
+  public int size() {
+    return numTerms;
+  }
+
+  /**
+   * Get the number of distinct attribute sets in this store.
+   */
+  public int getNumAttributeSets() {
+    return attributeSets.size();
+  }
+
+  /**
+   * Determine whether this store contains the term.
+   */
+  public boolean contains(String term) {
+    return findTerm(term) >= 0;
+  }
+
+  /**
+   * Get the term's (shared, unmodifiable) attributes.
+   *
+   * @return the attributes, or null if the term is absent or has no
+   *         attributes.
+   */
+  public Map<String, String> get(String term) {
+    final int termNum = findTerm(term);
+    return (termNum < 0) ? null : getAttributes(termNum);
+  }
+
+  /**
+   * Get the termNum-th (0-based, in insertion order) term.
+   */
+  public String getTerm(int termNum) {
+    return new String(chars, termStarts[termNum], termStarts[termNum + 1] - termStarts[termNum]);
+  }
+
+  /**
+   * Get the termNum-th (0-based, in insertion order) term's (shared,
+   * unmodifiable) attributes, or null.
+   */
+  public Map<String, String> getAttributes(int termNum) {
+    final int setNum = termAttributes[termNum];
+    return (setNum == NO_ATTRIBUTES) ? null : attributeSets.get(setNum);
+  }
+
+  /**
+   * Add the term with the given (possibly null) attributes, merging
+   * attributes into those of an existing term.
+   * <p>
+   * If the term exists without attributes, it takes on the given
+   * attributes; if it exists with attributes, the given attributes are
+   * added to (overriding) its existing attributes.
+   */
+  public void put(String term, Map<String, String> attributes) {
+    final int hash = hash(term);
+    int slot = findSlot(term, hash);
+
+    if (slots[slot] == 0) {
+      // add new term
+      if (numTerms + 1 > (slots.length >> 1)) {
+        growTable();
+        slot = findSlot(term, hash);
+      }
+      final int termNum = addTerm(term, hash);
+      termAttributes[termNum] = internAttributes(attributes);
+      slots[slot] = termNum + 1;
+    }
+    else {
+      // merge attributes
+      final int termNum = slots[slot] - 1;
+      final Map<String, String> curAttributes = getAttributes(termNum);
+
+      if (curAttributes == null) {
+        termAttributes[termNum] = internAttributes(attributes);
+      }
+      else if (attributes != null) {
+        final Map<String, String> merged = new HashMap<String, String>(curAttributes);
+        merged.putAll(attributes);
+        termAttributes[termNum] = internAttributes(merged);
+      }
+    }
+  }
+
+  /**
+   * Add all of the other store's terms and attributes to this store.
+   */
+  public void putAll(TermStore other) {
+    for (int termNum = 0; termNum < other.numTerms; ++termNum) {
+      put(other.getTerm(termNum), other.getAttributes(termNum));
+    }
+  }
+
+  /**
+   * Remove all terms and attributes from this store.
+   */
+  public void clear() {
+    this.numChars = 0;
+    this.numTerms = 0;
+    this.termStarts[0] = 0;
+    Arrays.fill(slots, 0);
+    this.attributeSets.clear();
+    this.attributeSet2num.clear();
+    this.strings.clear();
+  }
+
+  /**
+   * Write this store in binary form.
+   */
+  public void write(DataOutput dataOutput) throws IOException {
+    dataOutput.writeInt(MAGIC);
+    dataOutput.writeInt(VERSION);
+
+    // attribute sets
+    dataOutput.writeInt(attributeSets.size());
+    for (Map<String, String> attributeSet : attributeSets) {
+      dataOutput.writeInt(attributeSet.size());
+      for (Map.Entry<String, String> entry : attributeSet.entrySet()) {
+        DataHelper.writeString(dataOutput, entry.getKey());
+        DataHelper.writeString(dataOutput, entry.getValue());
+      }
+    }
+
+    // terms
+    dataOutput.writeInt(numTerms);
+    DataHelper.writeString(dataOutput, new String(chars, 0, numChars));
+    for (int termNum = 0; termNum < numTerms; ++termNum) {
+      dataOutput.writeInt(termStarts[termNum + 1] - termStarts[termNum]);
+      dataOutput.writeInt(termAttributes[termNum]);
+    }
+  }
+
+  /**
+   * Read a store in binary form (as written by write).
+   */
+  public static TermStore read(DataInput dataInput) throws IOException {
+    if (dataInput.readInt() != MAGIC) {
+      throw new IOException("Not a TermStore!");
+    }
+    final int version = dataInput.readInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported TermStore version " + version + "!");
+    }
+
+    // attribute sets
+    final int numAttributeSets = dataInput.readInt();
+    final List<Map<String, String>> attributeSets = new ArrayList<Map<String, String>>(numAttributeSets);
+    for (int setNum = 0; setNum < numAttributeSets; ++setNum) {
+      final int setSize = dataInput.readInt();
+      final Map<String, String> attributeSet = new HashMap<String, String>();
+      for (int i = 0; i < setSize; ++i) {
+        final String key = DataHelper.readString(dataInput);
+        final String value = DataHelper.readString(dataInput);
+        attributeSet.put(key, value);
+      }
+      attributeSets.add(attributeSet);
+    }
+
+    // terms
+    final int numTerms = dataInput.readInt();
+    final TermStore result = new TermStore(numTerms);
+    for (Map<String, String> attributeSet : attributeSets) {
+      result.internAttributes(attributeSet);
+    }
+
+    final String packedChars = DataHelper.readString(dataInput);
+    result.chars = packedChars.toCharArray();
+    result.numChars = result.chars.length;
+
+    int termStart = 0;
+    for (int termNum = 0; termNum < numTerms; ++termNum) {
+      final int termLen = dataInput.readInt();
+      final int setNum = dataInput.readInt();
+
+      if (setNum < NO_ATTRIBUTES || setNum >= numAttributeSets || termStart + termLen > result.numChars) {
+        throw new IOException("Corrupt TermStore at term #" + termNum + "!");
+      }
+
+      result.termStarts[termNum] = termStart;
+      result.termStarts[termNum + 1] = termStart + termLen;
+      result.termHashes[termNum] = hash(result.chars, termStart, termLen);
+      result.termAttributes[termNum] = setNum;
+      result.slots[result.findSlot(termNum)] = termNum + 1;
+      result.numTerms = termNum + 1;
+
+      termStart += termLen;
+    }
+
+    return result;
+  }
+
+  /**
+   * Write this store to the file.
+   * <p>
+   * The store is written to a temporary file beside the file and renamed
+   * over it so that concurrent readers never see a partially written store.
+   */
+  public void write(File file) throws IOException {
+    final File tmpFile = File.createTempFile("tmp-", "-" + file.getName(), file.getAbsoluteFile().getParentFile());
+
+    boolean success = false;
+    try {
+      final DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+      try {
+        write(dataOut);
+      }
+      finally {
+        dataOut.close();
+      }
+
+      if (!tmpFile.renameTo(file)) {
+        throw new IOException("Unable to rename '" + tmpFile + "' to '" + file + "'!");
+      }
+      success = true;
+    }
+    finally {
+      if (!success) tmpFile.delete();
+    }
+  }
+
+  /**
+   * Read a store from the file.
+   */
+  public static TermStore read(File file) throws IOException {
+    TermStore result = null;
+
+    final DataInputStream dataIn = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    try {
+      result = read(dataIn);
+    }
+    finally {
+      dataIn.close();
+    }
+
+    return result;
+  }
+
+
+  private final int findTerm(String term) {
+    final int termNum = slots[findSlot(term, hash(term))] - 1;
+    return termNum;
+  }
+
+  /**
+   * Find the slot holding the term or the empty slot where it belongs.
+   */
+  private final int findSlot(String term, int hash) {
+    final int mask = slots.length - 1;
+    int slot = hash & mask;
+
+    for (int termNum = slots[slot] - 1; termNum >= 0; termNum = slots[slot] - 1) {
+      if (termHashes[termNum] == hash && termEquals(termNum, term)) break;
+      slot = (slot + 1) & mask;
+    }
+
+    return slot;
+  }
+
+  /**
+   * Find the empty slot for an (absent) term number.
+   */
+  private final int findSlot(int termNum) {
+    final int mask = slots.length - 1;
+    int slot = termHashes[termNum] & mask;
+
+    while (slots[slot] != 0) {
+      slot = (slot + 1) & mask;
+    }
+
+    return slot;
+  }
+
+  private final boolean termEquals(int termNum, String term) {
+    final int start = termStarts[termNum];
+    final int len = termStarts[termNum + 1] - start;
+    boolean result = (len == term.length());
+
+    for (int i = 0; result && i < len; ++i) {
+      result = (chars[start + i] == term.charAt(i));
+    }
+
+    return result;
+  }
+
+  private final int addTerm(String term, int hash) {
+    final int termNum = numTerms;
+    final int len = term.length();
+
+    if (termNum + 1 >= termStarts.length) {
+      final int newCapacity = termStarts.length * 2;
+      termStarts = copyOf(termStarts, newCapacity + 1);
+      termHashes = copyOf(termHashes, newCapacity);
+      termAttributes = copyOf(termAttributes, newCapacity);
+    }
+    if (numChars + len > chars.length) {
+      final char[] newChars = new char[Math.max(chars.length * 2, numChars + len)];
+      System.arraycopy(chars, 0, newChars, 0, numChars);
+      chars = newChars;
+    }
+
+    term.getChars(0, len, chars, numChars);
+    termStarts[termNum] = numChars;
+    numChars += len;
+    termStarts[termNum + 1] = numChars;
+    termHashes[termNum] = hash;
+    ++numTerms;
+
+    return termNum;
+  }
+
+  private final void growTable() {
+    slots = new int[slots.length * 2];
+    for (int termNum = 0; termNum < numTerms; ++termNum) {
+      slots[findSlot(termNum)] = termNum + 1;
+    }
+  }
+
+  private final int internAttributes(Map<String, String> attributes) {
+    if (attributes == null) return NO_ATTRIBUTES;
+
+    Integer result = attributeSet2num.get(attributes);
+
+    if (result == null) {
+      final Map<String, String> attributeSet = new HashMap<String, String>();
+      for (Map.Entry<String, String> entry : attributes.entrySet()) {
+        attributeSet.put(internString(entry.getKey()), internString(entry.getValue()));
+      }
+
+      result = attributeSets.size();
+      final Map<String, String> sharedSet = Collections.unmodifiableMap(attributeSet);
+      attributeSets.add(sharedSet);
+      attributeSet2num.put(sharedSet, result);
+    }
+
+    return result;
+  }
+
+  private final String internString(String string) {
+    String result = strings.get(string);
+
+    if (result == null) {
+      result = string;
+      strings.put(string, string);
+    }
+
+    return result;
+  }
+
+  private static final int tableSize(int capacity) {
+    int result = 32;
+    while (result < capacity * 2) result <<= 1;
+    return result;
+  }
+
+  private static final int hash(String term) {
+    int result = 0;
+    for (int i = 0; i < term.length(); ++i) {
+      result = 31 * result + term.charAt(i);
+    }
+    return mix(result);
+  }
+
+  private static final int hash(char[] chars, int start, int len) {
+    int result = 0;
+    for (int i = 0; i < len; ++i) {
+      result = 31 * result + chars[start + i];
+    }
+    return mix(result);
+  }
+
+  private static final int mix(int h) {
+    // spread the bits to improve linear probing over power of 2 tables
+    h ^= (h >>> 20) ^ (h >>> 12);
+    return h ^ (h >>> 7) ^ (h >>> 4);
+  }
+
+  private static final int[] copyOf(int[] array, int newLength) {
+    final int[] result = new int[newLength];
+    System.arraycopy(array, 0, result, 0, Math.min(array.length, newLength));
+    return result;
+  }
+}
@@ -279,7 +279,7 @@ public class TokenHistoryTest implements AtnRuleStepTest {
             final Token token = curState.getInputToken();
 
             for (AtnStateTokenClassifier tokenClassifier : tokenClassifiers) {
-              final MatchResult matchResult = tokenClassifier.classify(token, curState);
+              final MatchResult matchResult = curState.classify(tokenClassifier, token);
               if (matchResult.matched()) {
                 foundMatch = true;
                 break;
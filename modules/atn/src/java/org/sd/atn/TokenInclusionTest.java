@@ -316,7 +316,7 @@ public class TokenInclusionTest extends BaseClassifierTest {
           final List<AtnStateTokenClassifier> classifiers = atnState.getRule().getGrammar().getClassifiers(classifierId);
           if (classifiers != null) {
             for (AtnStateTokenClassifier classifier : classifiers) {
-              result = classifier.classify(atnState.getInputToken(), atnState).matched();
+              result = atnState.classify(classifier, atnState.getInputToken()).matched();
               if (result) {
                 icContext.add(classifierId);
                 if (icContext.isComplete()) break;
@@ -0,0 +1,139 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.token;
+
+
+import java.util.Arrays;
+
+/**
+ * Mapping of text positions to breaks backed by a primitive array.
+ * <p>
+ * Breaks are flyweights, so each position holds a byte code for its break
+ * instead of boxing positions into a map. Unmapped positions hold no break
+ * (and are assumed by tokenizers to be Break.NO_BREAK), while an explicitly
+ * mapped Break.NO_BREAK is preserved as such.
+ * <p>
+ * Positions are expected to be within (or just beyond) the tokenized text;
+ * storage grows as needed.
+ *
+ * @author Spence Koehler
+ */
+public class BreakMap {
+  
+  private static final Break[] CODE2BREAK = new Break[] {
+    null,
+    Break.NO_BREAK,
+    Break.SINGLE_WIDTH_HARD_BREAK,
+    Break.SINGLE_WIDTH_SOFT_BREAK,
+    Break.ZERO_WIDTH_SOFT_BREAK,
+    Break.ZERO_WIDTH_HARD_BREAK,
+  };
+
+
+  private byte[] codes;
+  private int size;
+
+  /**
+   * Construct for text of the given length.
+   */
+  public BreakMap(int textLength) {
+    this.codes = new byte[textLength + 1];
+    this.size = 0;
+  }
+
+  /**
+   * Get the number of mapped positions.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Determine whether the position is mapped.
+   */
+  public boolean containsKey(int pos) {
+    return pos >= 0 && pos < codes.length && codes[pos] != 0;
+  }
+
+  /**
+   * Get the break mapped at the position, or null if unmapped.
+   */
+  public Break get(int pos) {
+    return (pos >= 0 && pos < codes.length) ? CODE2BREAK[codes[pos]] : null;
+  }
+
+  /**
+   * Map the position to the (non-null) break.
+   *
+   * @return the previously mapped break or null.
+   */
+  public Break put(int pos, Break theBreak) {
+    if (pos >= codes.length) {
+      codes = Arrays.copyOf(codes, Math.max(pos + 1, codes.length * 2));
+    }
+
+    final Break result = CODE2BREAK[codes[pos]];
+    if (result == null) ++size;
+    codes[pos] = getCode(theBreak);
+
+    return result;
+  }
+
+  /**
+   * Unmap the position.
+   *
+   * @return the previously mapped break or null.
+   */
+  public Break remove(int pos) {
+    Break result = null;
+
+    if (pos >= 0 && pos < codes.length && codes[pos] != 0) {
+      result = CODE2BREAK[codes[pos]];
+      codes[pos] = 0;
+      --size;
+    }
+
+    return result;
+  }
+
+  /**
+   * Unmap all positions.
+   */
+  public void clear() {
+    Arrays.fill(codes, (byte)0);
+    size = 0;
+  }
+
+  private static final byte getCode(Break theBreak) {
+    byte result = 0;
+
+    for (byte code = 1; code < CODE2BREAK.length; ++code) {
+      if (CODE2BREAK[code] == theBreak) {
+        result = code;
+        break;
+      }
+    }
+
+    if (result == 0) {
+      throw new IllegalArgumentException("Unknown break '" + theBreak + "'!");
+    }
+
+    return result;
+  }
+}
@@ -83,8 +83,8 @@ public class LiteralTokenizer extends StandardTokenizer implements Publishable {
     getPos2Break();
   }
 
-  protected Map<Integer, Break> createBreaks() {
-    final Map<Integer, Break> result = new HashMap<Integer, Break>();
+  protected BreakMap createBreaks() {
+    final BreakMap result = new BreakMap(text.length());
 
     this.tokens = new HashMap<Integer, TokenData>();
 
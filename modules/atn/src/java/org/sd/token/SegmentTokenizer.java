@@ -95,8 +95,8 @@ public class SegmentTokenizer extends StandardTokenizer {
     }
   }
 
-  protected Map<Integer, Break> createBreaks() {
-    final Map<Integer, Break> result = super.createBreaks();
+  protected BreakMap createBreaks() {
+    final BreakMap result = super.createBreaks();
 
     // mark hard boundaries and unbreakable segments
     if (hardBoundaryLabels != null) {
@@ -20,9 +20,7 @@ package org.sd.token;
 
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import org.sd.util.InputContext;
 
 /**
@@ -47,10 +45,15 @@ public class StandardTokenizer implements Tokenizer {
    * Maps text positions to breaks. Any unmapped positions is assumed
    * to be a Break.NO_BREAK.
    */
-  private Map<Integer, Break> _pos2break;
+  private BreakMap _pos2break;
   private Object pos2breakLock = new Object();
   private boolean pos2breakInit = false;
 
+  /**
+   * Built tokens by start position and revision number when caching tokens.
+   */
+  private Token[][] _tokenCache;
+
   private boolean computedWordCount;
   private int _wordCount;
 
@@ -69,6 +72,7 @@ public class StandardTokenizer implements Tokenizer {
     this.text = text;
     this.options = options;
     this._pos2break = null;
+    this._tokenCache = null;
     this.computedWordCount = false;
     this._wordCount = 0;
   }
@@ -79,14 +83,15 @@ public class StandardTokenizer implements Tokenizer {
    */
   protected void reset() {
     this._pos2break = null;
+    this._tokenCache = null;
     this.computedWordCount = false;
   }
 
   /**
    * Default break initialization. Extenders may override.
    */
-  protected Map<Integer, Break> createBreaks() {
-    final Map<Integer, Break> result = new HashMap<Integer, Break>();
+  protected BreakMap createBreaks() {
+    final BreakMap result = new BreakMap(text.length());
 
     int increment = 1;
     for (int charPos = 0; charPos < text.length(); charPos += increment) {
@@ -284,16 +289,16 @@ public class StandardTokenizer implements Tokenizer {
     return result;
   }
 
-  protected void clearBreaks(Map<Integer, Break> result, int startPos, int endPos) {
+  protected void clearBreaks(BreakMap result, int startPos, int endPos) {
     for (int breakIndex = startPos; breakIndex < endPos; ++breakIndex) {
       result.remove(breakIndex);
     }
   }
 
-  protected void setBreak(Map<Integer, Break> result, int pos, boolean goLeft, boolean setHard) {
+  protected void setBreak(BreakMap result, int pos, boolean goLeft, boolean setHard) {
     if (pos >= text.length()) return;
 
-    final Break curBreak = result.containsKey(pos) ? result.get(pos) : null;
+    final Break curBreak = result.get(pos);
     Break theBreak = setHard ? Break.SINGLE_WIDTH_HARD_BREAK : Break.SINGLE_WIDTH_SOFT_BREAK;
 
     if (curBreak != null && curBreak.breaks() && curBreak.getBWidth() == 0) {
@@ -339,7 +344,7 @@ public class StandardTokenizer implements Tokenizer {
   }
 
 
-  protected void setBreak(Map<Integer, Break> pos2break, int pos, Break theBreak) {
+  protected void setBreak(BreakMap pos2break, int pos, Break theBreak) {
     if (theBreak != null && theBreak != Break.NO_BREAK) {
       pos2break.put(pos, theBreak);
     }
@@ -355,7 +360,7 @@ public class StandardTokenizer implements Tokenizer {
   /**
    * Get the pos2break map, initializing through CreateBreaks if necessary.
    */
-  protected Map<Integer, Break> getPos2Break() {
+  protected BreakMap getPos2Break() {
     //if (pos2breakInit) return null;
 
     synchronized (pos2breakLock) {
@@ -379,7 +384,7 @@ public class StandardTokenizer implements Tokenizer {
       result = Break.ZERO_WIDTH_HARD_BREAK;
     }
     else {
-      final Map<Integer, Break> pos2break = getPos2Break();
+      final BreakMap pos2break = getPos2Break();
       result = pos2break.get(pos);
     }
 
@@ -396,7 +401,7 @@ public class StandardTokenizer implements Tokenizer {
    */
   public Break changeBreak(int pos, Break theBreak) {
     Break result = getBreak(pos);
-    final Map<Integer, Break> pos2break = getPos2Break();
+    final BreakMap pos2break = getPos2Break();
 
     if (theBreak == null || theBreak == Break.NO_BREAK) {
       pos2break.remove(pos);
@@ -405,6 +410,9 @@ public class StandardTokenizer implements Tokenizer {
       pos2break.put(pos, theBreak);
     }
 
+    // cached tokens may no longer agree with the breaks
+    this._tokenCache = null;
+
     return result;
   }
 
@@ -416,7 +424,7 @@ public class StandardTokenizer implements Tokenizer {
   public Token getToken(int startPosition) {
     startPosition = skipImmediateBreaks(startPosition);
     final Token result = doGetToken(options.getRevisionStrategy(), startPosition, 0);
-    addTokenFeatures(result);
+    finishToken(result);
     return result;
   }
 
@@ -424,13 +432,13 @@ public class StandardTokenizer implements Tokenizer {
     int startPosition = findEndBreakForward(token.getEndIndex(), false);
     if (startPosition < 0) startPosition = token.getEndIndex();
     final Token result = getSmallestToken(startPosition);
-    addTokenFeatures(result);
+    finishToken(result);
     return result;
   }
 
   public Token getSmallestToken(int startPosition) {
     final Token result = doGetNextToken(startPosition, BreakType.SOFT, options.getRevisionStrategy(), 0, 0);
-    addTokenFeatures(result);
+    finishToken(result);
     return result;
   }
 
@@ -544,7 +552,7 @@ public class StandardTokenizer implements Tokenizer {
     }
 
     if (result != null) {
-      addTokenFeatures(result);
+      finishToken(result);
     }
 
     return result;
@@ -566,7 +574,7 @@ public class StandardTokenizer implements Tokenizer {
     int startPosition = findEndBreakForward(token.getEndIndex(), false);
     if (startPosition < 0) startPosition = token.getEndIndex();
     final Token result = doGetToken(token.getRevisionStrategy(), startPosition, token.getSequenceNumber() + 1);
-    addTokenFeatures(result);
+    finishToken(result);
     return result;
   }
 
@@ -615,7 +623,7 @@ public class StandardTokenizer implements Tokenizer {
     }
 
     if (result != null) {
-      addTokenFeatures(result);
+      finishToken(result);
     }
 
     return result;
@@ -676,7 +684,7 @@ public class StandardTokenizer implements Tokenizer {
     int curEnd = curStart + 1;
     boolean hasText = true;
 
-    final Map<Integer, Break> pos2break = getPos2Break();
+    final BreakMap pos2break = getPos2Break();
     if (endPosition > text.length()) endPosition = text.length();
     for (; curEnd < endPosition; ++curEnd) {
       final Break posBreak = pos2break.get(curEnd);
@@ -725,7 +733,7 @@ public class StandardTokenizer implements Tokenizer {
   private final int computeBreakCount(int startIndex, int endIndex) {
     int result = 0;
 
-    final Map<Integer, Break> pos2break = getPos2Break();
+    final BreakMap pos2break = getPos2Break();
     if (endIndex > text.length()) endIndex = text.length();
     for (int pos = startIndex; pos < endIndex; ++pos) {
       final Break posBreak = pos2break.get(pos);
@@ -773,7 +781,10 @@ public class StandardTokenizer implements Tokenizer {
       endPosition = findEndBreakReverse(endPosition);
     }
 
-    result = buildToken(startPosition, endPosition, revisionStrategy, revisionNumber, sequenceNumber, computeWordCount(startPosition, endPosition), breakCount);
+    result = getCachedToken(startPosition, endPosition, revisionStrategy, revisionNumber, sequenceNumber);
+    if (result == null) {
+      result = buildToken(startPosition, endPosition, revisionStrategy, revisionNumber, sequenceNumber, computeWordCount(startPosition, endPosition), breakCount);
+    }
 
     return result;
   }
@@ -782,13 +793,93 @@ public class StandardTokenizer implements Tokenizer {
     Token result = null;
 
     if (endPosition > startPosition) {
-      final String tokenText = text.substring(startPosition, endPosition);
-      result = new Token(this, tokenText, startPosition, revisionStrategy, revisionNumber, sequenceNumber, wordCount, breakCount);
+      result = getCachedToken(startPosition, endPosition, revisionStrategy, revisionNumber, sequenceNumber);
+      if (result == null) {
+        final String tokenText = text.substring(startPosition, endPosition);
+        result = new Token(this, tokenText, startPosition, revisionStrategy, revisionNumber, sequenceNumber, wordCount, breakCount);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Add features to a newly built token and, if caching tokens, cache it.
+   */
+  private final void finishToken(Token token) {
+    if (token == null || !isCachedToken(token)) {
+      addTokenFeatures(token);
+
+      if (token != null && options.getCacheTokens()) {
+        cacheToken(token);
+      }
+    }
+  }
+
+  /**
+   * Get the cached token matching the given parameters, if any.
+   */
+  private final Token getCachedToken(int startPosition, int endPosition, TokenRevisionStrategy revisionStrategy, int revisionNumber, int sequenceNumber) {
+    Token result = null;
+
+    if (_tokenCache != null && startPosition < _tokenCache.length) {
+      final Token[] revisions = _tokenCache[startPosition];
+      if (revisions != null && revisionNumber < revisions.length) {
+        final Token token = revisions[revisionNumber];
+        if (token != null &&
+            token.getEndIndex() == endPosition &&
+            token.getRevisionStrategy() == revisionStrategy &&
+            token.getSequenceNumber() == sequenceNumber) {
+          result = token;
+        }
+      }
     }
 
     return result;
   }
 
+  private final boolean isCachedToken(Token token) {
+    final int startPosition = token.getStartIndex();
+    final int revisionNumber = token.getRevisionNumber();
+
+    return
+      _tokenCache != null &&
+      startPosition < _tokenCache.length &&
+      _tokenCache[startPosition] != null &&
+      revisionNumber < _tokenCache[startPosition].length &&
+      _tokenCache[startPosition][revisionNumber] == token;
+  }
+
+  /**
+   * Cache the token by its start and revision number, keeping any token
+   * already cached there.
+   */
+  private final void cacheToken(Token token) {
+    final int startPosition = token.getStartIndex();
+    final int revisionNumber = token.getRevisionNumber();
+
+    if (_tokenCache == null) {
+      _tokenCache = new Token[text.length() + 1][];
+    }
+    if (startPosition >= _tokenCache.length || revisionNumber < 0) return;
+
+    Token[] revisions = _tokenCache[startPosition];
+    if (revisions == null) {
+      revisions = new Token[Math.max(4, revisionNumber + 1)];
+      _tokenCache[startPosition] = revisions;
+    }
+    else if (revisionNumber >= revisions.length) {
+      final Token[] newRevisions = new Token[Math.max(revisions.length * 2, revisionNumber + 1)];
+      System.arraycopy(revisions, 0, newRevisions, 0, revisions.length);
+      revisions = newRevisions;
+      _tokenCache[startPosition] = revisions;
+    }
+
+    if (revisions[revisionNumber] == null) {
+      revisions[revisionNumber] = token;
+    }
+  }
+
   /**
    * Find the next break position at or after startPosition that agrees with
    * the given breakToFind.
@@ -803,7 +894,7 @@ public class StandardTokenizer implements Tokenizer {
       breakCount = 0;
     }
 
-    final Map<Integer, Break> pos2break = getPos2Break();
+    final BreakMap pos2break = getPos2Break();
     int priorBreakPos = -1;
     for (int pos = startPosition; pos < text.length(); ++pos) {
       final Break posBreak = pos2break.get(pos);
@@ -826,7 +917,7 @@ public class StandardTokenizer implements Tokenizer {
   private int findPriorBreak(int endPosition) {
     int result = -1;
 
-    final Map<Integer, Break> pos2break = getPos2Break();
+    final BreakMap pos2break = getPos2Break();
     for (int pos = endPosition - 1; pos >= 0; --pos) {
       final Break posBreak = pos2break.get(pos);
       if (posBreak != null) {
@@ -845,7 +936,7 @@ public class StandardTokenizer implements Tokenizer {
    */
   private int skipImmediateBreaks(int startPosition) {
     int result = startPosition;
-    final Map<Integer, Break> pos2break = getPos2Break();
+    final BreakMap pos2break = getPos2Break();
 
     while (result < text.length()) {
       final Break posBreak = pos2break.get(result);
@@ -868,7 +959,7 @@ public class StandardTokenizer implements Tokenizer {
    */
   private int findEndBreakForward(int startPosition, boolean softOnly) {
     int result = startPosition;
-    final Map<Integer, Break> pos2break = getPos2Break();
+    final BreakMap pos2break = getPos2Break();
     if (pos2break == null) return result;  // still initializing
 
     while (result < text.length()) {
@@ -900,7 +991,7 @@ public class StandardTokenizer implements Tokenizer {
 
   private final int[] findEndBreakForwardWithBreakCount(int startPosition, boolean softOnly) {
     int result = startPosition;
-    final Map<Integer, Break> pos2break = getPos2Break();
+    final BreakMap pos2break = getPos2Break();
     if (pos2break == null) return new int[]{result, 0};  // still initializing
 
     int breakCount = 0;
@@ -935,7 +1026,7 @@ public class StandardTokenizer implements Tokenizer {
    */
   private int findEndBreakReverse(int startPosition) {
     int result = startPosition;
-    final Map<Integer, Break> pos2break = getPos2Break();
+    final BreakMap pos2break = getPos2Break();
     if (pos2break == null) return result;  // still initializing
 
     if (!pos2break.containsKey(startPosition)) --result;
@@ -974,7 +1065,7 @@ public class StandardTokenizer implements Tokenizer {
 
     final int endPosition = tokenStart > 0 ? findEndBreakReverse(tokenStart) : 0;
     if (endPosition > 0) {
-      final Map<Integer, Break> pos2break = getPos2Break();
+      final BreakMap pos2break = getPos2Break();
       int startPosition = endPosition;
       while (startPosition > 0 && !pos2break.containsKey(startPosition - 1)) --startPosition;
 
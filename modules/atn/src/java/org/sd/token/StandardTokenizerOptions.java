@@ -65,6 +65,24 @@ public class StandardTokenizerOptions {
     return tokenBreakLimit != 0 && count >= tokenBreakLimit;
   }
 
+  /**
+   * Specifies whether a tokenizer should cache and re-use the tokens it
+   * builds (by start position and revision) instead of building new tokens
+   * on each request.
+   * <p>
+   * Note that cached tokens are shared by all requesters, including their
+   * features.
+   * <p>
+   * Default value is false.
+   */
+  private boolean cacheTokens;
+  public boolean getCacheTokens() {
+    return cacheTokens;
+  }
+  public void setCacheTokens(boolean cacheTokens) {
+    this.cacheTokens = cacheTokens;
+  }
+
   /**
    * Specifies the break between a lowercase letter immediately followed
    * by an uppercase letter.
@@ -370,6 +388,7 @@ public class StandardTokenizerOptions {
   public StandardTokenizerOptions() {
     this.revisionStrategy = TokenRevisionStrategy.LSL;
     this.tokenBreakLimit = DEFAULT_TOKEN_BREAK_LIMIT;
+    this.cacheTokens = false;
 
     this.lowerUpperBreak = Break.ZERO_WIDTH_SOFT_BREAK;
     this.upperLowerBreak = Break.NO_BREAK;
@@ -407,6 +426,7 @@ public class StandardTokenizerOptions {
     this.options = other.options;
     this.revisionStrategy = other.revisionStrategy;
     this.tokenBreakLimit = other.tokenBreakLimit;
+    this.cacheTokens = other.cacheTokens;
 
     this.lowerUpperBreak = other.lowerUpperBreak;
     this.upperLowerBreak = other.upperLowerBreak;
@@ -491,6 +511,7 @@ public class StandardTokenizerOptions {
     // set RevisionStrategy
     this.revisionStrategy = translateRevisionStrategy(revisionStrategy);
     this.tokenBreakLimit = options.getInt("tokenBreakLimit", 0);
+    this.cacheTokens = options.getBoolean("cacheTokens", false);
 
     // set Breaks
     this.lowerUpperBreak = translateBreak(lowerUpperBreak);
@@ -654,6 +675,7 @@ public class StandardTokenizerOptions {
 
     result.addTagAndText("revisionStrategy", revisionStrategy.toString());
     result.addTagAndText("tokenBreakLimit", Integer.toString(tokenBreakLimit));
+    if (cacheTokens) result.addTagAndText("cacheTokens", "true");
     result.addTagAndText("lowerUpperBreak", lowerUpperBreak.getBLongName());
     result.addTagAndText("upperLowerBreak", upperLowerBreak.getBLongName());
     result.addTagAndText("upperDigitBreak", upperDigitBreak.getBLongName());
@@ -23,6 +23,8 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import org.sd.io.FileUtil;
 import org.sd.util.SentenceIterator;
 import org.sd.util.StatsAccumulator;
@@ -32,6 +34,12 @@ import org.sd.util.StatsAccumulator;
  * <p>
  * This is used to ensure that implementations or changes to tokenization
  * don't adversely affect performance.
+ * <p>
+ * Times are measured in microseconds. Where the JVM supports it, bytes
+ * allocated by the current thread are also measured for each operation so
+ * that allocation rates can be compared (e.g., with and without caching
+ * tokens.) Each tokenizer's tokens can be walked multiple times (passes) to
+ * mimic a parser's revisiting of tokens.
  *
  * @author Spence Koehler
  */
@@ -43,15 +51,59 @@ public class TokenizerSpeedTest {
   private StatsAccumulator initTimes;
   private StatsAccumulator nextTimes;
   private StatsAccumulator reviseTimes;
+  private StatsAccumulator initBytes;
+  private StatsAccumulator nextBytes;
+  private StatsAccumulator reviseBytes;
+  private int numPasses;
+  private com.sun.management.ThreadMXBean allocationBean;
 
   public TokenizerSpeedTest(StandardTokenizerOptions tokenizerOptions, boolean splitSentences, FileFilter fileFilter) {
+    this(tokenizerOptions, splitSentences, fileFilter, 1);
+  }
+
+  public TokenizerSpeedTest(StandardTokenizerOptions tokenizerOptions, boolean splitSentences, FileFilter fileFilter, int numPasses) {
     this.tokenizerOptions = tokenizerOptions == null ? StandardTokenizerFactory.DEFAULT_OPTIONS : tokenizerOptions;
     this.splitSentences = splitSentences;
     this.fileFilter = fileFilter;
+    this.numPasses = Math.max(1, numPasses);
 
     this.initTimes = new StatsAccumulator("initTimes");
     this.nextTimes = new StatsAccumulator("nextTimes");
     this.reviseTimes = new StatsAccumulator("reviseTimes");
+    this.initBytes = new StatsAccumulator("initBytes");
+    this.nextBytes = new StatsAccumulator("nextBytes");
+    this.reviseBytes = new StatsAccumulator("reviseBytes");
+    this.allocationBean = getAllocationBean();
+  }
+
+  private static final com.sun.management.ThreadMXBean getAllocationBean() {
+    com.sun.management.ThreadMXBean result = null;
+
+    try {
+      final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+      if (threadBean instanceof com.sun.management.ThreadMXBean) {
+        result = (com.sun.management.ThreadMXBean)threadBean;
+        if (result.isThreadAllocatedMemorySupported()) {
+          result.setThreadAllocatedMemoryEnabled(true);
+        }
+        else {
+          result = null;
+        }
+      }
+    }
+    catch (Throwable t) {
+      // allocation measurement is unavailable
+      result = null;
+    }
+
+    return result;
+  }
+
+  /**
+   * Determine whether allocated bytes are being measured.
+   */
+  public boolean measuresAllocation() {
+    return allocationBean != null;
   }
 
   public StatsAccumulator getInitTimes() {
@@ -66,6 +118,18 @@ public class TokenizerSpeedTest {
     return reviseTimes;
   }
 
+  public StatsAccumulator getInitBytes() {
+    return initBytes;
+  }
+
+  public StatsAccumulator getNextBytes() {
+    return nextBytes;
+  }
+
+  public StatsAccumulator getReviseBytes() {
+    return reviseBytes;
+  }
+
   public Tokenizer getTokenizer(String text) {
     return new StandardTokenizer(text, tokenizerOptions);
   }
@@ -101,54 +165,91 @@ public class TokenizerSpeedTest {
   }
 
   private final void doAnalyze(String inputString) {
-    final long initStart = System.currentTimeMillis();
+    final long initBytesStart = getAllocatedBytes();
+    final long initStart = System.nanoTime();
     final Tokenizer tokenizer = getTokenizer(inputString);
     Token token = tokenizer.getToken(0);
 
-    initTimes.add(System.currentTimeMillis() - initStart);
+    initTimes.add((System.nanoTime() - initStart) / 1000);
+    addBytes(initBytes, initBytesStart);
+
+    for (int passNum = 0; passNum < numPasses; ++passNum) {
+      if (passNum > 0) token = tokenizer.getToken(0);
 
-    for (; token != null; token = getNextToken(tokenizer, token)) {
-      Token revisedToken = getRevisedToken(tokenizer, token);
-      for (; revisedToken != null; revisedToken = getRevisedToken(tokenizer, revisedToken)) {
-        // nothing to do
+      for (; token != null; token = getNextToken(tokenizer, token)) {
+        Token revisedToken = getRevisedToken(tokenizer, token);
+        for (; revisedToken != null; revisedToken = getRevisedToken(tokenizer, revisedToken)) {
+          // nothing to do
+        }
       }
     }
   }
 
   private final Token getNextToken(Tokenizer tokenizer, Token token) {
-    final long nextStart = System.currentTimeMillis();
+    final long nextBytesStart = getAllocatedBytes();
+    final long nextStart = System.nanoTime();
     final Token result = tokenizer.getNextToken(token);
-    nextTimes.add(System.currentTimeMillis() - nextStart);
+    nextTimes.add((System.nanoTime() - nextStart) / 1000);
+    addBytes(nextBytes, nextBytesStart);
     return result;
   }
 
   private final Token getRevisedToken(Tokenizer tokenizer, Token token) {
-    final long reviseStart = System.currentTimeMillis();
+    final long reviseBytesStart = getAllocatedBytes();
+    final long reviseStart = System.nanoTime();
     final Token result = tokenizer.revise(token);
-    reviseTimes.add(System.currentTimeMillis() - reviseStart);
+    reviseTimes.add((System.nanoTime() - reviseStart) / 1000);
+    addBytes(reviseBytes, reviseBytesStart);
     return result;
   }
 
+  private final long getAllocatedBytes() {
+    return (allocationBean == null) ? 0 : allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
 
-  public static void main(String[] args) throws IOException {
-    final StandardTokenizerOptions options = new StandardTokenizerOptions();
-    //options.setTokenBreakLimit(5);
+  private final void addBytes(StatsAccumulator bytes, long bytesStart) {
+    if (allocationBean != null) {
+      bytes.add(getAllocatedBytes() - bytesStart);
+    }
+  }
 
 
-    // currently, just test standard tokenizer w/default options
-    final TokenizerSpeedTest tester = new TokenizerSpeedTest(options, true, null);
-    for (String arg : args) {
-      final File file = new File(arg);
-      if (file.exists()) {
-        tester.analyze(file);
+  public static void main(String[] args) throws IOException {
+    // Properties:
+    //   passes -- (optional, default=1) number of times to walk each tokenizer's tokens
+    //   cacheTokens -- (optional, default=false) true to cache tokens
+    //   compare -- (optional, default=false) true to run both without and with cached tokens
+    final int numPasses = Integer.parseInt(System.getProperty("passes", "1"));
+    final boolean compare = "true".equals(System.getProperty("compare", "false"));
+    final boolean cacheTokens = "true".equals(System.getProperty("cacheTokens", "false"));
+
+    final boolean[] cacheSettings = compare ? new boolean[]{false, true} : new boolean[]{cacheTokens};
+    for (boolean cacheSetting : cacheSettings) {
+      final StandardTokenizerOptions options = new StandardTokenizerOptions();
+      //options.setTokenBreakLimit(5);
+      options.setCacheTokens(cacheSetting);
+
+      // currently, just test standard tokenizer w/default options
+      final TokenizerSpeedTest tester = new TokenizerSpeedTest(options, true, null, numPasses);
+      for (String arg : args) {
+        final File file = new File(arg);
+        if (file.exists()) {
+          tester.analyze(file);
+        }
+        else {
+          tester.analyze(arg);
+        }
       }
-      else {
-        tester.analyze(arg);
+
+      System.out.println("cacheTokens=" + cacheSetting + " passes=" + numPasses);
+      System.out.println(tester.getInitTimes());
+      System.out.println(tester.getNextTimes());
+      System.out.println(tester.getReviseTimes());
+      if (tester.measuresAllocation()) {
+        System.out.println(tester.getInitBytes());
+        System.out.println(tester.getNextBytes());
+        System.out.println(tester.getReviseBytes());
       }
     }
-
-    System.out.println(tester.getInitTimes());
-    System.out.println(tester.getNextTimes());
-    System.out.println(tester.getReviseTimes());
   }
 }
@@ -0,0 +1,141 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.atn;
+
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.sd.token.Tokenizer;
+import org.sd.xml.DomElement;
+import org.sd.xml.XmlFactory;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit Tests for the AtnGrammar class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestAtnGrammar extends TestCase {
+
+  public TestAtnGrammar(String name) {
+    super(name);
+  }
+  
+
+  public void testCompiledGrammarIsImmutable() throws IOException {
+    final AtnParser parser = AtnParseTest.buildParser(AtnParserSpeedTest.SAMPLE_GRAMMAR, false).compile();
+    assertTrue(parser.getGrammar().isCompiled());
+
+    final DomElement supplement = (DomElement)XmlFactory.loadDocument("<grammar><rules><other><word/></other></rules></grammar>", false).getDocumentElement();
+    try {
+      parser.getGrammar().supplement(supplement);
+      fail("expected IllegalStateException");
+    }
+    catch (IllegalStateException e) {
+      // expected
+    }
+  }
+
+  public void testConcurrentParsesWithSharedGrammar() throws Exception {
+    final AtnParser parser = AtnParseTest.buildParser(AtnParserSpeedTest.SAMPLE_GRAMMAR, false).compile();
+    final AtnParseOptions options = AtnParseTest.buildParseOptions("<parseOptions><consumeAllText>false</consumeAllText></parseOptions>");
+
+    final int numThreads = 4;
+    final String[] texts = new String[numThreads];
+    final List<List<String>> expected = new ArrayList<List<String>>();
+    for (int i = 0; i < numThreads; ++i) {
+      texts[i] = AtnParserSpeedTest.generateSampleText(40 + i * 10, 5 + i);
+      expected.add(seekAll(parser, texts[i], options));
+    }
+
+    final List<List<String>> got = new ArrayList<List<String>>();
+    final Exception[] errors = new Exception[numThreads];
+    final Thread[] threads = new Thread[numThreads];
+    for (int i = 0; i < numThreads; ++i) {
+      got.add(null);
+      final int threadNum = i;
+      threads[i] = new Thread() {
+          public void run() {
+            try {
+              List<String> parses = null;
+              for (int rep = 0; rep < 5; ++rep) {
+                parses = seekAll(parser, texts[threadNum], options);
+              }
+              synchronized (got) {
+                got.set(threadNum, parses);
+              }
+            }
+            catch (Exception e) {
+              errors[threadNum] = e;
+            }
+          }
+        };
+    }
+    for (Thread thread : threads) thread.start();
+    for (Thread thread : threads) thread.join();
+
+    for (int i = 0; i < numThreads; ++i) {
+      assertNull(errors[i]);
+      assertTrue(expected.get(i).size() > 0);
+      assertEquals(expected.get(i), got.get(i));
+    }
+  }
+
+  public void testTraceIsPerParseOptions() throws IOException {
+    final AtnParseOptions options = AtnParseTest.buildParseOptions("<parseOptions><trace>true</trace></parseOptions>");
+    assertTrue(options.getTrace());
+    assertFalse(options.getTraceFlow());
+
+    final AtnParseOptions copy = new AtnParseOptions(options);
+    copy.setTrace(false);
+    copy.setStepThruDebugging("event", "date", "March");
+    assertTrue(options.getTrace());
+    assertFalse(options.hasStepThru());
+    assertTrue(copy.hasStepThru());
+    assertTrue(copy.isStepThru("event", "date", "March"));
+  }
+
+
+  private final List<String> seekAll(AtnParser parser, String text, AtnParseOptions options) throws IOException {
+    final List<String> result = new ArrayList<String>();
+
+    final Tokenizer tokenizer = AtnParseTest.buildTokenizer("<tokenizer><revisionStrategy>SO</revisionStrategy></tokenizer>", text);
+    for (AtnParseResult parseResult : parser.seekAll(tokenizer, options, null, null, null)) {
+      for (int parseNum = 0; parseNum < parseResult.getNumParses(); ++parseNum) {
+        result.add(parseResult.getParse(parseNum).getParseTree().toString());
+      }
+    }
+
+    return result;
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestAtnGrammar.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,149 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.atn;
+
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.sd.token.StandardTokenizer;
+import org.sd.token.Tokenizer;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit Tests for the AtnParseChart class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestAtnParseChart extends TestCase {
+
+  public TestAtnParseChart(String name) {
+    super(name);
+  }
+  
+
+  public void testChartedSeekAllMatchesUncharted() throws IOException {
+    final AtnParser parser = AtnParseTest.buildParser(AtnParserSpeedTest.SAMPLE_GRAMMAR, false);
+    final String text = AtnParserSpeedTest.generateSampleText(60, 10);
+
+    final AtnParseOptions options = AtnParseTest.buildParseOptions("<parseOptions><consumeAllText>false</consumeAllText></parseOptions>");
+    final List<String> uncharted = seekAll(parser, text, options, null);
+
+    options.setChartParsing(true);
+    final AtnParseChart[] chart = new AtnParseChart[1];
+    final List<String> charted = seekAll(parser, text, options, chart);
+
+    assertTrue(uncharted.size() > 0);
+    assertEquals(uncharted, charted);
+
+    // test free steps over context free classifiers are charted whole across
+    // start positions, so their classifications are each computed just once
+    assertNotNull(chart[0]);
+    assertTrue(chart[0].getStepHits() > 0);
+    assertTrue(chart[0].getMisses() <= chart[0].getStepMisses());
+  }
+
+  public void testChartedSeekPastFailedStarts() throws IOException {
+    final AtnParser parser = AtnParseTest.buildParser(AtnParserSpeedTest.SAMPLE_GRAMMAR, false);
+    final AtnParseOptions options = AtnParseTest.buildParseOptions("<parseOptions><consumeAllText>false</consumeAllText><chartParsing>true</chartParsing></parseOptions>");
+    assertTrue(options.getChartParsing());
+
+    final StandardTokenizer tokenizer = AtnParseTest.buildTokenizer("<tokenizer><revisionStrategy>SO</revisionStrategy></tokenizer>", "budget 42 plans for March 14");
+    final List<AtnParseResult> parseResults = parser.seekAll(tokenizer, options, null, null, null);
+    assertEquals(1, parseResults.size());
+
+    final AtnParse parse = parseResults.get(0).getParse(0);
+    assertEquals("(event (word plans) (word for) (date (month March) (num 14)))", parse.getParseTree().toString());
+  }
+
+  public void testChartsNestedClassifiersWithinParse() throws IOException {
+    final String grammarXml =
+      "<grammar>" +
+      "<classifiers>" +
+      "<month><jclass>org.sd.atn.RoteListClassifier</jclass><terms caseSensitive='false'><term>march</term><term>may</term></terms></month>" +
+      "<num><jclass>org.sd.atn.RoteListClassifier</jclass><regexes><regex type='matches'>^[0-9]+$</regex></regexes></num>" +
+      "<dateword><jclass>org.sd.atn.RoteListClassifier</jclass><classifiers><classifier>month</classifier><classifier>num</classifier></classifiers></dateword>" +
+      "</classifiers>" +
+      "<rules>" +
+      "<dates start='true'><dateword repeats='true'/><month optional='true'/></dates>" +
+      "</rules>" +
+      "</grammar>";
+    final AtnParser parser = AtnParseTest.buildParser(grammarXml, false);
+    final AtnParseOptions options = AtnParseTest.buildParseOptions("<parseOptions><consumeAllText>true</consumeAllText></parseOptions>");
+    final String text = "March 14 2011 May 2 2012";
+
+    final List<String> uncharted = parse(parser, text, options, null);
+
+    options.setChartParsing(true);
+    final AtnParseChart[] chart = new AtnParseChart[1];
+    final List<String> charted = parse(parser, text, options, chart);
+
+    assertTrue(uncharted.size() > 0);
+    assertEquals(uncharted, charted);
+
+    // the dateword classifier isn't context free, but its month and num sub-classifiers are
+    assertNotNull(chart[0]);
+    assertTrue(chart[0].getUncharted() > 0);
+    assertTrue(chart[0].getHits() > 0);
+    assertTrue(chart[0].getHitRate() > 0.0);
+  }
+
+  private final List<String> parse(AtnParser parser, String text, AtnParseOptions options, AtnParseChart[] chart) throws IOException {
+    final List<String> result = new ArrayList<String>();
+
+    final Tokenizer tokenizer = AtnParseTest.buildTokenizer("<tokenizer><revisionStrategy>SO</revisionStrategy></tokenizer>", text);
+    final AtnParseResult parseResult = parser.parse(tokenizer, options, null, null, null);
+    parseResult.generateParses(0);
+    for (int parseNum = 0; parseNum < parseResult.getNumParses(); ++parseNum) {
+      result.add(parseResult.getParse(parseNum).getParseTree().toString());
+    }
+    if (chart != null) chart[0] = parseResult.getChart();
+
+    return result;
+  }
+
+  private final List<String> seekAll(AtnParser parser, String text, AtnParseOptions options, AtnParseChart[] chart) throws IOException {
+    final List<String> result = new ArrayList<String>();
+
+    final Tokenizer tokenizer = AtnParseTest.buildTokenizer("<tokenizer><revisionStrategy>SO</revisionStrategy></tokenizer>", text);
+    for (AtnParseResult parseResult : parser.seekAll(tokenizer, options, null, null, null)) {
+      parseResult.generateParses(0);
+      for (int parseNum = 0; parseNum < parseResult.getNumParses(); ++parseNum) {
+        final AtnParse parse = parseResult.getParse(parseNum);
+        result.add(parse.getStartIndex() + ":" + parse.getParseTree().toString());
+      }
+      if (chart != null) chart[0] = parseResult.getChart();
+    }
+
+    return result;
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestAtnParseChart.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
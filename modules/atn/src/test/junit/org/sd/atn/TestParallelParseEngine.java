@@ -0,0 +1,212 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.atn;
+
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.sd.util.FileContext;
+import org.sd.util.InputContextIterator;
+import org.sd.util.WhitespacePolicy;
+import org.sd.xml.DataProperties;
+import org.sd.xml.DomElement;
+import org.sd.xml.XmlFactory;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit Tests for the ParallelParseEngine class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestParallelParseEngine extends TestCase {
+
+  public TestParallelParseEngine(String name) {
+    super(name);
+  }
+  
+
+  private static final String PARSE_CONFIG =
+    "<parseConfig><compoundParser><id>sample</id><parser><id>events</id>" +
+    AtnParserSpeedTest.SAMPLE_GRAMMAR +
+    "<tokenizerOptions><revisionStrategy>SO</revisionStrategy></tokenizerOptions>" +
+    "<parseOptions><consumeAllText>false</consumeAllText></parseOptions>" +
+    "</parser></compoundParser></parseConfig>";
+
+
+  public void testOrderedMatchesSerial() throws IOException {
+    final AtnParseRunner runner = buildRunner();
+    final String[][] docs = buildDocs(12);
+
+    final List<List<String>> expected = new ArrayList<List<String>>();
+    for (String[] doc : docs) {
+      expected.add(getParses(runner.parseInput(buildInput(doc), AtnParseRunner.InputUpdateStrategy.RESET, null, null)));
+    }
+    assertTrue(expected.get(docs.length - 1).size() > 0);
+
+    final List<List<String>> got = new ArrayList<List<String>>();
+    final List<Integer> docNums = new ArrayList<Integer>();
+    final ParallelParseEngine engine = new ParallelParseEngine(runner, 4, 2, true);
+    final int numDelivered = engine.parse(buildDocuments(docs).iterator(), null, new ParallelParseEngine.DocumentHandler() {
+        public void handle(int docNum, ParallelParseEngine.ParseDocument document, ParseOutputCollector output) {
+          docNums.add(docNum);
+          got.add(getParses(output));
+        }
+      }, new AtomicBoolean(false));
+
+    assertEquals(docs.length, numDelivered);
+    for (int i = 0; i < docs.length; ++i) {
+      assertEquals(i, docNums.get(i).intValue());
+    }
+    assertEquals(expected, got);
+  }
+
+  public void testUnorderedMerge() throws IOException {
+    final AtnParseRunner runner = buildRunner();
+    final String[][] docs = buildDocs(10);
+
+    int expectedCount = 0;
+    for (String[] doc : docs) {
+      expectedCount += getParses(runner.parseInput(buildInput(doc), AtnParseRunner.InputUpdateStrategy.RESET, null, null)).size();
+    }
+    assertTrue(expectedCount > 0);
+
+    final ParallelParseEngine engine = new ParallelParseEngine(runner, 3, 0, false);
+    final ParseOutputCollector output = engine.parse(buildDocuments(docs).iterator(), null, new AtomicBoolean(false));
+
+    assertEquals(expectedCount, getParses(output).size());
+  }
+
+  public void testReorderWindowBound() throws IOException {
+    final AtnParseRunner runner = buildRunner();
+    final String[][] docs = buildDocs(80);
+
+    // a slow first document holds up ordered delivery
+    docs[0] = new String[100];
+    for (int lineNum = 0; lineNum < docs[0].length; ++lineNum) {
+      docs[0][lineNum] = AtnParserSpeedTest.generateSampleText(100 + lineNum, 20);
+    }
+
+    final ParallelParseEngine engine = new ParallelParseEngine(runner, 4, 1, true);
+    final int window = engine.getReorderWindow();
+    assertTrue(window < docs.length);
+
+    final AtomicInteger numSubmitted = new AtomicInteger(0);
+    final Iterator<ParallelParseEngine.ParseDocument> iter = buildDocuments(docs).iterator();
+    final Iterator<ParallelParseEngine.ParseDocument> countingIter = new Iterator<ParallelParseEngine.ParseDocument>() {
+        public boolean hasNext() {
+          return iter.hasNext();
+        }
+        public ParallelParseEngine.ParseDocument next() {
+          numSubmitted.incrementAndGet();
+          return iter.next();
+        }
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+
+    final List<Integer> maxUndelivered = new ArrayList<Integer>();
+    maxUndelivered.add(0);
+    final int numDelivered = engine.parse(countingIter, null, new ParallelParseEngine.DocumentHandler() {
+        public void handle(int docNum, ParallelParseEngine.ParseDocument document, ParseOutputCollector output) {
+          // submitted documents not delivered before this one
+          final int undelivered = numSubmitted.get() - docNum;
+          if (undelivered > maxUndelivered.get(0)) maxUndelivered.set(0, undelivered);
+        }
+      }, new AtomicBoolean(false));
+
+    assertEquals(docs.length, numDelivered);
+    assertTrue("maxUndelivered=" + maxUndelivered.get(0), maxUndelivered.get(0) <= window);
+  }
+
+  public void testDie() throws IOException {
+    final AtnParseRunner runner = buildRunner();
+    final String[][] docs = buildDocs(10);
+
+    final ParallelParseEngine engine = new ParallelParseEngine(runner, 2, 1, true);
+    final int numDelivered = engine.parse(buildDocuments(docs).iterator(), null, null, new AtomicBoolean(true));
+
+    assertEquals(0, numDelivered);
+  }
+
+
+  private final AtnParseRunner buildRunner() throws IOException {
+    final DomElement configElement = (DomElement)XmlFactory.loadDocument(PARSE_CONFIG, false).getDocumentElement();
+    return new AtnParseRunner(new DataProperties(), new ParseConfig(configElement));
+  }
+
+  private final String[][] buildDocs(int numDocs) {
+    final String[][] result = new String[numDocs][];
+
+    for (int docNum = 0; docNum < numDocs; ++docNum) {
+      final int numLines = 1 + (docNum % 3);
+      result[docNum] = new String[numLines];
+      for (int lineNum = 0; lineNum < numLines; ++lineNum) {
+        result[docNum][lineNum] = AtnParserSpeedTest.generateSampleText(10 + docNum * 7 + lineNum, 5 + lineNum);
+      }
+    }
+
+    return result;
+  }
+
+  private final InputContextIterator buildInput(String[] lines) {
+    return new FileContext(lines, WhitespacePolicy.HYPERTRIM).getLineIterator();
+  }
+
+  private final List<ParallelParseEngine.ParseDocument> buildDocuments(String[][] docs) {
+    final List<ParallelParseEngine.ParseDocument> result = new ArrayList<ParallelParseEngine.ParseDocument>();
+
+    for (String[] doc : docs) {
+      result.add(new ParallelParseEngine.ParseDocument(buildInput(doc), AtnParseRunner.InputUpdateStrategy.RESET, null));
+    }
+
+    return result;
+  }
+
+  private final List<String> getParses(ParseOutputCollector output) {
+    final List<String> result = new ArrayList<String>();
+
+    if (output.hasParseResults()) {
+      for (AtnParseResult parseResult : output.getParseResults()) {
+        for (int parseNum = 0; parseNum < parseResult.getNumParses(); ++parseNum) {
+          result.add(parseResult.getParse(parseNum).getParseTree().toString());
+        }
+      }
+    }
+
+    return result;
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestParallelParseEngine.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -60,7 +60,6 @@ public class TestParseConfig extends TestCase {
 
   public void test1() throws IOException {
 
-    if (debug) AtnState.setTrace(true);
     if (debug) System.out.println("test1a");
 
     runTest("parseConfigTest.1.xml", "ParseConfigTest.1a", "test1", "input1", "expectedText-1a", "expectedTrees-1a", "1", null, false, null);
@@ -112,6 +111,7 @@ public class TestParseConfig extends TestCase {
     final TestParams testParams = paramsContainer.testId2Params.get(testId);
     final ParseConfig parseConfig = buildParseConfig(testParams.getInput("parseConfig"));
     if (debug) parseConfig.setVerbose(true);
+    if (debug) parseConfig.setParseTrace(true, false);
     final DomElement testInput = testParams.getInput(inputId);
 
     assertNotNull("No input '" + inputId + "' specified for test!",
@@ -0,0 +1,189 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.atn;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import org.sd.io.FileUtil;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit Tests for the TermStore class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestTermStore extends TestCase {
+
+  public TestTermStore(String name) {
+    super(name);
+  }
+  
+
+  private final Map<String, String> attributes(String... kvPairs) {
+    final Map<String, String> result = new HashMap<String, String>();
+    for (int i = 0; i + 1 < kvPairs.length; i += 2) {
+      result.put(kvPairs[i], kvPairs[i + 1]);
+    }
+    return result;
+  }
+
+  public void testPutAndGet() {
+    final TermStore termStore = new TermStore(2);
+
+    // force table growth
+    for (int i = 0; i < 1000; ++i) {
+      termStore.put("term" + i, (i % 2 == 0) ? null : attributes("n", Integer.toString(i % 10)));
+    }
+
+    assertEquals(1000, termStore.size());
+    assertEquals(5, termStore.getNumAttributeSets());
+
+    for (int i = 0; i < 1000; ++i) {
+      final String term = "term" + i;
+      assertTrue(termStore.contains(term));
+      assertEquals(term, termStore.getTerm(i));
+      if (i % 2 == 0) {
+        assertNull(termStore.get(term));
+      }
+      else {
+        assertEquals(Integer.toString(i % 10), termStore.get(term).get("n"));
+      }
+    }
+
+    assertFalse(termStore.contains("term1000"));
+    assertFalse(termStore.contains(""));
+    assertNull(termStore.get("foo"));
+  }
+
+  public void testSharedAttributes() {
+    final TermStore termStore = new TermStore();
+    termStore.put("a", attributes("x", "1"));
+    termStore.put("b", attributes("x", "1"));
+
+    assertSame(termStore.get("a"), termStore.get("b"));
+
+    try {
+      termStore.get("a").put("y", "2");
+      fail("expected UnsupportedOperationException");
+    }
+    catch (UnsupportedOperationException e) {
+      // expected
+    }
+  }
+
+  public void testMergeAttributes() {
+    final TermStore termStore = new TermStore();
+    termStore.put("a", null);
+    termStore.put("b", attributes("x", "1"));
+    termStore.put("a", attributes("y", "2"));
+    termStore.put("b", attributes("x", "3", "z", "4"));
+    termStore.put("b", null);
+
+    assertEquals(2, termStore.size());
+    assertEquals(attributes("y", "2"), termStore.get("a"));
+    assertEquals(attributes("x", "3", "z", "4"), termStore.get("b"));
+  }
+
+  public void testReadWrite() throws IOException {
+    final TermStore termStore = new TermStore();
+    termStore.put("new york", attributes("type", "city", "state", "ny"));
+    termStore.put("utah", attributes("type", "state"));
+    termStore.put("zürich", attributes("type", "city"));
+    termStore.put("the", null);
+
+    final ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+    final DataOutputStream dataOut = new DataOutputStream(bytesOut);
+    termStore.write(dataOut);
+    dataOut.close();
+
+    final TermStore loaded = TermStore.read(new DataInputStream(new ByteArrayInputStream(bytesOut.toByteArray())));
+
+    assertEquals(termStore.size(), loaded.size());
+    for (int i = 0; i < termStore.size(); ++i) {
+      final String term = termStore.getTerm(i);
+      assertEquals(term, loaded.getTerm(i));
+      assertEquals(termStore.get(term), loaded.get(term));
+    }
+    assertTrue(loaded.contains("zürich"));
+    assertNull(loaded.get("the"));
+
+    loaded.put("texas", attributes("type", "state"));
+    assertSame(loaded.get("utah"), loaded.get("texas"));
+  }
+
+  public void testWriteFileReplaces() throws IOException {
+    final File dir = File.createTempFile("TestTermStore", ".dir");
+    dir.delete();
+    dir.mkdirs();
+
+    try {
+      final File file = new File(dir, "test.terms");
+
+      final TermStore termStore = new TermStore();
+      termStore.put("utah", attributes("type", "state"));
+      termStore.write(file);
+
+      termStore.put("new york", attributes("type", "city"));
+      termStore.write(file);
+
+      final TermStore loaded = TermStore.read(file);
+      assertEquals(2, loaded.size());
+      assertEquals(attributes("type", "city"), loaded.get("new york"));
+
+      // only the written file remains; no temporary files
+      assertEquals(1, dir.listFiles().length);
+    }
+    finally {
+      FileUtil.deleteDir(dir);
+    }
+  }
+
+  public void testClear() {
+    final TermStore termStore = new TermStore();
+    termStore.put("a", attributes("x", "1"));
+    termStore.clear();
+
+    assertEquals(0, termStore.size());
+    assertFalse(termStore.contains("a"));
+
+    termStore.put("b", null);
+    assertTrue(termStore.contains("b"));
+    assertEquals("b", termStore.getTerm(0));
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestTermStore.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -471,6 +471,80 @@ public class TestStandardTokenizer extends TestCase {
     }
   }
 
+  public void testCachedTokensMatchUncached() {
+    final String text = "JohnJacobJingleheimerSchmidt -- His name is my name, too! Don't--really--e-mail 3.14 or $24.99.";
+
+    for (TokenRevisionStrategy strategy : TokenRevisionStrategy.values()) {
+      final StandardTokenizerOptions options = new StandardTokenizerOptions();
+      options.setRevisionStrategy(strategy);
+      final StandardTokenizerOptions cachingOptions = new StandardTokenizerOptions(options);
+      cachingOptions.setCacheTokens(true);
+
+      final String expected = walkTokens(new StandardTokenizer(text, options));
+      final StandardTokenizer cachingTokenizer = new StandardTokenizer(text, cachingOptions);
+      assertEquals(strategy.toString(), expected, walkTokens(cachingTokenizer));
+      assertEquals(strategy.toString(), expected, walkTokens(cachingTokenizer));
+    }
+  }
+
+  public void testCachedTokensAreReused() {
+    final StandardTokenizerOptions options = new StandardTokenizerOptions();
+    options.setCacheTokens(true);
+
+    final StandardTokenizer tokenizer = new StandardTokenizer("His name is my name too!", options);
+    final Token token = tokenizer.getToken(0);
+
+    assertSame(token, tokenizer.getToken(0));
+    assertSame(tokenizer.revise(token), tokenizer.revise(token));
+    assertSame(tokenizer.getNextToken(token), tokenizer.getNextToken(token));
+
+    // uncached tokens are distinct
+    final StandardTokenizer uncachedTokenizer = new StandardTokenizer("His name is my name too!", new StandardTokenizerOptions());
+    assertNotSame(uncachedTokenizer.getToken(0), uncachedTokenizer.getToken(0));
+  }
+
+  private final String walkTokens(Tokenizer tokenizer) {
+    final StringBuilder result = new StringBuilder();
+
+    for (Token token = tokenizer.getToken(0); token != null; token = tokenizer.getNextToken(token)) {
+      for (Token revisedToken = token; revisedToken != null; revisedToken = tokenizer.revise(revisedToken)) {
+        result.
+          append(revisedToken.getText()).append('/').
+          append(revisedToken.getRevisionNumber()).append('/').
+          append(revisedToken.getSequenceNumber()).append('/').
+          append(revisedToken.getWordCount()).append('/').
+          append(revisedToken.getBreakCount()).append('|');
+      }
+      result.append('\n');
+    }
+
+    return result.toString();
+  }
+
+  public void testBreakMap() {
+    final BreakMap breakMap = new BreakMap(3);
+
+    assertNull(breakMap.get(1));
+    assertFalse(breakMap.containsKey(1));
+
+    assertNull(breakMap.put(1, Break.SINGLE_WIDTH_SOFT_BREAK));
+    assertNull(breakMap.put(2, Break.NO_BREAK));
+    assertNull(breakMap.put(10, Break.ZERO_WIDTH_HARD_BREAK));
+    assertEquals(3, breakMap.size());
+
+    assertSame(Break.SINGLE_WIDTH_SOFT_BREAK, breakMap.put(1, Break.SINGLE_WIDTH_HARD_BREAK));
+    assertSame(Break.SINGLE_WIDTH_HARD_BREAK, breakMap.get(1));
+    assertTrue(breakMap.containsKey(2));
+    assertSame(Break.NO_BREAK, breakMap.get(2));
+    assertSame(Break.ZERO_WIDTH_HARD_BREAK, breakMap.get(10));
+    assertNull(breakMap.get(-1));
+    assertNull(breakMap.get(100));
+
+    assertSame(Break.NO_BREAK, breakMap.remove(2));
+    assertNull(breakMap.remove(2));
+    assertEquals(2, breakMap.size());
+  }
+
 
   public static Test suite() {
     TestSuite suite = new TestSuite(TestStandardTokenizer.class);
@@ -84,6 +84,7 @@ public class BerkeleyDb {
 
   private Environment _environment;
   private Map<String, DbHandle> _name2dbHandle;
+  private final Map<String, Integer> name2cacheSize = new HashMap<String, Integer>();
   private final AtomicBoolean closed = new AtomicBoolean(false);
 
   private static final Object envOpenMutex = new Object();
@@ -196,6 +197,35 @@ public class BerkeleyDb {
     return get(dbName, timestamped, null);
   }
 
+  /**
+   * Get (opening if needed) a handle to a database (by name) within this
+   * instance's environment, setting the size of its read cache.
+   *
+   * @param cacheSize  The maximum number of values to cache for the database
+   *                   (see setCacheSize).
+   */
+  public final synchronized DbHandle get(String dbName, Boolean timestamped, String dbMarkerId, int cacheSize) {
+    if (dbName == null) dbName = envLocation.getName();
+    setCacheSize(dbName, cacheSize);
+    return get(dbName, timestamped, dbMarkerId);
+  }
+
+  /**
+   * Set the maximum number of values to cache in front of gets for the
+   * named database, or 0 to disable caching.
+   * <p>
+   * This applies to the database's handle if already open and to handles
+   * subsequently opened through 'get'.
+   */
+  public final synchronized void setCacheSize(String dbName, int cacheSize) {
+    name2cacheSize.put(dbName, cacheSize);
+
+    if (_name2dbHandle != null) {
+      final DbHandle dbHandle = _name2dbHandle.get(dbName);
+      if (dbHandle != null) dbHandle.setCacheSize(cacheSize);
+    }
+  }
+
   /**
    * Get a list of all databases retrieved from this instance.
    *
@@ -311,6 +341,9 @@ public class BerkeleyDb {
           }
 
           result = new DbHandle(new DbInfo(this, _environment, dbName, database, tsDb), dbMarkerId);
+
+          final Integer cacheSize = name2cacheSize.get(dbName);
+          if (cacheSize != null) result.setCacheSize(cacheSize);
           _name2dbHandle.put(dbName, result);
         }
         catch (DatabaseException e) {
@@ -62,6 +62,7 @@ public class CursorDeleteFunction implements TransactionFunction {
 
         // delete it.
         opStatus = cursor.delete();
+        if (opStatus == OperationStatus.SUCCESS) dbInfo.invalidate(key);
 
         // put cursor back where it was
         if (forward && opStatus != OperationStatus.SUCCESS) {
@@ -0,0 +1,469 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.bdb;
+
+
+import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.Transaction;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Group-commit writer for a database handle.
+ * <p>
+ * Puts, pushes, updates and deletes are queued and applied by a single
+ * writer thread that commits up to maxBatchSize queued operations under one
+ * transaction. After taking the first operation of a batch, the writer
+ * waits up to maxDelayMillis for more to arrive before committing, so that
+ * a steady stream of callers amortizes the per-commit cost. Operations are
+ * applied in submission order.
+ * <p>
+ * Each operation returns a future holding whether the operation succeeded.
+ * If a batch's transaction fails, including by an operation throwing a
+ * runtime exception, its operations are retried individually so that one bad
+ * operation fails alone.
+ * <p>
+ * Queued writes are not visible to readers of the handle until committed.
+ * Close this writer before closing its handle.
+ *
+ * @author Spence Koehler
+ */
+public class DbBatchWriter {
+
+  private static final BatchOp SHUTDOWN = new BatchOp(null);
+
+  private DbInfo dbInfo;
+  private int maxBatchSize;
+  private long maxDelayNanos;
+  private boolean durable;
+
+  private final BlockingQueue<BatchOp> queue;
+  private final Thread writerThread;
+  private boolean closed;
+
+  private final AtomicLong numOps = new AtomicLong(0L);
+  private final AtomicLong numBatches = new AtomicLong(0L);
+  private final AtomicLong numFailures = new AtomicLong(0L);
+
+  /**
+   * Construct a writer for the handle's database.
+   *
+   * @param dbHandle  The handle to write through.
+   * @param maxBatchSize  The maximum number of operations per transaction.
+   * @param maxDelayMillis  The maximum time to wait for a batch to fill
+   *                        after its first operation arrives.
+   * @param durable  If false, commit without synchronously flushing the log
+   *                 (see DbInfo.performTransaction).
+   */
+  public DbBatchWriter(DbHandle dbHandle, int maxBatchSize, long maxDelayMillis, boolean durable) {
+    this.dbInfo = dbHandle.getDbInfo();
+    this.maxBatchSize = Math.max(1, maxBatchSize);
+    this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, maxDelayMillis));
+    this.durable = durable;
+
+    this.queue = new LinkedBlockingQueue<BatchOp>();
+    this.closed = false;
+
+    this.writerThread = new Thread(new Runnable() {
+        public void run() {
+          writeBatches();
+        }
+      }, "DbBatchWriter-" + dbInfo.getDbName());
+    writerThread.setDaemon(true);
+    writerThread.start();
+  }
+
+  /**
+   * Queue a put of the value associated with the key.
+   */
+  public Future<Boolean> put(long key, DbValue value) {
+    return submit(new PutFunction(dbInfo.getKeyEntry(key), dbInfo.getValueEntry(value)));
+  }
+
+  /**
+   * Queue a put of the value associated with the key.
+   */
+  public Future<Boolean> put(String key, DbValue value) {
+    return submit(new PutFunction(dbInfo.getKeyEntry(key), dbInfo.getValueEntry(value)));
+  }
+
+  /**
+   * Queue a push of the value associated with the key to the 'beginning'.
+   *
+   * @see DbHandle#push
+   */
+  public Future<Boolean> push(long key, DbValue value) {
+    return submit(new PushFunction(dbInfo.getKeyEntry(key), value));
+  }
+
+  /**
+   * Queue a push of the value associated with the key to the 'beginning'.
+   *
+   * @see DbHandle#push
+   */
+  public Future<Boolean> push(String key, DbValue value) {
+    return submit(new PushFunction(dbInfo.getKeyEntry(key), value));
+  }
+
+  /**
+   * Queue an update of the record with the given key to have the new value.
+   *
+   * @see DbHandle#update
+   */
+  public Future<Boolean> update(long key, DbValue newValue, Long oldTimestamp) {
+    return submit(new UpdateFunction(dbInfo.getKeyEntry(key), dbInfo.getValueEntry(newValue, oldTimestamp)));
+  }
+
+  /**
+   * Queue an update of the record with the given key to have the new value.
+   *
+   * @see DbHandle#update
+   */
+  public Future<Boolean> update(String key, DbValue newValue, Long oldTimestamp) {
+    return submit(new UpdateFunction(dbInfo.getKeyEntry(key), dbInfo.getValueEntry(newValue, oldTimestamp)));
+  }
+
+  /**
+   * Queue a delete of the record with the given key.
+   * <p>
+   * The future's value is false if the record did not exist.
+   */
+  public Future<Boolean> delete(long key) {
+    return submit(new DeleteFunction(dbInfo.getKeyEntry(key)));
+  }
+
+  /**
+   * Queue a delete of the record with the given key.
+   * <p>
+   * The future's value is false if the record did not exist.
+   */
+  public Future<Boolean> delete(String key) {
+    return submit(new DeleteFunction(dbInfo.getKeyEntry(key)));
+  }
+
+  /**
+   * Wait until all operations queued before this call have been committed.
+   */
+  public void flush() throws InterruptedException {
+    final BatchOp marker = submit(null);
+    marker.await();
+  }
+
+  /**
+   * Commit all queued operations and stop the writer thread.
+   * <p>
+   * Operations submitted after closing fail immediately.
+   */
+  public void close() {
+    synchronized (queue) {
+      if (closed) return;
+      closed = true;
+      queue.add(SHUTDOWN);
+    }
+
+    try {
+      writerThread.join();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Determine whether this writer has been closed.
+   */
+  public boolean isClosed() {
+    synchronized (queue) {
+      return closed;
+    }
+  }
+
+  /**
+   * Get the number of operations committed (or failed) so far, excluding
+   * flush markers.
+   */
+  public long getNumOps() {
+    return numOps.get();
+  }
+
+  /**
+   * Get the number of batches committed (or failed) so far.
+   */
+  public long getNumBatches() {
+    return numBatches.get();
+  }
+
+  /**
+   * Get the number of operations that have failed.
+   */
+  public long getNumFailures() {
+    return numFailures.get();
+  }
+
+  /**
+   * Get the average number of operations per batch.
+   */
+  public double getAverageBatchSize() {
+    final long batches = numBatches.get();
+    return batches == 0 ? 0.0 : ((double)numOps.get()) / batches;
+  }
+
+  public String toString() {
+    final StringBuilder result = new StringBuilder();
+
+    result.
+      append("DbBatchWriter[").append(dbInfo.getDbName()).
+      append(", ops=").append(numOps.get()).
+      append(", batches=").append(numBatches.get()).
+      append(", failures=").append(numFailures.get()).
+      append(", pending=").append(queue.size()).
+      append(']');
+
+    return result.toString();
+  }
+
+  /**
+   * Queue the transaction function, or a flush marker if null.
+   */
+  final BatchOp submit(TransactionFunction txFn) {
+    final BatchOp result = new BatchOp(txFn);
+
+    synchronized (queue) {
+      if (closed) {
+        result.complete(false);
+      }
+      else {
+        queue.add(result);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Writer thread loop.
+   */
+  private final void writeBatches() {
+    final List<BatchOp> batch = new ArrayList<BatchOp>(maxBatchSize);
+    boolean shutdown = false;
+
+    while (!shutdown) {
+      try {
+        final BatchOp first = queue.take();
+        if (first == SHUTDOWN) break;
+        batch.add(first);
+
+        final long deadline = System.nanoTime() + maxDelayNanos;
+        while (batch.size() < maxBatchSize) {
+          BatchOp op = queue.poll();
+          if (op == null) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) break;
+            op = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (op == null) break;
+          }
+          if (op == SHUTDOWN) {
+            shutdown = true;
+            break;
+          }
+          batch.add(op);
+        }
+      }
+      catch (InterruptedException e) {
+        shutdown = true;
+      }
+
+      if (batch.size() > 0) {
+        try {
+          commit(batch);
+        }
+        catch (RuntimeException e) {
+          // fail whatever the batch left incomplete, but keep writing
+          System.err.println(new Date() + ": bdb." + dbInfo.getDbName() + ".batch(" + batch.size() + ")  FAILED!");
+          e.printStackTrace(System.err);
+          for (BatchOp op : batch) {
+            if (!op.isDone()) {
+              op.complete(false);
+              if (op.txFn != null) numFailures.incrementAndGet();
+            }
+          }
+        }
+        batch.clear();
+      }
+    }
+
+    // fail anything that slipped in behind an interrupt
+    synchronized (queue) {
+      closed = true;
+    }
+    for (BatchOp op = queue.poll(); op != null; op = queue.poll()) {
+      if (op != SHUTDOWN) op.complete(false);
+    }
+  }
+
+  /**
+   * Apply the batch under a single transaction, falling back to individual
+   * transactions on failure.
+   */
+  private final void commit(List<BatchOp> batch) {
+    if (dbInfo.isClosed()) {
+      for (BatchOp op : batch) op.complete(false);
+      numFailures.addAndGet(batch.size());
+    }
+    else if (performBatch(batch)) {
+      for (BatchOp op : batch) op.complete(op.result);
+    }
+    else if (batch.size() > 1) {
+      final List<BatchOp> single = new ArrayList<BatchOp>(1);
+      for (BatchOp op : batch) {
+        single.add(op);
+        final boolean committed = performBatch(single);
+        op.complete(committed && op.result);
+        if (!committed) numFailures.incrementAndGet();
+        single.clear();
+      }
+    }
+    else {
+      batch.get(0).complete(false);
+      numFailures.incrementAndGet();
+    }
+
+    int count = 0;
+    for (BatchOp op : batch) {
+      if (op.txFn != null) ++count;
+    }
+    numOps.addAndGet(count);
+    numBatches.incrementAndGet();
+  }
+
+  /**
+   * Apply the operations under a single transaction.
+   *
+   * @return true if committed; false if the transaction failed or an
+   *         operation threw a runtime exception (after which the transaction
+   *         has been aborted).
+   */
+  private final boolean performBatch(List<BatchOp> ops) {
+    boolean result = false;
+
+    try {
+      result = dbInfo.performTransaction(new BatchFunction(ops), durable);
+    }
+    catch (RuntimeException e) {
+      System.err.println(new Date() + ": bdb." + dbInfo.getDbName() + ".batch(" + ops.size() + ")  FAILED!");
+      e.printStackTrace(System.err);
+    }
+
+    return result;
+  }
+
+
+  /**
+   * A queued operation and its future result.
+   */
+  private static final class BatchOp implements Future<Boolean> {
+
+    final TransactionFunction txFn;  // null for flush markers
+    boolean result;                  // set by the writer thread under the transaction
+
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile boolean success;
+
+    BatchOp(TransactionFunction txFn) {
+      this.txFn = txFn;
+      this.result = false;
+      this.success = false;
+    }
+
+    void complete(boolean success) {
+      this.success = success;
+      done.countDown();
+    }
+
+    void await() throws InterruptedException {
+      done.await();
+    }
+
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      return false;
+    }
+
+    public boolean isCancelled() {
+      return false;
+    }
+
+    public boolean isDone() {
+      return done.getCount() == 0;
+    }
+
+    public Boolean get() throws InterruptedException, ExecutionException {
+      done.await();
+      return success;
+    }
+
+    public Boolean get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+      if (!done.await(timeout, unit)) throw new TimeoutException();
+      return success;
+    }
+  }
+
+  /**
+   * Transaction function applying a batch of operations.
+   * <p>
+   * Individual operations returning false (e.g. deleting a missing record)
+   * do not abort the batch; only database exceptions do.
+   */
+  private static final class BatchFunction implements TransactionFunction {
+
+    private List<BatchOp> batch;
+
+    BatchFunction(List<BatchOp> batch) {
+      this.batch = batch;
+    }
+
+    public boolean performFunction(DbInfo dbInfo, Transaction txn) throws DatabaseException {
+      for (BatchOp op : batch) {
+        op.result = (op.txFn == null) ? true : op.txFn.performFunction(dbInfo, txn);
+      }
+      return true;
+    }
+
+    public void logFailure(DbInfo dbInfo, DatabaseException de) {
+      if (batch.size() == 1 && batch.get(0).txFn != null) {
+        batch.get(0).txFn.logFailure(dbInfo, de);
+      }
+      else {
+        System.err.println(new Date() + ": bdb." + dbInfo.getDbName() + ".batch(" + batch.size() + ")  FAILED!");
+        if (de != null) {
+          de.printStackTrace(System.err);
+        }
+      }
+    }
+  }
+}
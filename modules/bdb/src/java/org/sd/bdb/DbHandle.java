@@ -78,6 +78,31 @@ public class DbHandle {
     return result;
   }
 
+  /**
+   * Enable (if maxEntries &gt; 0) or disable a size-bounded read cache for
+   * get in front of this handle's database.
+   * <p>
+   * Writes through this handle (or its batch writers, iterators, and pops)
+   * invalidate cached values. Cached values are shared between readers and
+   * should not be modified.
+   */
+  public final void setCacheSize(int maxEntries) {
+    final DbValueCache cache = dbInfo.getCache();
+    if (maxEntries <= 0) {
+      dbInfo.setCache(null);
+    }
+    else if (cache == null || cache.getMaxEntries() != maxEntries) {
+      dbInfo.setCache(new DbValueCache(maxEntries));
+    }
+  }
+
+  /**
+   * Get this handle's read cache (for statistics), or null if not caching.
+   */
+  public final DbValueCache getCache() {
+    return dbInfo.getCache();
+  }
+
   /**
    * Report whether this handle's database has an associated timestamped database.
    */
@@ -188,9 +213,27 @@ public class DbHandle {
   }
 
   /**
-   * Get the DbValue for the key under a transaction.
+   * Get the DbValue for the key, through the cache if present.
    */
   private final DbValue doGet(DatabaseEntry key) {
+    final DbValueCache cache = dbInfo.getCache();
+    if (cache == null) return doLoad(key);
+
+    DbValue result = cache.get(key);
+
+    if (result == null) {
+      final long stamp = cache.getStamp(key);
+      result = doLoad(key);
+      cache.put(key, result, stamp);
+    }
+
+    return result;
+  }
+
+  /**
+   * Load the DbValue for the key from the database.
+   */
+  private final DbValue doLoad(DatabaseEntry key) {
     DbValue result = null;
     final DatabaseEntry value = new DatabaseEntry();
 
@@ -228,6 +271,7 @@ public class DbHandle {
   private final void doDelete(DatabaseEntry key) {
     try {
       dbInfo.getDatabase().delete(null, key);
+      dbInfo.invalidate(key);
     }
     catch (DatabaseException de) {
       logDeleteFailure(de, key);
@@ -514,6 +558,21 @@ public class DbHandle {
     return result;
   }
 
+  /**
+   * Build a writer that groups puts, pushes, updates and deletes against
+   * this handle's database into batched transactions.
+   * <p>
+   * NOTE: Remember to close the writer before closing this handle!
+   *
+   * @param maxBatchSize  The maximum number of operations per transaction.
+   * @param maxDelayMillis  The maximum time to wait for a batch to fill.
+   * @param durable  If false, commit batches without synchronously flushing
+   *                 the log.
+   */
+  public final DbBatchWriter buildBatchWriter(int maxBatchSize, long maxDelayMillis, boolean durable) {
+    return new DbBatchWriter(this, maxBatchSize, maxDelayMillis, durable);
+  }
+
   /**
    * Load all entries from the other db handle into this handle's db,
    * replacing this db's with the other's on finding duplicates.
@@ -51,6 +51,7 @@ public class DbInfo {
   private final AtomicBoolean open = new AtomicBoolean(true);
   private final AtomicInteger errorCount = new AtomicInteger(0);
   private transient Boolean _hasStringKeys;
+  private volatile DbValueCache cache;
 
   public DbInfo(BerkeleyDb bdb, Environment environment, String dbName, Database database, SecondaryDatabase timestampedDb) {
     this.bdb = bdb;
@@ -125,6 +126,31 @@ public class DbInfo {
     return timestampedDb != null;
   }
 
+  /**
+   * Get the read cache for values in the database, possibly null.
+   */
+  public final DbValueCache getCache() {
+    return cache;
+  }
+
+  /**
+   * Set (or clear if null) the read cache for values in the database.
+   * <p>
+   * Transaction functions writing or deleting records invalidate their
+   * keys in the cache.
+   */
+  public final void setCache(DbValueCache cache) {
+    this.cache = cache;
+  }
+
+  /**
+   * Invalidate the key's cached value, if any.
+   */
+  public final void invalidate(DatabaseEntry keyEntry) {
+    final DbValueCache cache = this.cache;
+    if (cache != null) cache.invalidate(keyEntry);
+  }
+
   /**
    * Report whether the db has string keys. The alternative is long keys.
    * <p>
@@ -261,6 +287,17 @@ public class DbInfo {
    * Perform the function under a transaction in this instance's environment.
    */
   public boolean performTransaction(TransactionFunction txFn) {
+    return performTransaction(txFn, true);
+  }
+
+  /**
+   * Perform the function under a transaction in this instance's environment,
+   * committing without synchronously flushing the log if not durable.
+   * <p>
+   * Non-durable commits preserve atomicity and isolation, but the most
+   * recently committed transactions may be lost on a system crash.
+   */
+  public boolean performTransaction(TransactionFunction txFn, boolean durable) {
     boolean result = false;
     Transaction txn = null;
 
@@ -268,7 +305,12 @@ public class DbInfo {
       try {
         txn = environment.beginTransaction(null, null);
         if (txFn.performFunction(this, txn)) {
-          txn.commit();
+          if (durable) {
+            txn.commit();
+          }
+          else {
+            txn.commitNoSync();
+          }
           result = true;
         }
         else {
@@ -304,6 +346,18 @@ public class DbInfo {
         }
         break;
       }
+      catch (RuntimeException runtimeException) {
+        // Abort the transaction rather than leave its locks held
+        try {
+          if (txn != null) txn.abort();
+        }
+        catch (DatabaseException ddException) {
+          // Log failure.
+          txFn.logFailure(this, ddException);
+        }
+        errorCount.incrementAndGet();
+        throw runtimeException;
+      }
     }
 
     if (!result) {
@@ -0,0 +1,259 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.bdb;
+
+
+import com.sleepycat.je.DatabaseEntry;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded concurrent LRU cache of database values by key entry bytes.
+ * <p>
+ * Entries are spread over independently locked segments so that concurrent
+ * readers of different keys rarely contend. Each segment keeps a
+ * modification stamp so that a value loaded from the database concurrently
+ * with a write to (and invalidation of) its key is not cached stale.
+ * <p>
+ * NOTE: Cached DbValue instances are shared between readers and should not
+ *       be modified.
+ *
+ * @author Spence Koehler
+ */
+public class DbValueCache {
+
+  private static final int NUM_SEGMENTS = 16;
+
+  private final Segment[] segments;
+  private final int maxEntries;
+
+  private final AtomicLong hits = new AtomicLong(0L);
+  private final AtomicLong misses = new AtomicLong(0L);
+  private final AtomicLong invalidations = new AtomicLong(0L);
+
+  /**
+   * Construct a cache holding at most (about) maxEntries values.
+   */
+  public DbValueCache(int maxEntries) {
+    this.maxEntries = maxEntries;
+    this.segments = new Segment[NUM_SEGMENTS];
+
+    final int segmentSize = Math.max(1, (maxEntries + NUM_SEGMENTS - 1) / NUM_SEGMENTS);
+    for (int i = 0; i < NUM_SEGMENTS; ++i) {
+      segments[i] = new Segment(segmentSize);
+    }
+  }
+
+  /**
+   * Get the maximum number of entries this cache holds.
+   */
+  public int getMaxEntries() {
+    return maxEntries;
+  }
+
+  /**
+   * Get the cached value for the key, counting a hit or miss.
+   */
+  public DbValue get(DatabaseEntry keyEntry) {
+    final Key key = new Key(keyEntry);
+    final DbValue result = getSegment(key).get(key);
+
+    if (result != null) {
+      hits.incrementAndGet();
+    }
+    else {
+      misses.incrementAndGet();
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the key's segment modification stamp to pass to put after loading
+   * the key's value from the database.
+   */
+  public long getStamp(DatabaseEntry keyEntry) {
+    return getSegment(new Key(keyEntry)).getStamp();
+  }
+
+  /**
+   * Cache the value for the key unless the key's segment has been modified
+   * since the stamp was taken.
+   */
+  public void put(DatabaseEntry keyEntry, DbValue value, long stamp) {
+    if (value == null) return;
+    final Key key = new Key(keyEntry);
+    getSegment(key).put(key, value, stamp);
+  }
+
+  /**
+   * Remove the key's value from this cache.
+   */
+  public void invalidate(DatabaseEntry keyEntry) {
+    final Key key = new Key(keyEntry);
+    getSegment(key).remove(key);
+    invalidations.incrementAndGet();
+  }
+
+  /**
+   * Remove all values from this cache.
+   */
+  public void clear() {
+    for (Segment segment : segments) {
+      segment.clear();
+    }
+    invalidations.incrementAndGet();
+  }
+
+  /**
+   * Get the number of values currently cached.
+   */
+  public int size() {
+    int result = 0;
+    for (Segment segment : segments) {
+      result += segment.size();
+    }
+    return result;
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public long getInvalidations() {
+    return invalidations.get();
+  }
+
+  /**
+   * Get the ratio of hits to lookups (0 if none.)
+   */
+  public double getHitRate() {
+    final long h = hits.get();
+    final long total = h + misses.get();
+    return total == 0 ? 0.0 : ((double)h) / total;
+  }
+
+  /**
+   * Reset the hit, miss, and invalidation counts.
+   */
+  public void resetStats() {
+    hits.set(0L);
+    misses.set(0L);
+    invalidations.set(0L);
+  }
+
+  public String toString() {
+    final StringBuilder result = new StringBuilder();
+
+    result.
+      append("DbValueCache[size=").append(size()).append('/').append(maxEntries).
+      append(", hits=").append(hits.get()).
+      append(", misses=").append(misses.get()).
+      append(", hitRate=").append(String.format("%.3f", getHitRate())).
+      append(", invalidations=").append(invalidations.get()).
+      append(']');
+
+    return result.toString();
+  }
+
+  private final Segment getSegment(Key key) {
+    int h = key.hashCode();
+    h ^= (h >>> 16);
+    return segments[(h & 0x7FFFFFFF) % NUM_SEGMENTS];
+  }
+
+
+  /**
+   * Immutable copy of a key entry's bytes.
+   */
+  private static final class Key {
+
+    private final byte[] bytes;
+    private final int hash;
+
+    Key(DatabaseEntry keyEntry) {
+      final byte[] data = keyEntry.getData();
+      final int offset = keyEntry.getOffset();
+      this.bytes = (offset == 0 && keyEntry.getSize() == data.length) ? data : Arrays.copyOfRange(data, offset, offset + keyEntry.getSize());
+      this.hash = Arrays.hashCode(bytes);
+    }
+
+    public boolean equals(Object o) {
+      return (o instanceof Key) && Arrays.equals(bytes, ((Key)o).bytes);
+    }
+
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+
+  /**
+   * An independently locked LRU segment.
+   */
+  private static final class Segment {
+
+    private final LinkedHashMap<Key, DbValue> map;
+    private long stamp;
+
+    Segment(final int maxEntries) {
+      this.map = new LinkedHashMap<Key, DbValue>(Math.min(maxEntries, 1024), 0.75f, true) {
+          protected boolean removeEldestEntry(Map.Entry<Key, DbValue> eldest) {
+            return size() > maxEntries;
+          }
+        };
+      this.stamp = 0L;
+    }
+
+    synchronized DbValue get(Key key) {
+      return map.get(key);
+    }
+
+    synchronized long getStamp() {
+      return stamp;
+    }
+
+    synchronized void put(Key key, DbValue value, long stamp) {
+      if (this.stamp == stamp) {
+        map.put(key, value);
+      }
+    }
+
+    synchronized void remove(Key key) {
+      map.remove(key);
+      ++stamp;
+    }
+
+    synchronized void clear() {
+      map.clear();
+      ++stamp;
+    }
+
+    synchronized int size() {
+      return map.size();
+    }
+  }
+}
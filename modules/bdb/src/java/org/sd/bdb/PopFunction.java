@@ -116,6 +116,7 @@ class PopFunction implements TransactionFunction {
 
       if (opStatus == OperationStatus.SUCCESS) {
         if (peekOnly || cursor.delete() == OperationStatus.SUCCESS) {
+          if (!peekOnly) dbInfo.invalidate(key);
           final DbValue dbValue = dbInfo.getDbValue(value);
           if (keyIsString) {
             this.stringResult = new StringKeyValuePair(dbInfo.getKeyString(key), dbValue.getValueBytes());
@@ -164,6 +165,7 @@ class PopFunction implements TransactionFunction {
 
       if (opStatus == OperationStatus.SUCCESS) {
         if (peekOnly || secCursor.delete() == OperationStatus.SUCCESS) {
+          if (!peekOnly) dbInfo.invalidate(key);
           final DbValue dbValue = dbInfo.getDbValue(value);
           if (keyIsString) {
             this.stringResult = new StringKeyValuePair(dbInfo.getKeyString(key), dbValue.getValueBytes(), dbInfo.getKeyLong(timestamp));
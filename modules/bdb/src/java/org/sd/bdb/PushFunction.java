@@ -75,6 +75,7 @@ public class PushFunction implements TransactionFunction {
         if (opStatus == OperationStatus.SUCCESS || opStatus == OperationStatus.NOTFOUND) {
           final long firstTimestamp = (opStatus == OperationStatus.SUCCESS) ? dbInfo.getKeyLong(timestamp) : System.currentTimeMillis();
           dbInfo.getDatabase().put(txn, key, TimestampedValue.getDbEntry(firstTimestamp - 1, value));
+          dbInfo.invalidate(key);
           result = true;
         }
       }
@@ -87,6 +88,7 @@ public class PushFunction implements TransactionFunction {
     else {
       // no timestamp info, just do a normal put.
       dbInfo.getDatabase().put(txn, key, value.getValueEntry(false));
+      dbInfo.invalidate(key);
       result = true;
     }
 
@@ -51,6 +51,7 @@ public class PutFunction implements TransactionFunction {
    */
   public boolean performFunction(DbInfo dbInfo, Transaction txn) throws DatabaseException {
     dbInfo.getDatabase().put(txn, key, value);
+    dbInfo.invalidate(key);
     return true;
   }
 
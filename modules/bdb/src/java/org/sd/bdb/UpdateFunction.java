@@ -67,6 +67,7 @@ class UpdateFunction implements TransactionFunction {
         dbInfo.getDatabase().put(txn, key, newValue);
         result = true;
       }
+      dbInfo.invalidate(key);
     }
     finally {
       if (cursor != null) cursor.close();
@@ -0,0 +1,170 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.bdb;
+
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.Transaction;
+
+import org.sd.io.FileUtil;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * JUnit Tests for the DbBatchWriter class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestDbBatchWriter extends TestCase {
+
+  public TestDbBatchWriter(String name) {
+    super(name);
+  }
+  
+  private final void doBatchTest(String name, final boolean durable) throws Exception {
+    final String filename = FileUtil.getFilename("/tmp/TestDbBatchWriter", "bdb/" + name);
+    final File dbDir = new File(filename);
+    dbDir.mkdirs();
+
+    final BerkeleyDb bdb = BerkeleyDb.getInstance(dbDir, false);
+
+    try {
+      final DbHandle dbHandle = bdb.get("queue_id", true);
+      final DbBatchWriter writer = dbHandle.buildBatchWriter(50, 5, durable);
+
+      // concurrent producers
+      final int numThreads = 4;
+      final int numPerThread = 250;
+      final List<Thread> threads = new ArrayList<Thread>();
+      final List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+      for (int t = 0; t < numThreads; ++t) {
+        final int base = t * numPerThread;
+        threads.add(new Thread() {
+            public void run() {
+              for (int i = 0; i < numPerThread; ++i) {
+                final Future<Boolean> future = writer.put((long)(base + i), new DbValue("value-" + (base + i)));
+                synchronized (futures) {
+                  futures.add(future);
+                }
+              }
+            }
+          });
+      }
+      for (Thread thread : threads) thread.start();
+      for (Thread thread : threads) thread.join();
+
+      for (Future<Boolean> future : futures) {
+        assertTrue(future.get());
+      }
+
+      final int total = numThreads * numPerThread;
+      assertEquals(total, dbHandle.getNumRecords());
+      assertEquals("value-17", dbHandle.get(17L).getValue());
+      assertTrue(writer.getNumBatches() < total);
+
+      // deletes, including a missing record, keep submission order with puts
+      writer.put(total, new DbValue("last"));
+      final Future<Boolean> deleted = writer.delete(total);
+      final Future<Boolean> missing = writer.delete(total + 100);
+      assertTrue(deleted.get());
+      assertFalse(missing.get());
+      assertNull(dbHandle.get((long)total));
+
+      // flush waits for queued operations
+      writer.update(0L, new DbValue("updated"), null);
+      writer.flush();
+      assertEquals("updated", dbHandle.get(0L).getValue());
+
+      writer.close();
+      assertTrue(writer.isClosed());
+      assertFalse(writer.put(total + 1, new DbValue("late")).get());
+      assertEquals(0, writer.getNumFailures());
+    }
+    finally {
+      bdb.close();
+      FileUtil.deleteDir(dbDir);
+    }
+  }
+
+  public void testDurableBatches() throws Exception {
+    doBatchTest("testDurableBatches", true);
+  }
+
+  public void testNonDurableBatches() throws Exception {
+    doBatchTest("testNonDurableBatches", false);
+  }
+
+
+  // an operation throwing a runtime exception fails alone
+  public void testRuntimeExceptionFailsAlone() throws Exception {
+    final String filename = FileUtil.getFilename("/tmp/TestDbBatchWriter", "bdb/testRuntimeExceptionFailsAlone");
+    final File dbDir = new File(filename);
+    dbDir.mkdirs();
+
+    final BerkeleyDb bdb = BerkeleyDb.getInstance(dbDir, false);
+
+    try {
+      final DbHandle dbHandle = bdb.get("queue_id", true);
+      final DbBatchWriter writer = dbHandle.buildBatchWriter(50, 50, true);
+
+      final Future<Boolean> before = writer.put(1L, new DbValue("one"));
+      final Future<Boolean> thrower = writer.submit(new TransactionFunction() {
+          public boolean performFunction(DbInfo dbInfo, Transaction txn) throws DatabaseException {
+            throw new IllegalStateException("bad operation");
+          }
+          public void logFailure(DbInfo dbInfo, DatabaseException de) {
+          }
+        });
+      final Future<Boolean> after = writer.put(2L, new DbValue("two"));
+
+      writer.flush();
+      assertTrue(before.get());
+      assertFalse(thrower.get());
+      assertTrue(after.get());
+      assertEquals(1, writer.getNumFailures());
+
+      // the writer thread survives
+      assertTrue(writer.put(3L, new DbValue("three")).get());
+      assertEquals(3, dbHandle.getNumRecords());
+
+      writer.close();
+    }
+    finally {
+      bdb.close();
+      FileUtil.deleteDir(dbDir);
+    }
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestDbBatchWriter.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
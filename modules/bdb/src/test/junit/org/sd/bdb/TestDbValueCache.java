@@ -0,0 +1,135 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.bdb;
+
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.sd.io.FileUtil;
+
+import com.sleepycat.je.DatabaseEntry;
+
+import java.io.File;
+
+/**
+ * JUnit Tests for the DbValueCache class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestDbValueCache extends TestCase {
+
+  public TestDbValueCache(String name) {
+    super(name);
+  }
+  
+  public void testStampedPut() {
+    final DbValueCache cache = new DbValueCache(100);
+    final DatabaseEntry key = new DatabaseEntry(new byte[]{1, 2, 3});
+
+    assertNull(cache.get(key));
+
+    // a put after an invalidation of the key's segment is dropped
+    final long stamp = cache.getStamp(key);
+    cache.invalidate(new DatabaseEntry(new byte[]{1, 2, 3}));
+    cache.put(key, new DbValue("stale"), stamp);
+    assertNull(cache.get(key));
+
+    cache.put(key, new DbValue("fresh"), cache.getStamp(key));
+    assertEquals("fresh", cache.get(new DatabaseEntry(new byte[]{0, 1, 2, 3}, 1, 3)).getValue());
+
+    assertEquals(1, cache.getHits());
+    assertEquals(2, cache.getMisses());
+  }
+
+  public void testBounded() {
+    final DbValueCache cache = new DbValueCache(64);
+    for (int i = 0; i < 1000; ++i) {
+      final DatabaseEntry key = new DatabaseEntry(DbUtil.getBytes("key-" + i));
+      cache.put(key, new DbValue("value-" + i), cache.getStamp(key));
+    }
+    assertTrue("size=" + cache.size(), cache.size() <= 64);
+  }
+
+  public void testHandleCache() throws Exception {
+    final String filename = FileUtil.getFilename("/tmp/TestDbValueCache", "bdb/testHandleCache");
+    final File dbDir = new File(filename);
+    dbDir.mkdirs();
+
+    final BerkeleyDb bdb = BerkeleyDb.getInstance(dbDir, false);
+
+    try {
+      final DbHandle dbHandle = bdb.get("foo", false, null, 100);
+      final DbValueCache cache = dbHandle.getCache();
+      assertNotNull(cache);
+
+      dbHandle.put("a", new DbValue("1"));
+      dbHandle.put("b", new DbValue("2"));
+
+      assertEquals("1", dbHandle.get("a").getValue());
+      assertEquals("1", dbHandle.get("a").getValue());
+      assertEquals("1", dbHandle.get("a").getValue());
+      assertEquals(2, cache.getHits());
+      assertEquals(1, cache.getMisses());
+
+      // writes through the handle invalidate
+      dbHandle.put("a", new DbValue("3"));
+      assertEquals("3", dbHandle.get("a").getValue());
+      dbHandle.update("a", new DbValue("4"), null);
+      assertEquals("4", dbHandle.get("a").getValue());
+      dbHandle.delete("a");
+      assertNull(dbHandle.get("a"));
+
+      // as do pops
+      assertEquals("2", dbHandle.get("b").getValue());
+      assertEquals("b", dbHandle.popLast().getKey());
+      assertNull(dbHandle.get("b"));
+
+      // and batch writes
+      dbHandle.put("c", new DbValue("5"));
+      assertEquals("5", dbHandle.get("c").getValue());
+      final DbBatchWriter writer = dbHandle.buildBatchWriter(10, 0, true);
+      assertTrue(writer.put("c", new DbValue("6")).get());
+      writer.close();
+      assertEquals("6", dbHandle.get("c").getValue());
+
+      assertTrue(cache.getHitRate() > 0.0);
+
+      // disabling
+      bdb.setCacheSize("foo", 0);
+      assertNull(dbHandle.getCache());
+      assertEquals("6", dbHandle.get("c").getValue());
+    }
+    finally {
+      bdb.close();
+      FileUtil.deleteDir(dbDir);
+    }
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestDbValueCache.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,93 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.bench;
+
+
+import java.io.IOException;
+import java.util.List;
+import org.sd.atn.AtnParseOptions;
+import org.sd.atn.AtnParseResult;
+import org.sd.atn.AtnParser;
+import org.sd.atn.ResourceManager;
+import org.sd.token.StandardTokenizerFactory;
+import org.sd.token.StandardTokenizerOptions;
+import org.sd.token.Tokenizer;
+
+/**
+ * Benchmark for AtnParser.parse (from each line's start) or
+ * AtnParser.seekAll (from each position) over the corpus lines using the
+ * corpus grammar.
+ *
+ * @author Spence Koehler
+ */
+public class AtnParserBenchmark extends Benchmark {
+  
+  private BenchmarkCorpus corpus;
+  private boolean seekAll;
+  private boolean chartParsing;
+  private List<String> lines;
+  private AtnParser parser;
+  private AtnParseOptions parseOptions;
+  private StandardTokenizerOptions tokenizerOptions;
+
+  public AtnParserBenchmark(BenchmarkCorpus corpus, boolean seekAll, boolean chartParsing) {
+    super("atnParser." + (seekAll ? "seekAll" : "parse") + (chartParsing ? ".chart" : ""));
+    this.corpus = corpus;
+    this.seekAll = seekAll;
+    this.chartParsing = chartParsing;
+  }
+
+  public void setUp() throws IOException {
+    final ResourceManager resourceManager = new ResourceManager(corpus.getOptions());
+
+    this.lines = corpus.getLines();
+    this.parser = new AtnParser(corpus.loadGrammarElement(), resourceManager).compile();
+    this.parseOptions = new AtnParseOptions(resourceManager);
+    parseOptions.setConsumeAllText(false);
+    parseOptions.setChartParsing(chartParsing);
+    this.tokenizerOptions = new StandardTokenizerOptions();
+  }
+
+  public int runOperation() {
+    int result = 0;
+
+    for (String line : lines) {
+      final Tokenizer tokenizer = StandardTokenizerFactory.getTokenizer(line, tokenizerOptions);
+
+      if (seekAll) {
+        final List<AtnParseResult> parseResults = parser.seekAll(tokenizer, parseOptions, null, null, null);
+        for (AtnParseResult parseResult : parseResults) {
+          result += parseResult.getNumParses();
+        }
+      }
+      else {
+        final AtnParseResult parseResult = parser.parse(tokenizer, parseOptions, null, null, null);
+        if (parseResult != null) {
+          result += parseResult.getNumParses();
+        }
+      }
+    }
+
+    return result;
+  }
+
+  public void tearDown() {
+    this.parser = null;
+  }
+}
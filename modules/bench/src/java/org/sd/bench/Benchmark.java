@@ -0,0 +1,67 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.bench;
+
+
+import java.io.IOException;
+
+/**
+ * Base class for a benchmarked operation run through a BenchmarkRunner.
+ * <p>
+ * Like a JMH benchmark, state is prepared once by setUp (outside of
+ * measurement) and each call to runOperation performs one measured
+ * operation. The operation's (int) result is consumed by the runner so that
+ * the work can't be optimized away.
+ *
+ * @author Spence Koehler
+ */
+public abstract class Benchmark {
+  
+  private String name;
+
+  protected Benchmark(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Get this benchmark's name.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Prepare state for running operations (unmeasured).
+   */
+  public void setUp() throws IOException {
+  }
+
+  /**
+   * Run a single (measured) operation.
+   *
+   * @return a value derived from the operation's work (e.g. a count).
+   */
+  public abstract int runOperation();
+
+  /**
+   * Release state after running operations (unmeasured).
+   */
+  public void tearDown() {
+  }
+}
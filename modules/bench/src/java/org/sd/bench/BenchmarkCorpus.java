@@ -0,0 +1,118 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.bench;
+
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.sd.io.FileUtil;
+import org.sd.xml.DataProperties;
+import org.sd.xml.DomElement;
+import org.sd.xml.XmlFactory;
+
+/**
+ * Fixed (checked in) sample corpus and parse configuration for benchmarks.
+ * <p>
+ * The corpus directory holds:
+ * <ul>
+ * <li>corpus.txt -- input text, one input per line ('#' lines are comments)</li>
+ * <li>parseConfig.xml -- parse config for AtnParseRunner/GenericParser</li>
+ * <li>grammar.xml -- the parse config's grammar</li>
+ * <li>cities.txt, states.txt -- grammar rote list text files</li>
+ * </ul>
+ * Relative file references within the configs are resolved through the
+ * 'workingDir' property, which is set to the corpus directory.
+ *
+ * @author Spence Koehler
+ */
+public class BenchmarkCorpus {
+  
+  private File corpusDir;
+  private List<String> lines;
+
+  /**
+   * Construct with the default corpus (this package's resources.)
+   */
+  public BenchmarkCorpus() throws IOException {
+    this(FileUtil.getFile(BenchmarkCorpus.class, "resources"));
+  }
+
+  /**
+   * Construct with the corpus in the given directory.
+   */
+  public BenchmarkCorpus(File corpusDir) throws IOException {
+    if (corpusDir == null || !corpusDir.isDirectory()) {
+      throw new IllegalArgumentException("Bad benchmark corpus directory '" + corpusDir + "'!");
+    }
+
+    this.corpusDir = corpusDir;
+    this.lines = Collections.unmodifiableList(loadLines(new File(corpusDir, "corpus.txt")));
+  }
+
+  public File getCorpusDir() {
+    return corpusDir;
+  }
+
+  /**
+   * Get the corpus's input lines.
+   */
+  public List<String> getLines() {
+    return lines;
+  }
+
+  /**
+   * Get options for building an AtnParseRunner (or GenericParser) over the
+   * corpus's parse config, where relative files are resolved against the
+   * corpus directory.
+   */
+  public DataProperties getOptions() {
+    final DataProperties result = new DataProperties();
+
+    result.set("workingDir", corpusDir.getAbsolutePath());
+    result.set("parseConfig", "parseConfig.xml");
+
+    return result;
+  }
+
+  /**
+   * Load the corpus's grammar.
+   */
+  public DomElement loadGrammarElement() throws IOException {
+    return (DomElement)XmlFactory.loadDocument(new File(corpusDir, "grammar.xml"), false, getOptions()).getDocumentElement();
+  }
+
+  private static final List<String> loadLines(File file) throws IOException {
+    final List<String> result = new ArrayList<String>();
+
+    final BufferedReader reader = FileUtil.getReader(file);
+    String line = null;
+    while ((line = reader.readLine()) != null) {
+      line = line.trim();
+      if ("".equals(line) || line.charAt(0) == '#') continue;
+      result.add(line);
+    }
+    reader.close();
+
+    return result;
+  }
+}
@@ -0,0 +1,219 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.bench;
+
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import org.sd.util.MathUtil;
+import org.sd.util.StatsAccumulator;
+
+/**
+ * JMH-style harness for running benchmarks.
+ * <p>
+ * Each benchmark is run for a number of warmup iterations (unmeasured) and
+ * then for a number of measurement iterations, each lasting (at least)
+ * iterationMillis. Each measured iteration contributes its mean time per
+ * operation and, where the JVM supports it, its mean bytes allocated per
+ * operation by the running thread.
+ *
+ * @author Spence Koehler
+ */
+public class BenchmarkRunner {
+  
+  public static final int DEFAULT_WARMUP_ITERATIONS = 3;
+  public static final int DEFAULT_MEASUREMENT_ITERATIONS = 5;
+  public static final long DEFAULT_ITERATION_MILLIS = 1000;
+
+
+  private int warmupIterations;
+  private int measurementIterations;
+  private long iterationMillis;
+  private com.sun.management.ThreadMXBean allocationBean;
+  private long sink;  // consumes operation results
+
+  public BenchmarkRunner() {
+    this(DEFAULT_WARMUP_ITERATIONS, DEFAULT_MEASUREMENT_ITERATIONS, DEFAULT_ITERATION_MILLIS);
+  }
+
+  public BenchmarkRunner(int warmupIterations, int measurementIterations, long iterationMillis) {
+    this.warmupIterations = warmupIterations;
+    this.measurementIterations = Math.max(1, measurementIterations);
+    this.iterationMillis = iterationMillis;
+    this.allocationBean = getAllocationBean();
+    this.sink = 0L;
+  }
+
+  /**
+   * Determine whether allocated bytes are being measured.
+   */
+  public boolean measuresAllocation() {
+    return allocationBean != null;
+  }
+
+  /**
+   * Run the benchmark, bracketed by its setUp and tearDown.
+   */
+  public Result run(Benchmark benchmark) throws IOException {
+    final Result result = new Result(benchmark.getName());
+
+    benchmark.setUp();
+    try {
+      for (int i = 0; i < warmupIterations; ++i) {
+        runIteration(benchmark, null);
+      }
+      for (int i = 0; i < measurementIterations; ++i) {
+        runIteration(benchmark, result);
+      }
+    }
+    finally {
+      benchmark.tearDown();
+    }
+
+    return result;
+  }
+
+  private final void runIteration(Benchmark benchmark, Result result) {
+    final long endTime = System.nanoTime() + iterationMillis * 1000000L;
+    final long startBytes = getAllocatedBytes();
+    final long startTime = System.nanoTime();
+
+    long numOps = 0;
+    long curTime = startTime;
+    do {
+      sink += benchmark.runOperation();
+      ++numOps;
+      curTime = System.nanoTime();
+    } while (curTime < endTime);
+
+    final long bytes = getAllocatedBytes() - startBytes;
+
+    if (result != null) {
+      result.add(numOps, curTime - startTime, bytes, allocationBean != null);
+    }
+  }
+
+  private final long getAllocatedBytes() {
+    return (allocationBean == null) ? 0 : allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  private static final com.sun.management.ThreadMXBean getAllocationBean() {
+    com.sun.management.ThreadMXBean result = null;
+
+    try {
+      final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+      if (threadBean instanceof com.sun.management.ThreadMXBean) {
+        result = (com.sun.management.ThreadMXBean)threadBean;
+        if (result.isThreadAllocatedMemorySupported()) {
+          result.setThreadAllocatedMemoryEnabled(true);
+        }
+        else {
+          result = null;
+        }
+      }
+    }
+    catch (Throwable t) {
+      // allocation measurement is unavailable
+      result = null;
+    }
+
+    return result;
+  }
+
+
+  /**
+   * Container for a benchmark's measurements.
+   */
+  public static final class Result {
+    private String name;
+    private long numOps;
+    private StatsAccumulator nanosPerOp;
+    private StatsAccumulator bytesPerOp;
+
+    public Result(String name) {
+      this.name = name;
+      this.numOps = 0;
+      this.nanosPerOp = new StatsAccumulator(name + ".nanosPerOp");
+      this.bytesPerOp = null;
+    }
+
+    void add(long numOps, long nanos, long bytes, boolean measuredBytes) {
+      this.numOps += numOps;
+      nanosPerOp.add((double)nanos / (double)numOps);
+      if (measuredBytes) {
+        if (bytesPerOp == null) bytesPerOp = new StatsAccumulator(name + ".bytesPerOp");
+        bytesPerOp.add((double)bytes / (double)numOps);
+      }
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Get the total number of measured operations.
+     */
+    public long getNumOps() {
+      return numOps;
+    }
+
+    /**
+     * Get the per-iteration nanoseconds per operation.
+     */
+    public StatsAccumulator getNanosPerOp() {
+      return nanosPerOp;
+    }
+
+    /**
+     * Get the per-iteration bytes allocated per operation, or null if
+     * allocation wasn't measured.
+     */
+    public StatsAccumulator getBytesPerOp() {
+      return bytesPerOp;
+    }
+
+    /**
+     * Get the mean operations per second.
+     */
+    public double getOpsPerSecond() {
+      final double meanNanos = nanosPerOp.getMean();
+      return (meanNanos > 0) ? 1000000000.0 / meanNanos : 0.0;
+    }
+
+    public String toString() {
+      final StringBuilder result = new StringBuilder();
+
+      result.
+        append(name).
+        append(": ops/s=").append(MathUtil.doubleString(getOpsPerSecond(), 3)).
+        append(" us/op=").append(MathUtil.doubleString(nanosPerOp.getMean() / 1000.0, 3)).
+        append(" (+/-").append(MathUtil.doubleString(nanosPerOp.getStandardDeviation() / 1000.0, 3)).
+        append(')');
+
+      if (bytesPerOp != null) {
+        result.append(" bytes/op=").append(MathUtil.doubleString(bytesPerOp.getMean(), 1));
+      }
+
+      result.append(" n=").append(numOps);
+
+      return result.toString();
+    }
+  }
+}
@@ -0,0 +1,234 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.bench;
+
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import org.sd.io.FileUtil;
+import org.sd.util.MathUtil;
+import org.sd.xml.DataProperties;
+
+/**
+ * The standard suite of parse pipeline (and supporting io) benchmarks over a
+ * benchmark corpus, with support for comparing results against a baseline to
+ * catch regressions.
+ * <p>
+ * Results files hold a line for each benchmark of the form:
+ * <p>
+ * name \t meanNanosPerOp \t meanBytesPerOp
+ *
+ * @author Spence Koehler
+ */
+public class BenchmarkSuite {
+  
+  private List<Benchmark> benchmarks;
+
+  /**
+   * Construct with the standard benchmarks over the corpus.
+   */
+  public BenchmarkSuite(BenchmarkCorpus corpus) {
+    this.benchmarks = new ArrayList<Benchmark>();
+
+    benchmarks.add(new TokenizerBenchmark(corpus, false, false));
+    benchmarks.add(new TokenizerBenchmark(corpus, true, false));
+    benchmarks.add(new TokenizerBenchmark(corpus, true, true));
+    benchmarks.add(new AtnParserBenchmark(corpus, false, false));
+    benchmarks.add(new AtnParserBenchmark(corpus, true, false));
+    benchmarks.add(new AtnParserBenchmark(corpus, true, true));
+    benchmarks.add(new RoteListBenchmark(corpus, "city"));
+    benchmarks.add(new RoteListBenchmark(corpus, "month"));
+    benchmarks.add(new ParseOutputXmlBenchmark(corpus));
+    benchmarks.add(new GenericParserBenchmark(corpus));
+    benchmarks.add(new MultiFileMergeBenchmark(16, 2000, 0));
+    benchmarks.add(new MultiFileMergeBenchmark(512, 100, 0));
+    benchmarks.add(new MultiFileMergeBenchmark(512, 100, 64));
+    benchmarks.add(new HtmlParseBenchmark(corpus, 20, false));
+    benchmarks.add(new HtmlParseBenchmark(corpus, 20, true));
+    benchmarks.add(new OsobDbLookupBenchmark(true, 1, 100000, 20000));
+    benchmarks.add(new OsobDbLookupBenchmark(true, 4, 100000, 20000));
+    benchmarks.add(new OsobDbLookupBenchmark(false, 1, 100000, 20000));
+    benchmarks.add(new OsobDbLookupBenchmark(false, 4, 100000, 20000));
+  }
+
+  public List<Benchmark> getBenchmarks() {
+    return benchmarks;
+  }
+
+  /**
+   * Run the benchmarks whose names start with any of the given prefixes
+   * (or all if prefixes is null or empty.)
+   */
+  public List<BenchmarkRunner.Result> run(BenchmarkRunner runner, Set<String> prefixes, boolean verbose) throws IOException {
+    final List<BenchmarkRunner.Result> result = new ArrayList<BenchmarkRunner.Result>();
+
+    for (Benchmark benchmark : benchmarks) {
+      if (selects(prefixes, benchmark.getName())) {
+        final BenchmarkRunner.Result curResult = runner.run(benchmark);
+        if (verbose) System.out.println(curResult);
+        result.add(curResult);
+      }
+    }
+
+    return result;
+  }
+
+  private final boolean selects(Set<String> prefixes, String name) {
+    boolean result = (prefixes == null || prefixes.size() == 0);
+
+    if (!result) {
+      for (String prefix : prefixes) {
+        if (name.startsWith(prefix)) {
+          result = true;
+          break;
+        }
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Write the results to the file.
+   */
+  public static void writeResults(List<BenchmarkRunner.Result> results, File file) throws IOException {
+    final BufferedWriter writer = FileUtil.getWriter(file);
+
+    writer.write("# name\tmeanNanosPerOp\tmeanBytesPerOp\n");
+    for (BenchmarkRunner.Result result : results) {
+      final double bytes = (result.getBytesPerOp() == null) ? -1.0 : result.getBytesPerOp().getMean();
+      writer.write(result.getName() + "\t" + result.getNanosPerOp().getMean() + "\t" + bytes + "\n");
+    }
+
+    writer.close();
+  }
+
+  /**
+   * Read results (name -> {meanNanosPerOp, meanBytesPerOp}) from the file.
+   */
+  public static Map<String, double[]> readResults(File file) throws IOException {
+    final Map<String, double[]> result = new LinkedHashMap<String, double[]>();
+
+    final BufferedReader reader = FileUtil.getReader(file);
+    String line = null;
+    while ((line = reader.readLine()) != null) {
+      if ("".equals(line) || line.charAt(0) == '#') continue;
+      final String[] fields = line.split("\t");
+      if (fields.length >= 3) {
+        result.put(fields[0], new double[]{Double.parseDouble(fields[1]), Double.parseDouble(fields[2])});
+      }
+    }
+    reader.close();
+
+    return result;
+  }
+
+  /**
+   * Find results that are more than tolerance (e.g. 0.10 for 10%) slower
+   * or allocate more than tolerance more bytes than their baseline.
+   *
+   * @return descriptions of the regressions (empty if none.)
+   */
+  public static List<String> findRegressions(List<BenchmarkRunner.Result> results, Map<String, double[]> baseline, double tolerance) {
+    final List<String> result = new ArrayList<String>();
+
+    for (BenchmarkRunner.Result curResult : results) {
+      final double[] base = baseline.get(curResult.getName());
+      if (base == null) continue;
+
+      final double nanos = curResult.getNanosPerOp().getMean();
+      if (base[0] > 0 && nanos > base[0] * (1.0 + tolerance)) {
+        result.add(curResult.getName() + " time/op " + MathUtil.doubleString(nanos / base[0], 3) + "x baseline");
+      }
+
+      if (curResult.getBytesPerOp() != null && base[1] >= 0) {
+        final double bytes = curResult.getBytesPerOp().getMean();
+        if (bytes > base[1] * (1.0 + tolerance) && bytes - base[1] > 64) {
+          result.add(curResult.getName() + " bytes/op " + MathUtil.doubleString(bytes / Math.max(1.0, base[1]), 3) + "x baseline");
+        }
+      }
+    }
+
+    return result;
+  }
+
+
+  //java -Xmx640m org.sd.bench.BenchmarkSuite [property=value ...]
+  public static void main(String[] args) throws IOException {
+    //
+    // Properties
+    //
+    //   corpusDir -- (optional, default=checked in corpus) path to a benchmark corpus directory
+    //   benchmarks -- (optional, default=all) comma delimited benchmark name prefixes to run
+    //   warmups -- (optional, default=3) warmup iterations per benchmark
+    //   iterations -- (optional, default=5) measurement iterations per benchmark
+    //   iterationMillis -- (optional, default=1000) minimum millis per iteration
+    //   results -- (optional) path to which results are written
+    //   baseline -- (optional) path to baseline results to compare against
+    //   tolerance -- (optional, default=0.10) fraction over baseline considered a regression
+    //
+    // Exits with status 1 if regressions against the baseline are found.
+    //
+    final DataProperties options = new DataProperties(args);
+
+    final String corpusDir = options.getString("corpusDir", null);
+    final BenchmarkCorpus corpus = (corpusDir == null) ? new BenchmarkCorpus() : new BenchmarkCorpus(new File(corpusDir));
+
+    Set<String> prefixes = null;
+    final String benchmarksString = options.getString("benchmarks", null);
+    if (benchmarksString != null && !"".equals(benchmarksString)) {
+      prefixes = new TreeSet<String>();
+      for (String prefix : benchmarksString.split("\\s*,\\s*")) {
+        prefixes.add(prefix);
+      }
+    }
+
+    final BenchmarkRunner runner =
+      new BenchmarkRunner(options.getInt("warmups", BenchmarkRunner.DEFAULT_WARMUP_ITERATIONS),
+                          options.getInt("iterations", BenchmarkRunner.DEFAULT_MEASUREMENT_ITERATIONS),
+                          (long)options.getInt("iterationMillis", (int)BenchmarkRunner.DEFAULT_ITERATION_MILLIS));
+
+    final BenchmarkSuite suite = new BenchmarkSuite(corpus);
+    final List<BenchmarkRunner.Result> results = suite.run(runner, prefixes, true);
+
+    final String resultsPath = options.getString("results", null);
+    if (resultsPath != null) {
+      writeResults(results, new File(resultsPath));
+    }
+
+    final String baselinePath = options.getString("baseline", null);
+    if (baselinePath != null) {
+      final List<String> regressions = findRegressions(results, readResults(new File(baselinePath)), Double.parseDouble(options.getString("tolerance", "0.10")));
+      for (String regression : regressions) {
+        System.out.println("REGRESSION: " + regression);
+      }
+      if (regressions.size() > 0) {
+        System.exit(1);
+      }
+    }
+  }
+}
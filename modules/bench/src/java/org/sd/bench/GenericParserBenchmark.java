@@ -0,0 +1,72 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.bench;
+
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import org.sd.atn.GenericParse;
+import org.sd.atn.GenericParseResults;
+import org.sd.atn.GenericParser;
+
+/**
+ * Benchmark for end-to-end GenericParser parsing of the corpus lines using
+ * the corpus parse config.
+ *
+ * @author Spence Koehler
+ */
+public class GenericParserBenchmark extends Benchmark {
+  
+  private BenchmarkCorpus corpus;
+  private GenericParser parser;
+  private List<String> lines;
+
+  public GenericParserBenchmark(BenchmarkCorpus corpus) {
+    super("genericParser.parse");
+    this.corpus = corpus;
+  }
+
+  public void setUp() throws IOException {
+    this.parser = new GenericParser(corpus.getOptions());
+    this.lines = corpus.getLines();
+  }
+
+  public int runOperation() {
+    int result = 0;
+
+    for (String line : lines) {
+      final GenericParseResults parseResults = parser.parse(line, null, null);
+      if (parseResults != null && parseResults.hasParses()) {
+        for (Map.Entry<String, List<GenericParse>> entry : parseResults.getParses().entrySet()) {
+          result += entry.getValue().size();
+        }
+      }
+    }
+
+    return result;
+  }
+
+  public void tearDown() {
+    if (parser != null) {
+      parser.close();
+      this.parser = null;
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/*
+    Copyright 2011 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.bench;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import org.sd.util.tree.Tree;
+import org.sd.xml.DomDocument;
+import org.sd.xml.XmlFactory;
+import org.sd.xml.XmlLite;
+
+/**
+ * Benchmark for html parsing (XmlInputStream decoding and XmlLite tag
+ * scanning) of a synthetic page built from the corpus lines.
+ * <p>
+ * The page holds the corpus lines in attribute-heavy table rows along with
+ * script, style, comment, entity, and non-ascii content. Each operation
+ * parses the page's (utf-8) bytes with encoding detection as when reading an
+ * html file, optionally also building the DomDocument as for
+ * AtnParseRunner.parseHtml. Parse throughput is getPageBytes() times the
+ * result's ops per second.
+ *
+ * @author Spence Koehler
+ */
+public class HtmlParseBenchmark extends Benchmark {
+  
+  private BenchmarkCorpus corpus;
+  private int copies;
+  private boolean buildDom;
+  private byte[] pageBytes;
+
+  /**
+   * Construct to parse a page holding the given number of copies of the
+   * corpus lines, optionally building the DomDocument.
+   */
+  public HtmlParseBenchmark(BenchmarkCorpus corpus, int copies, boolean buildDom) {
+    super("htmlParse." + (buildDom ? "dom" : "tree") + "." + copies);
+    this.corpus = corpus;
+    this.copies = copies;
+    this.buildDom = buildDom;
+  }
+
+  /**
+   * Get the number of bytes in the parsed page (available after setUp.)
+   */
+  public int getPageBytes() {
+    return (pageBytes == null) ? 0 : pageBytes.length;
+  }
+
+  public void setUp() throws IOException {
+    this.pageBytes = buildPage(corpus.getLines(), copies).getBytes("UTF-8");
+  }
+
+  public int runOperation() {
+    int result = 0;
+
+    try {
+      final Tree<XmlLite.Data> tree = XmlFactory.readXmlTree(new ByteArrayInputStream(pageBytes), true, true, null, false);
+      result = tree.countNodes();
+
+      if (buildDom) {
+        final DomDocument domDocument = tree.getData().asDomNode().getOwnerDomDocument();
+        result += domDocument.getDocumentElement().getChildNodes().getLength();
+      }
+    }
+    catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+
+    return result;
+  }
+
+  public void tearDown() {
+    this.pageBytes = null;
+  }
+
+  private static final String buildPage(List<String> lines, int copies) {
+    final StringBuilder result = new StringBuilder();
+
+    result.
+      append("<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.01 Transitional//EN\">\n").
+      append("<html>\n<head>\n").
+      append("<meta http-equiv=\"Content-Type\" content=\"text/html; charset=utf-8\">\n").
+      append("<title>Benchmark Page</title>\n").
+      append("<style type=\"text/css\">\ntd.line { font-family: sans-serif; }\na > b { color: red; }\n</style>\n").
+      append("<script type=\"text/javascript\">\n<!--\nfunction f(a, b) { return (a < b) ? \"<b>\" + a + \"</b>\" : b; }\n// -->\n</script>\n").
+      append("</head>\n<body bgcolor=\"#ffffff\" onload='f(1, 2)'>\n");
+
+    for (int copy = 0; copy < copies; ++copy) {
+      result.append("<!-- copy ").append(copy).append(" -->\n");
+      result.append("<table border=0 cellpadding=\"2\" class=\"lines\">\n");
+
+      int lineNum = 0;
+      for (String line : lines) {
+        final String escaped = line.replace("&", "&amp;").replace("<", "&lt;").replace("\"", "&quot;");
+        result.
+          append("<tr class=\"row\" id=\"r").append(copy).append('-').append(lineNum).append("\">").
+          append("<td class='line' title=\"").append(escaped).append("\">").append(escaped).append("</td>").
+          append("<td><a href=\"http://www.example.com/q?line=").append(lineNum).append("&amp;copy=").append(copy).append("\">").
+          append("caf\u00e9&nbsp;\u00bb</a><br/></td></tr>\r\n");
+        ++lineNum;
+      }
+
+      result.append("</table>\n<p>End of copy ").append(copy).append("<img src=\"spacer.gif\" width=1 height=1>\n");
+    }
+
+    result.append("</body>\n</html>\n");
+
+    return result.toString();
+  }
+}
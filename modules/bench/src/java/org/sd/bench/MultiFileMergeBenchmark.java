@@ -0,0 +1,108 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.bench;
+
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.Random;
+import org.sd.io.FileUtil;
+import org.sd.io.MultiFileLineIterator;
+
+/**
+ * Benchmark for MultiFileLineIterator k-way merging of synthetic sorted runs
+ * (like a reducer's fan-in of mapper flush files.)
+ * <p>
+ * Each operation merges all of the runs, counting the groups of equal lines.
+ *
+ * @author Spence Koehler
+ */
+public class MultiFileMergeBenchmark extends Benchmark {
+  
+  private static final Comparator<String> COMPARATOR = new Comparator<String>() {
+      public int compare(String s1, String s2) {
+        return s1.compareTo(s2);
+      }
+    };
+
+  private int numRuns;
+  private int linesPerRun;
+  private int maxOpenFiles;
+  private File runDir;
+  private File[] runFiles;
+
+  /**
+   * Construct to merge numRuns synthetic runs of linesPerRun lines each,
+   * keeping at most maxOpenFiles open at once (0 for unlimited.)
+   */
+  public MultiFileMergeBenchmark(int numRuns, int linesPerRun, int maxOpenFiles) {
+    super("multiFileMerge." + numRuns + (maxOpenFiles > 0 ? ".max" + maxOpenFiles : ""));
+    this.numRuns = numRuns;
+    this.linesPerRun = linesPerRun;
+    this.maxOpenFiles = maxOpenFiles;
+  }
+
+  public void setUp() throws IOException {
+    this.runDir = File.createTempFile("MultiFileMergeBenchmark", ".dir");
+    runDir.delete();
+    runDir.mkdirs();
+
+    // runs hold ascending keys with random gaps so that keys overlap across runs
+    final Random random = new Random(numRuns);
+    this.runFiles = new File[numRuns];
+    for (int i = 0; i < numRuns; ++i) {
+      runFiles[i] = new File(runDir, "run-" + i + ".txt");
+      final BufferedWriter writer = FileUtil.getWriter(runFiles[i]);
+      int key = 0;
+      for (int j = 0; j < linesPerRun; ++j) {
+        key += random.nextInt(numRuns) + 1;
+        writer.write(String.format("key-%010d", key));
+        writer.newLine();
+      }
+      writer.close();
+    }
+  }
+
+  public int runOperation() {
+    int result = 0;
+
+    final MultiFileLineIterator iter = new MultiFileLineIterator(runFiles, COMPARATOR, maxOpenFiles);
+    try {
+      while (iter.hasNext()) {
+        iter.next();
+        ++result;
+      }
+      iter.close();
+    }
+    catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+
+    return result;
+  }
+
+  public void tearDown() {
+    if (runDir != null) {
+      FileUtil.deleteDir(runDir);
+      this.runDir = null;
+    }
+  }
+}
@@ -0,0 +1,169 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.bench;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.sd.io.FileUtil;
+import org.sd.match.Osob;
+import org.sd.match.OsobDB;
+import org.sd.match.osobdb.OsobDbBuilder;
+import org.sd.match.osobdb.OsobDbFactory;
+
+/**
+ * Benchmark for osob db lookups of random concept ids from a synthetic db
+ * shared by concurrent lookup threads.
+ * <p>
+ * Each operation performs the same number of lookups on each thread, so that
+ * comparing results across thread counts shows whether lookups serialize on
+ * each other.
+ *
+ * @author Spence Koehler
+ */
+public class OsobDbLookupBenchmark extends Benchmark {
+  
+  private static final int BLOCK_SIZE = 100;
+  private static final int OSOB_SIZE = 256;
+
+  private boolean mapData;
+  private int numThreads;
+  private int numConcepts;
+  private int numLookups;
+  private File dbDir;
+  private OsobDB osobDB;
+  private ExecutorService threadPool;
+
+  /**
+   * Construct to benchmark numLookups lookups on each of numThreads threads
+   * from a synthetic db of numConcepts osobs whose data file is memory
+   * mapped if mapData.
+   */
+  public OsobDbLookupBenchmark(boolean mapData, int numThreads, int numConcepts, int numLookups) {
+    super("osobDbLookup." + (mapData ? "mapped" : "unmapped") + ".t" + numThreads);
+    this.mapData = mapData;
+    this.numThreads = numThreads;
+    this.numConcepts = numConcepts;
+    this.numLookups = numLookups;
+  }
+
+  public void setUp() throws IOException {
+    this.dbDir = File.createTempFile("OsobDbLookupBenchmark", ".dir");
+    dbDir.delete();
+    dbDir.mkdirs();
+
+    final String dbPath = new File(dbDir, "osobdb").getAbsolutePath();
+    buildSyntheticDb(dbPath, numConcepts, BLOCK_SIZE, OSOB_SIZE);
+
+    this.osobDB = OsobDbFactory.openOsobDB(dbPath, mapData);
+    this.threadPool = Executors.newFixedThreadPool(numThreads);
+  }
+
+  public int runOperation() {
+    int result = 0;
+
+    final List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+    for (int i = 0; i < numThreads; ++i) {
+      final long seed = i;
+      futures.add(threadPool.submit(new Callable<Integer>() {
+          public Integer call() throws IOException {
+            return doLookups(new Random(seed));
+          }
+        }));
+    }
+
+    try {
+      for (Future<Integer> future : futures) {
+        result += future.get();
+      }
+    }
+    catch (InterruptedException e) {
+      throw new IllegalStateException(e);
+    }
+    catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+
+    return result;
+  }
+
+  public void tearDown() {
+    if (threadPool != null) {
+      threadPool.shutdown();
+      this.threadPool = null;
+    }
+    if (osobDB != null) {
+      try {
+        osobDB.close();
+      }
+      catch (IOException e) {
+        // ignore
+      }
+      this.osobDB = null;
+    }
+    if (dbDir != null) {
+      FileUtil.deleteDir(dbDir);
+      this.dbDir = null;
+    }
+  }
+
+  private final int doLookups(Random random) throws IOException {
+    int result = 0;
+
+    for (int i = 0; i < numLookups; ++i) {
+      final Osob osob = osobDB.getOsob(random.nextInt(numConcepts));
+      if (osob != null) result += osob.getBytes().length;
+    }
+
+    return result;
+  }
+
+  /**
+   * Build a db at the given path with synthetic osobs for concept ids in
+   * [0, numConcepts).
+   */
+  public static void buildSyntheticDb(String dbPath, int numConcepts, int blockSize, int osobSize) throws IOException {
+    final OsobDbBuilder builder = new OsobDbBuilder(dbPath, blockSize, 1000);
+    builder.open();
+
+    final Random random = new Random(numConcepts);
+    for (int conceptId = 0; conceptId < numConcepts; ++conceptId) {
+      final byte[] bytes = new byte[osobSize];
+      random.nextBytes(bytes);
+
+      // osob bytes start with the concept id
+      bytes[0] = (byte)(conceptId >>> 24);
+      bytes[1] = (byte)(conceptId >>> 16);
+      bytes[2] = (byte)(conceptId >>> 8);
+      bytes[3] = (byte)conceptId;
+
+      builder.addOsob(new Osob(bytes));
+    }
+
+    builder.close();
+  }
+}
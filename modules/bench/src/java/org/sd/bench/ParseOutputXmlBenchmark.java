@@ -0,0 +1,71 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.bench;
+
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.sd.atn.AtnParseRunner;
+import org.sd.atn.ParseOutputCollector;
+
+/**
+ * Benchmark for ParseOutputCollector XML generation from the (pre-computed)
+ * parse outputs of the corpus lines.
+ *
+ * @author Spence Koehler
+ */
+public class ParseOutputXmlBenchmark extends Benchmark {
+  
+  private BenchmarkCorpus corpus;
+  private AtnParseRunner parseRunner;
+  private List<ParseOutputCollector> outputs;
+
+  public ParseOutputXmlBenchmark(BenchmarkCorpus corpus) {
+    super("parseOutput.asXml");
+    this.corpus = corpus;
+  }
+
+  public void setUp() throws IOException {
+    this.parseRunner = new AtnParseRunner(corpus.getOptions());
+    this.outputs = new ArrayList<ParseOutputCollector>();
+
+    for (String line : corpus.getLines()) {
+      outputs.add(parseRunner.parseInputString(line, null, null));
+    }
+  }
+
+  public int runOperation() {
+    int result = 0;
+
+    for (ParseOutputCollector output : outputs) {
+      result += output.asXml(false, true, false, 0, 2).length();
+    }
+
+    return result;
+  }
+
+  public void tearDown() {
+    this.outputs = null;
+    if (parseRunner != null) {
+      parseRunner.close();
+      this.parseRunner = null;
+    }
+  }
+}
@@ -0,0 +1,89 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.bench;
+
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import org.sd.atn.ResourceManager;
+import org.sd.atn.RoteListClassifier;
+import org.sd.token.Normalizer;
+import org.sd.xml.DomElement;
+
+/**
+ * Benchmark for RoteListClassifier (text file) term lookups of each of the
+ * corpus's words and word pairs.
+ *
+ * @author Spence Koehler
+ */
+public class RoteListBenchmark extends Benchmark {
+  
+  private BenchmarkCorpus corpus;
+  private String classifierName;
+  private RoteListClassifier classifier;
+  private String[] keys;
+
+  /**
+   * Construct to benchmark the named (rote list) classifier from the corpus
+   * grammar.
+   */
+  public RoteListBenchmark(BenchmarkCorpus corpus, String classifierName) {
+    super("roteList." + classifierName);
+    this.corpus = corpus;
+    this.classifierName = classifierName;
+  }
+
+  public void setUp() throws IOException {
+    final DomElement classifierElement = (DomElement)corpus.loadGrammarElement().selectSingleNode("classifiers/" + classifierName);
+    if (classifierElement == null) {
+      throw new IllegalArgumentException("No classifier '" + classifierName + "' in benchmark grammar!");
+    }
+
+    this.classifier = new RoteListClassifier(classifierElement, new ResourceManager(corpus.getOptions()), new HashMap<String, Normalizer>());
+
+    final List<String> keys = new ArrayList<String>();
+    for (String line : corpus.getLines()) {
+      final String[] words = line.split("[^A-Za-z0-9]+");
+      for (int i = 0; i < words.length; ++i) {
+        if ("".equals(words[i])) continue;
+        keys.add(words[i]);
+        if (i + 1 < words.length) {
+          keys.add(words[i] + " " + words[i + 1]);
+        }
+      }
+    }
+    this.keys = keys.toArray(new String[keys.size()]);
+  }
+
+  public int runOperation() {
+    int result = 0;
+
+    for (String key : keys) {
+      if (classifier.classify(key) != null) ++result;
+    }
+
+    return result;
+  }
+
+  public void tearDown() {
+    this.classifier = null;
+  }
+}
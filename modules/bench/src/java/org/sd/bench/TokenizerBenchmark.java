@@ -0,0 +1,78 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.bench;
+
+
+import java.util.List;
+import org.sd.token.StandardTokenizer;
+import org.sd.token.StandardTokenizerOptions;
+import org.sd.token.Token;
+
+/**
+ * Benchmark for StandardTokenizer construction and iteration over the
+ * corpus lines.
+ * <p>
+ * Without iteration, each operation constructs a tokenizer for each line
+ * and gets its first token (which initializes the tokenizer's breaks.) With
+ * iteration, each operation also walks all of each line's tokens and their
+ * revisions.
+ *
+ * @author Spence Koehler
+ */
+public class TokenizerBenchmark extends Benchmark {
+  
+  private BenchmarkCorpus corpus;
+  private boolean iterate;
+  private StandardTokenizerOptions tokenizerOptions;
+  private List<String> lines;
+
+  public TokenizerBenchmark(BenchmarkCorpus corpus, boolean iterate, boolean cacheTokens) {
+    super("tokenizer." + (iterate ? "iterate" : "init") + (cacheTokens ? ".cached" : ""));
+    this.corpus = corpus;
+    this.iterate = iterate;
+    this.tokenizerOptions = new StandardTokenizerOptions();
+    tokenizerOptions.setCacheTokens(cacheTokens);
+  }
+
+  public void setUp() {
+    this.lines = corpus.getLines();
+  }
+
+  public int runOperation() {
+    int result = 0;
+
+    for (String line : lines) {
+      final StandardTokenizer tokenizer = new StandardTokenizer(line, tokenizerOptions);
+      Token token = tokenizer.getToken(0);
+
+      if (!iterate) {
+        if (token != null) ++result;
+      }
+      else {
+        for (; token != null; token = tokenizer.getNextToken(token)) {
+          for (Token revisedToken = token; revisedToken != null; revisedToken = tokenizer.revise(revisedToken)) {
+            ++result;
+          }
+        }
+      }
+    }
+
+    return result;
+  }
+}
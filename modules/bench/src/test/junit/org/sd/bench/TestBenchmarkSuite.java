@@ -0,0 +1,99 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.bench;
+
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JUnit Tests for the BenchmarkSuite class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestBenchmarkSuite extends TestCase {
+
+  public TestBenchmarkSuite(String name) {
+    super(name);
+  }
+  
+  private final BenchmarkRunner.Result buildResult(String name, long numOps, long nanos, long bytes) {
+    final BenchmarkRunner.Result result = new BenchmarkRunner.Result(name);
+    result.add(numOps, nanos, bytes, bytes >= 0);
+    return result;
+  }
+
+  public void testWriteAndReadResults() throws IOException {
+    final List<BenchmarkRunner.Result> results = new ArrayList<BenchmarkRunner.Result>();
+    results.add(buildResult("a", 10, 1000, 500));
+    results.add(buildResult("b", 4, 1000, -1));
+
+    final File file = File.createTempFile("TestBenchmarkSuite", ".txt");
+    BenchmarkSuite.writeResults(results, file);
+    final Map<String, double[]> read = BenchmarkSuite.readResults(file);
+    file.delete();
+
+    assertEquals(2, read.size());
+    assertEquals(100.0, read.get("a")[0], 0.0001);
+    assertEquals(50.0, read.get("a")[1], 0.0001);
+    assertEquals(250.0, read.get("b")[0], 0.0001);
+    assertEquals(-1.0, read.get("b")[1], 0.0001);
+  }
+
+  public void testFindRegressions() throws IOException {
+    final List<BenchmarkRunner.Result> baseResults = new ArrayList<BenchmarkRunner.Result>();
+    baseResults.add(buildResult("fast", 10, 1000, 1000));
+    baseResults.add(buildResult("slow", 10, 1000, 1000));
+    baseResults.add(buildResult("fat", 10, 1000, 1000));
+
+    final File file = File.createTempFile("TestBenchmarkSuite", ".txt");
+    BenchmarkSuite.writeResults(baseResults, file);
+    final Map<String, double[]> baseline = BenchmarkSuite.readResults(file);
+    file.delete();
+
+    final List<BenchmarkRunner.Result> results = new ArrayList<BenchmarkRunner.Result>();
+    results.add(buildResult("fast", 10, 1050, 1000));    // within tolerance
+    results.add(buildResult("slow", 10, 2000, 1000));    // 2x slower
+    results.add(buildResult("fat", 10, 1000, 10000));    // 10x bytes
+    results.add(buildResult("new", 10, 99999, 99999));   // no baseline
+
+    final List<String> regressions = BenchmarkSuite.findRegressions(results, baseline, 0.10);
+
+    assertEquals(2, regressions.size());
+    assertTrue(regressions.get(0).startsWith("slow time/op"));
+    assertTrue(regressions.get(1).startsWith("fat bytes/op"));
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestBenchmarkSuite.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -39,8 +39,13 @@ public abstract class AbstractFlushActionFactory<K, V, A> implements FlushAction
     this.flushActions = new HashMap<A, FlushAction<K, V, A>>();
   }
 
-  /** Get (or build) the action relevant to the mapper pair. */
-  public final FlushAction<K, V, A> getFlushAction(MapperPair<K, V, A> mapperPair) {
+  /**
+   * Get (or build) the action relevant to the mapper pair.
+   * <p>
+   * Note that this is synchronized so that mapper threads sharing this
+   * factory build each key's action only once.
+   */
+  public final synchronized FlushAction<K, V, A> getFlushAction(MapperPair<K, V, A> mapperPair) {
     final A actionKey = mapperPair.getActionKey();
     FlushAction<K, V, A> result = flushActions.get(actionKey);
 
@@ -55,7 +60,7 @@ public abstract class AbstractFlushActionFactory<K, V, A> implements FlushAction
   }
 
   /** Get the action for the given key or null if non-existent */
-  public FlushAction<K, V, A> getFlushAction(A actionKey) {
+  public synchronized FlushAction<K, V, A> getFlushAction(A actionKey) {
     return flushActions.get(actionKey);
   }
 
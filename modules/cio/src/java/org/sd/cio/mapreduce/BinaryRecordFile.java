@@ -0,0 +1,633 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.cio.mapreduce;
+
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact binary file format for sorted runs of key/value records.
+ * <p>
+ * Records are length-prefixed key and value bytes grouped into blocks of
+ * about blockSize (uncompressed) bytes, where each key is stored as the
+ * number of bytes it shares with the block's preceding key followed by its
+ * remaining bytes. Blocks are optionally deflated. A sparse index holding
+ * each block's first key and offset follows the blocks, so that a reader
+ * can seek to a key by decoding only a single block.
+ * <p>
+ * File layout:
+ * <pre>
+ * header: int MAGIC, byte VERSION, byte flags
+ * blocks: int rawLength, int storedLength, storedLength bytes
+ *   raw block records: varint sharedLen, varint suffixLen, suffix bytes, varint valueLen, value bytes
+ * index:  int numBlocks, {long blockOffset, int numBlockRecords, varint keyLen, key bytes} for each block
+ * footer: long indexOffset, long numRecords, int MAGIC
+ * </pre>
+ * Seeking assumes records were written in ascending order of their key
+ * bytes as compared lexicographically (unsigned).
+ *
+ * @author Spence Koehler
+ */
+public class BinaryRecordFile {
+
+  public static final int MAGIC = 0x53445242;  // "SDRB"
+  public static final byte VERSION = 1;
+  public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+  private static final byte COMPRESSED_FLAG = 0x01;
+  private static final int FOOTER_SIZE = 8 + 8 + 4;
+
+
+  /**
+   * Compare key bytes lexicographically as unsigned bytes.
+   */
+  public static final int compareKeys(byte[] key1, int len1, byte[] key2, int len2) {
+    final int len = Math.min(len1, len2);
+    for (int i = 0; i < len; ++i) {
+      final int diff = (key1[i] & 0xFF) - (key2[i] & 0xFF);
+      if (diff != 0) return diff;
+    }
+    return len1 - len2;
+  }
+
+
+  /**
+   * Writer of records to a binary record file.
+   */
+  public static final class Writer {
+
+    private DataOutputStream out;
+    private int blockSize;
+    private Deflater deflater;
+
+    private long offset;         // file offset of the next block
+    private long numRecords;
+
+    private Bytes block;         // current raw block
+    private int numBlockRecords;
+    private byte[] prevKey;      // previous key in the current block
+    private int prevKeyLen;
+
+    private Bytes index;         // index entries
+    private int countPos;        // index position of the current block's record count
+    private int numBlocks;
+    private byte[] compressed;
+
+    /**
+     * Open a writer to the file, writing blocks of about blockSize bytes
+     * (deflated if compress.)
+     */
+    public Writer(File file, int blockSize, boolean compress) throws IOException {
+      this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+      this.blockSize = blockSize;
+      this.deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+
+      out.writeInt(MAGIC);
+      out.writeByte(VERSION);
+      out.writeByte(compress ? COMPRESSED_FLAG : 0);
+      this.offset = 6;
+      this.numRecords = 0;
+
+      this.block = new Bytes(blockSize + 1024);
+      this.numBlockRecords = 0;
+      this.prevKey = new byte[64];
+      this.prevKeyLen = 0;
+
+      this.index = new Bytes(1024);
+      this.countPos = 0;
+      this.numBlocks = 0;
+      this.compressed = null;
+    }
+
+    /**
+     * Get the number of records written so far.
+     */
+    public long getNumRecords() {
+      return numRecords;
+    }
+
+    /**
+     * Write the record.
+     */
+    public void write(byte[] key, byte[] value) throws IOException {
+      write(key, 0, key.length, value, 0, value.length);
+    }
+
+    /**
+     * Write the record.
+     */
+    public void write(byte[] key, int keyOffset, int keyLen, byte[] value, int valueOffset, int valueLen) throws IOException {
+      if (out == null) throw new IOException("BinaryRecordFile.Writer is closed!");
+
+      int shared = 0;
+
+      if (numBlockRecords == 0) {
+        // index the block's first (full) key
+        index.writeLong(offset);
+        countPos = index.size();
+        index.writeInt(0);  // set when the block is flushed
+        index.writeVarInt(keyLen);
+        index.write(key, keyOffset, keyLen);
+      }
+      else {
+        final int maxShared = Math.min(prevKeyLen, keyLen);
+        while (shared < maxShared && prevKey[shared] == key[keyOffset + shared]) ++shared;
+      }
+
+      block.writeVarInt(shared);
+      block.writeVarInt(keyLen - shared);
+      block.write(key, keyOffset + shared, keyLen - shared);
+      block.writeVarInt(valueLen);
+      block.write(value, valueOffset, valueLen);
+
+      if (prevKey.length < keyLen) prevKey = new byte[Math.max(keyLen, prevKey.length * 2)];
+      System.arraycopy(key, keyOffset, prevKey, 0, keyLen);
+      prevKeyLen = keyLen;
+
+      ++numBlockRecords;
+      ++numRecords;
+
+      if (block.size() >= blockSize) flushBlock();
+    }
+
+    /**
+     * Close this writer, writing the index and footer.
+     */
+    public void close() throws IOException {
+      if (out == null) return;
+
+      flushBlock();
+
+      final long indexOffset = offset;
+      out.writeInt(numBlocks);
+      out.write(index.getBytes(), 0, index.size());
+
+      out.writeLong(indexOffset);
+      out.writeLong(numRecords);
+      out.writeInt(MAGIC);
+      out.close();
+      out = null;
+
+      if (deflater != null) deflater.end();
+    }
+
+    private final void flushBlock() throws IOException {
+      if (numBlockRecords == 0) return;
+
+      index.setInt(countPos, numBlockRecords);
+
+      final int rawLength = block.size();
+      byte[] stored = block.getBytes();
+      int storedLength = rawLength;
+
+      if (deflater != null) {
+        if (compressed == null || compressed.length < rawLength + 64) {
+          compressed = new byte[rawLength + rawLength / 8 + 64];
+        }
+        deflater.reset();
+        deflater.setInput(stored, 0, rawLength);
+        deflater.finish();
+        storedLength = 0;
+        while (!deflater.finished()) {
+          if (storedLength == compressed.length) {
+            final byte[] bigger = new byte[compressed.length * 2];
+            System.arraycopy(compressed, 0, bigger, 0, storedLength);
+            compressed = bigger;
+          }
+          storedLength += deflater.deflate(compressed, storedLength, compressed.length - storedLength);
+        }
+        stored = compressed;
+      }
+
+      out.writeInt(rawLength);
+      out.writeInt(storedLength);
+      out.write(stored, 0, storedLength);
+      offset += 8 + storedLength;
+
+      ++numBlocks;
+      block.reset();
+      numBlockRecords = 0;
+      prevKeyLen = 0;
+    }
+  }
+
+
+  /**
+   * Reader of records from a binary record file.
+   * <p>
+   * Typical usage is "while (reader.next()) { ... reader.getKey() ... }",
+   * optionally after a seek. The key and value buffers returned are reused
+   * by the reader; copy them to retain them beyond the next call to next().
+   */
+  public static final class Reader {
+
+    private File file;
+    private RandomAccessFile raf;
+    private boolean compressed;
+    private Inflater inflater;
+    private long numRecords;
+
+    private long[] blockOffsets;
+    private int[] blockCounts;
+    private byte[][] firstKeys;
+
+    private int curBlock;        // index of the loaded block (-1 if none)
+    private byte[] blockBytes;   // raw (inflated) bytes of the loaded block
+    private int blockLength;
+    private int pos;             // position of the next record in blockBytes
+    private byte[] stored;       // stored (deflated) bytes buffer
+
+    private byte[] key;
+    private int keyLen;
+    private int valueOffset;
+    private int valueLen;
+
+    /**
+     * Open a reader over the file.
+     */
+    public Reader(File file) throws IOException {
+      this.file = file;
+      this.raf = new RandomAccessFile(file, "r");
+
+      try {
+        if (raf.readInt() != MAGIC) throw new IOException("Not a binary record file: " + file);
+        final byte version = raf.readByte();
+        if (version != VERSION) throw new IOException("Unsupported binary record file version (" + version + "): " + file);
+        this.compressed = (raf.readByte() & COMPRESSED_FLAG) != 0;
+        this.inflater = compressed ? new Inflater() : null;
+
+        raf.seek(raf.length() - FOOTER_SIZE);
+        final long indexOffset = raf.readLong();
+        this.numRecords = raf.readLong();
+        if (raf.readInt() != MAGIC) throw new IOException("Truncated binary record file: " + file);
+
+        // load the sparse index
+        final int indexLength = (int)(raf.length() - FOOTER_SIZE - indexOffset);
+        final byte[] indexBytes = new byte[indexLength];
+        raf.seek(indexOffset);
+        raf.readFully(indexBytes);
+        final Bytes index = new Bytes(indexBytes);
+        final int numBlocks = index.readInt();
+
+        this.blockOffsets = new long[numBlocks];
+        this.blockCounts = new int[numBlocks];
+        this.firstKeys = new byte[numBlocks][];
+        for (int i = 0; i < numBlocks; ++i) {
+          blockOffsets[i] = index.readLong();
+          blockCounts[i] = index.readInt();
+          firstKeys[i] = new byte[index.readVarInt()];
+          index.read(firstKeys[i]);
+        }
+      }
+      catch (IOException e) {
+        raf.close();
+        throw e;
+      }
+
+      this.curBlock = -1;
+      this.blockBytes = new byte[1024];
+      this.blockLength = 0;
+      this.pos = 0;
+      this.key = new byte[64];
+      this.keyLen = 0;
+    }
+
+    public File getFile() {
+      return file;
+    }
+
+    /**
+     * Get the total number of records in the file.
+     */
+    public long getNumRecords() {
+      return numRecords;
+    }
+
+    /**
+     * Get the number of blocks in the file.
+     */
+    public int getNumBlocks() {
+      return blockOffsets.length;
+    }
+
+    /**
+     * Advance to the next record.
+     *
+     * @return true if positioned on a record; false if at the end of the file.
+     */
+    public boolean next() throws IOException {
+      while (pos >= blockLength) {
+        if (curBlock + 1 >= blockOffsets.length) return false;
+        loadBlock(curBlock + 1);
+      }
+
+      final int shared = readVarInt();
+      final int suffixLen = readVarInt();
+      keyLen = shared + suffixLen;
+      if (key.length < keyLen) {
+        final byte[] bigger = new byte[Math.max(keyLen, key.length * 2)];
+        System.arraycopy(key, 0, bigger, 0, shared);
+        key = bigger;
+      }
+      System.arraycopy(blockBytes, pos, key, shared, suffixLen);
+      pos += suffixLen;
+
+      valueLen = readVarInt();
+      valueOffset = pos;
+      pos += valueLen;
+
+      return true;
+    }
+
+    /**
+     * Position this reader such that the next call to next() yields the
+     * first record whose key is greater than or equal to the given key,
+     * decoding at most one block.
+     */
+    public void seek(byte[] target) throws IOException {
+      // find the last block whose first key is <= target
+      int lo = 0;
+      int hi = firstKeys.length - 1;
+      int found = -1;
+      while (lo <= hi) {
+        final int mid = (lo + hi) >>> 1;
+        if (compareKeys(firstKeys[mid], firstKeys[mid].length, target, target.length) <= 0) {
+          found = mid;
+          lo = mid + 1;
+        }
+        else {
+          hi = mid - 1;
+        }
+      }
+
+      if (found < 0) {
+        rewind();
+        return;
+      }
+
+      loadBlock(found);
+
+      // scan within the block, remembering where each record starts
+      int recordPos = pos;
+      while (next()) {
+        if (curBlock != found || compareKeys(key, keyLen, target, target.length) >= 0) {
+          // back up to re-deliver this record; its key's shared prefix is still in the key buffer
+          if (curBlock != found) loadBlock(curBlock); else pos = recordPos;
+          return;
+        }
+        recordPos = pos;
+      }
+    }
+
+    /**
+     * Reset this reader to the beginning of the file.
+     */
+    public void rewind() {
+      curBlock = -1;
+      blockLength = 0;
+      pos = 0;
+    }
+
+    /**
+     * Get the current record's key bytes buffer (valid through getKeyLength).
+     */
+    public byte[] getKeyBuffer() {
+      return key;
+    }
+
+    public int getKeyLength() {
+      return keyLen;
+    }
+
+    /**
+     * Get a copy of the current record's key.
+     */
+    public byte[] getKey() {
+      final byte[] result = new byte[keyLen];
+      System.arraycopy(key, 0, result, 0, keyLen);
+      return result;
+    }
+
+    /**
+     * Get the current record's value bytes buffer (valid from getValueOffset
+     * through getValueLength).
+     */
+    public byte[] getValueBuffer() {
+      return blockBytes;
+    }
+
+    public int getValueOffset() {
+      return valueOffset;
+    }
+
+    public int getValueLength() {
+      return valueLen;
+    }
+
+    /**
+     * Get a copy of the current record's value.
+     */
+    public byte[] getValue() {
+      final byte[] result = new byte[valueLen];
+      System.arraycopy(blockBytes, valueOffset, result, 0, valueLen);
+      return result;
+    }
+
+    public void close() throws IOException {
+      if (raf != null) {
+        raf.close();
+        raf = null;
+      }
+      if (inflater != null) {
+        inflater.end();
+        inflater = null;
+      }
+    }
+
+    private final void loadBlock(int blockNum) throws IOException {
+      raf.seek(blockOffsets[blockNum]);
+      final int rawLength = raf.readInt();
+      final int storedLength = raf.readInt();
+      if (rawLength < 0 || storedLength < 0) {
+        throw new IOException("Corrupt block " + blockNum + " in " + file + ": bad length");
+      }
+
+      if (blockBytes.length < rawLength) blockBytes = new byte[rawLength];
+
+      if (compressed) {
+        if (stored == null || stored.length < storedLength) stored = new byte[storedLength];
+        raf.readFully(stored, 0, storedLength);
+        inflater.reset();
+        inflater.setInput(stored, 0, storedLength);
+        try {
+          int n = 0;
+          while (n < rawLength && !inflater.finished()) {
+            final int numInflated = inflater.inflate(blockBytes, n, rawLength - n);
+            if (numInflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+              // the stored bytes ran out (or can't be inflated) before the raw length
+              throw new IOException("Corrupt block " + blockNum + " in " + file + ": inflated " + n + " of " + rawLength + " bytes");
+            }
+            n += numInflated;
+          }
+          if (n < rawLength) {
+            throw new IOException("Corrupt block " + blockNum + " in " + file + ": inflated " + n + " of " + rawLength + " bytes");
+          }
+        }
+        catch (DataFormatException e) {
+          throw new IOException("Corrupt block " + blockNum + " in " + file + ": " + e.getMessage());
+        }
+      }
+      else {
+        raf.readFully(blockBytes, 0, rawLength);
+      }
+
+      curBlock = blockNum;
+      blockLength = rawLength;
+      pos = 0;
+    }
+
+    private final int readVarInt() {
+      int result = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = blockBytes[pos++];
+        result |= (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return result;
+    }
+  }
+
+
+  /**
+   * Growable byte array with big-endian and varint encoding.
+   */
+  static final class Bytes {
+
+    private byte[] bytes;
+    private int size;
+    private int readPos;
+
+    Bytes(int capacity) {
+      this.bytes = new byte[capacity];
+      this.size = 0;
+      this.readPos = 0;
+    }
+
+    Bytes(byte[] bytes) {
+      this.bytes = bytes;
+      this.size = bytes.length;
+      this.readPos = 0;
+    }
+
+    byte[] getBytes() {
+      return bytes;
+    }
+
+    int size() {
+      return size;
+    }
+
+    void reset() {
+      size = 0;
+      readPos = 0;
+    }
+
+    void write(byte[] b, int off, int len) {
+      ensureCapacity(len);
+      System.arraycopy(b, off, bytes, size, len);
+      size += len;
+    }
+
+    void writeInt(int v) {
+      ensureCapacity(4);
+      setInt(size, v);
+      size += 4;
+    }
+
+    void setInt(int at, int v) {
+      bytes[at] = (byte)(v >>> 24);
+      bytes[at + 1] = (byte)(v >>> 16);
+      bytes[at + 2] = (byte)(v >>> 8);
+      bytes[at + 3] = (byte)v;
+    }
+
+    void writeLong(long v) {
+      writeInt((int)(v >>> 32));
+      writeInt((int)v);
+    }
+
+    void writeVarInt(int v) {
+      ensureCapacity(5);
+      while ((v & ~0x7F) != 0) {
+        bytes[size++] = (byte)((v & 0x7F) | 0x80);
+        v >>>= 7;
+      }
+      bytes[size++] = (byte)v;
+    }
+
+    void read(byte[] b) {
+      System.arraycopy(bytes, readPos, b, 0, b.length);
+      readPos += b.length;
+    }
+
+    int readInt() {
+      final int result =
+        ((bytes[readPos] & 0xFF) << 24) | ((bytes[readPos + 1] & 0xFF) << 16) |
+        ((bytes[readPos + 2] & 0xFF) << 8) | (bytes[readPos + 3] & 0xFF);
+      readPos += 4;
+      return result;
+    }
+
+    long readLong() {
+      final long hi = readInt() & 0xFFFFFFFFL;
+      final long lo = readInt() & 0xFFFFFFFFL;
+      return (hi << 32) | lo;
+    }
+
+    int readVarInt() {
+      int result = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = bytes[readPos++];
+        result |= (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return result;
+    }
+
+    private final void ensureCapacity(int more) {
+      if (size + more > bytes.length) {
+        final byte[] bigger = new byte[Math.max(size + more, bytes.length * 2)];
+        System.arraycopy(bytes, 0, bigger, 0, size);
+        bytes = bigger;
+      }
+    }
+  }
+}
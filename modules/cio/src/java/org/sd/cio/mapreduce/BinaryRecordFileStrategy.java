@@ -0,0 +1,173 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.cio.mapreduce;
+
+
+import java.io.File;
+import java.io.IOException;
+
+import org.sd.io.FileRecordIterator;
+import org.sd.io.FileRecordWriter;
+import org.sd.util.KVPair;
+
+/**
+ * A record file strategy for compact binary sorted runs.
+ * <p>
+ * Records are written through a BinaryRecordFile.Writer as length-prefixed
+ * key and value bytes with prefix-compressed keys in (optionally deflated)
+ * blocks under a sparse block index. Unlike a TextRecordFileStrategy, keys
+ * need no escaping and reducers decode keys and values directly from bytes
+ * instead of parsing lines.
+ * <p>
+ * Keys must be flushed in ascending order of their byte encodings for
+ * BinaryRecordFile.Reader.seek to be meaningful; flushing a sorted map
+ * whose key order agrees with the encoding (e.g. UTF-8 strings) satisfies
+ * this.
+ *
+ * @author Spence Koehler
+ */
+public abstract class BinaryRecordFileStrategy<K, V> implements RecordFileStrategy<K, V> {
+
+  /**
+   * Encode the key as bytes.
+   */
+  protected abstract byte[] keyToBytes(K key);
+
+  /**
+   * Decode the key from bytes.
+   */
+  protected abstract K bytesToKey(byte[] bytes, int offset, int length);
+
+  /**
+   * Encode the value as bytes.
+   */
+  protected abstract byte[] valueToBytes(V value);
+
+  /**
+   * Decode the value from bytes.
+   */
+  protected abstract V bytesToValue(byte[] bytes, int offset, int length);
+
+
+  private int blockSize;
+  private boolean compress;
+  private BinaryRecordFile.Writer writer;
+
+  /**
+   * Construct with the default block size and compression.
+   */
+  protected BinaryRecordFileStrategy() {
+    this(BinaryRecordFile.DEFAULT_BLOCK_SIZE, true);
+  }
+
+  /**
+   * Construct with the given (uncompressed) block size, deflating each
+   * block if compress.
+   */
+  protected BinaryRecordFileStrategy(int blockSize, boolean compress) {
+    this.blockSize = blockSize;
+    this.compress = compress;
+    this.writer = null;
+  }
+
+  public boolean open(File recordFile) throws IOException {
+    return bounce(recordFile);
+  }
+
+  public boolean bounce(File recordFile) throws IOException {
+    close();
+    if (recordFile != null && !recordFile.exists()) {
+      final File parentDir = recordFile.getParentFile();
+      if (parentDir != null && !parentDir.exists()) parentDir.mkdirs();
+      this.writer = new BinaryRecordFile.Writer(recordFile, blockSize, compress);
+    }
+    return this.writer != null;
+  }
+
+  public boolean writeRecord(K key, V value) throws IOException {
+    if (writer == null) return false;
+    writer.write(keyToBytes(key), valueToBytes(value));
+    return true;
+  }
+
+  public void close() throws IOException {
+    if (this.writer != null) {
+      this.writer.close();
+      this.writer = null;
+    }
+  }
+
+  /**
+   * Decode the current record of the reader.
+   */
+  public KVPair<K, V> decodeRecord(BinaryRecordFile.Reader reader) {
+    final K key = bytesToKey(reader.getKeyBuffer(), 0, reader.getKeyLength());
+    final V value = bytesToValue(reader.getValueBuffer(), reader.getValueOffset(), reader.getValueLength());
+    return new KVPair<K, V>(key, value);
+  }
+
+  /**
+   * Build an iterator over the records of a file written by this strategy.
+   */
+  public FileRecordIterator<KVPair<K, V>> buildRecordIterator(File file) throws IOException {
+    return new FileRecordIterator<KVPair<K, V>>(file) {
+      private BinaryRecordFile.Reader reader;
+
+      /** Initialize this instance for reading the file. */
+      protected void init(File file) throws IOException {
+        this.reader = new BinaryRecordFile.Reader(file);
+      }
+
+      /** Read the next record, returning null if there are no more. */
+      protected KVPair<K, V> readNextRecord() throws IOException {
+        return reader.next() ? decodeRecord(reader) : null;
+      }
+
+      /** Close resources for this instance. */
+      public void close() throws IOException {
+        reader.close();
+      }
+    };
+  }
+
+  /**
+   * Build a writer of records to a file in this strategy's format, suitable
+   * for writing intermediate merge runs.
+   */
+  public FileRecordWriter<KVPair<K, V>> buildRecordWriter(File file) throws IOException {
+    return new FileRecordWriter<KVPair<K, V>>(file) {
+      private BinaryRecordFile.Writer writer;
+
+      /** Initialize this instance for writing the file. */
+      protected void init(File file) throws IOException {
+        this.writer = new BinaryRecordFile.Writer(file, blockSize, compress);
+      }
+
+      /** Write the record. */
+      public void writeRecord(KVPair<K, V> record) throws IOException {
+        writer.write(keyToBytes(record.key), valueToBytes(record.value));
+      }
+
+      /** Close resources for this instance. */
+      public void close() throws IOException {
+        writer.close();
+      }
+    };
+  }
+}
@@ -21,6 +21,7 @@ package org.sd.cio.mapreduce;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
@@ -56,7 +57,7 @@ public abstract class CombinedMapReduce<K extends Comparable<K>, V, A, R> implem
   protected abstract boolean selectInputFile(File file);
   protected abstract FileRecordIterator<R> buildInputFileRecordIterator(File file) throws IOException;
   protected abstract List<MapperPair<K, V, A>> transformInputRecord(R record);
-  protected abstract void map(MapperPair<K, V, A> mapperPair);  // ==>operate
+  protected abstract void map(MapperPair<K, V, A> mapperPair);  // ==>operate, using getActionMap(mapperPair.getActionKey())
 
   // reducer
   protected abstract File getReduceOutputDir();
@@ -73,11 +74,15 @@ public abstract class CombinedMapReduce<K extends Comparable<K>, V, A, R> implem
   private Reducer<K, V, A, R> reducer;
 
   protected final Map<A, Map<K, V>> actionMaps;
+  private final List<Map<A, Map<K, V>>> shardActionMaps;
   private SimpleTextRecordFileStrategy<K, V> _strfs;
+  private RecordFileStrategy<K, V> _rfs;
+  private Combiner<K, V> _combiner;
 
   protected CombinedMapReduce() {
     this.uc = new UnitCounter();
     this.actionMaps = new HashMap<A, Map<K, V>>();
+    this.shardActionMaps = new ArrayList<Map<A, Map<K, V>>>();
   }
 
   /**
@@ -152,6 +157,74 @@ public abstract class CombinedMapReduce<K extends Comparable<K>, V, A, R> implem
     return DEFAULT_NUM_DIGITS;
   }
 
+  /**
+   * Get the number of threads with which to map input files.
+   * <p>
+   * Intended for extenders to override. Default is 1.
+   * <p>
+   * With multiple threads, each thread collects pairs in its own action maps
+   * (each of up to getMaxPairs(0) pairs), so map implementations must access
+   * maps through getActionMap and transformInputRecord must be thread-safe.
+   */
+  protected int getNumMapperThreads() {
+    return 1;
+  }
+
+  /**
+   * Get the maximum number of (estimated) bytes of mapped pairs to hold in
+   * memory across the map phase's action maps before spilling the largest
+   * of them to files, where pairs are estimated by buildSizeEstimator.
+   * <p>
+   * Intended for extenders to override. Default is 0, meaning that action
+   * maps are only flushed at getMaxPairs(0) pairs. With multiple mapper
+   * threads, each thread gets an even share of the budget.
+   * <p>
+   * Spills are written through buildRecordFileStrategy, so overriding it to
+   * return a BinaryRecordFileStrategy spills compact binary runs.
+   */
+  protected long getMapMemoryBudget() {
+    return 0L;
+  }
+
+  /**
+   * Build the estimator of mapped pair sizes for the map memory budget.
+   * <p>
+   * Intended for extenders to override. Default is a SimpleSizeEstimator.
+   */
+  protected SizeEstimator<K, V> buildSizeEstimator() {
+    return new SimpleSizeEstimator<K, V>();
+  }
+
+  /**
+   * Build the combiner used by combine to merge values mapped to equal keys.
+   * <p>
+   * Intended for extenders to override. Default is null, in which case
+   * combine replaces existing values.
+   */
+  protected Combiner<K, V> buildCombiner() {
+    return null;
+  }
+
+  /**
+   * Add the pair to the current thread's action map, combining its value
+   * with any existing value for its key through the combiner.
+   * <p>
+   * This is intended as a convenience for map implementations.
+   */
+  protected final void combine(MapperPair<K, V, A> mapperPair) {
+    if (_combiner == null) _combiner = buildCombiner();
+    MapContainer.add(getActionMap(mapperPair.getActionKey()), mapperPair.key, mapperPair.value, _combiner);
+  }
+
+  /**
+   * Get the map collecting pairs for the action key in the current (mapper)
+   * thread.
+   */
+  protected final Map<K, V> getActionMap(A actionKey) {
+    final int shardNum = (mapper == null) ? -1 : mapper.getShardNum();
+    return (shardNum < 0) ? actionMaps.get(actionKey) : shardActionMaps.get(shardNum).get(actionKey);
+  }
+
   protected Integer getMaxSimultaneousReducerFiles(Integer chainNum) {
     return DEFAULT_MAX_SIMULTANEOUS_REDUCER_FILES;
   }
@@ -159,17 +232,20 @@ public abstract class CombinedMapReduce<K extends Comparable<K>, V, A, R> implem
   protected FlushActionFactory<K, V, A> doBuildFlushActionFactory(final File outDir, final Integer chainNum) {
     if (chainNum == null || chainNum.equals(0)) {
       // mapper flush
+      final MemoryBudget budget = buildMapMemoryBudget(1);
+      final SizeEstimator<K, V> sizeEstimator = (budget == null) ? null : buildSizeEstimator();
+
       return new CommonFlushActionFactory<K, V, A>(outDir, getMaxPairs(chainNum), chainNum, getNumDigits(chainNum)) {
         protected String getOutputFilePrefix(A actionKey) {
           return generateOutputFilePrefix(actionKey);
         }
-        protected SimpleTextRecordFileStrategy<K, V> buildFlushFileStrategy() {
-          return getSimpleTextRecordFileStrategy();
+        protected RecordFileStrategy<K, V> buildFlushFileStrategy() {
+          return getRecordFileStrategy();
         }
-        protected FlushAction<K, V, A> buildFlushAction(A actionKey, File flushDir, NameGenerator nameGenerator, int maxPairs, SimpleTextRecordFileStrategy<K, V> flushFileStrategy) {
+        protected FlushAction<K, V, A> buildFlushAction(A actionKey, File flushDir, NameGenerator nameGenerator, int maxPairs, RecordFileStrategy<K, V> flushFileStrategy) {
           final MapContainer<K, V> mapContainer = new MapContainer<K, V>();
           actionMaps.put(actionKey, mapContainer.getMap());  // keep a handle on the flush action's map
-          return new SimpleFlushAction<K, V, A>(flushDir, nameGenerator, maxPairs, flushFileStrategy, mapContainer);
+          return new SimpleFlushAction<K, V, A>(flushDir, nameGenerator, maxPairs, flushFileStrategy, mapContainer, budget, sizeEstimator);
         }
       };
     }
@@ -179,16 +255,52 @@ public abstract class CombinedMapReduce<K extends Comparable<K>, V, A, R> implem
         protected String getOutputFilePrefix(A actionKey) {
           return generateOutputFilePrefix(actionKey);
         }
-        protected SimpleTextRecordFileStrategy<K, V> buildFlushFileStrategy() {
-          return getSimpleTextRecordFileStrategy();
+        protected RecordFileStrategy<K, V> buildFlushFileStrategy() {
+          return getRecordFileStrategy();
         }
-        protected FlushAction<K, V, A> buildFlushAction(A actionKey, File flushDir, NameGenerator nameGenerator, int maxPairs, SimpleTextRecordFileStrategy<K, V> flushFileStrategy) {
+        protected FlushAction<K, V, A> buildFlushAction(A actionKey, File flushDir, NameGenerator nameGenerator, int maxPairs, RecordFileStrategy<K, V> flushFileStrategy) {
           return new DirectFlushAction<K, V, A>(flushDir, nameGenerator, maxPairs, flushFileStrategy);
         }
       };
     }
   }
 
+  /**
+   * Build the flush action factory for one of numShards parallel mapper
+   * threads, which flushes its own action maps through its own record file
+   * strategies to its own (strided) numbered files.
+   */
+  protected FlushActionFactory<K, V, A> doBuildShardFlushActionFactory(final File outDir, final int shardNum, final int numShards) {
+    final Integer chainNum = 0;
+    final Map<A, Map<K, V>> shardMaps = shardActionMaps.get(shardNum);
+    final MemoryBudget budget = buildMapMemoryBudget(numShards);
+    final SizeEstimator<K, V> sizeEstimator = (budget == null) ? null : buildSizeEstimator();
+
+    return new CommonFlushActionFactory<K, V, A>(outDir, getMaxPairs(chainNum), chainNum, getNumDigits(chainNum), shardNum, numShards) {
+      protected String getOutputFilePrefix(A actionKey) {
+        return generateOutputFilePrefix(actionKey);
+      }
+      protected RecordFileStrategy<K, V> buildFlushFileStrategy() {
+        // note: strategies hold writer state, so can't be shared across threads
+        return buildRecordFileStrategy();
+      }
+      protected FlushAction<K, V, A> buildFlushAction(A actionKey, File flushDir, NameGenerator nameGenerator, int maxPairs, RecordFileStrategy<K, V> flushFileStrategy) {
+        final MapContainer<K, V> mapContainer = new MapContainer<K, V>();
+        shardMaps.put(actionKey, mapContainer.getMap());  // keep a handle on the flush action's map
+        return new SimpleFlushAction<K, V, A>(flushDir, nameGenerator, maxPairs, flushFileStrategy, mapContainer, budget, sizeEstimator);
+      }
+    };
+  }
+
+  /**
+   * Build a memory budget for one of numShards map phase flush action
+   * factories, or null if the map phase isn't memory budgeted.
+   */
+  private final MemoryBudget buildMapMemoryBudget(int numShards) {
+    final long mapMemoryBudget = getMapMemoryBudget();
+    return (mapMemoryBudget <= 0) ? null : new MemoryBudget(Math.max(1L, mapMemoryBudget / numShards));
+  }
+
   protected A computeActionKey(List<File> context) {
     A result = null;
 
@@ -207,7 +319,15 @@ public abstract class CombinedMapReduce<K extends Comparable<K>, V, A, R> implem
   }
 
   private final Mapper<K, V, A, R> buildMapper() {
+    final int numMapperThreads = getNumMapperThreads();
+    shardActionMaps.clear();
+    for (int i = 0; i < numMapperThreads; ++i) {
+      shardActionMaps.add(new HashMap<A, Map<K, V>>());
+    }
+
     final Mapper<K, V, A, R> result = new Mapper<K, V, A, R>() {
+      protected final int getNumMapperThreads() { return numMapperThreads; }
+      protected final FlushActionFactory<K, V, A> buildShardFlushActionFactory(File outDir, int shardNum, int numShards) { return doBuildShardFlushActionFactory(outDir, shardNum, numShards); }
       protected final boolean getVerbose() { return getVerboseFlag(); }
       protected final File getRootInputFile() { return getInputDir(); }
       protected final File getRootOutputFile() { return getMapOutputDir(); }
@@ -233,6 +353,11 @@ public abstract class CombinedMapReduce<K extends Comparable<K>, V, A, R> implem
       protected final A getActionKey(File file) { return extractActionKey(file); }
       protected final MultiPartRecordFactory<File, List<File>> buildFileCollector() { return super.buildSimpleFileCollector(getMaxSimultaneousReducerFiles(chainNum)); }
       protected final MultiFileIterator<KVPair<K, V>> getCoIterator(List<File> files, Comparator<KVPair<K, V>> recordComparer) throws IOException {
+        final RecordFileStrategy<K, V> strategy = getRecordFileStrategy();
+        if (strategy instanceof BinaryRecordFileStrategy) {
+          // the file collector already limits the number of files per group
+          return binaryFileCoIterator(files, recordComparer, (BinaryRecordFileStrategy<K, V>)strategy, 0);
+        }
         return simpleTextFileCoIterator(files, recordComparer, new KVPairLoader<K, V, String>() {
             public KVPair<K, V> buildKVPair(String line) {
               return getSimpleTextRecordFileStrategy().decodeLine(line);
@@ -279,9 +404,31 @@ public abstract class CombinedMapReduce<K extends Comparable<K>, V, A, R> implem
     return result;
   }
 
+  /**
+   * Build the strategy through which map and reduce output files are
+   * written.
+   * <p>
+   * Default is buildSimpleTextRecordFileStrategy. Extenders may override to
+   * return, e.g., a BinaryRecordFileStrategy, whose files are then read back
+   * through Reducer.binaryFileCoIterator in the reduce phase. Other
+   * strategies' files are read back as lines through the simple text
+   * record file strategy.
+   */
+  protected RecordFileStrategy<K, V> buildRecordFileStrategy() {
+    return buildSimpleTextRecordFileStrategy();
+  }
+
+  private final RecordFileStrategy<K, V> getRecordFileStrategy() {
+    if (_rfs == null) {
+      _rfs = buildRecordFileStrategy();
+    }
+    return _rfs;
+  }
+
   private final SimpleTextRecordFileStrategy<K, V> getSimpleTextRecordFileStrategy() {
     if (_strfs == null) {
-      _strfs = buildSimpleTextRecordFileStrategy();
+      final RecordFileStrategy<K, V> rfs = getRecordFileStrategy();
+      _strfs = (rfs instanceof SimpleTextRecordFileStrategy) ? (SimpleTextRecordFileStrategy<K, V>)rfs : buildSimpleTextRecordFileStrategy();
     }
     return _strfs;
   }
@@ -32,20 +32,33 @@ import org.sd.util.NameGenerator;
 public abstract class CommonFlushActionFactory<K, V, A> extends AbstractFlushActionFactory<K, V, A> {
   
   protected abstract String getOutputFilePrefix(A actionKey);
-  protected abstract SimpleTextRecordFileStrategy<K, V> buildFlushFileStrategy();
-  protected abstract FlushAction<K, V, A> buildFlushAction(A actionKey, File flushDir, NameGenerator nameGenerator, int maxPairs, SimpleTextRecordFileStrategy<K, V> flushFileStrategy);
+  protected abstract RecordFileStrategy<K, V> buildFlushFileStrategy();
+  protected abstract FlushAction<K, V, A> buildFlushAction(A actionKey, File flushDir, NameGenerator nameGenerator, int maxPairs, RecordFileStrategy<K, V> flushFileStrategy);
 
   private File outDir;
   private final int maxPairs;
   private final Integer chainNum;
   private final int numDigits;
+  private final int shardNum;
+  private final int numShards;
 
   protected CommonFlushActionFactory(File outDir, int maxPairs, Integer chainNum, int numDigits) {
+    this(outDir, maxPairs, chainNum, numDigits, 0, 1);
+  }
+
+  /**
+   * Construct for one of numShards factories whose flush actions write
+   * concurrently into the same flush directories, each shard rolling through
+   * its own disjoint set of output file names.
+   */
+  protected CommonFlushActionFactory(File outDir, int maxPairs, Integer chainNum, int numDigits, int shardNum, int numShards) {
     super();
     this.outDir = outDir;
     this.maxPairs = maxPairs;
     this.chainNum = chainNum;
     this.numDigits = numDigits;
+    this.shardNum = shardNum;
+    this.numShards = numShards;
   }
 
   protected final FlushAction<K, V, A> buildFlushAction(MapperPair<K, V, A> mapperPair) {
@@ -55,7 +68,7 @@ public abstract class CommonFlushActionFactory<K, V, A> extends AbstractFlushAct
 
     return buildFlushAction(actionKey,
                             flushDir,
-                            ResourceHelper.buildNameGenerator(prefix + "-", ".gz", numDigits, chainNum),
+                            ResourceHelper.buildNameGenerator(prefix + "-", ".gz", numDigits, chainNum, shardNum, numShards),
                             maxPairs,
                             buildFlushFileStrategy());
   }
@@ -27,6 +27,9 @@ import java.util.Comparator;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -167,6 +170,120 @@ public class DirWalker implements Governable {
         );
   }
 
+  /**
+   * Factory method for a DirWalker for mapping each record (of type T) within
+   * selected files, where each selected file's records are operated on in a
+   * thread from the executor, halting if/when recordOperator returns false.
+   * <p>
+   * Files are selected (walked) in the calling thread, which stays at most
+   * maxPendingFiles files ahead of the executor's threads. The recordOperator
+   * must be safe to call from multiple threads at once. The executor is shut
+   * down (after its pending files are mapped) when the walk finishes.
+   */
+  public static final <T> DirWalker parallelMapper(final boolean verbose, UnitCounter uc, File rootDir,
+                                                   DirectorySelector dirSelector,
+                                                   FileSelector fileSelector,
+                                                   final FileRecordIteratorFactory<T> recordIteratorFactory,
+                                                   final RecordOperator<T, File> recordOperator,
+                                                   final ExecutorService executor,
+                                                   final int maxPendingFiles) {
+
+    // note: a unit counter isn't thread-safe, so record counts are added under its lock
+    final UnitCounter recordUc = uc.registerSubsidiary();
+
+    return
+      new DirWalker(verbose, uc, rootDir, dirSelector, fileSelector,
+                    new FileOperator() {
+                      private final Semaphore pendingFiles = new Semaphore(maxPendingFiles);
+                      private final AtomicBoolean halted = new AtomicBoolean(false);
+                      private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+                      public boolean initializeHook() {return true;}
+
+                      public boolean operate(final File file) {
+                        if (halted.get()) return false;
+
+                        try {
+                          pendingFiles.acquire();
+                        }
+                        catch (InterruptedException e) {
+                          halted.set(true);
+                          return false;
+                        }
+
+                        executor.execute(new Runnable() {
+                            public void run() {
+                              try {
+                                mapFile(file);
+                              }
+                              catch (Throwable t) {
+                                failure.compareAndSet(null, t);
+                                halted.set(true);
+                              }
+                              finally {
+                                pendingFiles.release();
+                              }
+                            }
+                          });
+
+                        return !halted.get();
+                      }
+
+                      private final void mapFile(File file) throws IOException {
+                        int numRecords = 0;
+
+                        final FileRecordIterator<T> recordIterator = recordIteratorFactory.getFileRecordIterator(file);
+                        if (recordIterator == null) return;
+
+                        try {
+                          while (!halted.get() && recordIterator.hasNext()) {
+                            if (recordUc.isTimeToQuit()) {
+                              halted.set(true);
+                              break;
+                            }
+
+                            final T record = recordIterator.next();
+                            ++numRecords;
+                            if (!recordOperator.operate(record, file)) {
+                              halted.set(true);
+                            }
+                          }
+                        }
+                        finally {
+                          recordIterator.close();
+
+                          synchronized (recordUc) {
+                            for (int i = 0; i < numRecords; ++i) {
+                              if (!recordUc.inc()) halted.set(true);
+                            }
+                          }
+                        }
+                      }
+
+                      public void finalizeHook() {
+                        // wait for the pending files to finish mapping
+                        executor.shutdown();
+                        try {
+                          while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                            if (verbose) {
+                              System.out.println(new Date() + ": Waiting on " + (maxPendingFiles - pendingFiles.availablePermits()) + " mapper files");
+                            }
+                          }
+                        }
+                        catch (InterruptedException e) {
+                          throw new IllegalStateException(e);
+                        }
+
+                        final Throwable t = failure.get();
+                        if (t != null) {
+                          if (t instanceof RuntimeException) throw (RuntimeException)t;
+                          throw new IllegalStateException(t);
+                        }
+                      }
+                    }
+        );
+  }
+
   /**
    * Factory method for a DirWalker for reducing mapped records (of type T)
    * from within selected files, halting if/when mergeOperator returns false.
@@ -42,4 +42,23 @@ public class MapContainer<K, V> {
   public final Map<K, V> getMap() {
     return curmap;
   }
+
+  /**
+   * Add the value for the key to the map, combining it with an existing
+   * value through the combiner if non-null (or replacing it if null.)
+   *
+   * @return true if the key is new to the map.
+   */
+  public static final <K, V> boolean add(Map<K, V> map, K key, V value, Combiner<K, V> combiner) {
+    final V existingValue = map.get(key);
+
+    if (existingValue != null && combiner != null) {
+      map.put(key, combiner.combine(key, existingValue, value));
+    }
+    else {
+      map.put(key, value);
+    }
+
+    return existingValue == null;
+  }
 }
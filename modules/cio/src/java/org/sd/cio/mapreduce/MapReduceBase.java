@@ -164,7 +164,7 @@ public abstract class MapReduceBase<K, V, A, R> implements Governable {
       walker.run();
 
       try {
-        faf.finalize();
+        finalizeFlushActions();
       }
       catch (IOException e) {
         throw new IllegalStateException(e);
@@ -174,6 +174,15 @@ public abstract class MapReduceBase<K, V, A, R> implements Governable {
     }
   }
 
+  /**
+   * Finalize (flush) the output after the walker has run.
+   * <p>
+   * In this default implementation, the flush action factory is finalized.
+   */
+  protected void finalizeFlushActions() throws IOException {
+    faf.finalize();
+  }
+
   /**
    * Perform any pre-initialization operations.
    * <p>
@@ -21,7 +21,12 @@ package org.sd.cio.mapreduce;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.sd.io.FileRecordIterator;
 import org.sd.io.FileRecordIteratorFactory;
@@ -44,6 +49,11 @@ import org.sd.io.RecordOperator;
  *                combining if warranted. (NOTE: this is to implement
  *                FlushAction.AddStrategy.)
  * </ul>
+ * <p>
+ * To map input files with multiple threads, extenders override
+ * getNumMapperThreads and buildShardFlushActionFactory so that each thread
+ * (shard) collects and flushes its pairs through its own flush actions
+ * into sorted run files that the reducer co-iterates with the other shards'.
  *
  * @author Spence Koehler
  */
@@ -83,11 +93,62 @@ public abstract class Mapper<K, V, A, R> extends MapReduceBase<K, V, A, R> imple
   protected abstract List<MapperPair<K, V, A>> transformRecord(R record);
 
 
+  /**
+   * Get the number of threads with which to map input files.
+   * <p>
+   * This is intended to be overridden by implementations that map files in
+   * parallel. Default is 1.
+   */
+  protected int getNumMapperThreads() {
+    return 1;
+  }
+
+  /**
+   * Build the flush action factory used by one of numShards mapper threads,
+   * whose flush actions must write to file names that are distinct from the
+   * other shards' (see CommonFlushActionFactory) within the same flush
+   * directories as the (unsharded) flush action factory.
+   * <p>
+   * This is intended to be overridden by implementations that map files in
+   * parallel. Default is null, in which case all mapper threads share (and
+   * serialize their adds through) the flush action factory's actions.
+   */
+  protected FlushActionFactory<K, V, A> buildShardFlushActionFactory(File outDir, int shardNum, int numShards) {
+    return null;
+  }
+
+
+  private final ThreadLocal<Integer> shardNum = new ThreadLocal<Integer>();
+  private List<FlushActionFactory<K, V, A>> shardFactories;
+
   /**
    * Default constructor.
    */
   protected Mapper() {
     super();
+    this.shardFactories = null;
+  }
+
+  /**
+   * Get the shard number of the current (mapper) thread, or -1 if the
+   * current thread isn't a parallel mapper thread.
+   */
+  protected final int getShardNum() {
+    final Integer result = shardNum.get();
+    return (result == null) ? -1 : result;
+  }
+
+  /**
+   * Finalize the flush action factory and any shard flush action factories.
+   */
+  protected void finalizeFlushActions() throws IOException {
+    super.finalizeFlushActions();
+
+    if (shardFactories != null) {
+      for (FlushActionFactory<K, V, A> shardFactory : shardFactories) {
+        if (shardFactory != null) shardFactory.finalize();
+      }
+    }
   }
 
   /**
@@ -95,24 +156,66 @@ public abstract class Mapper<K, V, A, R> extends MapReduceBase<K, V, A, R> imple
    * the details.
    */
   protected final DirWalker buildWalker() {
-     return DirWalker.mapper(
-       getVerbose(), getUnitCounter(), getCurrentInputFile(),
-       buildDirectorySelector(),
-       buildFileSelector(),
-      new FileRecordIteratorFactory<R>() {
-        public FileRecordIterator<R> getFileRecordIterator(File file) throws IOException {
-          return buildFileRecordIterator(file);
+    final FileRecordIteratorFactory<R> recordIteratorFactory = new FileRecordIteratorFactory<R>() {
+      public FileRecordIterator<R> getFileRecordIterator(File file) throws IOException {
+        return buildFileRecordIterator(file);
+      }
+    };
+    final RecordOperator<R, File> recordOperator = new RecordOperator<R, File>() {
+      public boolean operate(R record, File context) {
+        boolean result = false;
+        try {
+          result = processRecord(record, context);
         }
-      },
-      new RecordOperator<R, File>() {
-        public boolean operate(R record, File context) {
-          boolean result = false;
-          try {
-            result = processRecord(record, context);
-          }
-          catch (IOException e) {
-            throw new IllegalStateException(e);
-          }
+        catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+        return result;
+      }
+    };
+
+    final int numThreads = getNumMapperThreads();
+    if (numThreads <= 1) {
+      this.shardFactories = null;
+      return DirWalker.mapper(
+        getVerbose(), getUnitCounter(), getCurrentInputFile(),
+        buildDirectorySelector(),
+        buildFileSelector(),
+        recordIteratorFactory,
+        recordOperator);
+    }
+
+    this.shardFactories = new ArrayList<FlushActionFactory<K, V, A>>();
+    for (int i = 0; i < numThreads; ++i) {
+      shardFactories.add(buildShardFlushActionFactory(getCurrentOutputFile(), i, numThreads));
+    }
+
+    return DirWalker.parallelMapper(
+      getVerbose(), getUnitCounter(), getCurrentInputFile(),
+      buildDirectorySelector(),
+      buildFileSelector(),
+      recordIteratorFactory,
+      recordOperator,
+      buildMapperThreadPool(numThreads),
+      2 * numThreads);
+  }
+
+  /**
+   * Build a pool of numThreads threads, each of which is bound to its own
+   * shard number.
+   */
+  private final ExecutorService buildMapperThreadPool(final int numThreads) {
+    return Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+        private final AtomicInteger nextShard = new AtomicInteger(0);
+        public Thread newThread(final Runnable r) {
+          final int shard = nextShard.getAndIncrement() % numThreads;
+          final Thread result = new Thread(new Runnable() {
+              public void run() {
+                shardNum.set(shard);
+                r.run();
+              }
+            }, "Mapper-" + shard);
+          result.setDaemon(true);
           return result;
         }
       });
@@ -128,10 +231,25 @@ public abstract class Mapper<K, V, A, R> extends MapReduceBase<K, V, A, R> imple
     final List<MapperPair<K, V, A>> pairs = transformRecord(record);
     if (pairs != null) {
       for (MapperPair<K, V, A> pair : pairs) {
-        final FlushAction<K, V, A> flushAction = getFlushActionFactory().getFlushAction(pair);
+        final FlushAction<K, V, A> flushAction = getCurrentFlushActionFactory().getFlushAction(pair);
         flushAction.add(pair, this);
       }
     }
     return true;
   }
+
+  /**
+   * Get the current thread's shard flush action factory if it exists, or
+   * the (shared) flush action factory.
+   */
+  private final FlushActionFactory<K, V, A> getCurrentFlushActionFactory() {
+    FlushActionFactory<K, V, A> result = null;
+
+    final int shard = getShardNum();
+    if (shard >= 0 && shardFactories != null) {
+      result = shardFactories.get(shard);
+    }
+
+    return (result == null) ? getFlushActionFactory() : result;
+  }
 }
@@ -0,0 +1,135 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.cio.mapreduce;
+
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A budget of (estimated) bytes shared by flush actions that hold their
+ * data in memory until spilling (flushing) it to a file.
+ * <p>
+ * When the budget is exceeded, participants holding at least an even share
+ * of the used bytes spill first so that large buffers are written before
+ * small ones. If usage keeps growing past the budget's slack, every
+ * participant spills on its next add.
+ *
+ * @author Spence Koehler
+ */
+public class MemoryBudget {
+  
+  public static final double DEFAULT_SLACK = 0.25;
+
+  private long maxBytes;
+  private long hardMaxBytes;
+  private final AtomicLong usedBytes = new AtomicLong(0L);
+  private final AtomicInteger numParticipants = new AtomicInteger(0);
+  private final AtomicLong numSpills = new AtomicLong(0L);
+
+  /**
+   * Construct with the given maximum number of bytes and default slack.
+   */
+  public MemoryBudget(long maxBytes) {
+    this(maxBytes, DEFAULT_SLACK);
+  }
+
+  /**
+   * Construct with the given maximum number of bytes, allowing usage to
+   * grow to (1 + slack) * maxBytes while the largest participants spill.
+   */
+  public MemoryBudget(long maxBytes, double slack) {
+    this.maxBytes = maxBytes;
+    this.hardMaxBytes = maxBytes + (long)(maxBytes * slack);
+  }
+
+  /**
+   * Get the maximum number of bytes.
+   */
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * Get the number of (estimated) bytes currently used.
+   */
+  public long getUsedBytes() {
+    return usedBytes.get();
+  }
+
+  /**
+   * Get the number of participants sharing this budget.
+   */
+  public int getNumParticipants() {
+    return numParticipants.get();
+  }
+
+  /**
+   * Get the number of spills that have released bytes back to this budget.
+   */
+  public long getNumSpills() {
+    return numSpills.get();
+  }
+
+  /**
+   * Register a participant sharing this budget.
+   */
+  public void register() {
+    numParticipants.incrementAndGet();
+  }
+
+  /**
+   * Charge the given number of bytes against this budget.
+   */
+  public void use(long bytes) {
+    usedBytes.addAndGet(bytes);
+  }
+
+  /**
+   * Release the given number of (spilled) bytes back to this budget.
+   */
+  public void release(long bytes) {
+    usedBytes.addAndGet(-bytes);
+    numSpills.incrementAndGet();
+  }
+
+  /**
+   * Determine whether this budget is exceeded.
+   */
+  public boolean isExceeded() {
+    return usedBytes.get() > maxBytes;
+  }
+
+  /**
+   * Determine whether a participant currently holding ownBytes should spill.
+   */
+  public boolean shouldSpill(long ownBytes) {
+    if (ownBytes <= 0) return false;
+
+    final long used = usedBytes.get();
+    if (used <= maxBytes) return false;
+
+    // spill if holding at least an even share or if past the slack
+    return (ownBytes * Math.max(1, numParticipants.get()) >= used) || (used > hardMaxBytes);
+  }
+
+  public String toString() {
+    return "MemoryBudget[" + usedBytes.get() + "/" + maxBytes + " bytes, " + numParticipants.get() + " participants, " + numSpills.get() + " spills]";
+  }
+}
@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.sd.io.FileRecordIterator;
+import org.sd.io.FileRecordWriter;
 import org.sd.io.FileUtil;
 import org.sd.io.MultiFileIterator;
 import org.sd.io.MultiFileIteratorFactory;
@@ -251,6 +252,37 @@ public abstract class Reducer<K, V, A, R> extends MapReduceBase<K, V, A, R> {
     };
   }
 
+  /**
+   * Utility method for extenders to call while implementing getCoIterator.
+   * <p>
+   * This is appropriate for cases where the input files were written through
+   * a BinaryRecordFileStrategy, so that keys and values are decoded directly
+   * from bytes rather than parsed from lines.
+   *
+   * @param files  The list of files over which to co-iterate.
+   * @param recordComparer  The comparator for sorting and combining like pairs.
+   * @param strategy  The strategy with which the files were written.
+   * @param maxOpenFiles  The maximum number of files to hold open at once
+   *                      (intermediate runs are merged through the strategy's
+   *                      format when exceeded), or 0 for unlimited.
+   *
+   * @return the MultiFileIterator over the files.
+   */
+  protected final MultiFileIterator<KVPair<K, V>> binaryFileCoIterator(
+    List<File> files, Comparator<KVPair<K, V>> recordComparer,
+    final BinaryRecordFileStrategy<K, V> strategy, int maxOpenFiles)
+    throws IOException {
+
+    return new MultiFileIterator<KVPair<K, V>>(files.toArray(new File[files.size()]), recordComparer, maxOpenFiles) {
+      protected FileRecordIterator<KVPair<K, V>> buildRecordIterator(File file) throws IOException {
+        return strategy.buildRecordIterator(file);
+      }
+      protected FileRecordWriter<KVPair<K, V>> buildRecordWriter(File file) throws IOException {
+        return strategy.buildRecordWriter(file);
+      }
+    };
+  }
+
   /**
    * Utility method for extenders to call while implementing buildFileCollector.
    * <p>
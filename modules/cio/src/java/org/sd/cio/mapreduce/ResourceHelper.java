@@ -21,6 +21,7 @@ package org.sd.cio.mapreduce;
 
 import org.sd.util.NameGenerator;
 import org.sd.util.NumberedNameGenerator;
+import org.sd.util.StridedNameGenerator;
 
 /**
  * Utility methods for building resources.
@@ -43,4 +44,22 @@ public class ResourceHelper {
 
     return result;
   }
+
+  /**
+   * Build a numbered name generator for one of numShards concurrent writers
+   * (shardNum in [0, numShards)) whose names are disjoint from those of the
+   * other shards' generators.
+   */
+  public static final NameGenerator buildNameGenerator(String basePrefix, String basePostfix, int numDigits, Integer chainNumber, int shardNum, int numShards) {
+    if (numShards <= 1) return buildNameGenerator(basePrefix, basePostfix, numDigits, chainNumber);
+
+    final NumberedNameGenerator result = new StridedNameGenerator(basePrefix, basePostfix, numDigits, shardNum, numShards);
+
+    // add chainNumber onto the output files
+    if (chainNumber != null) {
+      result.setPrefix(result.getPrefix() + chainNumber + "-");
+    }
+
+    return result;
+  }
 }
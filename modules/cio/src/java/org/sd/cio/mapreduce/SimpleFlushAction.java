@@ -31,19 +31,46 @@ import org.sd.util.NameGenerator;
  * A flush strategy that uses a MapContainer for flushing a constant number
  * of records. This strategy is best used with mapper actions.
  * <p>
+ * When constructed with a memory budget, the container's entries are also
+ * flushed (spilled) when the budget shared with other flush actions is
+ * exceeded according to the entries' estimated sizes.
+ * <p>
  * @author Spence Koehler
  */
 public class SimpleFlushAction<K, V, A> extends FlushAction<K, V, A> {
 
   private int maxOutRecordCount;
   private final MapContainer<K, V> data;
+  private final MemoryBudget budget;
+  private final SizeEstimator<K, V> sizeEstimator;
+
+  private int numEntries;   // number of entries accounted for
+  private long usedBytes;   // estimated bytes of entries
 
   public SimpleFlushAction(File flushDir, NameGenerator ngen, int maxOutRecordCount,
                            RecordFileStrategy<K, V> recordFileStrategy,
                            MapContainer<K, V> data) {
+    this(flushDir, ngen, maxOutRecordCount, recordFileStrategy, data, null, null);
+  }
+
+  /**
+   * Construct to flush when reaching maxOutRecordCount records (if &gt; 0)
+   * or when the (shared) memory budget is exceeded and this instance should
+   * spill according to its entries' estimated sizes.
+   */
+  public SimpleFlushAction(File flushDir, NameGenerator ngen, int maxOutRecordCount,
+                           RecordFileStrategy<K, V> recordFileStrategy,
+                           MapContainer<K, V> data,
+                           MemoryBudget budget, SizeEstimator<K, V> sizeEstimator) {
     super(flushDir, ngen, recordFileStrategy);
     this.maxOutRecordCount = maxOutRecordCount;
     this.data = data;
+    this.budget = budget;
+    this.sizeEstimator = (budget != null && sizeEstimator == null) ? new SimpleSizeEstimator<K, V>() : sizeEstimator;
+    this.numEntries = 0;
+    this.usedBytes = 0L;
+
+    if (budget != null) budget.register();
   }
 
   /**
@@ -53,6 +80,20 @@ public class SimpleFlushAction<K, V, A> extends FlushAction<K, V, A> {
     return data;
   }
 
+  /**
+   * Get this instance's memory budget (possibly null).
+   */
+  public MemoryBudget getMemoryBudget() {
+    return budget;
+  }
+
+  /**
+   * Get the estimated number of bytes held by this instance's data.
+   */
+  public long getUsedBytes() {
+    return usedBytes;
+  }
+
   /**
    * Do any initialization necessary for beginning adds for the given file.
    */
@@ -69,7 +110,20 @@ public class SimpleFlushAction<K, V, A> extends FlushAction<K, V, A> {
    * been called.
    */
   protected boolean shouldFlush(MapperPair<K, V, A> pair) {
-    return (data.getMap().size() == maxOutRecordCount);
+    final Map<K, V> map = data.getMap();
+    final int size = map.size();
+
+    if (budget != null && size > numEntries) {
+      // charge the new entry(s) for the pair as it is now held
+      final long bytes = (size - numEntries) * sizeEstimator.estimateSize(pair.key, map.get(pair.key));
+      usedBytes += bytes;
+      budget.use(bytes);
+    }
+    numEntries = size;
+
+    if (maxOutRecordCount > 0 && size >= maxOutRecordCount) return true;
+
+    return (budget != null && budget.shouldSpill(usedBytes));
   }
 
   /**
@@ -104,6 +158,12 @@ public class SimpleFlushAction<K, V, A> extends FlushAction<K, V, A> {
 
       // zero out the map for the next batch
       data.getMap().clear();
+      numEntries = 0;
+
+      if (budget != null) {
+        budget.release(usedBytes);
+        usedBytes = 0L;
+      }
     }
     // else return true anyway so that file increments
 
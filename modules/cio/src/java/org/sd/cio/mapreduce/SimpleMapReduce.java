@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.util.Properties;
 
 import org.sd.io.DirectorySelector;
+import org.sd.util.MathUtil;
 
 /**
  * Simple base implementation of CombinedMapReduce.
@@ -40,6 +41,8 @@ public abstract class SimpleMapReduce<K extends Comparable<K>, V, A, R> extends
   private int maxReducePairs;
   private boolean skipMapper;
   private boolean skipReducer;
+  private int mapperThreads;
+  private long mapMemoryBudget;
 //   private Integer maxCoReduceFiles;
 
   /**
@@ -51,10 +54,13 @@ public abstract class SimpleMapReduce<K extends Comparable<K>, V, A, R> extends
    * <li>inDataDir -- (required) path to mapper output root directory (i.e. .../LDC2006T13.mapped.0)</li>
    * <li>mapOutDir -- (required) path to root directory for map output</li>
    * <li>reduceOutDir -- (required) path to root directory for reduce output</li>
-   * <li>maxMapPairs -- (required) maximum number of entries for collecting map terms</li>
+   * <li>maxMapPairs -- (required unless mapMemoryBudget) maximum number of entries for collecting map terms</li>
    * <li>maxReducePairs -- (required) maximum number of entries to write before rolling reduce output files</li>
    * <li>skipMapper -- (optional, default=false) true to skip running the mapper</li>
    * <li>skipReducer -- (optional, default=false) true to skip running the reducer</li>
+   * <li>mapperThreads -- (optional, default=1) number of threads with which to map input files</li>
+   * <li>mapMemoryBudget -- (optional, default=0[unbudgeted]) estimated bytes (e.g. "512M") of collected map
+   *                        terms to hold in memory before spilling to files</li>
    * </ul>
    */
 //    * <li>maxCoReduceFiles -- (optional, default=null[unlimited]) maximum number of files to co-iterate over
@@ -76,8 +82,11 @@ public abstract class SimpleMapReduce<K extends Comparable<K>, V, A, R> extends
     if (reduceOutDir == null || "".equals(reduceOutDir)) throw new IllegalArgumentException("Need 'reduceOutDir'!");
     this.reduceOutDir = new File(reduceOutDir);
 
+    this.mapMemoryBudget = MathUtil.parseBytes(properties.getProperty("mapMemoryBudget", "0"));
+    if (mapMemoryBudget < 0) throw new IllegalArgumentException("Bad 'mapMemoryBudget'!");
+
     this.maxMapPairs = Integer.parseInt(properties.getProperty("maxMapPairs", "0"));
-    if (maxMapPairs <= 0) throw new IllegalArgumentException("Need 'maxMapPairs'!");
+    if (maxMapPairs <= 0 && mapMemoryBudget == 0) throw new IllegalArgumentException("Need 'maxMapPairs'!");
 
     this.maxReducePairs = Integer.parseInt(properties.getProperty("maxReducePairs", "0"));
     if (maxReducePairs <= 0) throw new IllegalArgumentException("Need 'maxReducePairs'!");
@@ -85,6 +94,8 @@ public abstract class SimpleMapReduce<K extends Comparable<K>, V, A, R> extends
     this.skipMapper = "true".equalsIgnoreCase(properties.getProperty("skipMapper", "false"));
     this.skipReducer = "true".equalsIgnoreCase(properties.getProperty("skipReducer", "false"));
 
+    this.mapperThreads = Integer.parseInt(properties.getProperty("mapperThreads", "1"));
+
 //     final String maxCoReduceFiles = properties.getProperty("maxCoReduceFiles");
 //     this.maxCoReduceFiles = (maxCoReduceFiles == null) ? null : new Integer(maxCoReduceFiles);
   }
@@ -102,6 +113,14 @@ public abstract class SimpleMapReduce<K extends Comparable<K>, V, A, R> extends
     return mapOutDir;
   }
 
+  protected int getNumMapperThreads() {
+    return mapperThreads;
+  }
+
+  protected long getMapMemoryBudget() {
+    return mapMemoryBudget;
+  }
+
   protected DirectorySelector.Action selectInputDirectory(File dir) {
     DirectorySelector.Action result = DirectorySelector.Action.DESCEND;
         
@@ -0,0 +1,109 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.cio.mapreduce;
+
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * A size estimator using rough (64-bit JVM) object sizes for common key and
+ * value types held in a MapContainer's TreeMap.
+ * <p>
+ * Strings, boxed primitives, primitive arrays, and collections or maps of
+ * these are estimated from their contents; other objects are estimated as
+ * a fixed default size.
+ *
+ * @author Spence Koehler
+ */
+public class SimpleSizeEstimator<K, V> implements SizeEstimator<K, V> {
+  
+  public static final int TREE_ENTRY_BYTES = 40;    // TreeMap.Entry header, refs, color
+  public static final int OBJECT_HEADER_BYTES = 16;
+  public static final int DEFAULT_OBJECT_BYTES = 64;
+
+  private static final int MAX_SAMPLED_ELEMENTS = 16;
+
+  public SimpleSizeEstimator() {
+  }
+
+  public long estimateSize(K key, V value) {
+    return TREE_ENTRY_BYTES + estimateObjectSize(key) + estimateObjectSize(value);
+  }
+
+  /**
+   * Estimate the size of the given object.
+   */
+  protected long estimateObjectSize(Object object) {
+    long result = 0;
+
+    if (object == null) {
+      result = 0;
+    }
+    else if (object instanceof String) {
+      // String object plus its char array
+      result = 24 + OBJECT_HEADER_BYTES + 2 * ((String)object).length();
+    }
+    else if (object instanceof Number || object instanceof Boolean || object instanceof Character) {
+      result = (object instanceof Long || object instanceof Double) ? 24 : OBJECT_HEADER_BYTES;
+    }
+    else if (object instanceof byte[]) {
+      result = OBJECT_HEADER_BYTES + ((byte[])object).length;
+    }
+    else if (object instanceof char[]) {
+      result = OBJECT_HEADER_BYTES + 2 * ((char[])object).length;
+    }
+    else if (object instanceof int[]) {
+      result = OBJECT_HEADER_BYTES + 4 * ((int[])object).length;
+    }
+    else if (object instanceof long[]) {
+      result = OBJECT_HEADER_BYTES + 8 * ((long[])object).length;
+    }
+    else if (object instanceof Collection) {
+      result = estimateElements((Collection<?>)object, 8);
+    }
+    else if (object instanceof Map) {
+      final Map<?, ?> map = (Map<?, ?>)object;
+      result = estimateElements(map.keySet(), TREE_ENTRY_BYTES) + estimateElements(map.values(), 0);
+    }
+    else {
+      result = DEFAULT_OBJECT_BYTES;
+    }
+
+    return result;
+  }
+
+  /**
+   * Estimate the size of a collection's elements (from a sample of them),
+   * each with the given overhead.
+   */
+  private final long estimateElements(Collection<?> elements, int overhead) {
+    final int size = elements.size();
+    long sampledBytes = 0;
+    int numSampled = 0;
+
+    for (Object element : elements) {
+      sampledBytes += estimateObjectSize(element);
+      if (++numSampled == MAX_SAMPLED_ELEMENTS) break;
+    }
+
+    final long elementBytes = (numSampled == 0) ? 0 : (sampledBytes * size) / numSampled;
+    return OBJECT_HEADER_BYTES * 2 + (long)overhead * size + elementBytes;
+  }
+}
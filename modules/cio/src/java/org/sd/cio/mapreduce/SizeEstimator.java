@@ -0,0 +1,40 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.cio.mapreduce;
+
+
+/**
+ * Strategy for estimating the in-memory size of a key/value pair held by a
+ * flush action's container for memory budgeting.
+ * <p>
+ * @author Spence Koehler
+ */
+public interface SizeEstimator<K, V> {
+  
+  /**
+   * Estimate the number of bytes used to hold the key and value (including
+   * the container's per-entry overhead.)
+   * <p>
+   * Note that pairs are estimated when their key is first added, so
+   * estimators for values that grow in place (e.g. collections) should
+   * account for expected growth.
+   */
+  public long estimateSize(K key, V value);
+
+}
@@ -0,0 +1,215 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.cio.mapreduce;
+
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.sd.io.FileRecordIterator;
+import org.sd.io.FileUtil;
+import org.sd.io.MultiFileIterator;
+import org.sd.util.KVPair;
+
+/**
+ * JUnit Tests for the BinaryRecordFileStrategy class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestBinaryRecordFileStrategy extends TestCase {
+
+  private File dir;
+
+  public TestBinaryRecordFileStrategy(String name) {
+    super(name);
+  }
+  
+  protected void setUp() throws IOException {
+    this.dir = File.createTempFile("TestBinaryRecordFileStrategy", ".dir");
+    dir.delete();
+    dir.mkdirs();
+  }
+
+  protected void tearDown() {
+    FileUtil.deleteDir(dir);
+  }
+
+
+  private static final String key(int i) {
+    return String.format("key-%06d", i);
+  }
+
+  private final File writeFile(String name, WordCountStrategy strategy, int start, int num, int step) throws IOException {
+    final File file = new File(dir, name);
+    assertTrue(strategy.open(file));
+    for (int i = 0; i < num; ++i) {
+      final int k = start + i * step;
+      assertTrue(strategy.writeRecord(key(k), k));
+    }
+    strategy.close();
+    return file;
+  }
+
+  private final void verifyRoundTrip(int blockSize, boolean compress, int num) throws IOException {
+    final WordCountStrategy strategy = new WordCountStrategy(blockSize, compress);
+    final File file = writeFile("run-" + blockSize + "-" + compress + "-" + num, strategy, 0, num, 1);
+
+    final FileRecordIterator<KVPair<String, Integer>> iter = strategy.buildRecordIterator(file);
+    int count = 0;
+    while (iter.hasNext()) {
+      final KVPair<String, Integer> pair = iter.next();
+      assertEquals(key(count), pair.key);
+      assertEquals(count, pair.value.intValue());
+      ++count;
+    }
+    iter.close();
+    assertEquals(num, count);
+
+    final BinaryRecordFile.Reader reader = new BinaryRecordFile.Reader(file);
+    assertEquals(num, reader.getNumRecords());
+    reader.close();
+  }
+
+  public void testRoundTrip() throws IOException {
+    verifyRoundTrip(BinaryRecordFile.DEFAULT_BLOCK_SIZE, false, 1000);
+    verifyRoundTrip(BinaryRecordFile.DEFAULT_BLOCK_SIZE, true, 1000);
+    verifyRoundTrip(100, false, 1000);
+    verifyRoundTrip(100, true, 1000);
+    verifyRoundTrip(100, true, 0);
+  }
+
+  public void testCorruptBlock() throws IOException {
+    final File file = writeFile("corrupt", new WordCountStrategy(64 * 1024, true), 0, 1000, 1);
+
+    // halve the first block's stored length (after the header and raw length)
+    final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    raf.seek(10);
+    final int storedLength = raf.readInt();
+    raf.seek(10);
+    raf.writeInt(storedLength / 2);
+    raf.close();
+
+    final BinaryRecordFile.Reader reader = new BinaryRecordFile.Reader(file);
+    try {
+      reader.next();
+      fail("expected a corrupt block");
+    }
+    catch (IOException e) {
+      assertTrue(e.getMessage(), e.getMessage().startsWith("Corrupt block 0"));
+    }
+    finally {
+      reader.close();
+    }
+  }
+
+  public void testPrefixCompression() throws IOException {
+    final File plain = writeFile("plain", new WordCountStrategy(64 * 1024, false), 0, 1000, 1);
+
+    // 1000 11-byte keys and 4-byte values without sharing would be at least 15000 bytes
+    assertTrue("length=" + plain.length(), plain.length() < 10000);
+  }
+
+  public void testSeek() throws IOException {
+    final File file = writeFile("evens", new WordCountStrategy(128, true), 0, 500, 2);
+    final BinaryRecordFile.Reader reader = new BinaryRecordFile.Reader(file);
+    assertTrue(reader.getNumBlocks() > 10);
+
+    // exact hit mid-file
+    reader.seek(key(500).getBytes("UTF-8"));
+    assertTrue(reader.next());
+    assertEquals(key(500), new String(reader.getKey(), "UTF-8"));
+    assertTrue(reader.next());
+    assertEquals(key(502), new String(reader.getKey(), "UTF-8"));
+
+    // between keys
+    for (int i = 1; i < 997; i += 2) {
+      reader.seek(key(i).getBytes("UTF-8"));
+      assertTrue(reader.next());
+      assertEquals(key(i + 1), new String(reader.getKey(), "UTF-8"));
+    }
+
+    // before the first key
+    reader.seek("a".getBytes("UTF-8"));
+    assertTrue(reader.next());
+    assertEquals(key(0), new String(reader.getKey(), "UTF-8"));
+
+    // past the last key
+    reader.seek(key(999).getBytes("UTF-8"));
+    assertFalse(reader.next());
+
+    reader.close();
+  }
+
+  public void testMerge() throws IOException {
+    final WordCountStrategy strategy = new WordCountStrategy(256, true);
+    final List<File> files = new ArrayList<File>();
+    for (int i = 0; i < 7; ++i) {
+      files.add(writeFile("part-" + i, strategy, i, 100, 7));
+    }
+
+    final Comparator<KVPair<String, Integer>> comparer = new Comparator<KVPair<String, Integer>>() {
+      public int compare(KVPair<String, Integer> p1, KVPair<String, Integer> p2) {
+        return p1.key.compareTo(p2.key);
+      }
+    };
+
+    // merge with at most 3 open files to exercise intermediate binary runs
+    final MultiFileIterator<KVPair<String, Integer>> iter =
+      new MultiFileIterator<KVPair<String, Integer>>(files.toArray(new File[files.size()]), comparer, 3) {
+        protected FileRecordIterator<KVPair<String, Integer>> buildRecordIterator(File file) throws IOException {
+          return strategy.buildRecordIterator(file);
+        }
+        protected org.sd.io.FileRecordWriter<KVPair<String, Integer>> buildRecordWriter(File file) throws IOException {
+          return strategy.buildRecordWriter(file);
+        }
+        protected File createRunFile() throws IOException {
+          return File.createTempFile("run", ".bin", dir);
+        }
+      };
+
+    int count = 0;
+    while (iter.hasNext()) {
+      final List<KVPair<String, Integer>> pairs = iter.next();
+      for (KVPair<String, Integer> pair : pairs) {
+        assertEquals(key(count), pair.key);
+        ++count;
+      }
+    }
+    iter.close();
+    assertEquals(700, count);
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestBinaryRecordFileStrategy.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,282 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.cio.mapreduce;
+
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.sd.io.FileLineIterator;
+import org.sd.io.FileRecordIterator;
+import org.sd.io.FileUtil;
+import org.sd.util.KVPair;
+
+/**
+ * JUnit Tests for the CombinedMapReduce class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestCombinedMapReduce extends TestCase {
+
+  private static final String ACTION_KEY = "words";
+
+  private File dir;
+
+  public TestCombinedMapReduce(String name) {
+    super(name);
+  }
+  
+  protected void setUp() throws IOException {
+    this.dir = File.createTempFile("TestCombinedMapReduce", ".dir");
+    dir.delete();
+    dir.mkdirs();
+  }
+
+  protected void tearDown() {
+    FileUtil.deleteDir(dir);
+  }
+
+  /**
+   * Word counter over text files.
+   */
+  private static final class WordCounter extends SimpleMapReduce<String, Integer, String, String> {
+
+    private boolean useCombiner;
+    private boolean binary;
+
+    WordCounter(Properties properties, boolean useCombiner, boolean binary) {
+      super(properties);
+      this.useCombiner = useCombiner;
+      this.binary = binary;
+    }
+
+    protected boolean selectInputFile(File file) {
+      return file.getName().endsWith(".txt");
+    }
+
+    protected FileRecordIterator<String> buildInputFileRecordIterator(File file) throws IOException {
+      return new FileLineIterator(file);
+    }
+
+    protected List<MapperPair<String, Integer, String>> transformInputRecord(String line) {
+      final List<MapperPair<String, Integer, String>> result = new ArrayList<MapperPair<String, Integer, String>>();
+      for (String word : line.split("\\s+")) {
+        if (!"".equals(word)) result.add(buildPair(word, 1));
+      }
+      return result;
+    }
+
+    protected void map(MapperPair<String, Integer, String> mapperPair) {
+      if (useCombiner) {
+        combine(mapperPair);
+        return;
+      }
+
+      final Map<String, Integer> counts = getActionMap(mapperPair.getActionKey());
+      final Integer count = counts.get(mapperPair.key);
+      counts.put(mapperPair.key, (count == null) ? mapperPair.value : count + mapperPair.value);
+    }
+
+    protected Combiner<String, Integer> buildCombiner() {
+      return new Combiner<String, Integer>() {
+        public Integer combine(String key, Integer existingValue, Integer value) {
+          return existingValue + value;
+        }
+      };
+    }
+
+    protected MapperPair<String, Integer, String> merge(List<KVPair<String, Integer>> pairs, String actionKey) {
+      int count = 0;
+      for (KVPair<String, Integer> pair : pairs) count += pair.value;
+      return buildPair(pairs.get(0).key, count);
+    }
+
+    protected String extractActionKey(File file) {
+      return file.getName().startsWith(ACTION_KEY + "-") ? ACTION_KEY : null;
+    }
+
+    protected String generateOutputFilePrefix(String actionKey) {
+      return actionKey;
+    }
+
+    protected SimpleTextRecordFileStrategy<String, Integer> buildSimpleTextRecordFileStrategy() {
+      return new SimpleTextRecordFileStrategy<String, Integer>() {
+        protected String stringToKey(String keyString) {
+          return keyString;
+        }
+        protected Integer stringToValue(String valueString) {
+          return new Integer(valueString);
+        }
+      };
+    }
+
+    protected RecordFileStrategy<String, Integer> buildRecordFileStrategy() {
+      return binary ? new WordCountStrategy() : super.buildRecordFileStrategy();
+    }
+
+    private final MapperPair<String, Integer, String> buildPair(String word, int count) {
+      return new MapperPair<String, Integer, String>(word, count) {
+        public String getActionKey() {
+          return ACTION_KEY;
+        }
+      };
+    }
+  }
+
+  /**
+   * Write input files, recording expected word counts.
+   */
+  private final Map<String, Integer> writeInput(File inDir, int numFiles) throws IOException {
+    final Map<String, Integer> result = new HashMap<String, Integer>();
+
+    for (int i = 0; i < numFiles; ++i) {
+      final BufferedWriter writer = FileUtil.getWriter(new File(inDir, "input-" + i + ".txt"));
+      for (int j = 0; j < 50; ++j) {
+        final StringBuilder line = new StringBuilder();
+        for (int k = 0; k < 5; ++k) {
+          final String word = "w" + ((i * 7 + j * 3 + k * 11) % 97);
+          line.append(word).append(' ');
+          final Integer count = result.get(word);
+          result.put(word, (count == null) ? 1 : count + 1);
+        }
+        writer.write(line.toString());
+        writer.newLine();
+      }
+      writer.close();
+    }
+
+    return result;
+  }
+
+  private final void readOutput(File file, Map<String, Integer> counts, boolean binary) throws IOException {
+    if (file.isDirectory()) {
+      for (File child : file.listFiles()) readOutput(child, counts, binary);
+    }
+    else if (binary) {
+      final FileRecordIterator<KVPair<String, Integer>> iter = new WordCountStrategy().buildRecordIterator(file);
+      while (iter.hasNext()) {
+        final KVPair<String, Integer> pair = iter.next();
+        assertNull("duplicate reduced word '" + pair.key + "'", counts.get(pair.key));
+        counts.put(pair.key, pair.value);
+      }
+      iter.close();
+    }
+    else {
+      final BufferedReader reader = FileUtil.getReader(file);
+      String line;
+      while ((line = reader.readLine()) != null) {
+        final int delimPos = line.indexOf('|');
+        final String word = line.substring(0, delimPos);
+        assertNull("duplicate reduced word '" + word + "'", counts.get(word));
+        counts.put(word, new Integer(line.substring(delimPos + 1)));
+      }
+      reader.close();
+    }
+  }
+
+  private final File doWordCountTest(int mapperThreads) throws IOException {
+    return doWordCountTest(mapperThreads, "20", null, false, false);
+  }
+
+  /**
+   * Run a word count, verifying its reduced output.
+   *
+   * @return the map output directory.
+   */
+  private final File doWordCountTest(int mapperThreads, String maxMapPairs, String mapMemoryBudget, boolean useCombiner, boolean binary) throws IOException {
+    final String name = mapperThreads + "-" + maxMapPairs + "-" + mapMemoryBudget + "-" + useCombiner + "-" + binary;
+    final File inDir = new File(dir, "in-" + name);
+    inDir.mkdirs();
+    final Map<String, Integer> expected = writeInput(inDir, 12);
+
+    final File mapOutDir = new File(dir, "map-" + name);
+    final File reduceOutDir = new File(dir, "reduce-" + name);
+
+    final Properties properties = new Properties();
+    properties.setProperty("verbose", "false");
+    properties.setProperty("inDataDir", inDir.getAbsolutePath());
+    properties.setProperty("mapOutDir", mapOutDir.getAbsolutePath());
+    properties.setProperty("reduceOutDir", reduceOutDir.getAbsolutePath());
+    properties.setProperty("maxMapPairs", maxMapPairs);
+    if (mapMemoryBudget != null) properties.setProperty("mapMemoryBudget", mapMemoryBudget);
+    properties.setProperty("maxReducePairs", "1000");
+    properties.setProperty("mapperThreads", Integer.toString(mapperThreads));
+
+    new WordCounter(properties, useCombiner, binary).run();
+
+    final Map<String, Integer> counts = new HashMap<String, Integer>();
+    readOutput(reduceOutDir, counts, binary);
+
+    assertEquals(expected, counts);
+
+    return mapOutDir;
+  }
+
+  public void testSingleThreadedMapper() throws IOException {
+    doWordCountTest(1);
+  }
+
+  public void testParallelMapper() throws IOException {
+    doWordCountTest(4);
+  }
+
+  public void testMemoryBudgetedSpills() throws IOException {
+    // without a record limit, 97 distinct words fit in one spill per file
+    assertEquals(1, new File(doWordCountTest(1, "0", "1M", true, false), ACTION_KEY).list().length);
+
+    // but a small budget forces spills
+    final int numSpills = new File(doWordCountTest(1, "0", "2K", true, false), ACTION_KEY).list().length;
+    assertTrue("numSpills=" + numSpills, numSpills > 1);
+
+    doWordCountTest(4, "0", "2K", false, false);
+  }
+
+  public void testMemoryBudgetedBinarySpills() throws IOException {
+    final int numSpills = new File(doWordCountTest(1, "0", "2K", true, true), ACTION_KEY).list().length;
+    assertTrue("numSpills=" + numSpills, numSpills > 1);
+
+    doWordCountTest(4, "0", "2K", false, true);
+  }
+
+  public void testBinaryRecordFiles() throws IOException {
+    doWordCountTest(1, "20", null, false, true);
+    doWordCountTest(4, "20", null, false, true);
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestCombinedMapReduce.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
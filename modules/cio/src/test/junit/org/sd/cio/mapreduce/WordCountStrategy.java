@@ -0,0 +1,65 @@
+/*
+    Copyright 2011 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.cio.mapreduce;
+
+
+/**
+ * Binary record file strategy for (UTF-8 word, int count) records for
+ * package testing.
+ * <p>
+ * @author Spence Koehler
+ */
+public class WordCountStrategy extends BinaryRecordFileStrategy<String, Integer> {
+
+  public WordCountStrategy() {
+    super();
+  }
+
+  public WordCountStrategy(int blockSize, boolean compress) {
+    super(blockSize, compress);
+  }
+
+  protected byte[] keyToBytes(String key) {
+    try {
+      return key.getBytes("UTF-8");
+    }
+    catch (java.io.UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  protected String bytesToKey(byte[] bytes, int offset, int length) {
+    try {
+      return new String(bytes, offset, length, "UTF-8");
+    }
+    catch (java.io.UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  protected byte[] valueToBytes(Integer value) {
+    final int v = value;
+    return new byte[]{(byte)(v >>> 24), (byte)(v >>> 16), (byte)(v >>> 8), (byte)v};
+  }
+
+  protected Integer bytesToValue(byte[] bytes, int offset, int length) {
+    return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16) |
+      ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+  }
+}
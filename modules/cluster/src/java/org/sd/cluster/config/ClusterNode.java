@@ -23,6 +23,7 @@ import org.sd.cluster.io.NodeClient;
 import org.sd.cluster.io.NodeServer;
 import org.sd.cluster.io.SafeDepositBox;
 import org.sd.cluster.job.JobManager;
+import org.sd.cluster.protolog.FileEventLogger;
 import org.sd.cluster.util.LogManager;
 import org.sd.util.ExecUtil;
 import org.sd.util.PropertiesParser;
@@ -133,7 +134,8 @@ public class ClusterNode implements ClusterContext {
                                    new InetSocketAddress(localhost,
                                                          config.getServerPort()),
                                    numberOfParents,
-                                   numMessageHandlerThreads);
+                                   numMessageHandlerThreads,
+                                   ConfigUtil.getServerTransport());
     final String clientName = (identifier == null) ? config.getName() : config.getName() + "-" + identifier;
     this.client = new NodeClient(clientName, localhost, numberOfChildren);
     this.mbs = null;
@@ -284,6 +286,17 @@ public class ClusterNode implements ClusterContext {
     return safeDepositBox;
   }
 
+  /**
+   * Register the event logger's MXBean (queued, dropped, flushed, and sync
+   * counts) alongside this node's other MXBeans.
+   *
+   * @return true if registered; otherwise, false (e.g. if there is no
+   *         MBeanServer.)
+   */
+  public boolean registerEventLogger(FileEventLogger eventLogger) {
+    return (mbs != null) && eventLogger.registerMBean(mbs);
+  }
+
   public NodeClient getNodeClient() {
     return client;
   }
@@ -388,6 +401,8 @@ public class ClusterNode implements ClusterContext {
     //   single -- (optional, default="false", values={"true", "false"}) If "true"
     //             then a single-node cluster definition is generated on the fly)
     //   heapSize -- (optional) recommended size (in M) for java heap.
+    //   transport -- (optional, default="socket", values={"socket", "nio"}) node server
+    //                transport; "nio" services connections from a single selector thread.
 
     // ensure out/err logs are initialized
     System.out.print("");
@@ -422,6 +437,12 @@ public class ClusterNode implements ClusterContext {
       }
     }
 
+    // transport
+    final String transport = properties.getProperty("transport");
+    if (transport != null) {
+      ConfigUtil.setServerTransport(transport);
+    }
+
     // single
     final boolean single = "true".equalsIgnoreCase(properties.getProperty("single", "false"));
 
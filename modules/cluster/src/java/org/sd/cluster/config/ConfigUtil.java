@@ -19,6 +19,7 @@
 package org.sd.cluster.config;
 
 
+import org.sd.cluster.io.NodeServer;
 import org.sd.io.FileUtil;
 import org.sd.util.ExecUtil;
 
@@ -55,6 +56,7 @@ public class ConfigUtil {
 
   private static String clusterRootDir = ExecUtil.getUserHome() + "/" + CLUSTER_DIR_NAME + "/";
   private static int[] portOverride = null;
+  private static NodeServer.Transport serverTransport = NodeServer.Transport.SOCKET;
 
   /**
    * Get the active cluster name if possible.
@@ -206,6 +208,38 @@ public class ConfigUtil {
     return portOverride;
   }
 
+  /**
+   * Set the node server transport from its (case-insensitive) name, "socket"
+   * or "nio".
+   * <p>
+   * Unrecognized names are reported and fall back to SOCKET.
+   */
+  public static void setServerTransport(String transportString) {
+    if (transportString != null && !"".equals(transportString)) {
+      NodeServer.Transport transport = NodeServer.Transport.SOCKET;
+      try {
+        transport = NodeServer.Transport.valueOf(transportString.trim().toUpperCase());
+      }
+      catch (IllegalArgumentException e) {
+        System.err.println("ConfigUtil.setServerTransport: unrecognized transport '" + transportString +
+                           "'. Using " + transport + ".");
+      }
+      if (transport != serverTransport) {
+        System.out.println("ConfigUtil.setServerTransport(" + transport + ")");
+        serverTransport = transport;
+      }
+    }
+  }
+
+  /**
+   * Get the node server transport.
+   * <p>
+   * Note that this will be SOCKET unless otherwise set.
+   */
+  public static NodeServer.Transport getServerTransport() {
+    return serverTransport;
+  }
+
   /**
    * Get the port range for the user.
    * <p>
@@ -35,6 +35,10 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * Client socket handler.
  * <p>
  * Used by a NodeClient to connect to a socket, send a message and receive a response.
+ * <p>
+ * When given a connection pool, the message is sent over a pooled (multiplexed)
+ * connection whose reader delivers the response, falling back to a single
+ * message socket for servers that don't accept multiplexed connections.
  *
  * @author Spence Koehler
  */
@@ -45,6 +49,7 @@ class ClientSocketHandler implements Runnable {
   private int checkInterval;
   private LinkedBlockingQueue<Message> responses;
   private int timeLimit;
+  private ConnectionPool connectionPool;
 
   private Socket socket;
   private IOException ioe;
@@ -53,11 +58,16 @@ class ClientSocketHandler implements Runnable {
   private final AtomicBoolean isRunning = new AtomicBoolean(true);
 
   ClientSocketHandler(InetSocketAddress serverAddress, Message message, int checkInterval, LinkedBlockingQueue<Message> responses, int timeLimit) {
+    this(serverAddress, message, checkInterval, responses, timeLimit, null);
+  }
+
+  ClientSocketHandler(InetSocketAddress serverAddress, Message message, int checkInterval, LinkedBlockingQueue<Message> responses, int timeLimit, ConnectionPool connectionPool) {
     this.serverAddress = serverAddress;
     this.message = message;
     this.checkInterval = checkInterval;
     this.responses = responses;
     this.timeLimit = timeLimit;
+    this.connectionPool = connectionPool;
 
     this.socket = null;
     this.ioe = null;
@@ -69,7 +79,9 @@ class ClientSocketHandler implements Runnable {
     SocketIO socketIO = null;
 
     try {
-      socket = connect(checkInterval);
+      final boolean sent = (connectionPool != null) && sendPooled(checkInterval);
+
+      if (!sent) socket = connect(checkInterval);
 
       if (socket != null) {
         // send the message and receive the response
@@ -124,6 +136,55 @@ class ClientSocketHandler implements Runnable {
     return isRunning.get();
   }
 
+  /**
+   * Send the message over a pooled connection, whose reader will deliver the
+   * response.
+   *
+   * @return true if sent or false if the server requires a single message
+   *         socket.
+   */
+  private boolean sendPooled(int checkInterval) throws IOException {
+    boolean result = false;
+
+    // retry once with a fresh connection if a pooled connection was dropped
+    for (int tryNum = 0; tryNum < 2 && !result; ++tryNum) {
+      final MuxConnection connection = connectPooled(checkInterval);
+      if (connection == null) break;
+
+      try {
+        result = connection.send(message, responses, timeLimit);
+      }
+      catch (IOException e) {
+        if (tryNum > 0) throw e;
+      }
+    }
+
+    return result;
+  }
+
+  private MuxConnection connectPooled(int checkInterval) throws IOException {
+    MuxConnection result = null;
+
+    ConnectException ce = null;
+    final long expiration = System.currentTimeMillis() + timeLimit;
+
+    while (isRunning.get() && System.currentTimeMillis() < expiration) {
+      try {
+        result = connectionPool.getConnection(serverAddress, timeLimit);
+        ce = null;
+        break;
+      }
+      catch (ConnectException e) {
+        ce = e;
+        if (!waitToRetry(checkInterval)) break;
+      }
+    }
+
+    if (ce != null) throw ce;
+
+    return result;
+  }
+
   /**
    * Connect a socket to this port address.
    */
@@ -166,15 +227,7 @@ class ClientSocketHandler implements Runnable {
         ce = e;
 
         // wait and try again
-        synchronized (this) {
-          try {
-            wait(checkInterval);
-          }
-          catch (InterruptedException ie) {
-            // done waiting and done trying
-            break;
-          }
-        }
+        if (!waitToRetry(checkInterval)) break;
       }
     }
 
@@ -188,6 +241,26 @@ class ClientSocketHandler implements Runnable {
     return result;
   }
 
+  /**
+   * Wait checkInterval millis before trying to connect again.
+   *
+   * @return false if interrupted (done waiting and done trying).
+   */
+  private boolean waitToRetry(int checkInterval) {
+    boolean result = true;
+
+    synchronized (this) {
+      try {
+        wait(checkInterval);
+      }
+      catch (InterruptedException ie) {
+        result = false;
+      }
+    }
+
+    return result;
+  }
+
   /**
    * Shutdown this server.
    */
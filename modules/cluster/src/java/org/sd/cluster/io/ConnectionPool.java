@@ -0,0 +1,165 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.cluster.io;
+
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Pool of long-lived multiplexed connections to peer servers.
+ * <p>
+ * Up to connectionsPerPeer connections are kept open to each peer and
+ * requests are spread across them round-robin. Peers that don't accept
+ * multiplexed connections are remembered for LEGACY_RETRY_MILLIS so that
+ * messages to them can go through single message sockets without re-trying
+ * the handshake until then.
+ *
+ * @author Spence Koehler
+ */
+class ConnectionPool {
+  
+  /**
+   * Time after which a peer found not to accept multiplexed connections is
+   * asked again (e.g. in case it has since been upgraded).
+   */
+  public static final long LEGACY_RETRY_MILLIS = 5 * 60 * 1000L;
+
+  private String name;
+  private int connectionsPerPeer;
+  private ConcurrentHashMap<InetSocketAddress, AtomicReferenceArray<MuxConnection>> peer2connections;
+  private ConcurrentHashMap<InetSocketAddress, Long> legacyPeers;  // peer -> retry time
+
+  private final AtomicInteger nextSlot = new AtomicInteger(0);
+  private final AtomicBoolean isOpen = new AtomicBoolean(true);
+
+  /**
+   * Construct a connection pool.
+   *
+   * @param name                A name identifying the pool's client.
+   * @param connectionsPerPeer  Maximum number of connections to keep open to
+   *                            each peer (at least 1).
+   */
+  ConnectionPool(String name, int connectionsPerPeer) {
+    this.name = name;
+    this.connectionsPerPeer = Math.max(1, connectionsPerPeer);
+    this.peer2connections = new ConcurrentHashMap<InetSocketAddress, AtomicReferenceArray<MuxConnection>>();
+    this.legacyPeers = new ConcurrentHashMap<InetSocketAddress, Long>();
+  }
+
+  public int getConnectionsPerPeer() {
+    return connectionsPerPeer;
+  }
+
+  /**
+   * Get an open connection to the server, opening a new connection if
+   * necessary.
+   *
+   * @param serverAddress  The server's address.
+   * @param timeLimit      The maximum number of millis to wait for a new
+   *                       connection to open.
+   *
+   * @return an open connection or null if the pool is closed or the server
+   *         doesn't accept multiplexed connections.
+   *
+   * @throws IOException (including ConnectException) if unable to connect.
+   */
+  public MuxConnection getConnection(InetSocketAddress serverAddress, int timeLimit) throws IOException {
+    if (!isOpen.get() || isLegacy(serverAddress)) return null;
+
+    AtomicReferenceArray<MuxConnection> connections = peer2connections.get(serverAddress);
+    if (connections == null) {
+      connections = new AtomicReferenceArray<MuxConnection>(connectionsPerPeer);
+      final AtomicReferenceArray<MuxConnection> existing = peer2connections.putIfAbsent(serverAddress, connections);
+      if (existing != null) connections = existing;
+    }
+
+    final int slot = (nextSlot.getAndIncrement() & 0x7FFFFFFF) % connections.length();
+    MuxConnection result = connections.get(slot);
+    if (result != null && result.isOpen()) return result;
+
+    // open outside of any lock so that a slow handshake doesn't block senders
+    final MuxConnection opened = MuxConnection.open(serverAddress, timeLimit, name);
+    if (opened == null) {
+      legacyPeers.put(serverAddress, System.currentTimeMillis() + LEGACY_RETRY_MILLIS);
+      return null;
+    }
+
+    while (true) {
+      final MuxConnection current = connections.get(slot);
+      if (current != null && current.isOpen()) {
+        // another sender filled the slot first
+        opened.close();
+        result = current;
+        break;
+      }
+      if (connections.compareAndSet(slot, current, opened)) {
+        result = opened;
+        break;
+      }
+    }
+
+    if (!isOpen.get()) {
+      // closed while opening
+      connections.compareAndSet(slot, result, null);
+      result.close();
+      result = null;
+    }
+
+    return result;
+  }
+
+  /**
+   * Determine whether the server is currently marked as not accepting
+   * multiplexed connections, clearing an expired mark.
+   */
+  private boolean isLegacy(InetSocketAddress serverAddress) {
+    boolean result = false;
+
+    final Long retryTime = legacyPeers.get(serverAddress);
+    if (retryTime != null) {
+      if (System.currentTimeMillis() < retryTime) {
+        result = true;
+      }
+      else {
+        legacyPeers.remove(serverAddress, retryTime);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Close all of this pool's connections.
+   */
+  public void close() {
+    isOpen.set(false);
+
+    for (AtomicReferenceArray<MuxConnection> connections : peer2connections.values()) {
+      for (int i = 0; i < connections.length(); ++i) {
+        final MuxConnection connection = connections.getAndSet(i, null);
+        if (connection != null) connection.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,363 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.cluster.io;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A long-lived client connection to a NodeServer over which many messages
+ * can be in flight at once.
+ * <p>
+ * The connection opens with a handshake of the MUX_MAGIC byte, MUX_SIGNATURE
+ * int and MUX_VERSION int, answered by the server's MUX_MAGIC byte and
+ * MUX_VERSION int. Thereafter, each
+ * request is framed as its (long) request id, the (int) length of its
+ * serialized message and the message bytes. Each response is framed the same
+ * way with its request's id. The length lets receivers wait for a whole frame
+ * before deserializing its message. Responses may arrive in any order and
+ * are matched to their requests by id.
+ * <p>
+ * Messages may not exceed MAX_FRAME_SIZE bytes. Senders refuse to frame a
+ * larger message and receivers close the connection on a larger frame length
+ * rather than allocate for it.
+ * <p>
+ * Legacy (single message per socket) servers read the handshake as a
+ * publishable with an over-long class name and close the connection without
+ * replying, in which case the connection can't be opened.
+ *
+ * @author Spence Koehler
+ */
+class MuxConnection extends Thread {
+
+  /**
+   * Byte identifying a multiplexed connection. Legacy connections start with
+   * a publishable's boolean (0 or 1) byte.
+   */
+  static final int MUX_MAGIC = 0xA5;
+
+  /**
+   * Version of the multiplexed framing protocol.
+   */
+  static final int MUX_VERSION = 2;
+
+  /**
+   * Handshake signature, which exceeds MessageHelper.MAX_CLASSPATH_LEN so
+   * that legacy servers immediately reject the handshake.
+   */
+  static final int MUX_SIGNATURE = 0x4D555821;  // "MUX!"
+
+  /**
+   * Size of a frame's header: the (long) request id and (int) message length.
+   */
+  static final int FRAME_HEADER_SIZE = 12;
+
+  /**
+   * Maximum size of a frame's (serialized) message.
+   */
+  static final int MAX_FRAME_SIZE = 64 * 1024 * 1024;
+
+  /**
+   * Minimum time (in millis) between sweeps for expired requests.
+   */
+  private static final long SWEEP_INTERVAL = 1000;
+
+
+  private InetSocketAddress serverAddress;
+  private Socket socket;
+  private SocketIO socketIO;
+  private DataOutputStream dataOutput;
+  private DataInputStream dataInput;
+  private Map<Long, PendingRequest> pendingRequests;
+  private volatile long nextSweepTime;
+
+  private final Object writeMutex = new Object();
+  private final AtomicBoolean isOpen = new AtomicBoolean(true);
+  private final AtomicLong nextRequestId = new AtomicLong(0L);
+
+  /**
+   * Open a multiplexed connection to the server.
+   *
+   * @param serverAddress  The server's address.
+   * @param timeLimit      The maximum number of millis to wait to connect
+   *                       and to complete the handshake.
+   * @param name           Name of the client opening the connection.
+   *
+   * @return the open connection or null if the server does not accept
+   *         multiplexed connections, as when it closes the connection
+   *         without replying to the handshake or replies with other than our
+   *         handshake.
+   *
+   * @throws IOException (including ConnectException) if unable to connect
+   *         or if the handshake fails (e.g. is reset or times out), which
+   *         doesn't indicate whether the server accepts multiplexed
+   *         connections.
+   */
+  static MuxConnection open(InetSocketAddress serverAddress, int timeLimit, String name) throws IOException {
+    MuxConnection result = null;
+
+    final Socket socket = new Socket();
+    socket.bind(null);
+    socket.connect(serverAddress, timeLimit);
+    socket.setTcpNoDelay(true);
+
+    final SocketIO socketIO = new SocketIO(socket);
+    boolean multiplexed = false;
+
+    try {
+      final DataOutputStream dataOut = socketIO.getDataOutput();
+      final DataInputStream dataIn = socketIO.getDataInput();
+
+      if (dataOut != null && dataIn != null) {
+        dataOut.writeByte(MUX_MAGIC);
+        dataOut.writeInt(MUX_SIGNATURE);
+        dataOut.writeInt(MUX_VERSION);
+        dataOut.flush();
+
+        socket.setSoTimeout(timeLimit);
+        // a clean close (-1) without a reply is a legacy server's rejection
+        multiplexed = (dataIn.read() == MUX_MAGIC && dataIn.readInt() == MUX_VERSION);
+        socket.setSoTimeout(0);
+
+        if (multiplexed) {
+          result = new MuxConnection(name, serverAddress, socket, socketIO, dataOut, dataIn);
+          result.start();
+        }
+      }
+    }
+    catch (IOException e) {
+      // timed out, reset, or cut off mid-reply; don't mistake it for a legacy server.
+      closeQuietly(socket, socketIO);
+      throw e;
+    }
+
+    if (!multiplexed) {
+      closeQuietly(socket, socketIO);
+    }
+
+    return result;
+  }
+
+  private MuxConnection(String name, InetSocketAddress serverAddress, Socket socket, SocketIO socketIO,
+                        DataOutputStream dataOutput, DataInputStream dataInput) {
+    super(name + "-MuxConnection-" + serverAddress);
+    setDaemon(true);
+
+    this.serverAddress = serverAddress;
+    this.socket = socket;
+    this.socketIO = socketIO;
+    this.dataOutput = dataOutput;
+    this.dataInput = dataInput;
+    this.pendingRequests = new ConcurrentHashMap<Long, PendingRequest>();
+    this.nextSweepTime = System.currentTimeMillis() + SWEEP_INTERVAL;
+  }
+
+  /**
+   * Determine whether this connection is open.
+   */
+  public boolean isOpen() {
+    return isOpen.get();
+  }
+
+  /**
+   * Get the number of requests awaiting responses.
+   */
+  public int getNumPendingRequests() {
+    return pendingRequests.size();
+  }
+
+  /**
+   * Send the message over this connection, adding its response to the
+   * responses queue when it arrives.
+   * <p>
+   * If no response arrives within the time limit, the request is abandoned.
+   *
+   * @return true if the message was sent or false if the connection was
+   *         already closed.
+   *
+   * @throws IOException if the message could not be sent, in which case
+   *         this connection is closed, unless the message was too large to
+   *         frame.
+   */
+  public boolean send(Message message, LinkedBlockingQueue<Message> responses, int timeLimit) throws IOException {
+    if (!isOpen.get()) return false;
+
+    // serialize first so that an unframeable message leaves the connection open
+    final byte[] messageBytes = serialize(message);
+
+    final long requestId = nextRequestId.getAndIncrement();
+    pendingRequests.put(requestId, new PendingRequest(responses, System.currentTimeMillis() + timeLimit));
+
+    try {
+      synchronized (writeMutex) {
+        writeFrame(dataOutput, requestId, messageBytes);
+        dataOutput.flush();
+      }
+    }
+    catch (IOException e) {
+      pendingRequests.remove(requestId);
+      close();
+      throw e;
+    }
+
+    sweepExpiredRequests();
+
+    return true;
+  }
+
+  /**
+   * Close this connection, abandoning any pending requests.
+   */
+  public void close() {
+    if (isOpen.compareAndSet(true, false)) {
+      closeQuietly(socket, socketIO);
+      pendingRequests.clear();
+    }
+  }
+
+  /**
+   * Receive responses until the connection closes.
+   */
+  public void run() {
+    try {
+      while (isOpen.get()) {
+        final long requestId = dataInput.readLong();
+        final Message response = deserialize(readFrameBytes(dataInput));
+
+        final PendingRequest pendingRequest = pendingRequests.remove(requestId);
+        if (pendingRequest != null) {
+          pendingRequest.responses.add(response == null ? new NullMessage() : response);
+        }
+      }
+    }
+    catch (EOFException e) {
+      // server closed the connection
+    }
+    catch (Exception e) {
+      if (isOpen.get()) {
+        System.err.println(new Date() + ": NOTE : MuxConnection dropped by server=" + serverAddress + " (" + e + ")");
+      }
+    }
+    finally {
+      close();
+    }
+  }
+
+  /**
+   * Serialize the message for framing.
+   *
+   * @throws IOException if the serialized message exceeds MAX_FRAME_SIZE.
+   */
+  static final byte[] serialize(Message message) throws IOException {
+    final ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+    final DataOutputStream dataOut = new DataOutputStream(bytesOut);
+    Messenger.sendMessage(message, dataOut);
+    dataOut.close();
+    if (bytesOut.size() > MAX_FRAME_SIZE) {
+      throw new IOException("Message of " + bytesOut.size() + " bytes exceeds max frame size " + MAX_FRAME_SIZE);
+    }
+    return bytesOut.toByteArray();
+  }
+
+  /**
+   * Deserialize a (whole) framed message.
+   *
+   * @return the message, or null if it is not a valid message.
+   */
+  static final Message deserialize(byte[] messageBytes) throws IOException {
+    return Messenger.receiveMessage(new DataInputStream(new ByteArrayInputStream(messageBytes)));
+  }
+
+  /**
+   * Write a frame with the request id and serialized message.
+   */
+  static final void writeFrame(DataOutputStream dataOut, long requestId, byte[] messageBytes) throws IOException {
+    dataOut.writeLong(requestId);
+    dataOut.writeInt(messageBytes.length);
+    dataOut.write(messageBytes);
+  }
+
+  /**
+   * Read a frame's message bytes, having read its request id.
+   *
+   * @throws IOException if the frame's length is negative or exceeds
+   *         MAX_FRAME_SIZE, after which the stream can't be trusted.
+   */
+  static final byte[] readFrameBytes(DataInputStream dataIn) throws IOException {
+    final int length = dataIn.readInt();
+    if (length < 0 || length > MAX_FRAME_SIZE) throw new IOException("Bad frame length " + length);
+    final byte[] result = new byte[length];
+    dataIn.readFully(result);
+    return result;
+  }
+
+  private final void sweepExpiredRequests() {
+    final long curTime = System.currentTimeMillis();
+
+    if (curTime >= nextSweepTime) {
+      nextSweepTime = curTime + SWEEP_INTERVAL;
+
+      for (Iterator<PendingRequest> it = pendingRequests.values().iterator(); it.hasNext(); ) {
+        final PendingRequest pendingRequest = it.next();
+        if (curTime > pendingRequest.expiration) it.remove();
+      }
+    }
+  }
+
+  private static final void closeQuietly(Socket socket, SocketIO socketIO) {
+    try {
+      socketIO.close();
+    }
+    catch (IOException ignore) {
+      // already closed.
+    }
+
+    try {
+      socket.close();
+    }
+    catch (IOException ignore) {
+      // already closed.
+    }
+  }
+
+
+  private static final class PendingRequest {
+    public final LinkedBlockingQueue<Message> responses;
+    public final long expiration;
+
+    PendingRequest(LinkedBlockingQueue<Message> responses, long expiration) {
+      this.responses = responses;
+      this.expiration = expiration;
+    }
+  }
+}
@@ -0,0 +1,791 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.cluster.io;
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking (java.nio selector based) transport for a NodeServer.
+ * <p>
+ * A single selector thread accepts connections and performs all reads and
+ * writes through direct buffers. Each received message is responded to by
+ * one of the server's socket threads and, once its response has been
+ * written, is queued for the server's message handlers just as with the
+ * server's blocking transport.
+ * <p>
+ * Both single message connections and multiplexed connections (see
+ * MuxConnection) are accepted, so clients are unaware of the transport.
+ * <p>
+ * No more than a maximal frame (MuxConnection.MAX_FRAME_SIZE) of input is
+ * buffered for a connection; connections sending larger messages are closed.
+ * Single (legacy) messages aren't length prefixed, so they are parsed
+ * speculatively, but only once a connection's input has doubled since its
+ * last attempt or the connection has gone quiet for PARSE_DELAY millis.
+ *
+ * @author Spence Koehler
+ */
+class NioServerTransport implements Runnable {
+
+  /**
+   * Size of the (direct) read and write buffers.
+   */
+  public static final int BUFFER_SIZE = 65536;
+
+  /**
+   * Maximum number of pending connections, which must absorb bursts while the
+   * selector thread is busy with other connections' i/o.
+   */
+  public static final int ACCEPT_BACKLOG = 1024;
+
+  // connection modes
+  private static final int UNKNOWN = 0;
+  private static final int SINGLE = 1;
+  private static final int MUX_HANDSHAKE = 2;
+  private static final int MUX = 3;
+
+  private static final int HANDSHAKE_SIZE = 9;  // magic byte, signature int, version int
+
+  /**
+   * Maximum number of unconsumed bytes buffered for a connection.
+   */
+  private static final int MAX_INPUT_SIZE = MuxConnection.FRAME_HEADER_SIZE + MuxConnection.MAX_FRAME_SIZE;
+
+  /**
+   * Time (in millis) a single message connection must be quiet before
+   * re-parsing input that hasn't doubled since the last attempt.
+   */
+  private static final int PARSE_DELAY = 5;
+
+
+  private NodeServer server;
+  private Selector selector;
+  private ServerSocketChannel serverChannel;
+  private SelectionKey serverKey;
+  private ByteBuffer readBuffer;
+  private ByteBuffer writeBuffer;
+  private ConcurrentLinkedQueue<Connection> pendingWrites;
+  private List<Connection> deferredParses;  // selector thread only
+
+  private final AtomicBoolean isOpen = new AtomicBoolean(true);
+  private final AtomicInteger numMuxConnections = new AtomicInteger(0);
+
+  /**
+   * Construct, binding to the port.
+   *
+   * @param server  The server whose stats, socket threads and message queue
+   *                are used.
+   * @param port    The port to accept connections on.
+   */
+  NioServerTransport(NodeServer server, int port) throws IOException {
+    this.server = server;
+    this.selector = Selector.open();
+    this.serverChannel = ServerSocketChannel.open();
+
+    try {
+      serverChannel.configureBlocking(false);
+      serverChannel.socket().bind(new InetSocketAddress(port), ACCEPT_BACKLOG);
+      this.serverKey = serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+    catch (IOException e) {
+      serverChannel.close();
+      selector.close();
+      throw e;
+    }
+
+    this.readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    this.writeBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    this.pendingWrites = new ConcurrentLinkedQueue<Connection>();
+    this.deferredParses = new ArrayList<Connection>();
+  }
+
+  /**
+   * Get the number of currently open multiplexed connections.
+   */
+  public int getNumMultiplexedConnections() {
+    return numMuxConnections.get();
+  }
+
+  /**
+   * Stop the selector thread, closing all connections.
+   */
+  public void close() {
+    if (isOpen.compareAndSet(true, false)) {
+      selector.wakeup();
+    }
+  }
+
+  /**
+   * Run the selector loop until closed or the server goes down.
+   */
+  public void run() {
+    try {
+      while (isOpen.get() && server.isUp()) {
+        // stop selecting new connections while not accepting
+        final boolean accepting = server.isAccepting();
+        serverKey.interestOps(accepting ? SelectionKey.OP_ACCEPT : 0);
+
+        selector.select(!deferredParses.isEmpty() ? PARSE_DELAY : accepting ? NodeServer.SHUTDOWN_LATENCY : 500);
+
+        registerPendingWrites();
+
+        for (Iterator<SelectionKey> it = selector.selectedKeys().iterator(); it.hasNext(); ) {
+          final SelectionKey key = it.next();
+          it.remove();
+
+          try {
+            if (!key.isValid()) continue;
+
+            if (key.isAcceptable()) {
+              accept();
+            }
+            else {
+              final Connection connection = (Connection)key.attachment();
+              if (key.isReadable()) connection.doRead();
+              if (key.isValid() && key.isWritable()) connection.doWrite();
+            }
+          }
+          catch (CancelledKeyException e) {
+            // connection was closed
+          }
+        }
+
+        runDeferredParses();
+      }
+    }
+    catch (IOException e) {
+      //todo: determine what to do here...
+      e.printStackTrace(System.err);
+      server.shutdown(true);
+    }
+    finally {
+      closeAll();
+    }
+  }
+
+  private final void accept() throws IOException {
+    SocketChannel channel = null;
+
+    while ((channel = serverChannel.accept()) != null) {
+      final long acceptTime = System.currentTimeMillis();
+      try {
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        final SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        key.attach(new Connection(channel, key, acceptTime));
+      }
+      catch (IOException e) {
+        // client went away
+        channel.close();
+      }
+    }
+  }
+
+  private final void registerPendingWrites() {
+    Connection connection = null;
+    while ((connection = pendingWrites.poll()) != null) {
+      connection.setWriting(true);
+    }
+  }
+
+  private final void runDeferredParses() {
+    if (deferredParses.isEmpty()) return;
+
+    final long curTime = System.currentTimeMillis();
+    for (Iterator<Connection> it = deferredParses.iterator(); it.hasNext(); ) {
+      final Connection connection = it.next();
+      try {
+        if (connection.runDeferredParse(curTime)) it.remove();
+      }
+      catch (CancelledKeyException e) {
+        // connection was closed
+        it.remove();
+      }
+    }
+  }
+
+  private final void closeAll() {
+    for (SelectionKey key : selector.keys()) {
+      final Object attachment = key.attachment();
+      if (attachment instanceof Connection) {
+        ((Connection)attachment).close();
+      }
+    }
+
+    try {
+      serverChannel.close();
+      selector.close();
+    }
+    catch (IOException ignore) {
+      // already closed.
+    }
+  }
+
+
+  /**
+   * State for an accepted connection.
+   * <p>
+   * Aside from enqueueing responses, only the selector thread accesses a
+   * connection.
+   */
+  private final class Connection {
+    private SocketChannel channel;
+    private SelectionKey key;
+    private ConnectionContext connectionContext;
+    private long acceptTime;
+    private int mode;
+
+    private byte[] inBytes;       // received but unconsumed bytes
+    private int inLen;
+    private long firstByteTime;   // time of receiving a message's first byte
+    private long lastReadTime;    // time of receiving the latest bytes
+    private int parsedLen;        // inLen at the last (single message) parse attempt
+    private boolean parseDeferred;
+    private boolean closeWhenWritten;  // after answering a mismatched handshake
+
+    private ConcurrentLinkedQueue<Outbound> outbounds;
+    private Outbound curOutbound;
+    private int numInFlight;      // requests not yet written (selector thread only)
+
+    private final AtomicBoolean isOpen = new AtomicBoolean(true);
+
+    Connection(SocketChannel channel, SelectionKey key, long acceptTime) {
+      this.channel = channel;
+      this.key = key;
+      this.connectionContext = new ConnectionContext(channel.socket());
+      this.acceptTime = acceptTime;
+      this.mode = UNKNOWN;
+      this.inBytes = new byte[1024];
+      this.inLen = 0;
+      this.firstByteTime = 0L;
+      this.lastReadTime = 0L;
+      this.parsedLen = 0;
+      this.parseDeferred = false;
+      this.closeWhenWritten = false;
+      this.outbounds = new ConcurrentLinkedQueue<Outbound>();
+      this.curOutbound = null;
+      this.numInFlight = 0;
+    }
+
+    void doRead() {
+      boolean atEnd = false;
+
+      // drain the channel before parsing so partial messages are parsed less
+      // often, but never buffer more than a maximal frame
+      try {
+        while (true) {
+          if (inLen == MAX_INPUT_SIZE) {
+            // make room by consuming whole messages
+            consumeInput(true);
+            if (!isOpen.get() || (key.interestOps() & SelectionKey.OP_READ) == 0) return;
+            if (inLen == MAX_INPUT_SIZE) {
+              // the message is too large
+              countBadMessage();
+              close();
+              return;
+            }
+          }
+
+          readBuffer.clear();
+          readBuffer.limit(Math.min(readBuffer.capacity(), MAX_INPUT_SIZE - inLen));
+          final int numRead = channel.read(readBuffer);
+          if (numRead < 0) {
+            atEnd = true;
+            break;
+          }
+          if (numRead == 0) break;
+
+          lastReadTime = System.currentTimeMillis();
+          if (inLen == 0) firstByteTime = lastReadTime;
+          readBuffer.flip();
+          ensureCapacity(inLen + numRead);
+          readBuffer.get(inBytes, inLen, numRead);
+          inLen += numRead;
+        }
+      }
+      catch (IOException e) {
+        atEnd = true;
+      }
+
+      if (isOpen.get() && inLen > 0) {
+        consumeInput(atEnd);
+      }
+
+      if (atEnd && isOpen.get()) {
+        if (mode == SINGLE || mode == UNKNOWN) {
+          // the client gave up before sending a whole message
+          countBadMessage();
+        }
+        close();
+      }
+    }
+
+    /**
+     * Consume received input.
+     *
+     * @param force  true to parse a single message now rather than deferring
+     *               the attempt.
+     */
+    private final void consumeInput(boolean force) {
+      if (mode == UNKNOWN) {
+        mode = ((inBytes[0] & 0xFF) == MuxConnection.MUX_MAGIC) ? MUX_HANDSHAKE : SINGLE;
+      }
+
+      if (mode == SINGLE) {
+        // each attempt re-parses from the start, so only re-attempt once the
+        // input has doubled, deferring the attempt until quiet otherwise.
+        if (force || inLen >= 2 * parsedLen) {
+          parseSingle();
+        }
+        else if (!parseDeferred) {
+          parseDeferred = true;
+          deferredParses.add(this);
+        }
+      }
+      else {
+        if (mode == MUX_HANDSHAKE && inLen >= HANDSHAKE_SIZE) {
+          final DataInputStream dataIn = new DataInputStream(new ByteArrayInputStream(inBytes, 1, HANDSHAKE_SIZE - 1));
+          boolean signed = false;
+          int version = -1;
+          try {
+            signed = (dataIn.readInt() == MuxConnection.MUX_SIGNATURE);
+            if (signed) version = dataIn.readInt();
+          }
+          catch (IOException e) {
+            // not possible with sufficient bytes
+          }
+
+          if (!signed) {
+            countBadMessage();
+            close();
+            return;
+          }
+
+          // answer with our version
+          final ByteArrayOutputStream bytesOut = new ByteArrayOutputStream(5);
+          final DataOutputStream dataOut = new DataOutputStream(bytesOut);
+          try {
+            dataOut.writeByte(MuxConnection.MUX_MAGIC);
+            dataOut.writeInt(MuxConnection.MUX_VERSION);
+            dataOut.close();
+          }
+          catch (IOException e) {
+            // not possible
+          }
+          enqueue(new Outbound(bytesOut.toByteArray(), null));
+          consume(HANDSHAKE_SIZE);
+
+          if (version == MuxConnection.MUX_VERSION) {
+            mode = MUX;
+            numMuxConnections.incrementAndGet();
+          }
+          else {
+            // the client can't speak our version; hang up once answered
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            closeWhenWritten = true;
+            return;
+          }
+        }
+
+        // consume each complete request frame
+        while (mode == MUX && isOpen.get() && inLen >= MuxConnection.FRAME_HEADER_SIZE) {
+          final int length = readInt(inBytes, 8);
+          if (length < 0 || length > MuxConnection.MAX_FRAME_SIZE) {
+            countBadMessage();
+            close();
+            break;
+          }
+          final int frameSize = MuxConnection.FRAME_HEADER_SIZE + length;
+          if (inLen < frameSize) break;  // wait for the rest of the frame
+
+          final long starttime = firstByteTime;
+          final long requestId = readLong(inBytes, 0);
+          final Message message = parseFrame(frameSize);
+          if (message == null) break;  // bad message; closed
+
+          consume(frameSize);
+          if (inLen > 0) firstByteTime = System.currentTimeMillis();
+
+          dispatch(requestId, message, new NodeServer.SocketTimingData(starttime), starttime);
+        }
+      }
+    }
+
+    /**
+     * Parse (and dispatch) a single message from the received bytes if they
+     * hold a whole message.
+     */
+    private final void parseSingle() {
+      parsedLen = inLen;
+
+      final Message message = parseMessage();
+      if (message != null) {
+        // single message connections only wait for the response
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+        inLen = 0;
+        dispatch(-1L, message, new NodeServer.SocketTimingData(acceptTime), firstByteTime);
+      }
+    }
+
+    /**
+     * Run a deferred parse attempt if this connection has been quiet long
+     * enough.
+     *
+     * @return true if the attempt is no longer deferred.
+     */
+    boolean runDeferredParse(long curTime) {
+      if (isOpen.get() && curTime - lastReadTime < PARSE_DELAY) return false;
+
+      parseDeferred = false;
+      if (isOpen.get() && mode == SINGLE && inLen > parsedLen) {
+        parseSingle();
+      }
+
+      return true;
+    }
+
+    /**
+     * Speculatively parse a (legacy, unframed) message from the received
+     * bytes.
+     *
+     * @return the message or null if more bytes are needed (or the message was
+     *         bad, in which case this connection is closed.)
+     */
+    private final Message parseMessage() {
+      Message result = null;
+
+      try {
+        result = Messenger.receiveMessage(new DataInputStream(new ByteArrayInputStream(inBytes, 0, inLen)));
+
+        if (result == null) {
+          badMessage(null);
+        }
+      }
+      catch (EOFException e) {
+        // need more bytes
+        result = null;
+      }
+      catch (Exception e) {
+        badMessage(e);
+        result = null;
+      }
+
+      return result;
+    }
+
+    /**
+     * Parse the message from the (complete) frame at the start of the
+     * received bytes.
+     *
+     * @return the message or null if the message was bad, in which case this
+     *         connection is closed.
+     */
+    private final Message parseFrame(int frameSize) {
+      Message result = null;
+
+      final int headerSize = MuxConnection.FRAME_HEADER_SIZE;
+      try {
+        result = Messenger.receiveMessage(new DataInputStream(new ByteArrayInputStream(inBytes, headerSize, frameSize - headerSize)));
+        if (result == null) badMessage(null);
+      }
+      catch (Exception e) {
+        // including EOFException, as the whole frame is present
+        badMessage(e);
+        result = null;
+      }
+
+      return result;
+    }
+
+    private final void badMessage(Exception e) {
+      if (e != null) {
+        System.err.println(new Date() + ": NioServerTransport received bad message from clientIP=" +
+                           connectionContext.getInetAddress().getHostAddress());
+        e.printStackTrace(System.err);
+      }
+      countBadMessage();
+      close();
+    }
+
+    private final void dispatch(long requestId, Message message, NodeServer.SocketTimingData socketTimingData, long starttime) {
+      final long receiveTime = System.currentTimeMillis() - starttime;
+      ++numInFlight;
+      server.incrementActiveSockets();
+
+      try {
+        server.executeSocketTask(new Responder(this, requestId, message, receiveTime, socketTimingData));
+      }
+      catch (RejectedExecutionException e) {
+        --numInFlight;
+        server.decrementActiveSockets();
+        server.countDroppedConnection();
+        close();
+      }
+    }
+
+    /**
+     * Enqueue a response to be written by the selector thread.
+     *
+     * @return false if this connection has been closed.
+     */
+    boolean enqueue(Outbound outbound) {
+      boolean result = false;
+
+      if (isOpen.get()) {
+        outbounds.add(outbound);
+        pendingWrites.add(this);
+        selector.wakeup();
+        result = true;
+      }
+
+      return result;
+    }
+
+    void setWriting(boolean writing) {
+      if (key.isValid()) {
+        key.interestOps(writing ? (key.interestOps() | SelectionKey.OP_WRITE) : (key.interestOps() & ~SelectionKey.OP_WRITE));
+      }
+    }
+
+    void doWrite() {
+      try {
+        while (isOpen.get()) {
+          if (curOutbound == null) {
+            curOutbound = outbounds.poll();
+            if (curOutbound == null) break;
+          }
+
+          writeBuffer.clear();
+          final int len = Math.min(writeBuffer.capacity(), curOutbound.bytes.length - curOutbound.pos);
+          writeBuffer.put(curOutbound.bytes, curOutbound.pos, len);
+          writeBuffer.flip();
+          final int numWritten = channel.write(writeBuffer);
+          curOutbound.pos += numWritten;
+
+          if (curOutbound.pos == curOutbound.bytes.length) {
+            final Outbound written = curOutbound;
+            curOutbound = null;
+            written(written);
+          }
+          else if (numWritten < len) {
+            // socket buffer is full; wait to be writable
+            break;
+          }
+        }
+
+        if (curOutbound == null && outbounds.isEmpty()) {
+          setWriting(false);
+          if (closeWhenWritten) close();
+        }
+      }
+      catch (IOException e) {
+        // client dropped the connection before receiving its response(s)
+        server.countSeveredConnection();
+        close();
+      }
+    }
+
+    private final void written(Outbound outbound) {
+      if (outbound.message == null) return;  // handshake
+
+      final long endtime = System.currentTimeMillis();
+      final NodeServer.SocketTimingData socketTimingData = outbound.socketTimingData;
+      socketTimingData.setResponseEndTime(endtime);
+      server.addStats(outbound.receiveTime, outbound.responseGenTime, endtime - outbound.queuedTime);
+
+      --numInFlight;
+      if (mode == SINGLE) close();
+      socketTimingData.setSocketClosedTime(System.currentTimeMillis());
+
+      server.queueMessage(outbound.message, connectionContext);
+      socketTimingData.setMessageQueuedTime(System.currentTimeMillis());
+      server.addStats(socketTimingData);
+      server.decrementActiveSockets();
+    }
+
+    void close() {
+      if (isOpen.compareAndSet(true, false)) {
+        key.cancel();
+        try {
+          channel.close();
+        }
+        catch (IOException ignore) {
+          // already closed.
+        }
+
+        if (mode == MUX) numMuxConnections.decrementAndGet();
+
+        // abandon unwritten responses
+        for (; numInFlight > 0; --numInFlight) {
+          server.decrementActiveSockets();
+        }
+        outbounds.clear();
+        curOutbound = null;
+      }
+    }
+
+    private final void consume(int numBytes) {
+      inLen -= numBytes;
+      if (inLen > 0) {
+        System.arraycopy(inBytes, numBytes, inBytes, 0, inLen);
+      }
+    }
+
+    private final void ensureCapacity(int capacity) {
+      if (capacity > inBytes.length) {
+        final byte[] newBytes = new byte[Math.min(Math.max(capacity, inBytes.length * 2), MAX_INPUT_SIZE)];
+        System.arraycopy(inBytes, 0, newBytes, 0, inLen);
+        this.inBytes = newBytes;
+      }
+    }
+  }
+
+  private static final int readInt(byte[] bytes, int offset) {
+    int result = 0;
+    for (int i = 0; i < 4; ++i) {
+      result = (result << 8) | (bytes[offset + i] & 0xFF);
+    }
+    return result;
+  }
+
+  private static final long readLong(byte[] bytes, int offset) {
+    long result = 0L;
+    for (int i = 0; i < 8; ++i) {
+      result = (result << 8) | (bytes[offset + i] & 0xFF);
+    }
+    return result;
+  }
+
+  private final void countBadMessage() {
+    server.countBadMessage();
+  }
+
+
+  /**
+   * Generates a response in a socket thread and hands it to the selector
+   * thread for writing.
+   */
+  private final class Responder implements Runnable {
+    private Connection connection;
+    private long requestId;
+    private Message message;
+    private long receiveTime;
+    private NodeServer.SocketTimingData socketTimingData;
+
+    Responder(Connection connection, long requestId, Message message, long receiveTime, NodeServer.SocketTimingData socketTimingData) {
+      this.connection = connection;
+      this.requestId = requestId;
+      this.message = message;
+      this.receiveTime = receiveTime;
+      this.socketTimingData = socketTimingData;
+    }
+
+    public void run() {
+      final long starttime = System.currentTimeMillis();
+      socketTimingData.setResponseStartTime(starttime);
+
+      final Message response = server.generateResponse(message, connection.connectionContext);
+
+      byte[] bytes = null;
+      try {
+        bytes = serialize(response);
+      }
+      catch (IOException e) {
+        System.err.println(new Date() + ": NioServerTransport unable to send response (to " +
+                           connection.connectionContext.getInetAddress().getHostAddress() +
+                           ")! received=" + message + " response=\n" + response);
+        e.printStackTrace(System.err);
+
+        // respond with null rather than leave the client waiting
+        try {
+          bytes = serialize(new NullMessage());
+        }
+        catch (IOException ignore) {
+          // not possible
+        }
+      }
+
+      final long queuedTime = System.currentTimeMillis();
+      final Outbound outbound = new Outbound(bytes, message);
+      outbound.receiveTime = receiveTime;
+      outbound.responseGenTime = queuedTime - starttime;
+      outbound.queuedTime = queuedTime;
+      outbound.socketTimingData = socketTimingData;
+
+      if (!connection.enqueue(outbound)) {
+        server.countSeveredConnection();
+      }
+    }
+
+    private final byte[] serialize(Message response) throws IOException {
+      final ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+      final DataOutputStream dataOut = new DataOutputStream(bytesOut);
+
+      if (requestId >= 0) {
+        MuxConnection.writeFrame(dataOut, requestId, MuxConnection.serialize(response));
+      }
+      else {
+        Messenger.sendMessage(response, dataOut);
+      }
+      dataOut.close();
+
+      return bytesOut.toByteArray();
+    }
+  }
+
+  /**
+   * Container for (response) bytes awaiting writing.
+   */
+  private static final class Outbound {
+    public final byte[] bytes;
+    public final Message message;  // the request responded to; null for a handshake
+    public int pos;
+
+    public long receiveTime;
+    public long responseGenTime;
+    public long queuedTime;
+    public NodeServer.SocketTimingData socketTimingData;
+
+    Outbound(byte[] bytes, Message message) {
+      this.bytes = bytes;
+      this.message = message;
+      this.pos = 0;
+    }
+  }
+}
@@ -37,6 +37,10 @@ import java.util.concurrent.TimeUnit;
  * Node client.
  * <p>
  * Multithreaded management of client messages sent to a NodeServer.
+ * <p>
+ * Messages are sent over long-lived connections pooled per server, so that
+ * many messages can be in flight over a connection at once. Servers that
+ * don't accept pooled connections are sent each message over its own socket.
  *
  * @author Spence Koehler
  */
@@ -52,6 +56,11 @@ public class NodeClient extends Thread {
    */
   public static final int SHUTDOWN_LATENCY = 1000;
 
+  /**
+   * Default number of pooled connections to keep open to each server.
+   */
+  public static final int DEFAULT_CONNECTIONS_PER_PEER = 2;
+
 
   private int clientId;
   private String nodeName;
@@ -59,6 +68,7 @@ public class NodeClient extends Thread {
   private ExecutorService responseQueueThread;   // polls response queue for responses
   private LinkedBlockingQueue<Message> asyncResponses;  // async responses for JUnit testing
   private LinkedBlockingQueue<ClientSocketHandler> clientSocketHandlers;
+  private ConnectionPool connectionPool;           // pooled server connections (null to disable)
 
   private final AtomicBoolean stayAlive = new AtomicBoolean(true);
   private static final AtomicInteger nextClientId = new AtomicInteger(0);
@@ -72,10 +82,24 @@ public class NodeClient extends Thread {
    * @param numSocketThreads  Number of threads to pool for managing sockets.
    */
   public NodeClient(String name, InetAddress inetAddress, int numSocketThreads) {
+    this(name, inetAddress, numSocketThreads, DEFAULT_CONNECTIONS_PER_PEER);
+  }
+
+  /**
+   * Construct a node client.
+   *
+   * @param name                A string to distinguish one client in the same jvm from another. ok if null.
+   * @param inetAddress         The inet address of the client for identification.
+   * @param numSocketThreads    Number of threads to pool for managing sockets.
+   * @param connectionsPerPeer  Number of pooled connections to keep open to each
+   *                            server, or 0 to send each message over its own socket.
+   */
+  public NodeClient(String name, InetAddress inetAddress, int numSocketThreads, int connectionsPerPeer) {
     super(NodeUtil.buildNodeName(PREFIX_STRING, name, inetAddress.toString(), nextClientId.get()));
     this.clientId = nextClientId.getAndIncrement();
     this.nodeName = NodeUtil.buildNodeName(PREFIX_STRING, name, inetAddress.toString(), clientId);
     this.clientSocketHandlers = new LinkedBlockingQueue<ClientSocketHandler>();
+    this.connectionPool = (connectionsPerPeer > 0) ? new ConnectionPool(nodeName, connectionsPerPeer) : null;
 
     this.socketPool
       = Executors.newFixedThreadPool(
@@ -121,6 +145,10 @@ public class NodeClient extends Thread {
       csh.shutdown();
     }
 
+    if (connectionPool != null) {
+      connectionPool.close();
+    }
+
     if (now) {
       socketPool.shutdownNow();
       responseQueueThread.shutdownNow();
@@ -212,7 +240,7 @@ public class NodeClient extends Thread {
   }
 
   private ClientSocketHandler doSendMessage(InetSocketAddress serverAddress, Message message, int checkInterval, LinkedBlockingQueue<Message> responses, int timeLimit) {
-    final ClientSocketHandler csh = new ClientSocketHandler(serverAddress, message, checkInterval, responses, timeLimit);
+    final ClientSocketHandler csh = new ClientSocketHandler(serverAddress, message, checkInterval, responses, timeLimit, connectionPool);
     clientSocketHandlers.add(csh);
     socketPool.execute(csh);
     return csh;
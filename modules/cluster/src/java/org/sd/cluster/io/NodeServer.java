@@ -20,15 +20,19 @@ package org.sd.cluster.io;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
@@ -49,6 +53,15 @@ import org.sd.util.StatsAccumulator;
  * <p>
  * Starts the server thread to fill the queue and message handler threads by
  * polling the message queue.
+ * <p>
+ * Multiplexed connections from a NodeClient's connection pool are serviced by
+ * a connection thread for their lifetime, with each of their messages
+ * responded to by a socket thread.
+ * <p>
+ * With the NIO transport, a single selector thread performs all socket i/o
+ * in place of the blocking accept thread and socket threads' reads and
+ * writes (see NioServerTransport), while socket threads still generate
+ * responses.
  *
  * @author Spence Koehler
  */
@@ -64,8 +77,18 @@ public class NodeServer extends Thread implements NodeServerMXBean {
    */
   public static final int SHUTDOWN_LATENCY = 1000;
 
+  /**
+   * Available transports for receiving messages and sending responses.
+   * <p>
+   * SOCKET uses blocking socket i/o from a pool of socket threads; NIO uses
+   * non-blocking i/o from a single selector thread.
+   */
+  public static enum Transport {SOCKET, NIO};
+
 
   private InetSocketAddress mySocketAddress;
+  private Transport transport;
+  private NioServerTransport nioTransport;
 
   private final Context context;
   private int serverId;
@@ -75,6 +98,8 @@ public class NodeServer extends Thread implements NodeServerMXBean {
   private ExecutorService socketPool;           // performs socket I/O
   private ExecutorService messageQueueThread;   // polls message queue for messages
   private ExecutorService messageHandlerPool;   // handles messages
+  private ExecutorService connectionThreads;    // reads multiplexed connections
+  private Set<MuxConnectionHandler> muxConnections;
 
   private static final AtomicInteger nextServerId = new AtomicInteger(0);
   private final AtomicBoolean stayAlive = new AtomicBoolean(true);
@@ -82,6 +107,7 @@ public class NodeServer extends Thread implements NodeServerMXBean {
   private final AtomicBoolean accepting = new AtomicBoolean(true);
   private final AtomicInteger socketThreadId = new AtomicInteger(0);
   private final AtomicInteger messageHandlerThreadId = new AtomicInteger(0);
+  private final AtomicInteger connectionThreadId = new AtomicInteger(0);
   private final AtomicInteger activeSocketCount = new AtomicInteger(0);
 
   private int numSocketThreads;
@@ -122,11 +148,26 @@ public class NodeServer extends Thread implements NodeServerMXBean {
    * @param numMessageHandlerThreads  Number of threads to handle messages.
    */
   public NodeServer(Context context, InetSocketAddress mySocketAddress, int numSocketThreads, int numMessageHandlerThreads) {
+    this(context, mySocketAddress, numSocketThreads, numMessageHandlerThreads, Transport.SOCKET);
+  }
+
+  /**
+   * Construct a node server.
+   *
+   * @param context                   The context for this server.
+   * @param mySocketAddress           The server's socket address for receiving connections.
+   * @param numSocketThreads          Number of threads to pool for managing sockets.
+   * @param numMessageHandlerThreads  Number of threads to handle messages.
+   * @param transport                 The transport for receiving messages.
+   */
+  public NodeServer(Context context, InetSocketAddress mySocketAddress, int numSocketThreads, int numMessageHandlerThreads, Transport transport) {
     super(NodeUtil.buildNodeName(PREFIX_STRING, context.getName(), mySocketAddress.toString(), nextServerId.get()));
     this.context = context;
     this.serverId = nextServerId.getAndIncrement();
     this.nodeName = NodeUtil.buildNodeName(PREFIX_STRING, context.getName(), mySocketAddress.toString(), serverId);
     this.mySocketAddress = mySocketAddress;
+    this.transport = (transport == null) ? Transport.SOCKET : transport;
+    this.nioTransport = null;
 
     // initialize stats
     this.totalTimeStats = new StatsAccumulator("TotalTime");
@@ -159,6 +200,14 @@ public class NodeServer extends Thread implements NodeServerMXBean {
             return new Thread(r, nodeName + "-MessageQueueThread");
           }
         });
+    this.connectionThreads
+      = Executors.newCachedThreadPool(
+        new ThreadFactory() {
+          public Thread newThread(Runnable r) {
+            return new Thread(r, nodeName + "-Connection-" + connectionThreadId.getAndIncrement());
+          }
+        });
+    this.muxConnections = Collections.newSetFromMap(new ConcurrentHashMap<MuxConnectionHandler, Boolean>());
 
     this.severedConnectionsTimer = new Timer("severed connections timer");
     // schedule the timers to start reporting on the next calendar date at 6am
@@ -257,6 +306,21 @@ public class NodeServer extends Thread implements NodeServerMXBean {
     return activeSocketCount.get();
   }
 
+  /**
+   * Get the number of currently open multiplexed connections.
+   */
+  public int getNumMultiplexedConnections() {
+    final NioServerTransport nioTransport = this.nioTransport;
+    return muxConnections.size() + ((nioTransport == null) ? 0 : nioTransport.getNumMultiplexedConnections());
+  }
+
+  /**
+   * Get this server's transport.
+   */
+  public Transport getTransport() {
+    return transport;
+  }
+
   /**
    * Get the number of message handler threads for this server.
    */
@@ -492,20 +556,42 @@ public class NodeServer extends Thread implements NodeServerMXBean {
   public void run() {
 //    System.out.println("Starting server: " + nodeName);
 
-    ServerSocket serverSocket = null;
+    if (transport == Transport.NIO) {
+      try {
+        this.nioTransport = new NioServerTransport(this, mySocketAddress.getPort());
+      }
+      catch (IOException e) {
+        //todo: determine what to do here... can't listen on the port!
+        System.err.println("mySocketAddress=" + mySocketAddress);
+        e.printStackTrace(System.err);
+      }
 
-    try {
-      serverSocket = new ServerSocket(mySocketAddress.getPort());
-      serverSocket.setSoTimeout(SHUTDOWN_LATENCY);  // stop waiting to accept periodically
-    }
-    catch (IOException e) {
-      //todo: determine what to do here... can't listen on the port!
-      System.err.println("mySocketAddress=" + mySocketAddress);
-      e.printStackTrace(System.err);
+      // start the selector
+      if (stayAlive.get()) {
+        if (nioTransport == null) {
+          shutdown(true);
+        }
+        else {
+          serverThread.execute(nioTransport);
+        }
+      }
     }
+    else {
+      ServerSocket serverSocket = null;
+
+      try {
+        serverSocket = new ServerSocket(mySocketAddress.getPort());
+        serverSocket.setSoTimeout(SHUTDOWN_LATENCY);  // stop waiting to accept periodically
+      }
+      catch (IOException e) {
+        //todo: determine what to do here... can't listen on the port!
+        System.err.println("mySocketAddress=" + mySocketAddress);
+        e.printStackTrace(System.err);
+      }
 
-    // start the socket listener
-    if (stayAlive.get()) serverThread.execute(new SocketListener(serverSocket));
+      // start the socket listener
+      if (stayAlive.get()) serverThread.execute(new SocketListener(serverSocket));
+    }
 
     // start the message queue listener
     if (stayAlive.get()) {
@@ -556,8 +642,12 @@ public class NodeServer extends Thread implements NodeServerMXBean {
    */
   public void shutdown(boolean now) {
     if (stayAlive.compareAndSet(true, false)) {
+      closeMultiplexedConnections();
+      if (nioTransport != null) nioTransport.close();
+
       if (now) {
         serverThread.shutdownNow();
+        connectionThreads.shutdownNow();
         synchronized (socketPoolMutex) {
           socketPool.shutdownNow();
         }
@@ -569,6 +659,7 @@ public class NodeServer extends Thread implements NodeServerMXBean {
       else {
         // shutdown server thread so no new connections are made
         serverThread.shutdown();
+        connectionThreads.shutdown();
 
         // wait for message
 
@@ -584,6 +675,12 @@ public class NodeServer extends Thread implements NodeServerMXBean {
     this.endtime = System.currentTimeMillis();
   }
 
+  private final void closeMultiplexedConnections() {
+    for (MuxConnectionHandler muxConnection : muxConnections) {
+      muxConnection.close();
+    }
+  }
+
   private MessageBundle getNextMessageBundle(int timeout) {
     MessageBundle result = null;
 
@@ -759,7 +856,66 @@ public class NodeServer extends Thread implements NodeServerMXBean {
     }
   }
   
-  private final void addStats(long receiveTime, long responseGenTime, long sendTime/*, long numInBytes, long numOutBytes*/) {
+  /**
+   * Execute the task in a socket thread.
+   *
+   * @throws RejectedExecutionException if the socket pool is shut down.
+   */
+  final void executeSocketTask(Runnable task) {
+    synchronized (socketPoolMutex) {
+      socketPool.execute(task);
+    }
+  }
+
+  /**
+   * Generate the message's response, substituting a NullMessage for a null
+   * or failed response.
+   */
+  final Message generateResponse(Message message, ConnectionContext connectionContext) {
+    Message result = null;
+
+    try {
+      result = message.getResponse(context, connectionContext);
+    }
+    catch (RuntimeException e) {
+      // respond with null rather than leave the client waiting
+      System.err.println(new Date() + ": NodeServer failed generating response to message=" + message);
+      e.printStackTrace(System.err);
+    }
+
+    return (result == null) ? new NullMessage() : result;
+  }
+
+  /**
+   * Queue the (responded to) message for handling.
+   */
+  final void queueMessage(Message message, ConnectionContext connectionContext) {
+    messageQueue.add(new MessageBundle(message, connectionContext));
+  }
+
+  final void incrementActiveSockets() {
+    activeSocketCount.incrementAndGet();
+  }
+
+  final void decrementActiveSockets() {
+    activeSocketCount.decrementAndGet();
+  }
+
+  final void countDroppedConnection() {
+    ++numDroppedConnections;
+  }
+
+  final void countSeveredConnection() {
+    numSeveredConnections.incrementAndGet();
+    reported.set(false);
+  }
+
+  final void countBadMessage() {
+    numBadMessages.incrementAndGet();
+    reported.set(false);
+  }
+
+  final void addStats(long receiveTime, long responseGenTime, long sendTime/*, long numInBytes, long numOutBytes*/) {
     final long totalTime = receiveTime + responseGenTime + sendTime;
     synchronized (statsMutex) {
       totalTimeStats.add(totalTime);
@@ -771,7 +927,7 @@ public class NodeServer extends Thread implements NodeServerMXBean {
     }
   }
 
-  private final void addStats(SocketTimingData socketTimingData) {
+  final void addStats(SocketTimingData socketTimingData) {
     synchronized (socketStatsMutex) {
       doAddStats(socketPreResponseStats, socketTimingData.getSocketPreResponseTime());
       doAddStats(socketPostResponseStats, socketTimingData.getSocketPostResponseTime());
@@ -804,13 +960,18 @@ public class NodeServer extends Thread implements NodeServerMXBean {
       SocketIO socketIO = null;
       Message message = null;
       ConnectionContext connectionContext = null;
+      boolean multiplexed = false;
 
       try {
         // receive message over socket
         socketIO = new SocketIO(socket);
         final DataOutputStream dataOut = socketIO.getDataOutput();
         final DataInputStream dataIn = socketIO.getDataInput();
-        if (dataOut != null && dataIn != null) {
+        if (dataOut != null && dataIn != null && socketIO.peek() == MuxConnection.MUX_MAGIC) {
+          // hand off the connection to be serviced for its lifetime
+          multiplexed = startMultiplexedConnection(socket, socketIO);
+        }
+        else if (dataOut != null && dataIn != null) {
           // get message, send response, put message into message queue
           connectionContext = new ConnectionContext(socket);
           final Messenger messenger = new Messenger(dataOut, dataIn);
@@ -840,8 +1001,10 @@ public class NodeServer extends Thread implements NodeServerMXBean {
       }
       finally {
         try {
-          if (socketIO != null) socketIO.close();
-          socket.close();
+          if (!multiplexed) {
+            if (socketIO != null) socketIO.close();
+            socket.close();
+          }
 
           socketIO = null;
           socket = null;
@@ -852,6 +1015,11 @@ public class NodeServer extends Thread implements NodeServerMXBean {
         }
       }
 
+      if (multiplexed) {
+        activeSocketCount.decrementAndGet();
+        return;
+      }
+
       socketTimingData.setSocketClosedTime(System.currentTimeMillis());
 
       // Add message to queue for handling
@@ -870,6 +1038,215 @@ public class NodeServer extends Thread implements NodeServerMXBean {
     }
   }
 
+  /**
+   * Start servicing a multiplexed connection in a connection thread.
+   *
+   * @return true if started; otherwise, the socket should be closed.
+   */
+  private final boolean startMultiplexedConnection(Socket socket, SocketIO socketIO) throws IOException {
+    boolean result = false;
+
+    if (stayAlive.get()) {
+      final MuxConnectionHandler muxConnection = new MuxConnectionHandler(socket, socketIO);
+      muxConnections.add(muxConnection);
+
+      try {
+        connectionThreads.execute(muxConnection);
+        result = true;
+      }
+      catch (RejectedExecutionException e) {
+        muxConnections.remove(muxConnection);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Services a multiplexed connection (see MuxConnection), reading each
+   * request and handing it off to a socket thread for its response.
+   */
+  private final class MuxConnectionHandler implements Runnable {
+    private Socket socket;
+    private SocketIO socketIO;
+    private DataOutputStream dataOutput;
+    private DataInputStream dataInput;
+    private ConnectionContext connectionContext;
+
+    private final Object writeMutex = new Object();
+    private final AtomicBoolean isOpen = new AtomicBoolean(true);
+
+    MuxConnectionHandler(Socket socket, SocketIO socketIO) throws IOException {
+      this.socket = socket;
+      this.socketIO = socketIO;
+      this.dataOutput = socketIO.getDataOutput();
+      this.dataInput = socketIO.getDataInput();
+      this.connectionContext = new ConnectionContext(socket);
+    }
+
+    public void run() {
+      try {
+        // handshake
+        dataInput.readUnsignedByte();
+        final int signature = dataInput.readInt();
+        final int version = (signature == MuxConnection.MUX_SIGNATURE) ? dataInput.readInt() : -1;
+        synchronized (writeMutex) {
+          dataOutput.writeByte(MuxConnection.MUX_MAGIC);
+          dataOutput.writeInt(MuxConnection.MUX_VERSION);
+          dataOutput.flush();
+        }
+
+        while (version == MuxConnection.MUX_VERSION && isOpen.get() && stayAlive.get()) {
+          final long requestId = dataInput.readLong();
+          final long starttime = System.currentTimeMillis();
+
+          // read the whole frame before deserializing its message
+          final byte[] messageBytes = MuxConnection.readFrameBytes(dataInput);
+
+          Message message = null;
+          try {
+            message = MuxConnection.deserialize(messageBytes);
+          }
+          catch (Exception e) {
+            System.err.println(new Date() + ": NodeServer received bad multiplexed message from clientIP=" +
+                               connectionContext.getInetAddress().getHostAddress());
+            e.printStackTrace(System.err);
+          }
+
+          if (message == null) {
+            // count/log "bad" messages; the connection can't be trusted further.
+            numBadMessages.incrementAndGet();
+            reported.set(false);
+            break;
+          }
+
+          final SocketTimingData socketTimingData = new SocketTimingData(starttime);
+          final long receiveTime = System.currentTimeMillis() - starttime;
+          activeSocketCount.incrementAndGet();
+
+          synchronized (socketPoolMutex) {
+            try {
+              socketPool.execute(new MuxRequestHandler(this, requestId, message, receiveTime, socketTimingData));
+            }
+            catch (RejectedExecutionException e) {
+              ++numDroppedConnections;
+              activeSocketCount.decrementAndGet();
+
+              System.err.println(new Date() +
+                                 ": WARNING : NodeServer socketPool rejected multiplexed request. Dropping connection #" +
+                                 numDroppedConnections + ".");
+              break;
+            }
+          }
+        }
+      }
+      catch (EOFException e) {
+        // client closed the connection
+      }
+      catch (IOException e) {
+        if (isOpen.get() && stayAlive.get()) {
+          numSeveredConnections.incrementAndGet();
+          reported.set(false);
+        }
+      }
+      finally {
+        close();
+      }
+    }
+
+    /**
+     * Send the response to the identified request.
+     */
+    void sendResponse(long requestId, Message response) throws IOException {
+      final byte[] responseBytes = MuxConnection.serialize(response);
+      synchronized (writeMutex) {
+        MuxConnection.writeFrame(dataOutput, requestId, responseBytes);
+        dataOutput.flush();
+      }
+    }
+
+    ConnectionContext getConnectionContext() {
+      return connectionContext;
+    }
+
+    void close() {
+      if (isOpen.compareAndSet(true, false)) {
+        muxConnections.remove(this);
+
+        try {
+          socketIO.close();
+        }
+        catch (IOException ignore) {
+          // already closed.
+        }
+
+        try {
+          socket.close();
+        }
+        catch (IOException e) {
+          //todo: determine what to do here... failed closing socket
+          e.printStackTrace(System.err);
+        }
+      }
+    }
+  }
+
+  /**
+   * Responds to a request received over a multiplexed connection and queues
+   * its message for handling.
+   */
+  private final class MuxRequestHandler implements Runnable {
+    private MuxConnectionHandler muxConnection;
+    private long requestId;
+    private Message message;
+    private long receiveTime;
+    private SocketTimingData socketTimingData;
+
+    MuxRequestHandler(MuxConnectionHandler muxConnection, long requestId, Message message,
+                      long receiveTime, SocketTimingData socketTimingData) {
+      this.muxConnection = muxConnection;
+      this.requestId = requestId;
+      this.message = message;
+      this.receiveTime = receiveTime;
+      this.socketTimingData = socketTimingData;
+    }
+
+    public void run() {
+      final long starttime = System.currentTimeMillis();
+      socketTimingData.setResponseStartTime(starttime);
+
+      boolean responded = false;
+
+      try {
+        final Message response = generateResponse(message, muxConnection.getConnectionContext());
+        final long postResponseGenTime = System.currentTimeMillis();
+
+        muxConnection.sendResponse(requestId, response);
+
+        final long endtime = System.currentTimeMillis();
+        socketTimingData.setResponseEndTime(endtime);
+        socketTimingData.setSocketClosedTime(endtime);
+        responded = true;
+
+        addStats(receiveTime, postResponseGenTime - starttime, endtime - postResponseGenTime);
+      }
+      catch (IOException e) {
+        countSeveredConnection();
+        muxConnection.close();
+      }
+      finally {
+        activeSocketCount.decrementAndGet();
+      }
+
+      // Add message to queue for handling
+      if (responded) {
+        queueMessage(message, muxConnection.getConnectionContext());
+        socketTimingData.setMessageQueuedTime(System.currentTimeMillis());
+        addStats(socketTimingData);
+      }
+    }
+  }
+
   private final class MessageBundle {
     public final Message message;
     public final ConnectionContext connectionContext;
@@ -905,7 +1282,10 @@ public class NodeServer extends Thread implements NodeServerMXBean {
     }
   }
 
-  private final class SocketTimingData {
+  /**
+   * Timing of a message through its socket handling.
+   */
+  static final class SocketTimingData {
     private long socketAcceptTime;
     private long socketResponseStartTime;
     private long socketResponseEndTime;
@@ -49,6 +49,11 @@ public interface NodeServerMXBean {
    */
   public int getNumActiveSockets();
 
+  /**
+   * Get the number of currently open multiplexed connections.
+   */
+  public int getNumMultiplexedConnections();
+
   /**
    * Get the number of message handler threads for this server.
    */
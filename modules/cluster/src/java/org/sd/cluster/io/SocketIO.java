@@ -21,18 +21,28 @@ package org.sd.cluster.io;
 
 import java.net.Socket;
 import java.net.SocketException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 
 import java.io.IOException;
 
 /**
- * Encapsulation for socket i/o.
+ * Encapsulation for (buffered) socket i/o.
  * <p>
+ * Note that data output must be flushed for buffered data to be sent.
+ *
  * @author Spence Koehler
  */
 class SocketIO {
 
+  /**
+   * Size of the socket stream buffers.
+   */
+  public static final int BUFFER_SIZE = 8192;
+
+
   private Socket socket;
   private DataOutputStream dataOutput;
   private DataInputStream dataInput;
@@ -74,7 +84,7 @@ class SocketIO {
     }
     else {
       if (dataOutput == null && socket != null && socket.isConnected() && !socket.isOutputShutdown()) {
-        dataOutput = new DataOutputStream(socket.getOutputStream());
+        dataOutput = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
       }
     }
 
@@ -91,11 +101,29 @@ class SocketIO {
     }
     else {
       if (dataInput == null && socket != null && socket.isConnected() && !socket.isInputShutdown()) {
-        dataInput = new DataInputStream(socket.getInputStream());
+        dataInput = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
       }
     }
 
     return dataInput;
   }
 
+  /**
+   * Peek at the next byte of data input without consuming it.
+   *
+   * @return the next byte (0-255) or -1 if the input is unavailable or at
+   *         its end.
+   */
+  public int peek() throws IOException {
+    int result = -1;
+
+    final DataInputStream dataInput = getDataInput();
+    if (dataInput != null) {
+      dataInput.mark(1);
+      result = dataInput.read();
+      dataInput.reset();
+    }
+
+    return result;
+  }
 }
@@ -20,6 +20,7 @@ package org.sd.cluster.job.work;
 
 
 import org.sd.bdb.BerkeleyDb;
+import org.sd.bdb.DbBatchWriter;
 import org.sd.bdb.DbHandle;
 import org.sd.bdb.DbValue;
 import org.sd.bdb.LongKeyValuePair;
@@ -31,6 +32,8 @@ import com.sleepycat.je.DatabaseException;
 
 import java.io.File;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 
 /**
@@ -43,9 +46,13 @@ public class QueueWorkServer extends AbstractWorkServer {
   private String queueDir;
   private String queueName;
   private QueueChooser queueChooser;
+  private int batchSize;
+  private long batchDelay;
+  private boolean batchDurable;
 
   private transient BerkeleyDb bdb;
   private transient DbHandle _dbHandle;
+  private transient Map<DbHandle, QueueWriter> queueWriters;
 
   /**
    * Properties-based constructor.
@@ -54,6 +61,14 @@ public class QueueWorkServer extends AbstractWorkServer {
    * <li>serverQueueDir -- absolute or relative path to queue directory</li>
    * <li>serverQueueName -- [optional, default=basename(queueDir)] name of queue.</li>
    * <li>serverQueueChooser -- [optional, default=null] queue chooser.</li>
+   * <li>serverBatchSize -- [optional, default=0] when greater than 1, the
+   *     maximum number of queue writes (adds, inserts, deletes) to group
+   *     into a single transaction. Batched writes become visible to readers
+   *     only when committed.</li>
+   * <li>serverBatchDelay -- [optional, default=5] maximum millis to wait for
+   *     a batch to fill.</li>
+   * <li>serverBatchDurable -- [optional, default=true] when false, commit
+   *     batches without synchronously flushing the log.</li>
    * </ul>
    */
   public QueueWorkServer(Properties properties) {
@@ -62,6 +77,9 @@ public class QueueWorkServer extends AbstractWorkServer {
     this.queueDir = properties.getProperty("serverQueueDir");
     this.queueName = properties.getProperty("serverQueueName");
     final String queueChooserClass = properties.getProperty("serverQueueChooser");
+    this.batchSize = Integer.parseInt(properties.getProperty("serverBatchSize", "0"));
+    this.batchDelay = Long.parseLong(properties.getProperty("serverBatchDelay", "5"));
+    this.batchDurable = "true".equalsIgnoreCase(properties.getProperty("serverBatchDurable", "true"));
 
     if (queueDir == null) {
       throw new IllegalStateException("Must define 'serverQueueDir'!");
@@ -93,6 +111,7 @@ public class QueueWorkServer extends AbstractWorkServer {
     if (queuePath != null) {
       this.bdb = BerkeleyDb.getInstance(new File(queuePath), false);
       this._dbHandle = null;
+      this.queueWriters = new HashMap<DbHandle, QueueWriter>();
     }
 
     return true;
@@ -104,6 +123,15 @@ public class QueueWorkServer extends AbstractWorkServer {
   public void close() {
     super.close();
 
+    if (queueWriters != null) {
+      synchronized (queueWriters) {
+        for (QueueWriter queueWriter : queueWriters.values()) {
+          queueWriter.writer.close();
+        }
+        queueWriters.clear();
+      }
+    }
+
     if (bdb != null) {
       bdb.close();
     }
@@ -115,6 +143,12 @@ public class QueueWorkServer extends AbstractWorkServer {
   public void addWork(WorkRequest workRequest) {
     final DbHandle dbHandle = getDbHandle(workRequest);
 
+    final QueueWriter queueWriter = getQueueWriter(dbHandle);
+    if (queueWriter != null) {
+      queueWriter.addWork(workRequest);
+      return;
+    }
+
     long key = workRequest.getKey();
     final Publishable work = workRequest.getWork();
     if (key == -1L) {  // if key is undefined, create a definition.
@@ -136,6 +170,12 @@ public class QueueWorkServer extends AbstractWorkServer {
   public void insertWork(WorkRequest workRequest) {
     final DbHandle dbHandle = getDbHandle(workRequest);
 
+    final QueueWriter queueWriter = getQueueWriter(dbHandle);
+    if (queueWriter != null) {
+      queueWriter.insertWork(workRequest);
+      return;
+    }
+
     long key = workRequest.getKey();
     final Publishable work = workRequest.getWork();
     if (key == -1L) {  // if key is undefined, create a definition.
@@ -210,7 +250,13 @@ public class QueueWorkServer extends AbstractWorkServer {
     final DbHandle dbHandle = getDbHandle(workRequest);
 
     if (!dbHandle.isClosed()) {
-      dbHandle.delete(workRequest.getKey());
+      final QueueWriter queueWriter = getQueueWriter(dbHandle);
+      if (queueWriter != null) {
+        queueWriter.writer.delete(workRequest.getKey());
+      }
+      else {
+        dbHandle.delete(workRequest.getKey());
+      }
     }
   }
 
@@ -286,4 +332,74 @@ public class QueueWorkServer extends AbstractWorkServer {
 
     return result;
   }
+
+  /**
+   * Get the batch writer for the handle, or null if not batching.
+   */
+  private final QueueWriter getQueueWriter(DbHandle dbHandle) {
+    if (batchSize <= 1 || dbHandle == null || queueWriters == null) return null;
+
+    QueueWriter result = null;
+
+    synchronized (queueWriters) {
+      result = queueWriters.get(dbHandle);
+      if (result == null) {
+        result = new QueueWriter(dbHandle, dbHandle.buildBatchWriter(batchSize, batchDelay, batchDurable));
+        queueWriters.put(dbHandle, result);
+      }
+    }
+
+    return result;
+  }
+
+
+  /**
+   * Container for a queue's batch writer that assigns keys to new work
+   * without waiting for pending writes to become visible.
+   */
+  private static final class QueueWriter {
+
+    final DbHandle dbHandle;
+    final DbBatchWriter writer;
+    private long lastKey;
+
+    QueueWriter(DbHandle dbHandle, DbBatchWriter writer) {
+      this.dbHandle = dbHandle;
+      this.writer = writer;
+      this.lastKey = -1L;
+    }
+
+    synchronized void addWork(WorkRequest workRequest) {
+      final long key = assignKey(workRequest.getKey());
+      final Publishable work = workRequest.getWork();
+
+      if (workRequest.getTimestamp() > 0) {
+        writer.update(key, new DbValue(work), workRequest.getTimestamp());
+      }
+      else {
+        writer.put(key, new DbValue(work));
+      }
+    }
+
+    synchronized void insertWork(WorkRequest workRequest) {
+      final long key = assignKey(workRequest.getKey());
+      writer.push(key, new DbValue(workRequest.getWork()));
+    }
+
+    private final long assignKey(long key) {
+      if (lastKey < 0) {
+        final LongKeyValuePair lastEntry = dbHandle.peekLastLong();
+        lastKey = (lastEntry == null) ? 0L : lastEntry.getKey();
+      }
+
+      if (key == -1L) {  // if key is undefined, create a definition.
+        key = ++lastKey;
+      }
+      else if (key > lastKey) {
+        lastKey = key;
+      }
+
+      return key;
+    }
+  }
 }
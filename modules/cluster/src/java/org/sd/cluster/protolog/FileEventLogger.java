@@ -19,23 +19,71 @@
 package org.sd.cluster.protolog;
 
 
+import java.io.BufferedOutputStream;
 import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import org.sd.cluster.io.Shutdownable;
 import org.sd.cluster.protolog.codegen.ProtoLogProtos.*;
 import org.sd.io.FileUtil;
+import org.sd.util.thread.RingBuffer;
 
 /**
  * Utility to log events to a file.
  * <p>
+ * By default, entries are written synchronously on the logging thread.
+ * In async mode, logging threads only serialize entries and enqueue them
+ * into a bounded lock-free ring buffer, while a single writer thread
+ * batches queued entries into buffered writes, flushing when the queue
+ * runs dry and syncing the file to disk periodically. When the queue is
+ * full, loggers either wait for room (BLOCK) or drop the entry (DROP).
+ * <p>
+ * Optionally, a sparse ProtoLogIndex of entry timestamps to file offsets is
+ * maintained alongside a (non-gzipped) output file so that readers such as
+ * MultiLogIterator can seek to the start of a time range.
+ *
  * @author Spence Koehler
  */
-public class FileEventLogger extends EventLogger implements Shutdownable {
+public class FileEventLogger extends EventLogger implements Shutdownable, FileEventLoggerMXBean {
   
+  /**
+   * Policies for logging to a full async queue.
+   */
+  public enum OverflowPolicy { BLOCK, DROP };
+
+  private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+  private static final int MAX_BATCH_ENTRIES = 1024;
+  private static final long MAX_PARK_NANOS = 10L * 1000000L;  // 10 millis
+
+  private File outputFile;
   private DataOutputStream dataOut;
   private ProtoLogStreamer streamer;
   private int maxMessageBytes;
+  private ProtoLogIndex index;
+
+  // async mode
+  private RingBuffer<QueuedEntry> queue;
+  private OverflowPolicy overflowPolicy;
+  private long syncMillis;
+  private FileOutputStream fileOut;  // for syncing
+  private Thread writerThread;
+  private volatile boolean writerParked;
+  private volatile boolean closing;
+  private volatile IOException writeError;
+  private ObjectName mbeanName;
+  private MBeanServer mbs;
+
+  private final AtomicLong numQueued = new AtomicLong(0L);
+  private final AtomicLong numDropped = new AtomicLong(0L);
+  private final AtomicLong numFlushed = new AtomicLong(0L);
+  private final AtomicLong numSyncs = new AtomicLong(0L);
 
   /**
    * Construct an event logger, appending output to the given output file
@@ -49,17 +97,88 @@ public class FileEventLogger extends EventLogger implements Shutdownable {
    * Construct an event logger, writing output to the given output file.
    */
   public FileEventLogger(File outputFile, boolean append, ProtoLogStreamer streamer, int maxMessageBytes) {
+    this(outputFile, append, streamer, maxMessageBytes, 0, OverflowPolicy.BLOCK, 0L);
+  }
+
+  /**
+   * Construct an event logger, writing output to the given output file.
+   *
+   * @param queueCapacity  If positive, log asynchronously through a queue
+   *                       holding (at least) this many entries; otherwise,
+   *                       log synchronously.
+   * @param overflowPolicy  What to do when logging to a full queue.
+   * @param syncMillis  If positive, the minimum time between syncs of the
+   *                    (non-gzipped) output file to disk in async mode.
+   */
+  public FileEventLogger(File outputFile, boolean append, ProtoLogStreamer streamer, int maxMessageBytes,
+                         int queueCapacity, OverflowPolicy overflowPolicy, long syncMillis) {
+    this(outputFile, append, streamer, maxMessageBytes, queueCapacity, overflowPolicy, syncMillis, 0, 0L);
+  }
+
+  /**
+   * Construct an event logger, writing output to the given output file.
+   *
+   * @param queueCapacity  If positive, log asynchronously through a queue
+   *                       holding (at least) this many entries; otherwise,
+   *                       log synchronously.
+   * @param overflowPolicy  What to do when logging to a full queue.
+   * @param syncMillis  If positive, the minimum time between syncs of the
+   *                    (non-gzipped) output file to disk in async mode.
+   * @param indexEveryRecords  If positive, index at least every this many entries.
+   * @param indexEveryBytes  If positive, index at least every this many bytes.
+   */
+  public FileEventLogger(File outputFile, boolean append, ProtoLogStreamer streamer, int maxMessageBytes,
+                         int queueCapacity, OverflowPolicy overflowPolicy, long syncMillis,
+                         int indexEveryRecords, long indexEveryBytes) {
     super();
 
+    this.outputFile = outputFile;
+    this.streamer = streamer;
+    this.maxMessageBytes = maxMessageBytes;
+
     try {
-      this.dataOut = new DataOutputStream(FileUtil.getOutputStream(outputFile, append));
+      if (queueCapacity <= 0) {
+        this.dataOut = new DataOutputStream(FileUtil.getOutputStream(outputFile, append));
+      }
+      else {
+        this.fileOut = new FileOutputStream(outputFile, append);
+        OutputStream out = fileOut;
+        if (outputFile.getName().toLowerCase().endsWith(".gz")) {
+          out = new GZIPOutputStream(out);
+          this.fileOut = null;  // can't meaningfully sync a partial gzip stream
+        }
+        this.dataOut = new DataOutputStream(new BufferedOutputStream(out, WRITE_BUFFER_SIZE));
+      }
     }
     catch (IOException e) {
       throw new IllegalStateException(e);
     }
 
-    this.streamer = streamer;
-    this.maxMessageBytes = maxMessageBytes;
+    if ((indexEveryRecords > 0 || indexEveryBytes > 0) && ProtoLogIndex.isIndexable(outputFile)) {
+      try {
+        this.index = ProtoLogIndex.open(outputFile, EventEntry.class, streamer, maxMessageBytes, indexEveryRecords, indexEveryBytes);
+      }
+      catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    if (queueCapacity > 0) {
+      this.queue = new RingBuffer<QueuedEntry>(queueCapacity);
+      this.overflowPolicy = overflowPolicy;
+      this.syncMillis = syncMillis;
+      this.closing = false;
+      this.writerParked = false;
+      this.writeError = null;
+
+      this.writerThread = new Thread(new Runnable() {
+          public void run() {
+            writeQueuedEntries();
+          }
+        }, "FileEventLogger-" + outputFile.getName());
+      writerThread.setDaemon(true);
+      writerThread.start();
+    }
   }
 
   /**
@@ -69,6 +188,9 @@ public class FileEventLogger extends EventLogger implements Shutdownable {
    * are cleared. If the message is still too long, then an IllegalStateException
    * is thrown.
    * <p>
+   * In async mode, the entry is queued for writing (or dropped according to
+   * the overflow policy.)
+   * <p>
    * Any IOException is wrapped in an IllegalStateException.
    */
   public byte[] logEventEntry(EventEntry.Builder eventEntry) {
@@ -84,11 +206,20 @@ public class FileEventLogger extends EventLogger implements Shutdownable {
       }
     }
 
-    try {
-      streamer.writeTo(result, this.dataOut);
+    if (queue != null) {
+      enqueue(new QueuedEntry(result, eventEntry.getTimestamp()));
     }
-    catch (IOException ioe) {
-      throw new IllegalStateException(ioe);
+    else {
+      try {
+        synchronized (dataOut) {
+          if (index != null) index.addRecord(eventEntry.getTimestamp(), streamer.getRecordSize(result.length));
+          streamer.writeTo(result, this.dataOut);
+        }
+        numFlushed.incrementAndGet();
+      }
+      catch (IOException ioe) {
+        throw new IllegalStateException(ioe);
+      }
     }
 
     return result;
@@ -99,11 +230,38 @@ public class FileEventLogger extends EventLogger implements Shutdownable {
   }
 
   /**
-   * Close this event logger.
+   * Close this event logger, first writing any queued entries in async mode.
    * <p>
    * Any IOException is wrapped in an IllegalStateException.
    */
   public void close() {
+    if (writerThread != null) {
+      closing = true;
+      LockSupport.unpark(writerThread);
+      try {
+        writerThread.join();
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      writerThread = null;
+
+      // entries logged concurrently with closing are dropped
+      while (queue.poll() != null) numDropped.incrementAndGet();
+    }
+
+    unregisterMBean();
+
+    if (index != null) {
+      try {
+        index.close();
+        index = null;
+      }
+      catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
     if (this.dataOut != null) {
       try {
         this.dataOut.close();
@@ -113,6 +271,193 @@ public class FileEventLogger extends EventLogger implements Shutdownable {
         throw new IllegalStateException(e);
       }
     }
+
+    if (writeError != null) {
+      throw new IllegalStateException(writeError);
+    }
   }
 
+  /**
+   * Register this logger's MXBean with the server, named by its output file.
+   * <p>
+   * Loggers running in a cluster node are registered alongside the node's
+   * other MXBeans through ClusterNode.registerEventLogger.
+   *
+   * @return true if registered; otherwise, false.
+   */
+  public boolean registerMBean(MBeanServer mbs) {
+    boolean result = false;
+
+    try {
+      final ObjectName name = new ObjectName("org.sd.cluster.protolog:type=FileEventLogger,name=" + ObjectName.quote(outputFile.getAbsolutePath()));
+      mbs.registerMBean(this, name);
+      this.mbs = mbs;
+      this.mbeanName = name;
+      result = true;
+    }
+    catch (Exception e) {
+      System.err.println("*** WARNING: Unable to register FileEventLoggerMXBean!");
+      e.printStackTrace(System.err);
+    }
+
+    return result;
+  }
+
+  private final void unregisterMBean() {
+    if (mbs != null && mbeanName != null) {
+      try {
+        mbs.unregisterMBean(mbeanName);
+      }
+      catch (Exception e) {
+        // already gone
+      }
+      mbs = null;
+      mbeanName = null;
+    }
+  }
+
+  public String getOutputPath() {
+    return outputFile.getAbsolutePath();
+  }
+
+  public boolean isAsync() {
+    return queue != null;
+  }
+
+  public int getQueueCapacity() {
+    return queue == null ? 0 : queue.capacity();
+  }
+
+  public int getQueueSize() {
+    return queue == null ? 0 : queue.size();
+  }
+
+  public long getNumQueued() {
+    return numQueued.get();
+  }
+
+  public long getNumDropped() {
+    return numDropped.get();
+  }
+
+  public long getNumFlushed() {
+    return numFlushed.get();
+  }
+
+  public long getNumSyncs() {
+    return numSyncs.get();
+  }
+
+  /**
+   * Queue the entry's bytes for the writer thread.
+   */
+  private final void enqueue(QueuedEntry entry) {
+    if (writeError != null) throw new IllegalStateException(writeError);
+
+    while (!closing && !queue.offer(entry)) {
+      if (overflowPolicy == OverflowPolicy.DROP) {
+        numDropped.incrementAndGet();
+        return;
+      }
+
+      // apply backpressure until the writer makes room
+      LockSupport.unpark(writerThread);
+      LockSupport.parkNanos(100000L);
+    }
+
+    if (closing) {
+      numDropped.incrementAndGet();
+      return;
+    }
+
+    numQueued.incrementAndGet();
+    if (writerParked) LockSupport.unpark(writerThread);
+  }
+
+  /**
+   * Writer thread loop.
+   */
+  private final void writeQueuedEntries() {
+    long unflushed = 0;
+    boolean unsynced = false;
+    long lastSync = System.currentTimeMillis();
+
+    try {
+      while (true) {
+        final QueuedEntry entry = queue.poll();
+
+        if (entry != null) {
+          if (index != null) index.addRecord(entry.timestamp, streamer.getRecordSize(entry.bytes.length));
+          streamer.writeTo(entry.bytes, dataOut, false);
+          if (++unflushed >= MAX_BATCH_ENTRIES) {
+            dataOut.flush();
+            numFlushed.addAndGet(unflushed);
+            unflushed = 0;
+            unsynced = true;
+          }
+        }
+        else {
+          // queue ran dry: flush the batch
+          if (unflushed > 0) {
+            dataOut.flush();
+            numFlushed.addAndGet(unflushed);
+            unflushed = 0;
+            unsynced = true;
+          }
+
+          if (closing && queue.isEmpty()) break;
+
+          writerParked = true;
+          if (queue.isEmpty() && !closing) {
+            LockSupport.parkNanos(this, (syncMillis > 0 && unsynced) ? Math.min(MAX_PARK_NANOS, syncMillis * 1000000L) : MAX_PARK_NANOS);
+          }
+          writerParked = false;
+        }
+
+        if (syncMillis > 0 && (unsynced || unflushed > 0)) {
+          final long now = System.currentTimeMillis();
+          if (now - lastSync >= syncMillis) {
+            if (unflushed > 0) {
+              dataOut.flush();
+              numFlushed.addAndGet(unflushed);
+              unflushed = 0;
+            }
+            sync();
+            unsynced = false;
+            lastSync = now;
+          }
+        }
+      }
+
+      if (unsynced) sync();
+    }
+    catch (IOException e) {
+      this.writeError = e;
+      this.closing = true;
+
+      // drop whatever remains
+      while (queue.poll() != null) numDropped.incrementAndGet();
+    }
+  }
+
+  private final void sync() throws IOException {
+    if (fileOut != null) {
+      fileOut.getFD().sync();
+      numSyncs.incrementAndGet();
+    }
+  }
+
+
+  /**
+   * An entry's bytes and timestamp waiting to be written.
+   */
+  private static final class QueuedEntry {
+    final byte[] bytes;
+    final long timestamp;
+
+    QueuedEntry(byte[] bytes, long timestamp) {
+      this.bytes = bytes;
+      this.timestamp = timestamp;
+    }
+  }
 }
@@ -0,0 +1,69 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.cluster.protolog;
+
+
+/**
+ * JMX MXBean for a FileEventLogger.
+ * <p>
+ * @author Spence Koehler
+ */
+public interface FileEventLoggerMXBean {
+
+  /**
+   * Get the path of the file being logged to.
+   */
+  public String getOutputPath();
+
+  /**
+   * Determine whether entries are written asynchronously.
+   */
+  public boolean isAsync();
+
+  /**
+   * Get the capacity of the async queue (0 if synchronous).
+   */
+  public int getQueueCapacity();
+
+  /**
+   * Get the number of entries currently waiting in the async queue.
+   */
+  public int getQueueSize();
+
+  /**
+   * Get the number of entries accepted into the async queue.
+   */
+  public long getNumQueued();
+
+  /**
+   * Get the number of entries dropped due to a full queue or closing.
+   */
+  public long getNumDropped();
+
+  /**
+   * Get the number of entries flushed to the output stream.
+   */
+  public long getNumFlushed();
+
+  /**
+   * Get the number of times the output file has been synced to disk.
+   */
+  public long getNumSyncs();
+
+}
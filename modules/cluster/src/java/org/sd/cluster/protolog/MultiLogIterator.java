@@ -36,6 +36,9 @@ import java.util.regex.Pattern;
  * Utility class to iterate through messages within multiple logs that are
  * within a time range.
  * <p>
+ * When a log has a ProtoLogIndex, iteration with a minimum time starts at
+ * the indexed offset preceding the range instead of the log's beginning.
+ * <p>
  * @author Spence Koehler
  */
 public class MultiLogIterator implements Iterator<Message> {
@@ -244,7 +247,7 @@ public class MultiLogIterator implements Iterator<Message> {
     final File[] logfiles = logDir.isDirectory() ?
       logDir.listFiles(new FileFilter() {
           public boolean accept(File pathname) {
-            return pathname.isDirectory() || selectFile(pathname);
+            return pathname.isDirectory() || (!ProtoLogIndex.isIndexFile(pathname) && selectFile(pathname));
           }
         }) : new File[]{logDir};
 
@@ -361,6 +364,15 @@ public class MultiLogIterator implements Iterator<Message> {
       if (_logFileIterator.hasNext()) {
         this._logFile = _logFileIterator.next();
         final FileInputStream fis = new FileInputStream(_logFile);
+
+        // skip to the start of the time range if the log is indexed
+        if (minTime != null) {
+          final ProtoLogIndex index = ProtoLogIndex.load(_logFile);
+          if (index != null) {
+            fis.getChannel().position(index.findStartOffset(minTime));
+          }
+        }
+
         result = new LogIterator(new DataInputStream(fis), messageClass, streamer, maxMessageBytes);
       }
     }
@@ -0,0 +1,425 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.cluster.protolog;
+
+
+import com.google.protobuf.Message;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+
+/**
+ * Sparse time index over a (non-gzipped) protolog file, kept in a sidecar
+ * file named by appending ".idx" to the log's name.
+ * <p>
+ * Each index entry holds a record's byte offset in the log along with the
+ * maximum timestamp of all records preceding that offset. Because these
+ * timestamps never decrease, a reader can binary search for the last entry
+ * before a minimum time and safely skip everything preceding its offset,
+ * even when records were not logged in strict timestamp order.
+ * <p>
+ * Entries are added every N records or M bytes, whichever comes first.
+ * FileEventLogger maintains an index as it writes; older logs can be
+ * indexed by a one-time scan through 'open' (or main).
+ *
+ * @author Spence Koehler
+ */
+public class ProtoLogIndex {
+
+  public static final String INDEX_EXTENSION = ".idx";
+  public static final int DEFAULT_EVERY_RECORDS = 1000;
+  public static final long DEFAULT_EVERY_BYTES = 1024 * 1024;
+
+  private static final int MAGIC = 0x504C4958;  // "PLIX"
+  private static final int ENTRY_BYTES = 16;
+
+  /**
+   * Get the index file for the log file.
+   */
+  public static final File getIndexFile(File logFile) {
+    return new File(logFile.getPath() + INDEX_EXTENSION);
+  }
+
+  /**
+   * Determine whether the file is an index file.
+   */
+  public static final boolean isIndexFile(File file) {
+    return file.getName().endsWith(INDEX_EXTENSION);
+  }
+
+  /**
+   * Determine whether the log file can be indexed (i.e. is not gzipped).
+   */
+  public static final boolean isIndexable(File logFile) {
+    return !logFile.getName().toLowerCase().endsWith(".gz");
+  }
+
+  /**
+   * Load the existing index for the log file (read-only).
+   *
+   * @return the index or null if the log has no (valid) index.
+   */
+  public static final ProtoLogIndex load(File logFile) {
+    ProtoLogIndex result = null;
+
+    final File indexFile = getIndexFile(logFile);
+    if (isIndexable(logFile) && indexFile.exists()) {
+      try {
+        result = new ProtoLogIndex(logFile);
+        if (!result.readEntries()) result = null;
+      }
+      catch (IOException e) {
+        result = null;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Open the index for the log file for appending records, creating it or
+   * bringing it up to date by scanning any of the log's records following
+   * its last entry.
+   *
+   * @param logFile  The (non-gzipped) log file to index.
+   * @param messageClass  The class of the log's messages (for timestamps).
+   * @param streamer  The ProtoLogStreamer to use to deserialize messages.
+   * @param maxMessageBytes  The maximum number of message bytes used while serializing.
+   * @param everyRecords  Add an entry at least every this many records (if positive).
+   * @param everyBytes  Add an entry at least every this many bytes (if positive).
+   */
+  public static final ProtoLogIndex open(File logFile, Class<? extends Message> messageClass,
+                                         ProtoLogStreamer streamer, int maxMessageBytes,
+                                         int everyRecords, long everyBytes) throws IOException {
+    final ProtoLogIndex result = new ProtoLogIndex(logFile);
+    result.everyRecords = everyRecords;
+    result.everyBytes = everyBytes;
+
+    if (!result.readEntries()) {
+      result.numEntries = 0;  // start over
+    }
+
+    result.openWriter();
+    if (logFile.exists()) {
+      result.scan(messageClass, streamer, maxMessageBytes);
+    }
+
+    return result;
+  }
+
+
+  private File logFile;
+  private int everyRecords;
+  private long everyBytes;
+
+  private long[] offsets;
+  private long[] priorMaxTimes;
+  private int numEntries;
+
+  // state for appending
+  private DataOutputStream indexOut;
+  private long endOffset;         // offset following the last record
+  private long maxTime;           // max timestamp through the last record
+  private int recordsSinceEntry;
+  private long bytesSinceEntry;
+
+  private ProtoLogIndex(File logFile) {
+    this.logFile = logFile;
+    this.everyRecords = DEFAULT_EVERY_RECORDS;
+    this.everyBytes = DEFAULT_EVERY_BYTES;
+    this.offsets = new long[16];
+    this.priorMaxTimes = new long[16];
+    this.numEntries = 0;
+    this.indexOut = null;
+    this.endOffset = 0L;
+    this.maxTime = Long.MIN_VALUE;
+    this.recordsSinceEntry = 0;
+    this.bytesSinceEntry = 0L;
+  }
+
+  /**
+   * Get the log file being indexed.
+   */
+  public File getLogFile() {
+    return logFile;
+  }
+
+  /**
+   * Get the number of index entries.
+   */
+  public int getNumEntries() {
+    return numEntries;
+  }
+
+  /**
+   * Get the offset following the last (scanned or added) record.
+   */
+  public long getEndOffset() {
+    return endOffset;
+  }
+
+  /**
+   * Find the offset from which to read to encounter all records with
+   * timestamps at or after minTime.
+   */
+  public long findStartOffset(long minTime) {
+    // find the last entry whose prior records are all before minTime
+    int lo = 0;
+    int hi = numEntries - 1;
+    int found = -1;
+    while (lo <= hi) {
+      final int mid = (lo + hi) >>> 1;
+      if (priorMaxTimes[mid] < minTime) {
+        found = mid;
+        lo = mid + 1;
+      }
+      else {
+        hi = mid - 1;
+      }
+    }
+
+    return found < 0 ? 0L : offsets[found];
+  }
+
+  /**
+   * Account for a record of the given size and timestamp about to be
+   * written at the end of the log, adding an index entry if due.
+   */
+  public void addRecord(long timestamp, int recordSize) throws IOException {
+    if ((everyRecords > 0 && recordsSinceEntry >= everyRecords) ||
+        (everyBytes > 0 && bytesSinceEntry >= everyBytes)) {
+      addEntry(endOffset, maxTime);
+    }
+
+    endOffset += recordSize;
+    ++recordsSinceEntry;
+    bytesSinceEntry += recordSize;
+    if (timestamp > maxTime) maxTime = timestamp;
+  }
+
+  /**
+   * Flush added entries to the index file.
+   */
+  public void flush() throws IOException {
+    if (indexOut != null) indexOut.flush();
+  }
+
+  /**
+   * Close the index file.
+   */
+  public void close() throws IOException {
+    if (indexOut != null) {
+      indexOut.close();
+      indexOut = null;
+    }
+  }
+
+  private final void addEntry(long offset, long priorMaxTime) throws IOException {
+    if (numEntries == offsets.length) {
+      final long[] newOffsets = new long[numEntries * 2];
+      final long[] newTimes = new long[numEntries * 2];
+      System.arraycopy(offsets, 0, newOffsets, 0, numEntries);
+      System.arraycopy(priorMaxTimes, 0, newTimes, 0, numEntries);
+      offsets = newOffsets;
+      priorMaxTimes = newTimes;
+    }
+    offsets[numEntries] = offset;
+    priorMaxTimes[numEntries] = priorMaxTime;
+    ++numEntries;
+
+    if (indexOut != null) {
+      indexOut.writeLong(offset);
+      indexOut.writeLong(priorMaxTime);
+      indexOut.flush();
+    }
+
+    recordsSinceEntry = 0;
+    bytesSinceEntry = 0L;
+  }
+
+  /**
+   * Read existing entries from the index file.
+   *
+   * @return true if the index file exists and is valid; otherwise, false.
+   */
+  private final boolean readEntries() throws IOException {
+    final File indexFile = getIndexFile(logFile);
+    if (!indexFile.exists()) return false;
+
+    final long logLength = logFile.length();
+    final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+    try {
+      if (indexFile.length() < 4 || in.readInt() != MAGIC) return false;
+
+      final int num = (int)((indexFile.length() - 4) / ENTRY_BYTES);
+      for (int i = 0; i < num; ++i) {
+        final long offset = in.readLong();
+        final long priorMaxTime = in.readLong();
+        if (offset > logLength) return false;  // index is not for this log
+        addEntry(offset, priorMaxTime);
+      }
+    }
+    finally {
+      in.close();
+    }
+
+    return true;
+  }
+
+  /**
+   * Open the index file for appending, rewriting entries to drop any
+   * partially written trailing entry.
+   */
+  private final void openWriter() throws IOException {
+    final int num = numEntries;
+    numEntries = 0;
+
+    this.indexOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(getIndexFile(logFile), false)));
+    indexOut.writeInt(MAGIC);
+    for (int i = 0; i < num; ++i) {
+      addEntry(offsets[i], priorMaxTimes[i]);
+    }
+    indexOut.flush();
+  }
+
+  /**
+   * Scan the log's records following the last index entry, adding entries.
+   */
+  private final void scan(Class<? extends Message> messageClass, ProtoLogStreamer streamer, int maxMessageBytes) throws IOException {
+    final Method parseMethod = ProtoLogUtil.getParseMethod(messageClass);
+    final long startOffset = (numEntries > 0) ? offsets[numEntries - 1] : 0L;
+
+    this.endOffset = startOffset;
+    this.maxTime = (numEntries > 0) ? priorMaxTimes[numEntries - 1] : Long.MIN_VALUE;
+    this.recordsSinceEntry = 0;
+    this.bytesSinceEntry = 0L;
+
+    final FileInputStream fileIn = new FileInputStream(logFile);
+    final PositionInputStream posIn = new PositionInputStream(new BufferedInputStream(fileIn), startOffset);
+    final DataInputStream in = new DataInputStream(posIn);
+
+    try {
+      fileIn.getChannel().position(startOffset);
+
+      while (true) {
+        final Message message = streamer.readMessageFrom(in, parseMethod, maxMessageBytes);
+        final long recordEnd = posIn.getPosition();
+
+        long timestamp = Long.MIN_VALUE;
+        final Object object = ProtoLogUtil.getField(message, "timestamp");
+        if (object != null && object instanceof Long) timestamp = (Long)object;
+
+        // account for any skipped garbage within the record's size
+        addRecord(timestamp, (int)(recordEnd - endOffset));
+      }
+    }
+    catch (EOFException e) {
+      // reached the end of the log
+    }
+    finally {
+      in.close();
+    }
+
+    // new records will follow any trailing partial record
+    final long length = logFile.length();
+    bytesSinceEntry += (length - endOffset);
+    endOffset = length;
+    flush();
+  }
+
+
+  /**
+   * Input stream tracking its position (including across mark/reset).
+   */
+  private static final class PositionInputStream extends FilterInputStream {
+
+    private long position;
+    private long markPosition;
+
+    PositionInputStream(InputStream in, long position) {
+      super(in);
+      this.position = position;
+      this.markPosition = position;
+    }
+
+    long getPosition() {
+      return position;
+    }
+
+    public int read() throws IOException {
+      final int result = super.read();
+      if (result >= 0) ++position;
+      return result;
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException {
+      final int result = super.read(b, off, len);
+      if (result > 0) position += result;
+      return result;
+    }
+
+    public long skip(long n) throws IOException {
+      final long result = super.skip(n);
+      position += result;
+      return result;
+    }
+
+    public synchronized void mark(int readlimit) {
+      super.mark(readlimit);
+      markPosition = position;
+    }
+
+    public synchronized void reset() throws IOException {
+      super.reset();
+      position = markPosition;
+    }
+  }
+
+
+  /**
+   * Index (or bring the index up to date for) the given log files.
+   * <p>
+   * Arguments: messageClass logFile...
+   */
+  public static final void main(String[] args) throws Exception {
+    final Class<? extends Message> messageClass = Class.forName(args[0]).asSubclass(Message.class);
+
+    for (int i = 1; i < args.length; ++i) {
+      final File logFile = new File(args[i]);
+      if (!isIndexable(logFile) || isIndexFile(logFile)) {
+        System.out.println("Skipping '" + logFile + "'");
+        continue;
+      }
+
+      final ProtoLogIndex index = open(logFile, messageClass, ProtoLogStreamer.DEFAULT_INSTANCE, ProtoLogStreamer.MAX_MESSAGE_BYTES,
+                                       DEFAULT_EVERY_RECORDS, DEFAULT_EVERY_BYTES);
+      index.close();
+      System.out.println("Indexed '" + logFile + "': " + index.getNumEntries() + " entries");
+    }
+  }
+}
@@ -101,6 +101,13 @@ public class ProtoLogStreamer {
     this.markwidth = this.preMarker.length + this.postMarker.length + 2;
   }
 
+  /**
+   * Get the number of bytes writeTo writes for a message of the given length.
+   */
+  public final int getRecordSize(int messageLength) {
+    return preMarker.length + 4 + postMarker.length + messageLength + 4;
+  }
+
   /**
    * Auxiliary to serialize a single message for the stream of a sequence of
    * messages.
@@ -140,6 +147,15 @@ public class ProtoLogStreamer {
    * @return the message's bytes.
    */
   public final void writeTo(byte[] messageBytes, DataOutputStream out) throws IOException {
+    writeTo(messageBytes, out, true);
+  }
+
+  /**
+   * Write the already serialized message bytes as a record to the stream as
+   * in writeTo(messageBytes, out), flushing the stream only if indicated so
+   * that callers writing batches of records can flush once per batch.
+   */
+  public final void writeTo(byte[] messageBytes, DataOutputStream out, boolean flush) throws IOException {
     if (out != null && messageBytes != null) {
       final int len = messageBytes.length;
 
@@ -147,7 +163,7 @@ public class ProtoLogStreamer {
         writeLength(out, len);    // write length and markers
         out.write(messageBytes);  // write the bytes
         out.writeInt(len);        // write the checksum
-        out.flush();
+        if (flush) out.flush();
       }
     }
   }
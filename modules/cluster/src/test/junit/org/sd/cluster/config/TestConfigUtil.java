@@ -25,6 +25,7 @@ import junit.framework.TestSuite;
 
 import java.io.File;
 
+import org.sd.cluster.io.NodeServer;
 import org.sd.io.FileUtil;
 
 /**
@@ -73,6 +74,21 @@ public class TestConfigUtil extends TestCase {
     }
   }
 
+  public void testSetServerTransport() {
+    final NodeServer.Transport original = ConfigUtil.getServerTransport();
+    try {
+      ConfigUtil.setServerTransport("nio");
+      assertEquals(NodeServer.Transport.NIO, ConfigUtil.getServerTransport());
+
+      // unrecognized names fall back to SOCKET
+      ConfigUtil.setServerTransport("noi");
+      assertEquals(NodeServer.Transport.SOCKET, ConfigUtil.getServerTransport());
+    }
+    finally {
+      ConfigUtil.setServerTransport(original.name());
+    }
+  }
+
   public static Test suite() {
     TestSuite suite = new TestSuite(TestConfigUtil.class);
     return suite;
@@ -26,8 +26,14 @@ import org.sd.testtools.BaseTestCase;
 
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.Socket;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 
 /**
@@ -358,6 +364,190 @@ public class TestClientServerSockets extends BaseTestCase {
     }
   }
 
+  // many in-flight messages sharing one pooled connection
+  public void testManyMessagesOverPooledConnection() throws UnknownHostException, IOException {
+    NodeServer server = null;
+    NodeClient client = null;
+
+    try {
+      final int port = PortServer.getInstance().getNextTestPort();
+      final InetSocketAddress serverAddress = new InetSocketAddress(InetAddress.getLocalHost(), port);
+
+      server = new NodeServer(new SimpleContext("testManyMessagesOverPooledConnection"), serverAddress, 4, 2);
+      server.start();
+
+      client = new NodeClient("testManyMessagesOverPooledConnection", serverAddress.getAddress(), 4, 1);
+      client.start();
+
+      final int numMessages = 20;
+      final InetSocketAddress[] serverAddresses = new InetSocketAddress[numMessages];
+      final Message[] messages = new Message[numMessages];
+      for (int i = 0; i < numMessages; ++i) {
+        serverAddresses[i] = serverAddress;
+        messages[i] = new TestMessenger.SimpleMessage((byte)i, true, i, "m" + i, i * 1.5, "zzz");
+      }
+
+      final Message[] responses = client.sendMessages(serverAddresses, messages, 10, 1000, 5000);
+
+      // responses come back in any order
+      final List<Message> remaining = new ArrayList<Message>(Arrays.asList(responses));
+      for (Message message : messages) {
+        assertTrue(remaining.remove(message));
+      }
+
+      assertEquals(1, server.getNumMultiplexedConnections());
+
+      client.shutdown(false);
+      server.shutdown(false);
+    }
+    finally {
+      if (server != null) server.shutdown(true);
+      if (client != null) client.shutdown(true);
+    }
+  }
+
+  // a client without pooling sends each message over its own socket
+  public void testUnpooledClient() throws UnknownHostException, IOException {
+    NodeServer server = null;
+    NodeClient client = null;
+
+    try {
+      final int port = PortServer.getInstance().getNextTestPort();
+      final InetSocketAddress serverAddress = new InetSocketAddress(InetAddress.getLocalHost(), port);
+
+      server = new NodeServer(new SimpleContext("testUnpooledClient"), serverAddress, 1, 1);
+      server.start();
+
+      client = new NodeClient("testUnpooledClient", serverAddress.getAddress(), 1, 0);
+      client.start();
+
+      final Message message = new TestMessenger.SimpleMessage((byte)123, true, 456, "789", 10.1112, "zzz");
+      final Message response = client.sendMessage(serverAddress, message, 10, 1000, 1000);
+
+      assertEquals(message, response);
+      assertEquals(0, server.getNumMultiplexedConnections());
+
+      client.shutdown(false);
+      server.shutdown(false);
+    }
+    finally {
+      if (server != null) server.shutdown(true);
+      if (client != null) client.shutdown(true);
+    }
+  }
+
+  // the NIO transport serves both single message and pooled clients
+  public void testNioTransport() throws UnknownHostException, IOException {
+    NodeServer server = null;
+    NodeClient unpooledClient = null;
+    NodeClient pooledClient = null;
+
+    try {
+      final int port = PortServer.getInstance().getNextTestPort();
+      final InetSocketAddress serverAddress = new InetSocketAddress(InetAddress.getLocalHost(), port);
+
+      server = new NodeServer(new SimpleContext("testNioTransport"), serverAddress, 4, 2, NodeServer.Transport.NIO);
+      server.start();
+
+      unpooledClient = new NodeClient("testNioTransport-unpooled", serverAddress.getAddress(), 1, 0);
+      unpooledClient.start();
+      pooledClient = new NodeClient("testNioTransport-pooled", serverAddress.getAddress(), 4, 1);
+      pooledClient.start();
+
+      // single message round trip
+      final Message message = new TestMessenger.SimpleMessage((byte)123, true, 456, "789", 10.1112, "zzz");
+      assertEquals(message, unpooledClient.sendMessage(serverAddress, message, 10, 1000, 1000));
+      assertEquals(0, server.getNumMultiplexedConnections());
+
+      // message spanning many reads and writes
+      final StringBuilder bigString = new StringBuilder();
+      while (bigString.length() < 300000) bigString.append("abcdefghijklmnopqrstuvwxyz");
+      final Message bigMessage = new TestMessenger.SimpleMessage((byte)1, false, 2, bigString.toString(), 3.0, "zzz");
+      assertEquals(bigMessage, unpooledClient.sendMessage(serverAddress, bigMessage, 10, 1000, 5000));
+      assertEquals(bigMessage, pooledClient.sendMessage(serverAddress, bigMessage, 10, 1000, 5000));
+
+      // many in-flight messages over a pooled connection
+      final int numMessages = 20;
+      final InetSocketAddress[] serverAddresses = new InetSocketAddress[numMessages];
+      final Message[] messages = new Message[numMessages];
+      for (int i = 0; i < numMessages; ++i) {
+        serverAddresses[i] = serverAddress;
+        messages[i] = new TestMessenger.SimpleMessage((byte)i, true, i, "m" + i, i * 1.5, "zzz");
+      }
+
+      final Message[] responses = pooledClient.sendMessages(serverAddresses, messages, 10, 1000, 5000);
+      final List<Message> remaining = new ArrayList<Message>(Arrays.asList(responses));
+      for (Message curMessage : messages) {
+        assertTrue(remaining.remove(curMessage));
+      }
+
+      assertEquals(1, server.getNumMultiplexedConnections());
+      assertEquals(0, server.getNumBadMessages());
+
+      pooledClient.shutdown(false);
+      unpooledClient.shutdown(false);
+      server.shutdown(false);
+      assertFalse(server.isUp());
+    }
+    finally {
+      if (server != null) server.shutdown(true);
+      if (unpooledClient != null) unpooledClient.shutdown(true);
+      if (pooledClient != null) pooledClient.shutdown(true);
+    }
+  }
+
+  // the NIO transport closes a multiplexed connection announcing an oversize frame
+  public void testNioTransportRejectsOversizeFrame() throws UnknownHostException, IOException {
+    NodeServer server = null;
+    Socket socket = null;
+
+    try {
+      final int port = PortServer.getInstance().getNextTestPort();
+      final InetSocketAddress serverAddress = new InetSocketAddress(InetAddress.getLocalHost(), port);
+
+      server = new NodeServer(new SimpleContext("testNioTransportRejectsOversizeFrame"), serverAddress, 4, 2, NodeServer.Transport.NIO);
+      server.start();
+
+      // wait for the server to bind
+      for (int tries = 0; socket == null; ++tries) {
+        try {
+          socket = new Socket(serverAddress.getAddress(), port);
+        }
+        catch (IOException e) {
+          if (tries >= 50) throw e;
+          try {
+            Thread.sleep(100);
+          }
+          catch (InterruptedException ie) {
+            break;
+          }
+        }
+      }
+      socket.setSoTimeout(5000);
+      final DataOutputStream dataOut = new DataOutputStream(socket.getOutputStream());
+      final DataInputStream dataIn = new DataInputStream(socket.getInputStream());
+
+      dataOut.writeByte(MuxConnection.MUX_MAGIC);
+      dataOut.writeInt(MuxConnection.MUX_SIGNATURE);
+      dataOut.writeInt(MuxConnection.MUX_VERSION);
+      dataOut.flush();
+      assertEquals(MuxConnection.MUX_MAGIC, dataIn.readUnsignedByte());
+      assertEquals(MuxConnection.MUX_VERSION, dataIn.readInt());
+
+      dataOut.writeLong(0L);
+      dataOut.writeInt(MuxConnection.MAX_FRAME_SIZE + 1);
+      dataOut.flush();
+      assertEquals(-1, dataIn.read());
+      assertEquals(1, server.getNumBadMessages());
+
+      server.shutdown(false);
+    }
+    finally {
+      if (socket != null) socket.close();
+      if (server != null) server.shutdown(true);
+    }
+  }
+
   private final class SimpleContext implements Context {
     private String name;
     private long starttime;
@@ -0,0 +1,92 @@
+/*
+    Copyright 2011 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.cluster.io;
+
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import org.sd.testtools.BaseTestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * JUnit Tests for the MuxConnection class's framing.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestMuxConnection extends BaseTestCase {
+
+  public TestMuxConnection(String name) {
+    super(name);
+  }
+  
+  public void testFrameRoundTrip() throws IOException {
+    final Message message = new TestMessenger.SimpleMessage((byte)1, true, 2, "frame", 3.0, "foo");
+
+    final ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+    final DataOutputStream dataOut = new DataOutputStream(bytesOut);
+    MuxConnection.writeFrame(dataOut, 7L, MuxConnection.serialize(message));
+    dataOut.close();
+
+    final DataInputStream dataIn = new DataInputStream(new ByteArrayInputStream(bytesOut.toByteArray()));
+    assertEquals(7L, dataIn.readLong());
+    assertEquals(message, MuxConnection.deserialize(MuxConnection.readFrameBytes(dataIn)));
+  }
+
+  public void testRejectOversizeFrame() throws IOException {
+    final ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+    final DataOutputStream dataOut = new DataOutputStream(bytesOut);
+    dataOut.writeInt(MuxConnection.MAX_FRAME_SIZE + 1);
+    dataOut.close();
+
+    final DataInputStream dataIn = new DataInputStream(new ByteArrayInputStream(bytesOut.toByteArray()));
+    try {
+      MuxConnection.readFrameBytes(dataIn);
+      fail("expected an oversize frame to be rejected");
+    }
+    catch (IOException e) {
+      // expected
+    }
+  }
+
+  public void testRejectNegativeFrame() throws IOException {
+    final DataInputStream dataIn = new DataInputStream(new ByteArrayInputStream(new byte[]{(byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF}));
+    try {
+      MuxConnection.readFrameBytes(dataIn);
+      fail("expected a negative frame length to be rejected");
+    }
+    catch (IOException e) {
+      // expected
+    }
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestMuxConnection.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
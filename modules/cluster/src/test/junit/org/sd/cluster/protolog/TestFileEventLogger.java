@@ -0,0 +1,157 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.cluster.protolog;
+
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import org.sd.cluster.protolog.codegen.ProtoLogProtos.*;
+import org.sd.io.FileUtil;
+
+/**
+ * JUnit Tests for the FileEventLogger class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestFileEventLogger extends TestCase {
+
+  public TestFileEventLogger(String name) {
+    super(name);
+  }
+  
+  private final Set<Long> readEventIds(File file) throws IOException {
+    final Set<Long> result = new HashSet<Long>();
+
+    final DataInputStream in = new DataInputStream(FileUtil.getInputStream(file));
+    final LogIterator iter = new LogIterator(in, EventEntry.class, ProtoLogStreamer.DEFAULT_INSTANCE, ProtoLogStreamer.MAX_MESSAGE_BYTES);
+    while (iter.hasNext()) {
+      final EventEntry entry = (EventEntry)iter.next();
+      assertTrue(result.add(entry.getId().getId()));
+    }
+    iter.close();
+
+    return result;
+  }
+
+  private final void logConcurrently(final FileEventLogger logger, int numThreads, final int numPerThread) throws InterruptedException {
+    final List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < numThreads; ++t) {
+      final int base = t * numPerThread;
+      threads.add(new Thread() {
+          public void run() {
+            for (int i = 0; i < numPerThread; ++i) {
+              logger.logEventEntry(EventLogger.createEventEntry(base + i, "test", "event", EventEntry.EventType.START));
+            }
+          }
+        });
+    }
+    for (Thread thread : threads) thread.start();
+    for (Thread thread : threads) thread.join();
+  }
+
+  private final void doAsyncTest(String filename) throws Exception {
+    final File file = File.createTempFile("TestFileEventLogger", filename);
+    try {
+      // small queue to exercise blocking backpressure
+      final FileEventLogger logger =
+        new FileEventLogger(file, false, ProtoLogStreamer.DEFAULT_INSTANCE, ProtoLogStreamer.MAX_MESSAGE_BYTES,
+                            16, FileEventLogger.OverflowPolicy.BLOCK, 5);
+      assertTrue(logger.isAsync());
+      assertEquals(16, logger.getQueueCapacity());
+
+      logConcurrently(logger, 4, 500);
+      logger.close();
+
+      assertEquals(2000, logger.getNumQueued());
+      assertEquals(0, logger.getNumDropped());
+      assertEquals(2000, logger.getNumFlushed());
+
+      final Set<Long> ids = readEventIds(file);
+      assertEquals(2000, ids.size());
+      assertTrue(ids.contains(0L));
+      assertTrue(ids.contains(1999L));
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+  public void testAsync() throws Exception {
+    doAsyncTest(".log");
+  }
+
+  public void testAsyncGzip() throws Exception {
+    doAsyncTest(".log.gz");
+  }
+
+  public void testDrop() throws Exception {
+    final File file = File.createTempFile("TestFileEventLogger", ".log");
+    try {
+      final FileEventLogger logger =
+        new FileEventLogger(file, false, ProtoLogStreamer.DEFAULT_INSTANCE, ProtoLogStreamer.MAX_MESSAGE_BYTES,
+                            2, FileEventLogger.OverflowPolicy.DROP, 0);
+
+      logConcurrently(logger, 4, 500);
+      logger.close();
+
+      // everything is either written or counted as dropped
+      assertEquals(2000, logger.getNumQueued() + logger.getNumDropped());
+      assertEquals(logger.getNumQueued(), logger.getNumFlushed());
+      assertEquals(logger.getNumFlushed(), readEventIds(file).size());
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+  public void testSync() throws Exception {
+    final File file = File.createTempFile("TestFileEventLogger", ".log");
+    try {
+      final FileEventLogger logger = new FileEventLogger(file, false, ProtoLogStreamer.DEFAULT_INSTANCE, ProtoLogStreamer.MAX_MESSAGE_BYTES);
+      assertFalse(logger.isAsync());
+
+      logConcurrently(logger, 2, 100);
+      logger.close();
+
+      assertEquals(200, logger.getNumFlushed());
+      assertEquals(200, readEventIds(file).size());
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestFileEventLogger.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
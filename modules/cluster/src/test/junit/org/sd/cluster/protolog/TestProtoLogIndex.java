@@ -0,0 +1,157 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.cluster.protolog;
+
+
+import java.io.File;
+import java.io.IOException;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import org.sd.cluster.protolog.codegen.ProtoLogProtos.*;
+import org.sd.io.FileUtil;
+
+/**
+ * JUnit Tests for the ProtoLogIndex class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestProtoLogIndex extends TestCase {
+
+  private File dir;
+
+  public TestProtoLogIndex(String name) {
+    super(name);
+  }
+  
+  protected void setUp() throws IOException {
+    this.dir = File.createTempFile("TestProtoLogIndex", ".dir");
+    dir.delete();
+    dir.mkdirs();
+  }
+
+  protected void tearDown() {
+    FileUtil.deleteDir(dir);
+  }
+
+  private static final long timestamp(int i) {
+    // mostly increasing, with every 7th entry logged late
+    return (i % 7 == 0) ? i * 10L - 35 : i * 10L;
+  }
+
+  private final void writeLog(File logFile, boolean append, int start, int num, int indexEvery, boolean async) {
+    final FileEventLogger logger =
+      new FileEventLogger(logFile, append, ProtoLogStreamer.DEFAULT_INSTANCE, ProtoLogStreamer.MAX_MESSAGE_BYTES,
+                          async ? 64 : 0, FileEventLogger.OverflowPolicy.BLOCK, 0L, indexEvery, 0L);
+    for (int i = start; i < start + num; ++i) {
+      logger.logEventEntry(EventLogger.createEventEntry(i, timestamp(i), "test", "event", EventEntry.EventType.START));
+    }
+    logger.close();
+  }
+
+  private final int countFrom(File logFile, long minTime) {
+    int result = 0;
+
+    final MultiLogIterator iter = new MultiLogIterator(logFile, EventEntry.class, ProtoLogStreamer.DEFAULT_INSTANCE, ProtoLogStreamer.MAX_MESSAGE_BYTES,
+                                                       null, null, minTime, null);
+    while (iter.hasNext()) {
+      final EventEntry entry = (EventEntry)iter.next();
+      assertTrue(entry.getTimestamp() >= minTime);
+      ++result;
+    }
+    iter.close();
+
+    return result;
+  }
+
+  private static final int expectedFrom(int num, long minTime) {
+    int result = 0;
+    for (int i = 0; i < num; ++i) {
+      if (timestamp(i) >= minTime) ++result;
+    }
+    return result;
+  }
+
+  private final void verify(File logFile, int num) {
+    final ProtoLogIndex index = ProtoLogIndex.load(logFile);
+    assertNotNull(index);
+    assertTrue(index.getNumEntries() >= num / 10 - 1);
+
+    assertEquals(0L, index.findStartOffset(0L));
+    assertTrue(index.findStartOffset(timestamp(num / 2)) > 0L);
+
+    for (long minTime = -100; minTime < num * 10 + 100; minTime += 97) {
+      assertEquals("minTime=" + minTime, expectedFrom(num, minTime), countFrom(logFile, minTime));
+    }
+  }
+
+  public void testLoggerIndex() throws IOException {
+    final File logFile = new File(dir, "sync.log");
+    writeLog(logFile, false, 0, 1000, 10, false);
+    verify(logFile, 1000);
+  }
+
+  public void testAsyncLoggerIndex() throws IOException {
+    final File logFile = new File(dir, "async.log");
+    writeLog(logFile, false, 0, 1000, 10, true);
+    verify(logFile, 1000);
+  }
+
+  public void testAppend() throws IOException {
+    final File logFile = new File(dir, "append.log");
+    writeLog(logFile, false, 0, 555, 10, false);
+    writeLog(logFile, true, 555, 445, 10, true);
+    verify(logFile, 1000);
+
+    // rewriting resets the index
+    writeLog(logFile, false, 0, 100, 10, false);
+    verify(logFile, 100);
+  }
+
+  public void testIndexOldLog() throws IOException {
+    final File logFile = new File(dir, "old.log");
+    writeLog(logFile, false, 0, 1000, 0, false);
+    assertNull(ProtoLogIndex.load(logFile));
+
+    final ProtoLogIndex built = ProtoLogIndex.open(logFile, EventEntry.class, ProtoLogStreamer.DEFAULT_INSTANCE, ProtoLogStreamer.MAX_MESSAGE_BYTES, 10, 0L);
+    built.close();
+    assertEquals(logFile.length(), built.getEndOffset());
+
+    // a one-time scan matches the index the logger would have written
+    final File liveFile = new File(dir, "live.log");
+    writeLog(liveFile, false, 0, 1000, 10, false);
+    final ProtoLogIndex live = ProtoLogIndex.load(liveFile);
+    assertEquals(live.getNumEntries(), built.getNumEntries());
+    for (int i = 0; i < 1000; i += 13) {
+      assertEquals(live.findStartOffset(timestamp(i)), built.findStartOffset(timestamp(i)));
+    }
+
+    verify(logFile, 1000);
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestProtoLogIndex.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
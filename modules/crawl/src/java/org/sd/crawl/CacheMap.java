@@ -137,10 +137,20 @@ public class CacheMap {
    * @return the added or updated entry.
    */
   public CacheEntry addEntry(CrawledPage crawledPage) {
+    return addEntry(crawledPage, null);
+  }
+
+  /**
+   * Add or update the entry, using the given local dir and name (from
+   * reserveLocalName) if the entry is new.
+   * <p>
+   * @return the added or updated entry.
+   */
+  public CacheEntry addEntry(CrawledPage crawledPage, String[] localName) {
     CacheEntry entry = lookupEntry(crawledPage.getUrl());
 
     if (entry == null) {
-      final String[] localName = getNextLocalName();
+      if (localName == null) localName = getNextLocalName();
       entry = new CacheEntry(crawledPage, localName[0], localName[1]);
     }
     else {
@@ -177,6 +187,17 @@ public class CacheMap {
     return result;
   }
 
+  /**
+   * Get the local dir and name for the url's content, which is its existing
+   * entry's if present or the next available.
+   * <p>
+   * This allows content to be written before its entry is added.
+   */
+  public String[] reserveLocalName(String cleanUrl) {
+    final CacheEntry entry = lookupEntry(cleanUrl);
+    return (entry != null) ? new String[]{entry.getLocalDir(), entry.getLocalName()} : getNextLocalName();
+  }
+
   /**
    * Get the next local dir and name.
    */
@@ -19,8 +19,15 @@
 package org.sd.crawl;
 
 
+import org.sd.io.FileUtil;
+
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -126,6 +133,62 @@ public class CrawlCache {
     }
   }
 
+  /**
+   * Store the page in this cache, copying its content's raw bytes from the
+   * channel to the cache file through the buffer.
+   * <p>
+   * The bytes are stored as-is (decompressed if the cache file is gzipped)
+   * so that their charset is determined when read (see CrawlUtil.readContent).
+   * The page's content download time is set to the time spent copying and
+   * its map entry is added after its content has been written.
+   * <p>
+   * The content is copied to a temporary file in the cache file's directory
+   * and renamed into place once complete, so that a failed download leaves
+   * any previously cached copy intact.
+   *
+   * @return the number of content bytes stored.
+   */
+  public long storePageInCache(CrawledPage crawledPage, ReadableByteChannel content, ByteBuffer buffer) throws IOException {
+    final long starttime = System.currentTimeMillis();
+
+    final String[] localName = cacheMap.reserveLocalName(crawledPage.getUrl());
+    final File subdir = localName[0] == null ? cacheDir : new File(cacheDir, localName[0]);
+    final File file = new File(subdir, localName[1]);
+    if (!subdir.exists()) subdir.mkdirs();
+
+    // keep the (gzip) extension so the temp file is written like the cache file
+    final File tmpFile = File.createTempFile("tmp-", "-" + localName[1], subdir);
+
+    long result = 0;
+    boolean success = false;
+    try {
+      final OutputStream outputStream = FileUtil.getOutputStream(tmpFile, false);
+      try {
+        final WritableByteChannel out = Channels.newChannel(outputStream);
+        result = CrawlUtil.copy(content, out, buffer);
+      }
+      finally {
+        outputStream.close();
+      }
+
+      if (!tmpFile.renameTo(file)) {
+        throw new IOException("Unable to rename '" + tmpFile + "' to '" + file + "'!");
+      }
+      success = true;
+    }
+    finally {
+      if (!success) tmpFile.delete();
+    }
+
+    crawledPage.setFile(file);
+    crawledPage.setActualLength((int)result);
+    crawledPage.setDownloadContentTime(System.currentTimeMillis() - starttime);
+
+    cacheMap.addEntry(crawledPage, localName);
+
+    return result;
+  }
+
   /**
    * Update the page's meta data in the cache map.
    *
@@ -0,0 +1,311 @@
+/*
+    Copyright 2011 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.crawl;
+
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe crawl frontier holding a queue of items per host and
+ * scheduling each host by the time it next becomes eligible for a visit.
+ * <p>
+ * Fetcher threads loop over take (which waits only until SOME host is
+ * eligible) and release (which starts the released host's delay), so one
+ * host's politeness delay never idles threads that could fetch from other
+ * hosts. At most one item per host is out at a time.
+ * <p>
+ * Within a host, HIGH priority items are taken before NORMAL items, mirroring
+ * SiteCrawler's queue handling.
+ * <p>
+ * @author Spence Koehler
+ */
+public class CrawlFrontier <T> {
+  
+  private final ReentrantLock lock;
+  private final Condition changed;
+  private final Map<String, HostQueue<T>> host2queue;
+  private final PriorityQueue<HostQueue<T>> ready;  // idle hosts with queued items
+  private int size;
+  private int numInFlight;
+  private long sequence;
+  private boolean closed;
+
+  /**
+   * Construct an empty frontier.
+   */
+  public CrawlFrontier() {
+    this.lock = new ReentrantLock();
+    this.changed = lock.newCondition();
+    this.host2queue = new HashMap<String, HostQueue<T>>();
+    this.ready = new PriorityQueue<HostQueue<T>>();
+    this.size = 0;
+    this.numInFlight = 0;
+    this.sequence = 0L;
+    this.closed = false;
+  }
+
+  /**
+   * Add an item to be visited on the given host.
+   *
+   * @param host  The host key (see CrawlSettings.getHostKey).
+   * @param item  The item to queue.
+   * @param priority  HIGH to queue before the host's other items, or
+   *                  NORMAL (or null) to queue after them.
+   *
+   * @return true if added; false if this frontier has been closed.
+   */
+  public boolean add(String host, T item, LinkFollower.Priority priority) {
+    lock.lock();
+    try {
+      if (closed) return false;
+
+      HostQueue<T> hostQueue = host2queue.get(host);
+      if (hostQueue == null) {
+        hostQueue = new HostQueue<T>(host);
+        host2queue.put(host, hostQueue);
+      }
+
+      if (priority == LinkFollower.Priority.HIGH) {
+        hostQueue.items.addFirst(item);
+      }
+      else {
+        hostQueue.items.addLast(item);
+      }
+      ++size;
+
+      if (!hostQueue.busy && !hostQueue.isReady) {
+        makeReady(hostQueue);
+      }
+
+      changed.signalAll();
+    }
+    finally {
+      lock.unlock();
+    }
+
+    return true;
+  }
+
+  /**
+   * Take the next item from a host that is eligible for a visit, waiting
+   * until one becomes eligible if necessary.
+   * <p>
+   * The item's host is unavailable until the entry is released.
+   *
+   * @return the next entry, or null when the frontier has been closed or
+   *         there are no queued items and none out awaiting release.
+   */
+  public Entry<T> take() throws InterruptedException {
+    lock.lock();
+    try {
+      while (!closed) {
+        final HostQueue<T> hostQueue = ready.peek();
+
+        if (hostQueue == null) {
+          if (numInFlight == 0) break;  // exhausted
+          changed.await();
+        }
+        else {
+          final long waitTime = hostQueue.nextTime - System.currentTimeMillis();
+          if (waitTime > 0) {
+            changed.await(waitTime, TimeUnit.MILLISECONDS);
+          }
+          else {
+            ready.poll();
+            hostQueue.isReady = false;
+            hostQueue.busy = true;
+            --size;
+            ++numInFlight;
+            return new Entry<T>(hostQueue.host, hostQueue.items.removeFirst());
+          }
+        }
+      }
+    }
+    finally {
+      lock.unlock();
+    }
+
+    return null;
+  }
+
+  /**
+   * Release a taken entry, making its host eligible again after the given
+   * delay.
+   * <p>
+   * Note that items generated while visiting the entry should be added
+   * before releasing it so that the frontier isn't seen as exhausted.
+   *
+   * @param entry  The entry (from take) whose visit has finished.
+   * @param delayMillis  Millis to wait before visiting the host again.
+   */
+  public void release(Entry<T> entry, long delayMillis) {
+    lock.lock();
+    try {
+      final HostQueue<T> hostQueue = host2queue.get(entry.getHost());
+      if (hostQueue != null && hostQueue.busy) {
+        hostQueue.busy = false;
+        hostQueue.nextTime = System.currentTimeMillis() + delayMillis;
+        --numInFlight;
+
+        if (hostQueue.items.size() > 0) {
+          makeReady(hostQueue);
+        }
+        else if (delayMillis <= 0) {
+          host2queue.remove(hostQueue.host);  // nothing to remember
+        }
+      }
+
+      changed.signalAll();
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Close this frontier, discarding queued items and causing all current and
+   * future takes to return null.
+   */
+  public void close() {
+    lock.lock();
+    try {
+      closed = true;
+      ready.clear();
+      host2queue.clear();
+      size = 0;
+      changed.signalAll();
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Determine whether this frontier has been closed.
+   */
+  public boolean isClosed() {
+    lock.lock();
+    try {
+      return closed;
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Get the number of queued items (not including those taken).
+   */
+  public int size() {
+    lock.lock();
+    try {
+      return size;
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Get the number of taken entries that have not yet been released.
+   */
+  public int getNumInFlight() {
+    lock.lock();
+    try {
+      return numInFlight;
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Get the number of hosts currently tracked.
+   */
+  public int getNumHosts() {
+    lock.lock();
+    try {
+      return host2queue.size();
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  // must hold lock
+  private final void makeReady(HostQueue<T> hostQueue) {
+    hostQueue.order = sequence++;
+    hostQueue.isReady = true;
+    ready.add(hostQueue);
+  }
+
+
+  /**
+   * Container for an item taken from the frontier.
+   */
+  public static final class Entry <T> {
+    private String host;
+    private T item;
+
+    Entry(String host, T item) {
+      this.host = host;
+      this.item = item;
+    }
+
+    public String getHost() {
+      return host;
+    }
+
+    public T getItem() {
+      return item;
+    }
+  }
+
+  private static final class HostQueue <T> implements Comparable<HostQueue<T>> {
+    final String host;
+    final LinkedList<T> items;
+    long nextTime;    // time at which the host is next eligible for a visit
+    long order;       // tie-breaker for hosts with equal nextTimes
+    boolean busy;     // true while an item is out for the host
+    boolean isReady;  // true while in the ready queue
+
+    HostQueue(String host) {
+      this.host = host;
+      this.items = new LinkedList<T>();
+      this.nextTime = 0L;
+      this.order = 0L;
+      this.busy = false;
+      this.isReady = false;
+    }
+
+    public int compareTo(HostQueue<T> other) {
+      int result = (nextTime < other.nextTime) ? -1 : (nextTime > other.nextTime) ? 1 : 0;
+      if (result == 0) {
+        result = (order < other.order) ? -1 : (order > other.order) ? 1 : 0;
+      }
+      return result;
+    }
+  }
+}
@@ -44,6 +44,7 @@ public class CrawlSettings {
   public static final int DEFAULT_MAX_NUM_ROBOTS = 20;
   public static final String DEFAULT_USER_AGENT = "Mozilla/4.0 (compatible; MSIE 5.0; Windows NT; DigExt)";
   public static final String DEFAULT_ROBOT_NAME = "semanticdiscovery";
+  public static final int DEFAULT_DOWNLOAD_BUFFER_SIZE = 16384;
 
 
   private int connectTimeout;
@@ -55,12 +56,15 @@ public class CrawlSettings {
   private boolean verbose;
   private File cacheDir;
   private String userAgent;
+  private boolean acceptCompressed;  // request gzip/deflate content encoding
+  private int downloadBufferSize;    // bytes buffered while streaming content
 
   private boolean ignoreRobots;
   private long crawlDelay;       // delay to apply when revisiting a site
   private long maxCrawlDelay;    // maximum crawl delay
   private int maxNumRobots;      // at least as many as crawling threads
   private String robotName;      // as would be found in a user-agent string in a robots.txt
+  private boolean delayScheduled; // true when site delays are scheduled externally (e.g. by a CrawlFrontier)
 
   private Map<String, Long> host2time;
   private boolean cleaningUpDelays;
@@ -95,6 +99,10 @@ public class CrawlSettings {
    *                     threads that will be used to crawl using these
    *                     settings.</li>
    * <li>robotName -- (default=semanticdiscovery) robot name as a (partial) user-agent in a robots.txt file.
+   * <li>acceptCompressed -- If "true" (default="false"), then request gzip or
+   *                         deflate encoded content, decoding it while downloading.</li>
+   * <li>downloadBufferSize -- (default=16384) number of bytes buffered while
+   *                           streaming page content.</li>
    * </ul>
    */
   public CrawlSettings(Properties properties) {
@@ -109,12 +117,15 @@ public class CrawlSettings {
     final String cacheDirString = properties.getProperty("cacheDir", "");
     this.cacheDir = "".equals(cacheDirString) ? null : new File(cacheDirString);
     this.userAgent = properties.getProperty("userAgent", DEFAULT_USER_AGENT);
+    this.acceptCompressed = "true".equalsIgnoreCase(properties.getProperty("acceptCompressed", "false"));
+    this.downloadBufferSize = Integer.parseInt(properties.getProperty("downloadBufferSize", Integer.toString(DEFAULT_DOWNLOAD_BUFFER_SIZE)));
 
     this.ignoreRobots = "true".equals(properties.getProperty("ignoreRobots", "false"));
     this.crawlDelay = Long.parseLong(properties.getProperty("crawlDelay", Long.toString(DEFAULT_CRAWL_DELAY)));
     this.maxCrawlDelay = crawlDelay;
     this.maxNumRobots = Integer.parseInt(properties.getProperty("maxNumRobots", Integer.toString(DEFAULT_MAX_NUM_ROBOTS)));
     this.robotName = properties.getProperty("robotName", DEFAULT_ROBOT_NAME);
+    this.delayScheduled = false;
 
     this.host2time = null;
     this.cleaningUpDelays = false;
@@ -134,11 +145,14 @@ public class CrawlSettings {
     this.verbose = other.verbose;
     this.cacheDir = other.cacheDir;
     this.userAgent = other.userAgent;
+    this.acceptCompressed = other.acceptCompressed;
+    this.downloadBufferSize = other.downloadBufferSize;
     this.ignoreRobots = other.ignoreRobots;
     this.crawlDelay = other.crawlDelay;
     this.maxCrawlDelay = other.crawlDelay;
     this.maxNumRobots = other.maxNumRobots;
     this.robotName = other.robotName;
+    this.delayScheduled = other.delayScheduled;
     this.host2time = other.host2time;
     this.cleaningUpDelays = false;
     this.host2robots = other.host2robots;
@@ -271,6 +285,34 @@ public class CrawlSettings {
   }
 
 
+  /**
+   * Set whether to request gzip or deflate encoded content.
+   */
+  public void setAcceptCompressed(boolean acceptCompressed) {
+    this.acceptCompressed = acceptCompressed;
+  }
+
+  /**
+   * Determine whether to request gzip or deflate encoded content.
+   */
+  public boolean acceptCompressed() {
+    return acceptCompressed;
+  }
+
+  /**
+   * Set the number of bytes to buffer while streaming page content.
+   */
+  public void setDownloadBufferSize(int downloadBufferSize) {
+    this.downloadBufferSize = downloadBufferSize;
+  }
+
+  /**
+   * Get the number of bytes to buffer while streaming page content.
+   */
+  public int getDownloadBufferSize() {
+    return downloadBufferSize;
+  }
+
   /**
    * Set the ignore robots flag.
    */
@@ -301,6 +343,39 @@ public class CrawlSettings {
     return crawlDelay;
   }
 
+  /**
+   * Set whether site delays are scheduled externally (e.g. by a CrawlFrontier)
+   * such that enforceSiteDelay should not sleep.
+   */
+  public void setDelayScheduled(boolean delayScheduled) {
+    this.delayScheduled = delayScheduled;
+  }
+
+  /**
+   * Determine whether site delays are scheduled externally.
+   */
+  public boolean delayScheduled() {
+    return delayScheduled;
+  }
+
+  /**
+   * Get the number of millis to delay between grabs from the url's domain,
+   * honoring the url's override crawl delay if present.
+   */
+  public long getSiteDelay(UrlData urlData) {
+    final Long overrideCrawlDelay = urlData.getOverrideCrawlDelay();
+    final long result = overrideCrawlDelay != null ? overrideCrawlDelay : crawlDelay;
+    return result < 0 ? 0 : result;
+  }
+
+  /**
+   * Get the key identifying the url's host for robots and delay tracking.
+   */
+  public static final String getHostKey(UrlData urlData) {
+    final DetailedUrl dUrl = urlData.getDetailedUrl();
+    return dUrl.getHost(true, false, false);
+  }
+
   /**
    * Set the maximum number of robots to cache.
    * <p>
@@ -362,19 +437,28 @@ public class CrawlSettings {
 
     // check robots.txt (unless trying to grab robots.txt)
     if (!urlData.getUrlString().endsWith("robots.txt")) {
-      final DetailedUrl dUrl = urlData.getDetailedUrl();
-      final String hostKey = dUrl.getHost(true, false, false);
+      final String hostKey = getHostKey(urlData);
 
       // retrieve or build robots.text instance
-      RobotsDotText robots = (host2robots != null) ? host2robots.get(hostKey) : null;
-      if (robots == null && (host2robots == null || !host2robots.containsKey(hostKey))) {
+      RobotsDotText robots = null;
+      boolean haveRobots = false;
+      synchronized (this) {
+        if (host2robots != null) {
+          robots = host2robots.get(hostKey);
+          haveRobots = (robots != null || host2robots.containsKey(hostKey));
+        }
+      }
+      if (!haveRobots) {
+        // fetch outside of the lock so other hosts' threads aren't held up
         try {
           robots = new RobotsDotText(urlData, pageCrawler);
         }
         catch (IOException ignore) {}
 
-        if (host2robots == null) host2robots = new LRU<String, RobotsDotText>(maxNumRobots);
-        host2robots.put(hostKey, robots);
+        synchronized (this) {
+          if (host2robots == null) host2robots = new LRU<String, RobotsDotText>(maxNumRobots);
+          host2robots.put(hostKey, robots);
+        }
       }
 
       // check robots.txt
@@ -387,8 +471,13 @@ public class CrawlSettings {
   /**
    * Enforce delaying before revisiting a site according to these
    * settings if warranted.
+   * <p>
+   * Note that this is a no-op when delays are scheduled externally
+   * (see setDelayScheduled).
    */
   public void enforceSiteDelay(UrlData urlData) {
+    if (delayScheduled) return;  // caller has already waited for the site
+
     final Long overrideCrawlDelay = urlData.getOverrideCrawlDelay();
 
     if (crawlDelay <= 0 && overrideCrawlDelay == null) return;  // no delay!
@@ -21,6 +21,18 @@ package org.sd.crawl;
 
 import org.sd.text.DetailedUrl;
 import org.sd.util.StringUtil;
+import org.sd.xml.XmlInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Utilities for this package.
@@ -29,6 +41,8 @@ import org.sd.util.StringUtil;
  */
 public class CrawlUtil {
   
+  private static final Pattern CHARSET_PATTERN = Pattern.compile("(?i).*;\\s*charset\\s*=\\s*\"?([^\\s;\"]+).*");
+
   public static final String normalize(DetailedUrl dUrl) {
     final StringBuilder result = new StringBuilder();
 
@@ -39,6 +53,78 @@ public class CrawlUtil {
     return result.toString();
   }
 
+  /**
+   * Get the charset named in a content type (e.g. "text/html; charset=UTF-8")
+   * if it is supported.
+   *
+   * @return the supported charset name or null.
+   */
+  public static final String getCharset(String contentType) {
+    String result = null;
+
+    if (contentType != null) {
+      final Matcher m = CHARSET_PATTERN.matcher(contentType);
+      if (m.matches()) {
+        try {
+          if (Charset.isSupported(m.group(1))) result = m.group(1);
+        }
+        catch (IllegalArgumentException e) {
+          // illegal charset name. leave result null.
+        }
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Read all of the (raw byte) content from the stream as a string.
+   * <p>
+   * If the content type names a supported charset, it is used to decode the
+   * bytes; otherwise, an XmlInputStream determines the encoding.
+   */
+  public static final String readContent(InputStream inputStream, String contentType) throws IOException {
+    final StringBuilder result = new StringBuilder();
+    final String charset = getCharset(contentType);
+
+    if (charset != null) {
+      final Reader reader = new InputStreamReader(inputStream, charset);
+      final char[] chars = new char[8192];
+      int len = 0;
+      while ((len = reader.read(chars)) >= 0) {
+        result.append(chars, 0, len);
+      }
+    }
+    else {
+      final XmlInputStream xmlInputStream = new XmlInputStream(inputStream);
+      xmlInputStream.setThrowEncodingException(false);
+      int codePoint = 0;
+      while ((codePoint = xmlInputStream.read()) >= 0) {
+        result.appendCodePoint(codePoint);
+      }
+    }
+
+    return result.toString();
+  }
+
+  /**
+   * Copy all bytes from the input to the output channel through the buffer.
+   *
+   * @return the number of bytes copied.
+   */
+  public static final long copy(ReadableByteChannel in, WritableByteChannel out, ByteBuffer buffer) throws IOException {
+    long result = 0;
+
+    buffer.clear();
+    while (in.read(buffer) >= 0 || buffer.position() > 0) {
+      buffer.flip();
+      result += out.write(buffer);
+      buffer.compact();
+    }
+
+    return result;
+  }
+
   public static final String buildQueryUrl(String queryPrefix, String query, String queryPostfix) {
     final StringBuilder result = new StringBuilder();
     query = StringUtil.urlQueryEscape(query);
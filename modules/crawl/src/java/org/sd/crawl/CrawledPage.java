@@ -237,6 +237,15 @@ public class CrawledPage implements Publishable {
     this.file = toFile;
   }
 
+  /**
+   * Set this instance's file holding its (raw byte) content, as when the
+   * content was streamed to a cache file.
+   */
+  public void setFile(File file) {
+    this.file = file;
+    this.actualLength = 0;
+  }
+
   /**
    * Get this instance's file (if it has one).
    *
@@ -361,6 +370,13 @@ public class CrawledPage implements Publishable {
     }
   }
 
+  /**
+   * Set this instance's actual content length.
+   */
+  public void setActualLength(int actualLength) {
+    this.actualLength = actualLength;
+  }
+
   public void setDownloadContentTime(long downloadContentTime) {
     this.downloadContentTime = downloadContentTime;
 
@@ -384,7 +400,14 @@ public class CrawledPage implements Publishable {
 
     if (result == null && file != null && file.exists() && file.length() > 0) {
       try {
-        content = FileUtil.readAsString(file, null);
+        // let the charset be determined from the stored bytes
+        final InputStream inputStream = FileUtil.getInputStream(file);
+        try {
+          content = CrawlUtil.readContent(inputStream, null);
+        }
+        finally {
+          inputStream.close();
+        }
       }
       catch (IOException e) {
         exception = e;
@@ -422,7 +445,7 @@ public class CrawledPage implements Publishable {
     InputStream result = null;
 
     if (content != null) {
-      result = new ByteArrayInputStream(content.getBytes());
+      result = new ByteArrayInputStream(content.getBytes("UTF-8"));
     }
     else if (file != null && file.exists() && file.length() > 0) {
       result = FileUtil.getInputStream(file);
@@ -518,7 +541,13 @@ public class CrawledPage implements Publishable {
     if (xmlTree == null && hasContent() && exception == null) {
       try {
         final InputStream inputStream = getInputStream();
-        xmlTree = XmlFactory.readXmlTree(inputStream, Encoding.UTF8, true/*ignoreComments*/,  true/*htmlFlag*/, null, false);
+        if (content != null) {
+          xmlTree = XmlFactory.readXmlTree(inputStream, Encoding.UTF8, true/*ignoreComments*/,  true/*htmlFlag*/, null, false);
+        }
+        else {
+          // let the charset be determined from the stored bytes
+          xmlTree = XmlFactory.readXmlTree(inputStream, true/*ignoreComments*/,  true/*htmlFlag*/, null, false);
+        }
         inputStream.close();
       }
       catch (IOException e) {
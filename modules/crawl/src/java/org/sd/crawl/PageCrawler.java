@@ -21,6 +21,7 @@ package org.sd.crawl;
 import org.sd.io.FileUtil;
 import org.sd.util.PropertiesParser;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
@@ -28,6 +29,10 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -240,6 +245,9 @@ public class PageCrawler {
         conn.setRequestProperty("User-Agent", theSettings.getUserAgent());
         conn.setConnectTimeout(theSettings.getConnectTimeout());
         conn.setReadTimeout(theSettings.getReadTimeout());
+        if (theSettings.acceptCompressed()) {
+          conn.setRequestProperty("Accept-Encoding", "gzip, deflate");
+        }
 
         if (urlData.hasRequestMethod()) {
           conn.setRequestMethod(urlData.getRequestMethod());
@@ -267,20 +275,29 @@ public class PageCrawler {
         if (!theSettings.skipContent()) {
           // read content
           final long startDownloadContentTime = System.currentTimeMillis();
-          cis = conn.getInputStream();
-          pageReader = new BufferedReader(new InputStreamReader(cis));
-
-          final StringBuilder content = new StringBuilder();
-          String line;
-          while ((line = pageReader.readLine()) != null) {
-            if (lineFixer != null) line = lineFixer.fixLine(line);
-            content.append(line).append('\n');
-          }
+          cis = getContentStream(conn);
+
+          if (lineFixer != null) {
+            // fix content line by line
+            pageReader = new BufferedReader(new InputStreamReader(cis));
+
+            final StringBuilder content = new StringBuilder();
+            String line;
+            while ((line = pageReader.readLine()) != null) {
+              line = lineFixer.fixLine(line);
+              content.append(line).append('\n');
+            }
 
-          final long endDownloadContentTime = System.currentTimeMillis();
-          result.setContent(content.toString());
-          result.setDownloadContentTime(endDownloadContentTime - startDownloadContentTime);
-          cacheHelper.writeContent(result, content.toString());
+            final long endDownloadContentTime = System.currentTimeMillis();
+            final String contentString = content.toString();
+            result.setContent(contentString);
+            result.setDownloadContentTime(endDownloadContentTime - startDownloadContentTime);
+            cacheHelper.writeContent(result, contentString);
+          }
+          else {
+            // stream the raw bytes, leaving charset detection to readers
+            cacheHelper.streamContent(result, cis, startDownloadContentTime);
+          }
         }
       }
       catch (Exception e) {
@@ -331,6 +348,26 @@ public class PageCrawler {
   }
 
 
+  /**
+   * Get the connection's content stream, decoding gzip or deflate content
+   * encoding.
+   */
+  private static final InputStream getContentStream(HttpURLConnection conn) throws IOException {
+    InputStream result = conn.getInputStream();
+
+    final String contentEncoding = conn.getContentEncoding();
+    if (contentEncoding != null) {
+      if ("gzip".equalsIgnoreCase(contentEncoding) || "x-gzip".equalsIgnoreCase(contentEncoding)) {
+        result = new GZIPInputStream(result);
+      }
+      else if ("deflate".equalsIgnoreCase(contentEncoding)) {
+        result = new InflaterInputStream(result);
+      }
+    }
+
+    return result;
+  }
+
   /**
    * Helper for running the crawler from the command line.
    */
@@ -402,6 +439,31 @@ public class PageCrawler {
       }
     }
 
+    /**
+     * Stream the raw content bytes to the cache if warranted; otherwise, set
+     * the decoded content on the instance for consumers.
+     */
+    void streamContent(CrawledPage crawledPage, InputStream content, long startDownloadContentTime) throws IOException {
+      if (crawlSettings.skipContent()) return;  // skipping content
+
+      if (crawlCache == null) {
+        // won't dump content, but will set it on the instance for consumers,
+        // decoding straight from the stream rather than from a copy of its bytes
+        final InputStream bufferedContent = new BufferedInputStream(content, crawlSettings.getDownloadBufferSize());
+        crawledPage.setContent(CrawlUtil.readContent(bufferedContent, crawledPage.getContentType()));
+        crawledPage.setDownloadContentTime(System.currentTimeMillis() - startDownloadContentTime);
+      }
+      else {
+        final ByteBuffer buffer = ByteBuffer.allocate(crawlSettings.getDownloadBufferSize());
+        crawlCache.storePageInCache(crawledPage, Channels.newChannel(content), buffer);
+        addedEntry = true;
+
+        if (crawlSettings.verbose()) {
+          System.out.println(new Date() + ": PageCrawler stored '" + urlData.toString() + "' in cache.");
+        }
+      }
+    }
+
     /**
      * Create a map entry for the result (if not already done).
      * <p>
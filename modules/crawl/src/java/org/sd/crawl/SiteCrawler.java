@@ -28,12 +28,18 @@ import org.sd.util.tree.TreeUtil;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -49,6 +55,7 @@ public class SiteCrawler {
 
   private PageCrawler pageCrawler;
   private LinkFollower linkFollower;
+  private int fetcherThreads;
   private AtomicBoolean die;
   private File killFile;
 
@@ -70,6 +77,11 @@ public class SiteCrawler {
    *                     used in the link follower's construction. If the linkFollower
    *                     is an empty string, then no link follower will be used,
    *                     meaning that only the startUrl will be crawled.
+   * <li>fetcherThreads -- (default=1) number of threads fetching pages. When
+   *                       greater than 1, links are fetched through a
+   *                       CrawlFrontier that schedules each host by its crawl
+   *                       delay instead of sleeping, so that waiting on one
+   *                       host doesn't hold up fetches from others.
    * </ul>
    */
   public SiteCrawler(PageCrawler pageCrawler, Properties properties) {
@@ -84,10 +96,16 @@ public class SiteCrawler {
     this.linkFollower = "".equals(linkFollowerString) ? null :
       (LinkFollower)ReflectUtil.buildInstance(linkFollowerString, properties);
 
+    this.fetcherThreads = Integer.parseInt(properties.getProperty("fetcherThreads", "1"));
+
     this.die = new AtomicBoolean(false);
   }
 
   public Tree<SiteData> crawl(String startingUrl, boolean keepSiteData) {
+    if (fetcherThreads > 1) {
+      return crawl(Arrays.asList(startingUrl), keepSiteData).get(0);
+    }
+
     this.die.set(false);
 
     final UrlData startUrl = new UrlData(startingUrl);
@@ -111,6 +129,75 @@ public class SiteCrawler {
     return result;
   }
 
+  /**
+   * Crawl each of the sites, returning their site trees in the same order.
+   * <p>
+   * When fetcherThreads is greater than 1, all sites are crawled together
+   * through a single CrawlFrontier so that fetches from different hosts
+   * proceed while each host waits out its crawl delay; otherwise, the sites
+   * are crawled one after the other.
+   */
+  public List<Tree<SiteData>> crawl(List<String> startingUrls, boolean keepSiteData) {
+    final List<Tree<SiteData>> result = new ArrayList<Tree<SiteData>>();
+
+    if (fetcherThreads <= 1) {
+      for (String startingUrl : startingUrls) {
+        result.add(crawl(startingUrl, keepSiteData));
+      }
+      return result;
+    }
+
+    this.die.set(false);
+
+    final CrawlFrontier<FetchTask> frontier = new CrawlFrontier<FetchTask>();
+    final List<SiteCrawl> siteCrawls = new ArrayList<SiteCrawl>();
+
+    for (String startingUrl : startingUrls) {
+      final UrlData startUrl = new UrlData(startingUrl);
+
+      // override the pageCrawler's cacheDir, adding a level identifying the site being crawled.
+      final CrawlSettings crawlSettings = new CrawlSettings(pageCrawler.getCrawlSettings());
+      crawlSettings.setCacheDir(buildSiteCacheDir(startUrl, crawlSettings.getCacheDir()));
+      crawlSettings.setDelayScheduled(true);  // the frontier schedules site delays
+
+      final SiteCrawl siteCrawl = new SiteCrawl(startUrl, crawlSettings, keepSiteData);
+      siteCrawls.add(siteCrawl);
+      result.add(siteCrawl.siteTree);
+
+      // always fetch the root page
+      frontier.add(CrawlSettings.getHostKey(startUrl), new FetchTask(siteCrawl, null, null, startUrl), LinkFollower.Priority.NORMAL);
+    }
+
+    final ExecutorService fetchers = Executors.newFixedThreadPool(fetcherThreads);
+    for (int i = 0; i < fetcherThreads; ++i) {
+      fetchers.execute(new Runnable() {
+          public void run() {
+            runFetcher(frontier);
+          }
+        });
+    }
+    fetchers.shutdown();
+
+    try {
+      while (!fetchers.awaitTermination(1, TimeUnit.SECONDS)) {
+        if (die.get() || (killFile != null && killFile.exists())) {
+          frontier.close();
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      frontier.close();
+      fetchers.shutdownNow();
+    }
+
+    // close the CrawlCaches associated with the (temporary/overriding) cacheDirs
+    for (SiteCrawl siteCrawl : siteCrawls) {
+      siteCrawl.crawlSettings.closeCrawlCache();
+    }
+
+    return result;
+  }
+
   /**
    * Get this SiteCrawler's PageCrawler instance.
    */
@@ -217,17 +304,211 @@ public class SiteCrawler {
     return siteInfo;
   }
 
+  /**
+   * Fetcher thread loop, taking tasks from the frontier until it is
+   * exhausted or closed.
+   */
+  private final void runFetcher(CrawlFrontier<FetchTask> frontier) {
+    CrawlFrontier.Entry<FetchTask> entry = null;
+    try {
+      while ((entry = frontier.take()) != null) {
+        final FetchTask task = entry.getItem();
+        boolean fetched = false;
+
+        try {
+          if (die.get() || (killFile != null && killFile.exists())) {
+            frontier.close();
+          }
+          else {
+            try {
+              fetched = doFetchTask(task, frontier);
+            }
+            catch (RuntimeException e) {
+              // a bad page mustn't end this fetcher; the host was still visited
+              fetched = true;
+              failFetchTask(task, e);
+            }
+          }
+        }
+        finally {
+          // only delay the host's next visit if it was actually visited
+          frontier.release(entry, fetched ? task.siteCrawl.crawlSettings.getSiteDelay(task.url) : 0L);
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      // time to quit
+    }
+  }
+
+  /**
+   * Fetch the task's page, recording the results and adding the tasks for
+   * its links to the frontier as warranted.
+   *
+   * @return true if the page was fetched; false if skipped.
+   */
+  private final boolean doFetchTask(FetchTask task, CrawlFrontier<FetchTask> frontier) {
+    final SiteCrawl siteCrawl = task.siteCrawl;
+    final CrawlSettings crawlSettings = siteCrawl.crawlSettings;
+
+    // root page
+    if (task.link == null) {
+      final CrawledPage rootPage = pageCrawler.fetch(task.url, crawlSettings);
+      if (rootPage != null) {
+        synchronized (siteCrawl) {
+          final SiteData siteData = siteCrawl.siteTree.getData();
+          siteData.setLinks(rootPage.getLinks());
+          siteData.setPageMetaData(rootPage.getMetaData());
+          siteCrawl.siteInfo.addFetchedPage(rootPage, siteData.getCrawlDepth(), null);
+          addLinkTasks(siteCrawl, siteCrawl.siteTree, LinkFollower.Priority.NORMAL, frontier);
+        }
+      }
+      return true;
+    }
+
+    final Tree<SiteData> node = task.node;
+    final SiteData siteData = node.getData();
+    final Link link = task.link;
+
+    // re-check now that other pages may have been visited since queueing
+    synchronized (siteCrawl) {
+      if (!linkFollower.shouldFetchLink(siteCrawl.siteContext, siteData, link)) {
+        siteCrawl.siteInfo.addIgnoredLink(link);
+        return false;
+      }
+    }
+
+    final CrawledPage nextPage = fetchLink(link, crawlSettings);
+
+    synchronized (siteCrawl) {
+      final SiteContext siteContext = siteCrawl.siteContext;
+      final SiteInfo siteInfo = siteCrawl.siteInfo;
+
+      if (nextPage != null && !nextPage.hasError() && nextPage.hasContent() && nextPage.getResponseCode() < 300) {
+        final SiteData nextData = siteData.buildNext(link, nextPage.getMetaData());
+        final Tree<SiteData> child = siteCrawl.keepSiteData ? node.addChild(nextData) : new Tree<SiteData>(nextData);
+
+        final UrlData destUrl = link.getDestUrl();
+        if (siteContext.addVisited(destUrl.getCleanString())) {
+          siteInfo.addFetchedPage(nextPage, nextData.getCrawlDepth(), destUrl.getDetailedUrl());
+
+          final LinkFollower.Priority priority = linkFollower.shouldFollowLink(siteContext, siteData, link);
+          if (priority != null) {
+            nextData.setLinks(nextPage.getLinks());
+            addLinkTasks(siteCrawl, child, priority, frontier);
+          }
+          else {
+            siteInfo.addUnfollowedLinks(nextPage.getLinks(), siteContext);
+          }
+        }
+        else {
+          siteInfo.addRevisitedPage(nextPage, nextData.getCrawlDepth(), destUrl.getDetailedUrl());
+        }
+      }
+      else {
+        siteInfo.addFailedLink(link, nextPage);
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Record the task's failure with an unexpected exception.
+   */
+  private final void failFetchTask(FetchTask task, RuntimeException e) {
+    System.err.println(new Date() + ": SiteCrawler failed fetching '" + task.url.getUrlString() + "'!");
+    e.printStackTrace(System.err);
+
+    if (task.link != null) {
+      final SiteCrawl siteCrawl = task.siteCrawl;
+      synchronized (siteCrawl) {
+        siteCrawl.siteInfo.addFailedLink(task.link, new CrawledPage(task.url.getUrlString(), e));
+      }
+    }
+  }
+
+  /**
+   * Add tasks to fetch the node's links to the frontier.
+   * <p>
+   * NOTE: Caller must hold the siteCrawl's lock.
+   */
+  private final void addLinkTasks(SiteCrawl siteCrawl, Tree<SiteData> node, LinkFollower.Priority priority, CrawlFrontier<FetchTask> frontier) {
+    if (linkFollower == null) return;
+
+    final SiteData siteData = node.getData();
+    final List<Link> links = siteData.getLinks();
+    if (links == null) return;
+
+    // HIGH priority links go to the front of their host's queue, so add
+    // them in reverse to preserve their order
+    List<Link> ordered = links;
+    if (priority == LinkFollower.Priority.HIGH) {
+      ordered = new ArrayList<Link>(links);
+      Collections.reverse(ordered);
+    }
+
+    for (Link link : ordered) {
+      if (linkFollower.shouldFetchLink(siteCrawl.siteContext, siteData, link)) {
+        final UrlData destUrl = link.getDestUrl();
+        frontier.add(CrawlSettings.getHostKey(destUrl), new FetchTask(siteCrawl, node, link, destUrl), priority);
+      }
+      else {
+        siteCrawl.siteInfo.addIgnoredLink(link);
+      }
+    }
+  }
+
   private final CrawledPage fetchLink(Link link, CrawlSettings crawlSettings) {
     final CrawledPage result = pageCrawler.fetch(link.getDestUrl(), crawlSettings);
 
-    // need to update page in crawl cache with referring info
-    result.setReferringInfo(link.getSourceUrl(), link.getLinkText());
-    pageCrawler.updateCache(result, crawlSettings, true, false);
+    if (result != null) {
+      // need to update page in crawl cache with referring info
+      result.setReferringInfo(link.getSourceUrl(), link.getLinkText());
+      pageCrawler.updateCache(result, crawlSettings, true, false);
+    }
 
     return result;
   }
 
 
+  /**
+   * Container for the state of a site being crawled through a frontier.
+   */
+  private static final class SiteCrawl {
+    final Tree<SiteData> siteTree;
+    final SiteContext siteContext;
+    final SiteInfo siteInfo;
+    final CrawlSettings crawlSettings;
+    final boolean keepSiteData;
+
+    SiteCrawl(UrlData startUrl, CrawlSettings crawlSettings, boolean keepSiteData) {
+      this.siteTree = new Tree<SiteData>(new SiteData(startUrl));
+      this.siteContext = new SiteContext(startUrl);
+      this.siteInfo = SiteInfo.buildSiteInfo();
+      this.crawlSettings = crawlSettings;
+      this.keepSiteData = keepSiteData;
+    }
+  }
+
+  /**
+   * Container for a page to fetch through a frontier.
+   */
+  private static final class FetchTask {
+    final SiteCrawl siteCrawl;
+    final Tree<SiteData> node;  // node holding the link (null for the root)
+    final Link link;            // link to fetch (null for the root)
+    final UrlData url;
+
+    FetchTask(SiteCrawl siteCrawl, Tree<SiteData> node, Link link, UrlData url) {
+      this.siteCrawl = siteCrawl;
+      this.node = node;
+      this.link = link;
+      this.url = url;
+    }
+  }
+
+
   public static final void uniquify(Tree<SiteData> siteTree) {
     final Set<String> urls = new HashSet<String>();
     for (TraversalIterator<SiteData> iter = siteTree.iterator(Tree.Traversal.BREADTH_FIRST); iter.hasNext(); ) {
@@ -262,6 +543,8 @@ public class SiteCrawler {
     //   ignoreExts -- (optional, default=".jpg,.png,.gif,.wav,.mp3,.swf")
     //   localOnly -- (optional, default="true")
     //   deeperOnly -- (optional, default="true")
+    // fetcherThreads -- (optional, default="1") when more than 1, all urls are
+    //                   crawled together with this many fetching threads.
     //
     // PageCrawlerProperties
     //   connectTimeout -- (optional, default="4500" millis)
@@ -305,6 +588,17 @@ public class SiteCrawler {
 
     final SiteCrawler siteCrawler = new SiteCrawler(properties);
 
+    if (siteCrawler.fetcherThreads > 1) {
+      System.out.println(new Date() + ": SiteCrawler crawling " + args.length + " sites...");
+      final List<Tree<SiteData>> siteDatas = siteCrawler.crawl(Arrays.asList(args), true);
+      for (Tree<SiteData> siteData : siteDatas) {
+        uniquify(siteData);
+        System.out.println(TreeUtil.prettyPrint(siteData, "", false));
+      }
+      System.out.println(new Date() + ": SiteCrawler crawled " + args.length + " sites.");
+      return;
+    }
+
     for (String arg : args) {
       System.out.println();
       System.out.println(new Date() + ": SiteCrawler crawling '" + arg + "'...");
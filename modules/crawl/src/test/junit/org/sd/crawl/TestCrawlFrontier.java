@@ -0,0 +1,288 @@
+/*
+    Copyright 2011 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.crawl;
+
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.sd.io.FileUtil;
+import org.sd.util.tree.Tree;
+
+/**
+ * JUnit Tests for the CrawlFrontier class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestCrawlFrontier extends TestCase {
+
+  public TestCrawlFrontier(String name) {
+    super(name);
+  }
+  
+
+  public void testPriorityOrder() throws InterruptedException {
+    final CrawlFrontier<String> frontier = new CrawlFrontier<String>();
+
+    frontier.add("a", "n1", LinkFollower.Priority.NORMAL);
+    frontier.add("a", "n2", LinkFollower.Priority.NORMAL);
+    frontier.add("a", "h1", LinkFollower.Priority.HIGH);
+
+    final List<String> items = new ArrayList<String>();
+    CrawlFrontier.Entry<String> entry = null;
+    while ((entry = frontier.take()) != null) {
+      assertEquals("a", entry.getHost());
+      items.add(entry.getItem());
+      frontier.release(entry, 0L);
+    }
+
+    assertEquals(Arrays.asList("h1", "n1", "n2"), items);
+    assertEquals(0, frontier.size());
+    assertEquals(0, frontier.getNumInFlight());
+  }
+
+  public void testHostDelayDoesNotBlockOtherHosts() throws InterruptedException {
+    final CrawlFrontier<String> frontier = new CrawlFrontier<String>();
+    final long delay = 300L;
+
+    frontier.add("slow", "s1", LinkFollower.Priority.NORMAL);
+    frontier.add("slow", "s2", LinkFollower.Priority.NORMAL);
+    frontier.add("fast", "f1", LinkFollower.Priority.NORMAL);
+    frontier.add("fast", "f2", LinkFollower.Priority.NORMAL);
+
+    final long starttime = System.currentTimeMillis();
+
+    // one item out per host at a time
+    final CrawlFrontier.Entry<String> s1 = frontier.take();
+    final CrawlFrontier.Entry<String> f1 = frontier.take();
+    assertEquals("s1", s1.getItem());
+    assertEquals("f1", f1.getItem());
+    assertEquals(2, frontier.getNumInFlight());
+
+    frontier.release(s1, delay);   // "slow" must wait
+    frontier.release(f1, 0L);      // "fast" is eligible immediately
+
+    final CrawlFrontier.Entry<String> f2 = frontier.take();
+    assertEquals("f2", f2.getItem());
+    assertTrue(System.currentTimeMillis() - starttime < delay);
+    frontier.release(f2, 0L);
+
+    final CrawlFrontier.Entry<String> s2 = frontier.take();
+    assertEquals("s2", s2.getItem());
+    assertTrue(System.currentTimeMillis() - starttime >= delay);
+    frontier.release(s2, delay);
+
+    assertNull(frontier.take());
+  }
+
+  public void testAddWhileInFlight() throws InterruptedException {
+    final CrawlFrontier<String> frontier = new CrawlFrontier<String>();
+    frontier.add("a", "root", LinkFollower.Priority.NORMAL);
+
+    final CrawlFrontier.Entry<String> root = frontier.take();
+    assertEquals(0, frontier.size());
+
+    // items added before release keep the frontier from being exhausted
+    frontier.add("a", "child", LinkFollower.Priority.NORMAL);
+    frontier.add("b", "other", LinkFollower.Priority.NORMAL);
+
+    final CrawlFrontier.Entry<String> other = frontier.take();
+    assertEquals("other", other.getItem());
+    frontier.release(other, 0L);
+    frontier.release(root, 0L);
+
+    assertEquals("child", frontier.take().getItem());
+  }
+
+  public void testClose() throws InterruptedException {
+    final CrawlFrontier<String> frontier = new CrawlFrontier<String>();
+    frontier.add("a", "x", LinkFollower.Priority.NORMAL);
+    frontier.close();
+
+    assertTrue(frontier.isClosed());
+    assertNull(frontier.take());
+    assertFalse(frontier.add("a", "y", LinkFollower.Priority.NORMAL));
+  }
+
+  public void testConcurrentSiteCrawl() throws IOException {
+    final long delay = 200L;
+    final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+    final List<Long> times = Collections.synchronizedList(new ArrayList<Long>());
+
+    final HttpServer server = HttpServer.create(new InetSocketAddress(0), 0);
+    server.createContext("/", new HttpHandler() {
+        public void handle(HttpExchange exchange) throws IOException {
+          final String path = exchange.getRequestURI().getPath();
+          final String host = exchange.getRequestHeaders().getFirst("Host");
+          synchronized (requests) {
+            requests.add(host.substring(0, host.indexOf(':')) + path);
+            times.add(System.currentTimeMillis());
+          }
+
+          final String page = "/".equals(path) ?
+            "<html><head><title>root</title></head><body><a href=\"a.html\">a</a> <a href=\"b.html\">b</a></body></html>" :
+            "<html><head><title>" + path + "</title></head><body>leaf</body></html>";
+          final byte[] bytes = page.getBytes("UTF-8");
+
+          exchange.getResponseHeaders().set("Content-Type", "text/html");
+          exchange.sendResponseHeaders(200, bytes.length);
+          final OutputStream out = exchange.getResponseBody();
+          out.write(bytes);
+          out.close();
+        }
+      });
+    server.start();
+
+    final File cacheDir = new File(System.getProperty("java.io.tmpdir"), "TestCrawlFrontier." + System.currentTimeMillis());
+
+    try {
+      final int port = server.getAddress().getPort();
+
+      final Properties properties = new Properties();
+      properties.setProperty("ignoreRobots", "true");
+      properties.setProperty("crawlDelay", Long.toString(delay));
+      properties.setProperty("numRetries", "0");
+      properties.setProperty("fetcherThreads", "2");
+      properties.setProperty("cacheDir", cacheDir.getAbsolutePath());
+
+      final SiteCrawler siteCrawler = new SiteCrawler(properties);
+
+      // two loopback addresses are distinct hosts to the crawler
+      final List<Tree<SiteData>> siteTrees =
+        siteCrawler.crawl(Arrays.asList("http://127.0.0.1:" + port + "/",
+                                        "http://127.0.0.2:" + port + "/"), true);
+
+      assertEquals(2, siteTrees.size());
+      for (Tree<SiteData> siteTree : siteTrees) {
+        assertEquals(2, siteTree.numChildren());
+      }
+      assertEquals(6, requests.size());
+
+      // per-host delays are respected while the hosts' fetches interleave
+      final String[] hosts = new String[]{"127.0.0.1", "127.0.0.2"};
+      final int[] firstIndex = new int[]{-1, -1};
+      final int[] lastIndex = new int[]{-1, -1};
+      for (int h = 0; h < hosts.length; ++h) {
+        long lastTime = -1L;
+        for (int i = 0; i < requests.size(); ++i) {
+          if (requests.get(i).startsWith(hosts[h] + "/")) {
+            final long time = times.get(i);
+            if (lastTime >= 0) {
+              assertTrue("too soon: " + requests.get(i), time - lastTime >= delay - 20);
+            }
+            lastTime = time;
+            if (firstIndex[h] < 0) firstIndex[h] = i;
+            lastIndex[h] = i;
+          }
+        }
+      }
+      assertTrue(firstIndex[1] < lastIndex[0] && firstIndex[0] < lastIndex[1]);
+    }
+    finally {
+      server.stop(0);
+      FileUtil.deleteDir(cacheDir);
+    }
+  }
+
+  public void testFetcherSurvivesFailedFetches() throws IOException {
+    final HttpServer server = HttpServer.create(new InetSocketAddress(0), 0);
+    server.createContext("/", new HttpHandler() {
+        public void handle(HttpExchange exchange) throws IOException {
+          final String path = exchange.getRequestURI().getPath();
+          final StringBuilder page = new StringBuilder();
+          page.append("<html><head><title>").append(path).append("</title></head><body>");
+          if ("/".equals(path)) {
+            for (String leaf : new String[]{"a", "b", "c", "d", "e"}) {
+              page.append("<a href=\"").append(leaf).append(".html\">").append(leaf).append("</a> ");
+            }
+          }
+          page.append("</body></html>");
+          final byte[] bytes = page.toString().getBytes("UTF-8");
+
+          exchange.getResponseHeaders().set("Content-Type", "text/html");
+          exchange.sendResponseHeaders(200, bytes.length);
+          final OutputStream out = exchange.getResponseBody();
+          out.write(bytes);
+          out.close();
+        }
+      });
+    server.start();
+
+    final File cacheDir = new File(System.getProperty("java.io.tmpdir"), "TestCrawlFrontier." + System.currentTimeMillis());
+
+    try {
+      final int port = server.getAddress().getPort();
+
+      final Properties properties = new Properties();
+      properties.setProperty("ignoreRobots", "true");
+      properties.setProperty("crawlDelay", "0");
+      properties.setProperty("numRetries", "0");
+      properties.setProperty("fetcherThreads", "2");
+      properties.setProperty("cacheDir", cacheDir.getAbsolutePath());
+
+      // a.html and b.html blow up (one per fetcher thread) and c.html isn't fetched at all
+      final PageCrawler pageCrawler = new PageCrawler(properties) {
+          public CrawledPage fetch(UrlData urlData, CrawlSettings overrideSettings) {
+            final String url = urlData.getUrlString();
+            if (url.endsWith("/a.html") || url.endsWith("/b.html")) {
+              throw new IllegalStateException("bad page " + url);
+            }
+            if (url.endsWith("/c.html")) return null;
+            return super.fetch(urlData, overrideSettings);
+          }
+        };
+      final SiteCrawler siteCrawler = new SiteCrawler(pageCrawler, properties);
+
+      final List<Tree<SiteData>> siteTrees = siteCrawler.crawl(Arrays.asList("http://127.0.0.1:" + port + "/"), true);
+
+      // the fetchers carried on to the good links
+      assertEquals(1, siteTrees.size());
+      assertEquals(2, siteTrees.get(0).numChildren());
+    }
+    finally {
+      server.stop(0);
+      FileUtil.deleteDir(cacheDir);
+    }
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestCrawlFrontier.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,210 @@
+/*
+    Copyright 2011 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.crawl;
+
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Properties;
+import java.util.zip.GZIPOutputStream;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.sd.io.FileUtil;
+
+/**
+ * JUnit Tests for the PageCrawler class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestPageCrawler extends TestCase {
+
+  private static final String PAGE =
+    "<html><head><meta http-equiv=\"Content-Type\" content=\"text/html; charset=iso-8859-1\">" +
+    "<title>Caf\u00e9</title></head><body>cr\u00e8me br\u00fbl\u00e9e</body></html>";
+
+  private HttpServer server;
+  private String url;
+  private String acceptEncoding;
+
+  public TestPageCrawler(String name) {
+    super(name);
+  }
+  
+
+  protected void setUp() throws IOException {
+    this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/", new HttpHandler() {
+        public void handle(HttpExchange exchange) throws IOException {
+          acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+          final boolean gzip = acceptEncoding != null && acceptEncoding.indexOf("gzip") >= 0;
+
+          exchange.getResponseHeaders().set("Content-Type", "text/html");
+          if (gzip) exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+          exchange.sendResponseHeaders(200, 0);
+
+          OutputStream out = exchange.getResponseBody();
+          if (gzip) out = new GZIPOutputStream(out);
+          out.write(PAGE.getBytes("ISO-8859-1"));
+          out.close();
+        }
+      });
+    server.start();
+
+    this.url = "http://127.0.0.1:" + server.getAddress().getPort() + "/page.html";
+    this.acceptEncoding = null;
+  }
+
+  protected void tearDown() {
+    server.stop(0);
+  }
+
+  private final PageCrawler buildPageCrawler(File cacheDir, boolean acceptCompressed) {
+    final Properties properties = new Properties();
+    properties.setProperty("ignoreRobots", "true");
+    properties.setProperty("crawlDelay", "0");
+    properties.setProperty("numRetries", "0");
+    properties.setProperty("downloadBufferSize", "16");  // force many buffer cycles
+    if (cacheDir != null) properties.setProperty("cacheDir", cacheDir.getAbsolutePath());
+    if (acceptCompressed) properties.setProperty("acceptCompressed", "true");
+    return new PageCrawler(properties);
+  }
+
+  private final void verifyPage(CrawledPage page) {
+    assertFalse(page.hasError());
+    assertEquals(200, page.getResponseCode());
+    assertEquals("Caf\u00e9", page.getTitle());
+    assertTrue(page.getContent().indexOf("cr\u00e8me br\u00fbl\u00e9e") >= 0);
+  }
+
+  public void testUncachedFetch() {
+    final PageCrawler pageCrawler = buildPageCrawler(null, false);
+    final CrawledPage page = pageCrawler.fetch(url);
+
+    verifyPage(page);
+    assertNull(page.getFile());
+    assertNull(acceptEncoding);
+  }
+
+  public void testCompressedFetch() {
+    final PageCrawler pageCrawler = buildPageCrawler(null, true);
+    final CrawledPage page = pageCrawler.fetch(url);
+
+    verifyPage(page);
+    assertEquals("gzip, deflate", acceptEncoding);
+  }
+
+  public void testStreamToCache() throws IOException {
+    final File cacheDir = new File(System.getProperty("java.io.tmpdir"), "TestPageCrawler." + System.currentTimeMillis());
+    try {
+      final PageCrawler pageCrawler = buildPageCrawler(cacheDir, true);
+      final CrawledPage page = pageCrawler.fetch(new UrlData(url), null);
+
+      // streamed raw bytes to the cache file
+      assertNotNull(page.getFile());
+      assertTrue(page.getFile().exists());
+      assertEquals(PAGE.length(), page.getActualLength());
+      verifyPage(page);
+
+      // retrieve from the cache
+      final CrawledPage cachedPage = pageCrawler.fetch(new UrlData(url), null);
+      assertTrue(cachedPage.isFromCache());
+      verifyPage(cachedPage);
+      assertEquals(PAGE.length(), cachedPage.getActualLength());
+
+      pageCrawler.getCrawlSettings().closeCrawlCache();
+    }
+    finally {
+      FileUtil.deleteDir(cacheDir);
+    }
+  }
+
+  public void testFailedStreamKeepsCachedCopy() throws IOException {
+    final File cacheDir = new File(System.getProperty("java.io.tmpdir"), "TestPageCrawler." + System.currentTimeMillis());
+    try {
+      final PageCrawler pageCrawler = buildPageCrawler(cacheDir, true);
+      final CrawledPage page = pageCrawler.fetch(new UrlData(url), null);
+      final File file = page.getFile();
+      assertNotNull(file);
+      final long length = file.length();
+
+      // a download failing part way through
+      final InputStream failingContent = new InputStream() {
+          private int count = 0;
+          public int read() throws IOException {
+            if (++count > 10) throw new IOException("connection reset");
+            return 'x';
+          }
+        };
+
+      final CrawlCache crawlCache = CrawlCache.getInstance(cacheDir);
+      try {
+        crawlCache.storePageInCache(page, Channels.newChannel(failingContent), ByteBuffer.allocate(4));
+        fail("expected the failed download to throw");
+      }
+      catch (IOException e) {
+        // expected
+      }
+
+      // the good copy survives and no partial file remains
+      assertTrue(file.exists());
+      assertEquals(length, file.length());
+      assertEquals(1, file.getParentFile().listFiles().length);
+
+      final CrawledPage cachedPage = pageCrawler.fetch(new UrlData(url), null);
+      assertTrue(cachedPage.isFromCache());
+      verifyPage(cachedPage);
+
+      pageCrawler.getCrawlSettings().closeCrawlCache();
+    }
+    finally {
+      FileUtil.deleteDir(cacheDir);
+    }
+  }
+
+  public void testReadContent() throws IOException {
+    final byte[] bytes = PAGE.getBytes("ISO-8859-1");
+
+    assertEquals(PAGE, CrawlUtil.readContent(new java.io.ByteArrayInputStream(bytes), "text/html; charset=ISO-8859-1"));
+    assertEquals(PAGE, CrawlUtil.readContent(new java.io.ByteArrayInputStream(bytes), "text/html"));
+    assertEquals("UTF-8", CrawlUtil.getCharset("text/html;charset=\"UTF-8\""));
+    assertNull(CrawlUtil.getCharset("text/html; charset=bogus-charset"));
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestPageCrawler.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
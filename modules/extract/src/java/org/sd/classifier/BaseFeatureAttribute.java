@@ -33,12 +33,14 @@ public abstract class BaseFeatureAttribute implements FeatureAttribute {
 
   protected FeatureDictionary featureDictionary;
   protected String name;
+  private final int id;
   private Double defaultValue;
   private String[] _isBagOfWords;
 
   protected BaseFeatureAttribute(FeatureDictionary featureDictionary, String name) {
     this.featureDictionary = featureDictionary;
     this.name = name;
+    this.id = (featureDictionary == null) ? -1 : featureDictionary.nextAttributeId();
     this.defaultValue = null;
     this._isBagOfWords = null;
   }
@@ -57,6 +59,15 @@ public abstract class BaseFeatureAttribute implements FeatureAttribute {
     return name;
   }
 
+  /**
+   * Get this attribute's id, assigned by the dictionary that created it.
+   *
+   * @return the id or -1 if this attribute was not created by a dictionary.
+   */
+  public int getId() {
+    return id;
+  }
+
   /**
    * Convenience method to determine whether an attribute is a bag
    * of words attribute based on its name pattern.
@@ -163,7 +174,9 @@ public abstract class BaseFeatureAttribute implements FeatureAttribute {
    */
   public Double setDefaultValue(Double defaultValue) {
     Double result = defaultValue;
+    final boolean changed = (defaultValue == null) ? this.defaultValue != null : !defaultValue.equals(this.defaultValue);
     this.defaultValue = defaultValue;
+    if (changed && featureDictionary != null) featureDictionary.clearDefaultValues();
     return result;
   }
 }
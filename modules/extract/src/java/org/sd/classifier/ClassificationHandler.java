@@ -0,0 +1,42 @@
+/*
+    Copyright 2011 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.classifier;
+
+
+/**
+ * Interface for receiving the results of batch classification.
+ * <p>
+ * @author Spence Koehler
+ */
+public interface ClassificationHandler {
+
+  /**
+   * Handle the classification result for an input.
+   * <p>
+   * Results are handled in input order, from a single thread.
+   *
+   * @param id  The (0-based) sequence number of the input.
+   * @param labeledInput  The classified input.
+   * @param result  The classification result or null if the input could not
+   *                be extracted or classified.
+   *
+   * @return true to continue classifying; false to stop.
+   */
+  public boolean handle(long id, LabeledInput labeledInput, ClassificationResult result);
+}
@@ -0,0 +1,162 @@
+/*
+    Copyright 2011 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.classifier;
+
+
+import org.sd.util.MathUtil;
+import org.sd.util.StatsAccumulator;
+
+/**
+ * Container for throughput and latency metrics collected while classifying
+ * batches of inputs.
+ * <p>
+ * @author Spence Koehler
+ */
+public class ClassificationMetrics {
+
+  private long startTime;
+  private long endTime;
+  private long numInputs;
+  private long numExtractionFailures;
+  private long numClassificationFailures;
+  private StatsAccumulator extractionMillis;      // per input
+  private StatsAccumulator classificationMillis;  // per batch
+  private StatsAccumulator batchSizes;
+  private StatsAccumulator latencyMillis;         // per input, from read to handled
+
+  public ClassificationMetrics() {
+    this.startTime = 0L;
+    this.endTime = 0L;
+    this.numInputs = 0L;
+    this.numExtractionFailures = 0L;
+    this.numClassificationFailures = 0L;
+    this.extractionMillis = new StatsAccumulator("extractionMillis");
+    this.classificationMillis = new StatsAccumulator("classificationMillis");
+    this.batchSizes = new StatsAccumulator("batchSizes");
+    this.latencyMillis = new StatsAccumulator("latencyMillis");
+  }
+
+  synchronized void markStart() {
+    this.startTime = System.currentTimeMillis();
+  }
+
+  synchronized void markEnd() {
+    this.endTime = System.currentTimeMillis();
+  }
+
+  synchronized void addExtraction(long millis, boolean failed) {
+    extractionMillis.add(millis);
+    if (failed) ++numExtractionFailures;
+  }
+
+  synchronized void addBatch(long millis, int batchSize) {
+    classificationMillis.add(millis);
+    batchSizes.add(batchSize);
+  }
+
+  synchronized void addResult(long latency, boolean failed) {
+    ++numInputs;
+    latencyMillis.add(latency);
+    if (failed) ++numClassificationFailures;
+  }
+
+  /**
+   * Get the number of inputs handled.
+   */
+  public synchronized long getNumInputs() {
+    return numInputs;
+  }
+
+  /**
+   * Get the number of inputs whose feature extraction threw an exception.
+   */
+  public synchronized long getNumExtractionFailures() {
+    return numExtractionFailures;
+  }
+
+  /**
+   * Get the number of inputs handled without a classification result,
+   * including extraction failures.
+   */
+  public synchronized long getNumClassificationFailures() {
+    return numClassificationFailures;
+  }
+
+  /**
+   * Get the elapsed time in millis, through now if still running.
+   */
+  public synchronized long getElapsedMillis() {
+    if (startTime == 0L) return 0L;
+    return (endTime == 0L ? System.currentTimeMillis() : endTime) - startTime;
+  }
+
+  /**
+   * Get the throughput in inputs handled per second.
+   */
+  public synchronized double getThroughput() {
+    final long elapsed = getElapsedMillis();
+    return elapsed == 0L ? 0.0 : (numInputs * 1000.0) / elapsed;
+  }
+
+  /**
+   * Get (a copy of) the per input feature extraction times.
+   */
+  public synchronized StatsAccumulator getExtractionMillis() {
+    return new StatsAccumulator(extractionMillis);
+  }
+
+  /**
+   * Get (a copy of) the per batch classification times.
+   */
+  public synchronized StatsAccumulator getClassificationMillis() {
+    return new StatsAccumulator(classificationMillis);
+  }
+
+  /**
+   * Get (a copy of) the classified batch sizes.
+   */
+  public synchronized StatsAccumulator getBatchSizes() {
+    return new StatsAccumulator(batchSizes);
+  }
+
+  /**
+   * Get (a copy of) the per input latencies, from reading an input to
+   * handling its result.
+   */
+  public synchronized StatsAccumulator getLatencyMillis() {
+    return new StatsAccumulator(latencyMillis);
+  }
+
+  public synchronized String toString() {
+    final StringBuilder result = new StringBuilder();
+
+    result.
+      append("classified ").append(numInputs).
+      append(" inputs in ").append(getElapsedMillis()).append("ms (").
+      append(MathUtil.doubleString(getThroughput(), 2)).append("/sec); ").
+      append(numExtractionFailures).append(" extraction failures, ").
+      append(numClassificationFailures).append(" classification failures\n").
+      append("  latency: ").append(latencyMillis).append('\n').
+      append("  extraction: ").append(extractionMillis).append('\n').
+      append("  classification: ").append(classificationMillis).append('\n').
+      append("  batchSizes: ").append(batchSizes);
+
+    return result.toString();
+  }
+}
@@ -19,6 +19,8 @@
 package org.sd.classifier;
 
 
+import java.util.List;
+
 /**
  * Interface for running classification over a feature vector.
  * <p>
@@ -34,4 +36,17 @@ public interface Classifier {
    * @param featureDictionary  the relevant feature dictionary.
    */
   public ClassificationResult classify(FeatureVector featureVector, FeatureDictionary featureDictionary);
+
+  /**
+   * Predict the classification labels for a batch of feature vectors.
+   * <p>
+   * Note that this is called from a single thread at a time.
+   *
+   * @param featureVectors     instantiated (filled) feature vectors.
+   * @param featureDictionary  the relevant feature dictionary.
+   *
+   * @return the results corresponding to each feature vector (null where
+   *         a vector could not be classified).
+   */
+  public List<ClassificationResult> classify(List<FeatureVector> featureVectors, FeatureDictionary featureDictionary);
 }
@@ -22,11 +22,24 @@ package org.sd.classifier;
 import org.sd.extract.TextContainer;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 /**
  * Utility class for loading and running a classifer, including feature extraction.
  * <p>
+ * Inputs can be classified one at a time or in batches, where feature
+ * extraction runs on a thread pool and each batch of feature vectors is
+ * classified together while the next batch is extracted.
+ * <p>
  * @author Spence Koehler
  */
 public class ClassifierRunner extends BaseClassifierRunner {
@@ -63,4 +76,162 @@ public class ClassifierRunner extends BaseClassifierRunner {
     final FeatureVector fv = extract(input);
     return classifier.classify(fv, getFeatureDictionary());
   }
+
+  /**
+   * Classify all inputs, extracting features on numThreads threads and
+   * classifying batchSize feature vectors at a time.
+   * <p>
+   * Results are sent to the handler in input order from this thread, tagged
+   * with each input's (0-based) sequence number.
+   * <p>
+   * Note that when numThreads is greater than 1, this instance's feature
+   * extractor must be safe for concurrent use. The classifier is only
+   * called from this thread. If the feature dictionary has been unlocked,
+   * extraction may add features to it, so all extraction is done on this
+   * thread instead.
+   *
+   * @return the throughput and latency metrics for the run.
+   */
+  public ClassificationMetrics classify(Iterator<LabeledInput> inputs, ClassificationHandler handler, int numThreads, int batchSize) {
+    final ClassificationMetrics result = new ClassificationMetrics();
+
+    ExecutorService executor = null;
+    if (getFeatureDictionary().isLocked()) {
+      // build the locked dictionary's lazily computed lookups before threads share it
+      getFeatureDictionary().getFeatureVectorAsSparse(new FeatureVector());
+      executor = Executors.newFixedThreadPool(Math.max(1, numThreads));
+    }
+    result.markStart();
+
+    try {
+      Batch batch = submitBatch(inputs, 0L, Math.max(1, batchSize), executor, result);
+
+      while (batch != null) {
+        // start extracting the next batch while classifying this one
+        final Batch nextBatch = submitBatch(inputs, batch.nextId(), Math.max(1, batchSize), executor, result);
+
+        if (!classifyBatch(batch, handler, result)) {
+          break;
+        }
+
+        batch = nextBatch;
+      }
+    }
+    finally {
+      if (executor != null) executor.shutdownNow();
+      result.markEnd();
+    }
+
+    return result;
+  }
+
+  /**
+   * Submit the extraction of up to batchSize inputs, extracting on this
+   * thread if executor is null.
+   *
+   * @return the batch or null if there are no more inputs.
+   */
+  private final Batch submitBatch(Iterator<LabeledInput> inputs, long firstId, int batchSize, ExecutorService executor, final ClassificationMetrics metrics) {
+    if (!inputs.hasNext()) return null;
+
+    final Batch result = new Batch(firstId, batchSize);
+
+    while (inputs.hasNext() && result.size() < batchSize) {
+      final LabeledInput labeledInput = inputs.next();
+      final FutureTask<FeatureVector> future = new FutureTask<FeatureVector>(new Callable<FeatureVector>() {
+          public FeatureVector call() {
+            final long starttime = System.currentTimeMillis();
+            FeatureVector fv = null;
+            try {
+              fv = extract(labeledInput.input);
+            }
+            catch (RuntimeException e) {
+              e.printStackTrace();
+            }
+            metrics.addExtraction(System.currentTimeMillis() - starttime, fv == null);
+            return fv;
+          }
+        });
+      if (executor == null) {
+        future.run();
+      }
+      else {
+        executor.execute(future);
+      }
+      result.add(labeledInput, future);
+    }
+
+    return result;
+  }
+
+  /**
+   * Classify the batch, sending its results to the handler.
+   *
+   * @return true to continue; false if the handler or an interrupt stopped classification.
+   */
+  private final boolean classifyBatch(Batch batch, ClassificationHandler handler, ClassificationMetrics metrics) {
+    final int size = batch.size();
+    final FeatureVector[] featureVectors = new FeatureVector[size];
+    final List<FeatureVector> extracted = new ArrayList<FeatureVector>(size);
+
+    for (int i = 0; i < size; ++i) {
+      try {
+        featureVectors[i] = batch.futures.get(i).get();
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+      catch (ExecutionException e) {
+        e.printStackTrace();
+      }
+      if (featureVectors[i] != null) extracted.add(featureVectors[i]);
+    }
+
+    final long starttime = System.currentTimeMillis();
+    final List<ClassificationResult> classified = extracted.isEmpty() ? new ArrayList<ClassificationResult>() : classifier.classify(extracted, getFeatureDictionary());
+    metrics.addBatch(System.currentTimeMillis() - starttime, extracted.size());
+
+    int classifiedIndex = 0;
+    for (int i = 0; i < size; ++i) {
+      final ClassificationResult classificationResult = (featureVectors[i] == null) ? null : classified.get(classifiedIndex++);
+      final boolean keepGoing = handler.handle(batch.firstId + i, batch.inputs.get(i), classificationResult);
+      metrics.addResult(System.currentTimeMillis() - batch.starttimes[i], classificationResult == null);
+      if (!keepGoing) return false;
+    }
+
+    return true;
+  }
+
+
+  /**
+   * Container for a batch of inputs being extracted.
+   */
+  private static final class Batch {
+    public final long firstId;
+    public final List<LabeledInput> inputs;
+    public final List<Future<FeatureVector>> futures;
+    public final long[] starttimes;
+
+    Batch(long firstId, int batchSize) {
+      this.firstId = firstId;
+      this.inputs = new ArrayList<LabeledInput>(batchSize);
+      this.futures = new ArrayList<Future<FeatureVector>>(batchSize);
+      this.starttimes = new long[batchSize];
+    }
+
+    void add(LabeledInput labeledInput, Future<FeatureVector> future) {
+      starttimes[inputs.size()] = System.currentTimeMillis();
+      inputs.add(labeledInput);
+      futures.add(future);
+    }
+
+    int size() {
+      return inputs.size();
+    }
+
+    long nextId() {
+      return firstId + inputs.size();
+    }
+  }
 }
@@ -106,8 +106,19 @@ public class ExtractedFeatures {
    * @throws IOException
    */
   public void writeToArff(File arffFile) throws IOException {
+    writeToArff(arffFile, false);
+  }
+
+  /**
+   * Writes to SD-Enhances ARFF file, optionally in sparse form.
+   * 
+   * @param arffFile output arff file
+   * @param sparse   if true, write instances in sparse ARFF form
+   * @throws IOException
+   */
+  public void writeToArff(File arffFile, boolean sparse) throws IOException {
     BufferedWriter writer = FileUtil.getWriter(arffFile);
-    writeToArff(writer);
+    writeToArff(writer, sparse);
     writer.close();
   }
 
@@ -118,10 +129,29 @@ public class ExtractedFeatures {
    * @throws IOException
    */
   public void writeToArff(BufferedWriter writer) throws IOException {
+    writeToArff(writer, false);
+  }
+
+  /**
+   * Writes to SD-Enhances ARFF writer, optionally in sparse form.
+   * <p>
+   * Sparse instances are written as "{index value,...}" with only non-zero
+   * values, so unknown values are written as 0 (as seen by classifiers)
+   * rather than as "?".
+   * 
+   * @param writer output arff writer
+   * @param sparse if true, write instances in sparse ARFF form
+   * @throws IOException
+   */
+  public void writeToArff(BufferedWriter writer, boolean sparse) throws IOException {
     writer.write(featureDictionary.getArffString());
 
     List<FeatureAttribute> featureAttributes = featureDictionary.getFeatureAttributeList();
     for (FeatureVector fv : featureVectors) {
+      if (sparse) {
+        writeSparseLine(writer, fv, featureAttributes);
+        continue;
+      }
       
       for (int i=0; i < featureAttributes.size(); i++) {
         if (i > 0) writer.write(",");
@@ -132,6 +162,20 @@ public class ExtractedFeatures {
     }
   }
 
+  private final void writeSparseLine(BufferedWriter writer, FeatureVector fv, List<FeatureAttribute> featureAttributes) throws IOException {
+    final SparseVector sparseVector = featureDictionary.getFeatureVectorAsSparse(fv);
+    final int[] indices = sparseVector.getIndices();
+    final double[] values = sparseVector.getValues();
+
+    writer.write("{");
+    for (int i=0; i < indices.length; i++) {
+      if (i > 0) writer.write(",");
+      writer.write(indices[i] + " " + featureDictionary.toString(featureAttributes.get(indices[i]), values[i]));
+    }
+    writer.write("}");
+    writer.newLine();
+  }
+
   /**
    * Writes source lines to the file in the same order as arff instances.
    *
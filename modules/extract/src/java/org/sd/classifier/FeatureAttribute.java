@@ -36,6 +36,16 @@ public interface FeatureAttribute {
    */
   public String getName();
 
+  /**
+   * Get this attribute's id, assigned by the dictionary that created it.
+   * <p>
+   * Ids are small non-negative integers, unique within a dictionary, and
+   * are stable while the dictionary's attribute ordering changes.
+   *
+   * @return the id or -1 if this attribute was not created by a dictionary.
+   */
+  public int getId();
+
   /**
    * Convenience method to determine whether an attribute is a bag
    * of words attribute based on its name pattern.
@@ -26,14 +26,13 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.TreeSet;
 
 import org.sd.io.FileUtil;
@@ -51,6 +50,10 @@ import org.sd.io.FileUtil;
  * are received on a locked dictionary, the new features are logged for feedback
  * on a classifier's relevance to current input and should be monitored closely
  * for indications that retraining is necessary.
+ * <p>
+ * Each feature attribute is assigned an int id on creation. Lookups from a
+ * feature vector's attributes to their positions in the ordered attribute list
+ * (e.g. for building sparse vectors) go through these ids.
  * 
  * @author Spence Koehler, Dave Barney
  */
@@ -103,6 +106,15 @@ public class FeatureDictionary {
   
   /** Ordered list of feature attributes (lazily created) */
   private List<FeatureAttribute> _orderedFeatureAttributeList;
+
+  /** Next id to assign to a created feature attribute */
+  private int nextAttributeId;
+
+  /** Map from attribute id to its index in the ordered list or -1 (lazily created) */
+  private int[] _id2index;
+
+  /** Ordered list indices of attributes with non-zero default values (lazily created) */
+  private int[] _defaultIndices;
   
   /**
    * Constructs a Feature Dictionary, which will be loaded from the given ARFF file.  The ARFF
@@ -182,10 +194,11 @@ public class FeatureDictionary {
    * Place for general initializations for all constructors.
    */
   private final void init() {
-    this.intAttrMap = new TreeMap<String, IntegerFeatureAttribute>();
-    this.realAttrMap = new TreeMap<String, RealFeatureAttribute>();
-    this.nominalAttrMap = new TreeMap<String, NominalFeatureAttribute>();
+    this.intAttrMap = new HashMap<String, IntegerFeatureAttribute>();
+    this.realAttrMap = new HashMap<String, RealFeatureAttribute>();
+    this.nominalAttrMap = new HashMap<String, NominalFeatureAttribute>();
     this.nominalValuesMap = new HashMap<NominalFeatureAttribute, Set<String>>();
+    this.nextAttributeId = 0;
     this.locked = false;
   }
 
@@ -293,7 +306,7 @@ public class FeatureDictionary {
 
       // once @DATA section is reached, header is read in and we can exit
       } else if (line.startsWith("@DATA")) {
-        _orderedFeatureAttributeList = orderedAttributes;
+        setFeatureAttributeList(orderedAttributes);
         this.locked = true;
         break;
       }
@@ -355,9 +368,9 @@ public class FeatureDictionary {
        if (result == null) {
          result = new IntegerFeatureAttribute(this, name);
        }
-       intAttrMap.put(name, result);
-
-      clearFeatureAttributeList();  // clear cached list to recompute.
+      if (intAttrMap.put(name, result) != result) {
+        clearFeatureAttributeList();  // clear cached list to recompute.
+      }
     }
     
     return result;
@@ -377,9 +390,9 @@ public class FeatureDictionary {
       if (result == null) {
         result = new RealFeatureAttribute(this, name);
       }
-      realAttrMap.put(name, result);
-
-      clearFeatureAttributeList();  // clear cached list to recompute.
+      if (realAttrMap.put(name, result) != result) {
+        clearFeatureAttributeList();  // clear cached list to recompute.
+      }
     }
     
     return result;
@@ -408,15 +421,17 @@ public class FeatureDictionary {
       if (nominalFeatureAttribute == null) {
         nominalFeatureAttribute = new NominalFeatureAttribute(this, name);
       }
-      nominalAttrMap.put(name, nominalFeatureAttribute);
+      boolean changed = (nominalAttrMap.put(name, nominalFeatureAttribute) != nominalFeatureAttribute);
       Set<String> nominalValues = nominalValuesMap.get(nominalFeatureAttribute);
       if (nominalValues == null) {
         nominalValues = new TreeSet<String>();
         nominalValuesMap.put(nominalFeatureAttribute, nominalValues);
       }
-      nominalValues.add(value);
+      if (nominalValues.add(value)) changed = true;
 
-      clearFeatureAttributeList();  // clear cached list to recompute.
+      if (changed) {
+        clearFeatureAttributeList();  // clear cached list to recompute.
+      }
     }
     
     if (nominalFeatureAttribute == null) return null;
@@ -589,37 +604,117 @@ public class FeatureDictionary {
     }
     result.add(classificationAttribute);
     
-    // IntegerFeatureAttributes
-    final Collection<IntegerFeatureAttribute> intValues = intAttrMap.values();
-    for (Iterator<IntegerFeatureAttribute> iter = intValues.iterator(); iter.hasNext(); ) {
-      FeatureAttribute curr = iter.next();
-      if (curr.equals(classificationAttribute)) continue;
-      result.add(curr);
-    }
+    // IntegerFeatureAttributes, RealFeatureAttributes, NominalFeatureAttributes (each by name)
+    addSortedByName(intAttrMap, classificationAttribute, result);
+    addSortedByName(realAttrMap, classificationAttribute, result);
+    addSortedByName(nominalAttrMap, classificationAttribute, result);
     
-    // RealFeatureAttributes
-    final Collection<RealFeatureAttribute> realValues = realAttrMap.values();
-    for (Iterator<RealFeatureAttribute> iter = realValues.iterator(); iter.hasNext(); ) {
-      FeatureAttribute curr = iter.next();
-      if (curr.equals(classificationAttribute)) continue;
-      result.add(curr);
-    }
+    setFeatureAttributeList(result);  // cache result.
     
-    // NominalFeatureAttributes
-    final Collection<NominalFeatureAttribute> nominalValues = nominalAttrMap.values();
-    for (Iterator<NominalFeatureAttribute> iter = nominalValues.iterator(); iter.hasNext(); ) {
-      FeatureAttribute curr = iter.next();
+    return result;
+  }
+
+  private final void addSortedByName(Map<String, ? extends FeatureAttribute> name2attr, FeatureAttribute classificationAttribute, List<FeatureAttribute> result) {
+    final List<String> names = new ArrayList<String>(name2attr.keySet());
+    Collections.sort(names);
+
+    for (String name : names) {
+      final FeatureAttribute curr = name2attr.get(name);
       if (curr.equals(classificationAttribute)) continue;
       result.add(curr);
     }
-    
-    _orderedFeatureAttributeList = result;  // cache result.
-    
-    return result;
+  }
+
+  /**
+   * Cache the ordered feature attribute list and its attribute id to index map.
+   */
+  private final void setFeatureAttributeList(List<FeatureAttribute> orderedFeatureAttributeList) {
+    int maxId = -1;
+    for (FeatureAttribute featureAttribute : orderedFeatureAttributeList) {
+      if (featureAttribute != null && featureAttribute.getId() > maxId) maxId = featureAttribute.getId();
+    }
+
+    final int[] id2index = new int[maxId + 1];
+    Arrays.fill(id2index, -1);
+
+    int index = 0;
+    for (FeatureAttribute featureAttribute : orderedFeatureAttributeList) {
+      if (featureAttribute != null && featureAttribute.getId() >= 0) {
+        id2index[featureAttribute.getId()] = index;
+      }
+      ++index;
+    }
+
+    this._orderedFeatureAttributeList = orderedFeatureAttributeList;
+    this._id2index = id2index;
+    this._defaultIndices = null;
   }
 
   private final void clearFeatureAttributeList() {
     _orderedFeatureAttributeList = null;
+    _id2index = null;
+    _defaultIndices = null;
+  }
+
+  /**
+   * Assign the next attribute id, called when creating a feature attribute.
+   */
+  final int nextAttributeId() {
+    return nextAttributeId++;
+  }
+
+  /**
+   * Clear cached default value information, called when an attribute's
+   * default value changes.
+   */
+  final void clearDefaultValues() {
+    _defaultIndices = null;
+  }
+
+  /**
+   * Get the index of the feature attribute in this dictionary's ordered
+   * feature attribute list.
+   *
+   * @return the index or -1 if the attribute is not in this dictionary.
+   */
+  public int getAttributeIndex(FeatureAttribute featureAttribute) {
+    final List<FeatureAttribute> orderedFeatureAttributeList = getFeatureAttributeList();
+    final int[] id2index = _id2index;
+    final int id = featureAttribute.getId();
+
+    int result = (id >= 0 && id < id2index.length) ? id2index[id] : -1;
+
+    // ids are only unique within the creating dictionary, so verify
+    if (result >= 0 && orderedFeatureAttributeList.get(result) != featureAttribute) {
+      result = -1;
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the ordered list indices of attributes with non-zero default values.
+   */
+  private final int[] getDefaultIndices() {
+    final List<FeatureAttribute> orderedFeatureAttributeList = getFeatureAttributeList();
+    int[] result = _defaultIndices;
+
+    if (result == null) {
+      int count = 0;
+      result = new int[orderedFeatureAttributeList.size()];
+      for (int i = 0; i < result.length; ++i) {
+        final FeatureAttribute featureAttribute = orderedFeatureAttributeList.get(i);
+        if (featureAttribute == null) continue;
+        final Double defaultValue = featureAttribute.getDefaultValue();
+        if (defaultValue != null && defaultValue != 0.0) {
+          result[count++] = i;
+        }
+      }
+      result = Arrays.copyOf(result, count);
+      _defaultIndices = result;
+    }
+
+    return result;
   }
 
   /**
@@ -635,16 +730,59 @@ public class FeatureDictionary {
     return toString(orderedFeatureAttributeList.get(0), value);
   }
   
+  /**
+   * Get the feature vector's values as a dense array in this dictionary's
+   * attribute order, where missing (unknown) values are 0.
+   * <p>
+   * Note that getFeatureVectorAsSparse is preferred for large dictionaries.
+   */
   public double[] getFeatureVectorAsDouble(FeatureVector featureVector) {
+    return getFeatureVectorAsSparse(featureVector).toDense();
+  }
+
+  /**
+   * Get the feature vector's non-zero values in this dictionary's attribute
+   * order, where missing (unknown) values are 0.
+   * <p>
+   * This includes the vector's values for attributes in this dictionary and
+   * the non-zero default values of attributes not set on the vector, without
+   * visiting every attribute in the dictionary.
+   */
+  public SparseVector getFeatureVectorAsSparse(FeatureVector featureVector) {
     final List<FeatureAttribute> orderedFeatureAttributeList = getFeatureAttributeList();
-    double[] values = new double[orderedFeatureAttributeList.size()];
-    
-    for (int i=0; i < orderedFeatureAttributeList.size(); i++) {
-      Double value = featureVector.getValue(orderedFeatureAttributeList.get(i));
-      if (value != null) values[i] = value;
+    final int[] defaultIndices = getDefaultIndices();
+    final int numValues = featureVector.getNumValues();
+
+    // pack (index, position) pairs into longs to sort by index
+    final long[] pairs = new long[numValues + defaultIndices.length];
+    final double[] defaults = new double[defaultIndices.length];
+    int count = 0;
+
+    for (int pos = 0; pos < numValues; ++pos) {
+      final int index = getAttributeIndex(featureVector.getAttributeAt(pos));
+      if (index >= 0 && featureVector.getValueAt(pos) != 0.0) {
+        pairs[count++] = ((long)index << 32) | pos;
+      }
     }
-    
-    return values;
+    for (int i = 0; i < defaultIndices.length; ++i) {
+      final FeatureAttribute featureAttribute = orderedFeatureAttributeList.get(defaultIndices[i]);
+      if (!featureVector.hasValue(featureAttribute)) {
+        defaults[i] = featureAttribute.getDefaultValue();
+        pairs[count++] = ((long)defaultIndices[i] << 32) | (numValues + i);
+      }
+    }
+
+    Arrays.sort(pairs, 0, count);
+
+    final int[] indices = new int[count];
+    final double[] values = new double[count];
+    for (int i = 0; i < count; ++i) {
+      final int pos = (int)pairs[i];
+      indices[i] = (int)(pairs[i] >>> 32);
+      values[i] = (pos < numValues) ? featureVector.getValueAt(pos) : defaults[pos - numValues];
+    }
+
+    return new SparseVector(indices, values, orderedFeatureAttributeList.size());
   }
   
   public boolean removeFeatureAttribute(FeatureAttribute toRemove) {
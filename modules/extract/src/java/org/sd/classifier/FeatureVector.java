@@ -22,26 +22,39 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import org.sd.io.FileUtil;
 
 /**
  * Class to associate each of a set of feature attributes to an instantiated value.
+ * <p>
+ * Only explicitly set values are held, in primitive arrays in the order set,
+ * so that vectors over large dictionaries (i.e. bags of words) stay small.
+ * Use FeatureDictionary.getFeatureVectorAsSparse to get the values in
+ * dictionary order.
  *
  * @author Ryan McGuire, Spence Koehler
  */
 public class FeatureVector {
 
-  private Map <FeatureAttribute,Double> attr_map;
+  private static final int INITIAL_CAPACITY = 8;
+
+  private FeatureAttribute[] attributes;  // set attributes, in the order set
+  private double[] values;                // values corresponding to attributes
+  private int size;                       // number of attributes set
+  private int[] slots;                    // open-addressed (position + 1) of attributes by identity
   private Boolean extractionFlag;
   private FeatureDictionary featureDictionary;
   
   public FeatureVector() {
-    this.attr_map = new HashMap <FeatureAttribute,Double>();
+    this.attributes = new FeatureAttribute[INITIAL_CAPACITY];
+    this.values = new double[INITIAL_CAPACITY];
+    this.size = 0;
+    this.slots = new int[INITIAL_CAPACITY * 2];
     this.extractionFlag = null;
     this.featureDictionary = null;
   }
@@ -87,12 +100,62 @@ public class FeatureVector {
   }
   
   private final void addAttribute(FeatureAttribute attribute, double value) {
-    attr_map.put(attribute, value);
+    final int pos = findPosition(attribute);
+
+    if (pos >= 0) {
+      values[pos] = value;
+    }
+    else {
+      if (size == attributes.length) {
+        attributes = Arrays.copyOf(attributes, size * 2);
+        values = Arrays.copyOf(values, size * 2);
+      }
+      attributes[size] = attribute;
+      values[size] = value;
+      slots[-pos - 1] = ++size;
+
+      // keep the slots at most half full
+      if (size * 2 > slots.length) rehash(slots.length * 2);
+    }
+
     if (featureDictionary == null) {
       featureDictionary = attribute.getFeatureDictionary();
     }
   }
 
+  /**
+   * Find the position of the attribute in this vector.
+   *
+   * @return the position if present; otherwise, -(emptySlot + 1).
+   */
+  private final int findPosition(FeatureAttribute attribute) {
+    final int mask = slots.length - 1;
+    int slot = hash(attribute) & mask;
+
+    while (true) {
+      final int pos = slots[slot] - 1;
+      if (pos < 0) return -(slot + 1);
+      if (attributes[pos] == attribute) return pos;
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  private final void rehash(int numSlots) {
+    this.slots = new int[numSlots];
+    final int mask = numSlots - 1;
+
+    for (int pos = 0; pos < size; ++pos) {
+      int slot = hash(attributes[pos]) & mask;
+      while (slots[slot] != 0) slot = (slot + 1) & mask;
+      slots[slot] = pos + 1;
+    }
+  }
+
+  private static final int hash(FeatureAttribute attribute) {
+    final int h = System.identityHashCode(attribute);
+    return h ^ (h >>> 16);
+  }
+
   /**
    * Get the value of a feature attribute in this vector.
    * <p>
@@ -107,20 +170,55 @@ public class FeatureVector {
    * @return the set value, default value, or null if not set.
    */
   public Double getValue(FeatureAttribute attribute){
-    Double result = attr_map.get(attribute);
-    
-    if (result == null) {
-      result = attribute.getDefaultValue();
-    }
+    final int pos = findPosition(attribute);
+    if (pos >= 0) return values[pos];
+    return attribute.getDefaultValue();
+  }
 
-    return result;
+  /**
+   * Determine whether a value has been set on this vector for the attribute.
+   */
+  public boolean hasValue(FeatureAttribute attribute) {
+    return findPosition(attribute) >= 0;
   }
 
   /**
-   * Get the feature attributes in this vector
+   * Get (a copy of) the feature attributes in this vector
    */
   public Set<FeatureAttribute> getAttributes(){
-    return attr_map.keySet();
+    return new LinkedHashSet<FeatureAttribute>(Arrays.asList(attributes).subList(0, size));
+  }
+
+  /**
+   * Get the number of values set on this vector.
+   */
+  public int getNumValues() {
+    return size;
+  }
+
+  /**
+   * Get the attribute set at the given position (from 0 to getNumValues()),
+   * where attributes are held in the order in which they were set.
+   */
+  public FeatureAttribute getAttributeAt(int pos) {
+    return attributes[pos];
+  }
+
+  /**
+   * Get the value set at the given position (from 0 to getNumValues()).
+   */
+  public double getValueAt(int pos) {
+    return values[pos];
+  }
+
+  /**
+   * Get this instance's values in dictionary order as a sparse vector.
+   * <p>
+   * If there are no attributes set on this vector, then null will be returned.
+   */
+  public SparseVector getSparseValues() {
+    if (featureDictionary == null) return null;
+    return featureDictionary.getFeatureVectorAsSparse(this);
   }
 
   /**
@@ -213,6 +311,18 @@ public class FeatureVector {
           if (!dataFlag) continue;
       }
       
+      // load sparse feature vector values
+      if (line.startsWith("{")) {
+        final FeatureVector fv = loadSparseFeatureVector(line, featureAttributeList);
+        if (fv == null) {
+          System.err.println("\tInvalid sparse ARFF line from " + arffFile + "\tLine: " + lineCount);
+        }
+        else {
+          featureVectors.add(fv);
+        }
+        continue;
+      }
+
       // load feature vector values
       final String[] values = line.split(",");
       final FeatureVector fv = new FeatureVector();
@@ -240,4 +350,50 @@ public class FeatureVector {
     
     return featureVectors;
   }
+
+  /**
+   * Load a feature vector from a sparse ARFF line of the form
+   * "{index value,index value,...}".
+   * <p>
+   * Note that only the listed values are set on the vector.
+   *
+   * @return the feature vector or null if the line is malformed.
+   */
+  private static final FeatureVector loadSparseFeatureVector(String line, List<FeatureAttribute> featureAttributeList) {
+    final int endPos = line.lastIndexOf('}');
+    if (endPos < 0) return null;
+
+    final FeatureVector result = new FeatureVector();
+    final String content = line.substring(1, endPos).trim();
+    if (content.length() == 0) return result;
+
+    for (String entry : content.split(",")) {
+      entry = entry.trim();
+      final int spacePos = entry.indexOf(' ');
+      if (spacePos < 0) return null;
+
+      final int index;
+      try {
+        index = Integer.parseInt(entry.substring(0, spacePos));
+      }
+      catch (NumberFormatException e) {
+        return null;
+      }
+      if (index < 0 || index >= featureAttributeList.size()) return null;
+
+      final String value = entry.substring(spacePos + 1).trim();
+
+      // skip empty values
+      if (value.equals("?")) continue;
+
+      final FeatureAttribute curr = featureAttributeList.get(index);
+      if (curr.asNominal() != null) {
+        result.setValue(curr, value);
+      } else {
+        result.setValue(curr, Double.parseDouble(value));
+      }
+    }
+
+    return result;
+  }
 }
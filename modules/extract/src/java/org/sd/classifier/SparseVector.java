@@ -0,0 +1,111 @@
+/*
+    Copyright 2011 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.classifier;
+
+
+import java.util.Arrays;
+
+/**
+ * Container for a feature vector's values as parallel arrays of ascending
+ * attribute indices (as ordered by a FeatureDictionary) and their values.
+ * <p>
+ * Indices not present have the value 0.
+ * <p>
+ * @author Spence Koehler
+ */
+public class SparseVector {
+
+  private int[] indices;
+  private double[] values;
+  private int numAttributes;
+
+  /**
+   * Construct with the given data.
+   *
+   * @param indices  Ascending attribute indices whose values are (generally)
+   *                 non-zero. Used as-is, not copied.
+   * @param values  The values corresponding to each index. Used as-is, not copied.
+   * @param numAttributes  The total number of attributes (dense length).
+   */
+  public SparseVector(int[] indices, double[] values, int numAttributes) {
+    this.indices = indices;
+    this.values = values;
+    this.numAttributes = numAttributes;
+  }
+
+  /**
+   * Get the ascending attribute indices for this instance's values.
+   */
+  public int[] getIndices() {
+    return indices;
+  }
+
+  /**
+   * Get the values, corresponding to each index.
+   */
+  public double[] getValues() {
+    return values;
+  }
+
+  /**
+   * Get the number of (non-zero) values held by this instance.
+   */
+  public int getNumValues() {
+    return indices.length;
+  }
+
+  /**
+   * Get the total number of attributes (dense length) represented.
+   */
+  public int getNumAttributes() {
+    return numAttributes;
+  }
+
+  /**
+   * Get the value of the attribute at the given (dense) index.
+   */
+  public double getValue(int index) {
+    final int pos = Arrays.binarySearch(indices, index);
+    return pos < 0 ? 0.0 : values[pos];
+  }
+
+  /**
+   * Expand this instance into a dense array of all attribute values.
+   */
+  public double[] toDense() {
+    final double[] result = new double[numAttributes];
+    for (int i = 0; i < indices.length; ++i) {
+      result[indices[i]] = values[i];
+    }
+    return result;
+  }
+
+  public String toString() {
+    final StringBuilder result = new StringBuilder();
+
+    result.append('{');
+    for (int i = 0; i < indices.length; ++i) {
+      if (i > 0) result.append(',');
+      result.append(indices[i]).append(' ').append(values[i]);
+    }
+    result.append('}');
+
+    return result.toString();
+  }
+}
@@ -23,11 +23,14 @@ import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.sd.util.MathUtil;
 
 import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.SparseInstance;
 import weka.core.converters.ArffLoader.ArffReader;
 
 /**
@@ -35,6 +38,9 @@ import weka.core.converters.ArffLoader.ArffReader;
  * class loads an serialized Weka classifier and applies
  * {@link ExtractedFeatures} to it, but first converting
  * to the weka libraries (e.g. {@link Instance}).
+ * <p>
+ * Feature vectors are converted to {@link SparseInstance}s so that only
+ * their non-zero values are materialized.
  *  
  * @author Dave Barney
  */
@@ -69,12 +75,40 @@ public class WekaClassifier implements Classifier {
   }
   
   public ClassificationResult classify(FeatureVector featureVector, FeatureDictionary featureDictionary) {
-    double[] attrValues = featureDictionary.getFeatureVectorAsDouble(featureVector);
+    return classify(buildInstance(featureVector, featureDictionary), featureVector, featureDictionary);
+  }
+
+  /**
+   * Classify a batch of feature vectors.
+   * <p>
+   * All instances are built before any are classified.
+   */
+  public List<ClassificationResult> classify(List<FeatureVector> featureVectors, FeatureDictionary featureDictionary) {
+    final int numVectors = featureVectors.size();
+    final Instance[] instances = new Instance[numVectors];
+    for (int i = 0; i < numVectors; ++i) {
+      instances[i] = buildInstance(featureVectors.get(i), featureDictionary);
+    }
+
+    final List<ClassificationResult> result = new ArrayList<ClassificationResult>(numVectors);
+    for (int i = 0; i < numVectors; ++i) {
+      result.add(classify(instances[i], featureVectors.get(i), featureDictionary));
+    }
+
+    return result;
+  }
+
+  private final Instance buildInstance(FeatureVector featureVector, FeatureDictionary featureDictionary) {
+    final SparseVector sparseVector = featureDictionary.getFeatureVectorAsSparse(featureVector);
     
     // we are required to put a weight for each instance, so we weight them all as 1.0
-    Instance instance = new Instance(1.0, attrValues);
+    Instance instance = new SparseInstance(1.0, sparseVector.getValues(), sparseVector.getIndices(), sparseVector.getNumAttributes());
     instance.setDataset(dataSet);
-    
+
+    return instance;
+  }
+
+  private final ClassificationResult classify(Instance instance, FeatureVector featureVector, FeatureDictionary featureDictionary) {
     ClassificationResult classificationResult = null;
     
     try {
@@ -41,6 +41,10 @@ import java.util.Set;
 /**
  * Container for text from a document as served through a text container.
  * <p>
+ * Lazily computed strings, string wrappers, and path keys are cached under
+ * this instance's lock so that extractors running in parallel (see
+ * ExtractionPipeline.setExecutor) can share a doc text.
+ * <p>
  * @author Spence Koehler
  */
 public class DocText {
@@ -98,7 +102,7 @@ public class DocText {
     return textContainer;
   }
 
-  public XmlData getXmlData() {
+  public synchronized XmlData getXmlData() {
     if (xmlData == null && _string != null) {
       try {
         xmlData = new XmlData(1, XmlFactory.buildXmlTree(_string, false, false), null, null);
@@ -136,7 +140,7 @@ public class DocText {
    * <p>
    * @return the non-null but possibly empty text string.
    */
-  public String getString() {
+  public synchronized String getString() {
     if (_string == null) {
       _string = (xmlData.xmlNode != null) ? XmlTreeHelper.getAllText(xmlData.xmlNode) : "";
     }
@@ -146,7 +150,7 @@ public class DocText {
   /**
    * Get this instance's xml node's text strings in document order.
    */
-  public String[] getStrings() {
+  public synchronized String[] getStrings() {
     if (_strings == null) {
       _strings = XmlTreeHelper.getEachText(xmlData.xmlNode);
     }
@@ -158,7 +162,7 @@ public class DocText {
    * <p>
    * Note that the default break strategy is a org.sd.nlp.GeneralBreakStrategy.
    */
-  public StringWrapper getStringWrapper() {
+  public synchronized StringWrapper getStringWrapper() {
     if (_defaultStringWrapper == null) {
       _defaultStringWrapper = getStringWrapper(GeneralBreakStrategy.getInstance());
     }
@@ -171,7 +175,7 @@ public class DocText {
    * If the breakStrategy is null, then the default GeneralBreakStrategy will
    * be used.
    */
-  public StringWrapper getStringWrapper(BreakStrategy breakStrategy) {
+  public synchronized StringWrapper getStringWrapper(BreakStrategy breakStrategy) {
     if (breakStrategy == null) breakStrategy = GeneralBreakStrategy.getInstance();
     if (_bs2sw == null) _bs2sw = new HashMap<BreakStrategy, StringWrapper>();
 
@@ -192,7 +196,7 @@ public class DocText {
    * or the tag path's deepest tag if the xml node is a text node. The remaining
    * t's are the tags leading from t1 to tN.
    */
-  public String getPathKey() {
+  public synchronized String getPathKey() {
     if (_pathKey == null) {
       if (xmlData.tagStack == null) {
         _pathKey = "";
@@ -279,7 +283,7 @@ public class DocText {
   /**
    * Clear this instance's lazily loaded caches.
    */
-  public void compact() {
+  public synchronized void compact() {
     this._string = null;
     this._strings = null;
     this._defaultStringWrapper = null;
@@ -20,6 +20,7 @@ package org.sd.extract;
 
 
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Utility to run extractors.
@@ -40,6 +41,16 @@ public class ExtractionHarness extends ExtractionRunner {
     getMegaExtractor().addExtractor(extractor);
   }
 
+  /**
+   * Set an executor for running the extractors in parallel, or null to run
+   * them sequentially.
+   *
+   * @see ExtractionPipeline#setExecutor
+   */
+  public void setExecutor(ExecutorService executor) {
+    getMegaExtractor().setExecutor(executor);
+  }
+
   public final void close() throws IOException {
     //nothing to do.
   }
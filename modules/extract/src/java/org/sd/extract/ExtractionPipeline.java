@@ -28,12 +28,24 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * A "mega extractor" to apply multiple regular extractors to a document (text
  * container).
  * <p>
+ * When given an executor, the extractors are run in parallel, each in its
+ * own task over a document's doc texts. Their results are merged in the same
+ * (document, then extractor) order as when run sequentially, so this mode is
+ * only appropriate when the extractors are independent of each other and
+ * safe for concurrent use. Extractors share each doc text, whose lazily
+ * cached strings and string wrappers are thread-safe.
+ * <p>
  * @author Spence Koehler
  */
 public abstract class ExtractionPipeline {
@@ -96,6 +108,7 @@ public abstract class ExtractionPipeline {
   private List<Extractor> extractors;
   private boolean keepDocTexts;
   private boolean keepEmpties;
+  private ExecutorService executor;
 
   /**
    * Default constructor.
@@ -114,6 +127,39 @@ public abstract class ExtractionPipeline {
     this.extractors = null;
     this.keepDocTexts = keepDocTexts;
     this.keepEmpties = keepEmpties;
+    this.executor = null;
+  }
+
+  /**
+   * Set the executor to use for running this pipeline's extractors in
+   * parallel, or null (default) to run them sequentially.
+   * <p>
+   * The executor may be shared, including with tasks that themselves run
+   * this pipeline, as the thread waiting for extractor tasks runs any that
+   * haven't yet been started.
+   * <p>
+   * Note that in parallel mode, runExtractors iterates over the full text
+   * container before merging results instead of stopping when all extractors
+   * are finished with the document.
+   */
+  public void setExecutor(ExecutorService executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * Get the executor for running this pipeline's extractors in parallel.
+   *
+   * @return the executor or null if running sequentially.
+   */
+  public ExecutorService getExecutor() {
+    return executor;
+  }
+
+  /**
+   * Determine whether to run extractors in parallel.
+   */
+  private final boolean isParallel() {
+    return executor != null && extractors != null && extractors.size() > 1;
   }
 
   /**
@@ -225,7 +271,9 @@ public abstract class ExtractionPipeline {
   /**
    * 
    */
-  public List<Extraction> extract(DocText docText, AtomicBoolean die) {
+  public List<Extraction> extract(final DocText docText, final AtomicBoolean die) {
+    if (isParallel()) return extractInParallel(docText, die);
+
     List<Extraction> result = null;
 
     if (extractors != null) {
@@ -242,6 +290,35 @@ public abstract class ExtractionPipeline {
     return result;
   }
 
+  /**
+   * Apply each extractor to the doc text in its own task, collecting results
+   * in extractor order.
+   */
+  private final List<Extraction> extractInParallel(final DocText docText, final AtomicBoolean die) {
+    List<Extraction> result = null;
+
+    final List<FutureTask<List<Extraction>>> tasks = new ArrayList<FutureTask<List<Extraction>>>();
+    for (final Extractor extractor : extractors) {
+      tasks.add(new FutureTask<List<Extraction>>(new Callable<List<Extraction>>() {
+          public List<Extraction> call() {
+            return (die != null && die.get()) ? null : extractor.extract(docText, die);
+          }
+        }));
+    }
+
+    runTasks(tasks);
+
+    for (FutureTask<List<Extraction>> task : tasks) {
+      final List<Extraction> extractions = getResult(task);
+      if (extractions != null) {
+        if (result == null) result = new ArrayList<Extraction>();
+        result.addAll(extractions);
+      }
+    }
+
+    return result;
+  }
+
   /**
    * Is finished with document if ALL of the extractors in this pipeline are finished.
    */
@@ -292,6 +369,11 @@ public abstract class ExtractionPipeline {
     if (extractors != null) {
       result = buildTextContainer(streamId, inputStream, turnOffCaching ? false : keepDocTexts, keepEmpties, die);
 
+      if (isParallel()) {
+        runExtractorsInParallel(result, die);
+        return result;
+      }
+
       while (result.hasNext() && (die == null || !die.get())) {
         final DocText docText = result.next();
         if ("".equals(docText.getString())) continue;  // ignore empty lines
@@ -327,6 +409,139 @@ public abstract class ExtractionPipeline {
     return result;
   }
 
+  /**
+   * Run each extractor over the container's doc texts in its own task, then
+   * add the extractions to the container as runExtractors does sequentially.
+   */
+  private final void runExtractorsInParallel(TextContainer textContainer, AtomicBoolean die) {
+    final List<DocText> docTexts = new ArrayList<DocText>();
+    while (textContainer.hasNext() && (die == null || !die.get())) {
+      final DocText docText = textContainer.next();
+      if ("".equals(docText.getString())) continue;  // ignore empty lines
+      docTexts.add(docText);
+    }
+
+    final List<ExtractorRun> runs = new ArrayList<ExtractorRun>();
+    final List<FutureTask<Object>> tasks = new ArrayList<FutureTask<Object>>();
+    for (Extractor extractor : extractors) {
+      final ExtractorRun run = new ExtractorRun(extractor, docTexts, die);
+      runs.add(run);
+      tasks.add(new FutureTask<Object>(run, null));
+    }
+
+    runTasks(tasks);
+    for (FutureTask<Object> task : tasks) getResult(task);
+
+    // merge results in sequential order
+    final int numDocTexts = docTexts.size();
+    for (int i = 0; i < numDocTexts; ++i) {
+      int numFinished = 0;
+
+      for (ExtractorRun run : runs) {
+        if (i >= run.numRun) return;  // died
+
+        final List<Extraction> extractions = run.extractions[i];
+        if (extractions != null) {
+          for (Extraction extraction : extractions) {
+            textContainer.addExtraction(extraction, run.extractor);
+          }
+        }
+
+        if (run.finishedWithDocument[i]) {
+          ++numFinished;
+        }
+
+        if (run.finishedWithDocText[i]) {
+          break;
+        }
+      }
+
+      if (numFinished == extractors.size()) break;
+    }
+  }
+
+  /**
+   * Submit the tasks to the executor, then run any that haven't been started
+   * in this thread.
+   */
+  private final <T> void runTasks(List<FutureTask<T>> tasks) {
+    for (FutureTask<T> task : tasks) {
+      try {
+        executor.execute(task);
+      }
+      catch (RejectedExecutionException e) {
+        // task will be run below
+      }
+    }
+
+    // running a started or completed FutureTask is a no-op
+    for (FutureTask<T> task : tasks) {
+      task.run();
+    }
+  }
+
+  /**
+   * Wait for and get the task's result, rethrowing its failure.
+   */
+  private static final <T> T getResult(FutureTask<T> task) {
+    try {
+      return task.get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+    catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+      if (cause instanceof Error) throw (Error)cause;
+      throw new IllegalStateException(cause);
+    }
+  }
+
+
+  /**
+   * Container for one extractor's results over a document's doc texts.
+   */
+  private static final class ExtractorRun implements Runnable {
+    public final Extractor extractor;
+    private final List<DocText> docTexts;
+    private final AtomicBoolean die;
+
+    public final List<Extraction>[] extractions;
+    public final boolean[] finishedWithDocument;
+    public final boolean[] finishedWithDocText;
+    public int numRun;
+
+    @SuppressWarnings("unchecked")
+    ExtractorRun(Extractor extractor, List<DocText> docTexts, AtomicBoolean die) {
+      this.extractor = extractor;
+      this.docTexts = docTexts;
+      this.die = die;
+
+      final int numDocTexts = docTexts.size();
+      this.extractions = new List[numDocTexts];
+      this.finishedWithDocument = new boolean[numDocTexts];
+      this.finishedWithDocText = new boolean[numDocTexts];
+      this.numRun = 0;
+    }
+
+    public void run() {
+      final int numDocTexts = docTexts.size();
+      for (int i = 0; i < numDocTexts; ++i) {
+        if (die != null && die.get()) break;
+
+        final DocText docText = docTexts.get(i);
+        if (extractor.shouldExtract(docText)) {
+          extractions[i] = extractor.extract(docText, die);
+        }
+        finishedWithDocument[i] = extractor.isFinishedWithDocument(docText);
+        finishedWithDocText[i] = extractor.isFinishedWithDocText(docText);
+        numRun = i + 1;
+      }
+    }
+  }
+
   /**
    * Auxiliary method to run from a main.
    */
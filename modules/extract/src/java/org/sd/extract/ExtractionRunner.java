@@ -25,11 +25,20 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.InputStream;
 import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Wrapper class for running a pipeline.
  * <p>
+ * Multiple files can be run through the pipeline concurrently on an
+ * executor, with their results handled in input order.
+ * <p>
  * @author Spence Koehler
  */
 public abstract class ExtractionRunner {
@@ -49,6 +58,26 @@ public abstract class ExtractionRunner {
   }
 
 
+  /**
+   * Interface for handling the results of running multiple files.
+   */
+  public static interface ResultsHandler {
+
+    /**
+     * Handle the extraction results for a file.
+     * <p>
+     * Files are handled in input order from the thread running them.
+     *
+     * @param file  The file that was run.
+     * @param extractionResults  The file's extraction results (possibly null).
+     * @param error  The exception thrown while running the file, or null.
+     *
+     * @return true to continue running files; false to stop.
+     */
+    public boolean handle(File file, ExtractionResults extractionResults, Exception error);
+  }
+
+
   private ExtractionPipeline megaExtractor;
 
   public ExtractionRunner(ExtractionPipeline megaExtractor) {
@@ -77,6 +106,61 @@ public abstract class ExtractionRunner {
     return run(textContainer);
   }
 
+  /**
+   * Run the extraction pipeline and disambiguate the results over each file,
+   * running up to maxPending files at a time on the executor.
+   * <p>
+   * Note that the pipeline's extractors must be safe for concurrent use. If
+   * the pipeline also runs its extractors in parallel, the same executor can
+   * be used for both.
+   */
+  public void run(Iterator<File> files, ExecutorService executor, int maxPending,
+                  final AtomicBoolean die, final boolean turnOffCaching, ResultsHandler handler) {
+    final LinkedList<File> pendingFiles = new LinkedList<File>();
+    final LinkedList<Future<ExtractionResults>> pendingResults = new LinkedList<Future<ExtractionResults>>();
+
+    try {
+      while (true) {
+        while (pendingFiles.size() < Math.max(1, maxPending) && files.hasNext() && (die == null || !die.get())) {
+          final File file = files.next();
+          pendingFiles.add(file);
+          pendingResults.add(executor.submit(new Callable<ExtractionResults>() {
+              public ExtractionResults call() throws IOException {
+                return run(file, die, turnOffCaching);
+              }
+            }));
+        }
+
+        if (pendingFiles.isEmpty()) break;
+
+        final File file = pendingFiles.removeFirst();
+        final Future<ExtractionResults> future = pendingResults.removeFirst();
+
+        ExtractionResults extractionResults = null;
+        Exception error = null;
+        try {
+          extractionResults = future.get();
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+        catch (ExecutionException e) {
+          final Throwable cause = e.getCause();
+          if (cause instanceof Error) throw (Error)cause;
+          error = (Exception)cause;
+        }
+
+        if (!handler.handle(file, extractionResults, error)) break;
+      }
+    }
+    finally {
+      for (Future<ExtractionResults> future : pendingResults) {
+        future.cancel(true);
+      }
+    }
+  }
+
   /**
    * Run the extraction pipeline and disambiguate the results over the text container.
    */
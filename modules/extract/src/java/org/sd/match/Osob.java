@@ -34,7 +34,7 @@ public class Osob {
 
   private static final OsobDeserializer DESERIALIZER = new OsobDeserializer();
 
-  private byte[] bytes;
+  private final byte[] bytes;
   private Integer _conceptId = null;
 
   public Osob(byte[] bytes) {
@@ -21,11 +21,16 @@ package org.sd.match.osobdb;
 
 import org.sd.match.Osob;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Iterator;
 
 /**
  * Container for a block of osobs.
  * <p>
+ * A block read from a db is a view over the db's (mapped) data, where each
+ * osob's bytes are only copied out when that osob is first requested.
+ * <p>
  * @author Spence Koehler
  */
 class OsobBlock {
@@ -34,10 +39,40 @@ class OsobBlock {
   private int baseConceptId;
   private int numOsobs;
 
+  private ByteBuffer data;  // backing osob data for a view, or null
+  private int[] offsets;    // data offset of each osob's length prefix or -1
+
   OsobBlock(int blockSize, int baseConceptId) {
     this.osobs = new Osob[blockSize];
     this.baseConceptId = baseConceptId;
     this.numOsobs = 0;
+    this.data = null;
+    this.offsets = null;
+  }
+
+  /**
+   * Construct a block as a view over the given data, where each of the
+   * numOsobs osobs is serialized starting from the data's current position
+   * as numOsobBytes followed by numOsobBytes bytes.
+   * <p>
+   * The data buffer is only read through absolute gets and duplicates, so it
+   * can be shared across blocks and threads.
+   */
+  OsobBlock(int blockSize, int baseConceptId, ByteBuffer data, int numOsobs) {
+    this.osobs = new Osob[blockSize];
+    this.baseConceptId = baseConceptId;
+    this.numOsobs = numOsobs;
+    this.data = data;
+    this.offsets = new int[blockSize];
+    Arrays.fill(offsets, -1);
+
+    int pos = data.position();
+    for (int i = 0; i < numOsobs; ++i) {
+      final int numBytes = data.getInt(pos);
+      final int conceptId = data.getInt(pos + 4);  // osob bytes start with the conceptId
+      offsets[conceptId - baseConceptId] = pos;
+      pos += 4 + numBytes;
+    }
   }
   
   public boolean addOsob(Osob osob) {
@@ -52,7 +87,32 @@ class OsobBlock {
   }
 
   public Osob getOsob(int conceptId) {
-    return osobs[conceptId - baseConceptId];
+    return getOsobAt(conceptId - baseConceptId);
+  }
+
+  private final Osob getOsobAt(int index) {
+    Osob result = osobs[index];
+
+    if (result == null && offsets != null && offsets[index] >= 0) {
+      // materialize from the data. Concurrent loads of the same osob are
+      // equivalent, so the race to set the slot is benign.
+      result = loadOsob(offsets[index]);
+      osobs[index] = result;
+    }
+
+    return result;
+  }
+
+  private final Osob loadOsob(int offset) {
+    final ByteBuffer view = data.duplicate();
+    final byte[] osobBytes = new byte[view.getInt(offset)];
+    view.position(offset + 4);
+    view.get(osobBytes);
+    return new Osob(osobBytes);
+  }
+
+  private final boolean hasOsobAt(int index) {
+    return osobs[index] != null || (offsets != null && offsets[index] >= 0);
   }
 
   /**
@@ -83,7 +143,7 @@ class OsobBlock {
     }
 
     public Osob next() {
-      final Osob result = osobs[nextIndex++];
+      final Osob result = getOsobAt(nextIndex++);
       increment();
       return result;
     }
@@ -93,7 +153,7 @@ class OsobBlock {
     }
 
     private final void increment() {
-      while ((nextIndex < osobs.length) && (osobs[nextIndex] == null)) {
+      while ((nextIndex < osobs.length) && !hasOsobAt(nextIndex)) {
         ++nextIndex;
       }
     }
@@ -25,25 +25,56 @@ import java.util.Map;
 /**
  * An LRU cache for osob blocks.
  * <p>
+ * The cache is split into independently locked LRU segments (by block id)
+ * so that concurrent lookups of different blocks don't contend on a single
+ * lock. Locks are only held for map access, never while reading blocks.
+ * <p>
  * @author Spence Koehler
  */
 class OsobBlockCache {
 
   private static final boolean UNLIMITED_CACHE_SIZE = true;
+  private static final int NUM_SEGMENTS = 16;  // must be a power of 2
 
 
-  private Map<Integer, OsobBlock> blockCache;
+  private LRU<Integer, OsobBlock>[] segments;
 
+  @SuppressWarnings("unchecked")
   OsobBlockCache(int cacheSize) {
-    this.blockCache = new LRU<Integer, OsobBlock>(UNLIMITED_CACHE_SIZE ? 1000 : cacheSize);
+    final int totalSize = UNLIMITED_CACHE_SIZE ? 1000 : cacheSize;
+    final int segmentSize = Math.max(1, (totalSize + NUM_SEGMENTS - 1) / NUM_SEGMENTS);
+
+    this.segments = new LRU[NUM_SEGMENTS];
+    for (int i = 0; i < NUM_SEGMENTS; ++i) {
+      segments[i] = new LRU<Integer, OsobBlock>(segmentSize);
+    }
   }
 
   public OsobBlock getBlock(int blockId) {
-    return blockCache.get(blockId);
+    final LRU<Integer, OsobBlock> segment = getSegment(blockId);
+    synchronized (segment) {
+      return segment.get(blockId);
+    }
+  }
+
+  /**
+   * Put the block into the cache unless another thread has already cached
+   * a block for the id.
+   *
+   * @return the cached block for the id.
+   */
+  public OsobBlock putBlock(int blockId, OsobBlock block) {
+    final LRU<Integer, OsobBlock> segment = getSegment(blockId);
+    synchronized (segment) {
+      final OsobBlock cached = segment.get(blockId);
+      if (cached != null) return cached;
+      segment.put(blockId, block);
+    }
+    return block;
   }
 
-  public void putBlock(int blockId, OsobBlock block) {
-    this.blockCache.put(blockId, block);
+  private final LRU<Integer, OsobBlock> getSegment(int blockId) {
+    return segments[(blockId ^ (blockId >>> 16)) & (NUM_SEGMENTS - 1)];
   }
   
   static class LRU<K, V> extends LinkedHashMap<K, V> {
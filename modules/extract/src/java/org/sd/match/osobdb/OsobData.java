@@ -20,14 +20,20 @@ package org.sd.match.osobdb;
 
 
 import org.sd.io.FileUtil;
-import org.sd.match.Osob;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 /**
  * Wrapper around an osob data file.
  * <p>
+ * The data file is memory mapped (when small enough to map as a single
+ * buffer) so that blocks are retrieved as views over the mapped data without
+ * seeking or locking. Larger files fall back to positional channel reads,
+ * which are also safe for concurrent retrievals.
+ * <p>
  * @author Spence Koehler
  */
 class OsobData {
@@ -36,14 +42,23 @@ class OsobData {
 
   private String dbPath;
   private OsobDbParms parms;
+  private boolean mapData;
 
   private OsobIndex index;
   private RandomAccessFile raFile;
+  private FileChannel channel;   // for unmapped positional reads
+  private ByteBuffer mappedData; // read-only mapped data, or null
+  private long dataLength;
   private boolean isOpen;
 
   OsobData(String dbPath, OsobDbParms parms) {
+    this(dbPath, parms, true);
+  }
+
+  OsobData(String dbPath, OsobDbParms parms, boolean mapData) {
     this.dbPath = dbPath;
     this.parms = parms;
+    this.mapData = mapData;
     this.isOpen = false;
   }
 
@@ -56,6 +71,16 @@ class OsobData {
 
       final String filename = FileUtil.getFilename(dbPath, DATA_FILE_NAME);
       this.raFile = new RandomAccessFile(filename, "r");
+      this.channel = raFile.getChannel();
+      this.dataLength = channel.size();
+
+      if (mapData && dataLength <= Integer.MAX_VALUE) {
+        // the mapping stays valid after the file is closed
+        this.mappedData = channel.map(FileChannel.MapMode.READ_ONLY, 0, dataLength);
+        raFile.close();
+        raFile = null;
+        channel = null;
+      }
     }
   }
 
@@ -64,27 +89,42 @@ class OsobData {
     if (raFile != null) {
       raFile.close();
       raFile = null;
+      channel = null;
     }
+    mappedData = null;
     isOpen = false;
   }
+
+  /**
+   * Determine whether this instance's data is memory mapped.
+   */
+  public boolean isMapped() {
+    return mappedData != null;
+  }
   
   public OsobBlock retrieveBlock(int blockId) throws IOException {
     if (!isOpen) throw new IllegalStateException("can't retrieve block before open!");
 
     final long pos = index.getDataPosition(blockId);
     final int num = index.getNumOsobs(blockId);
-    raFile.seek(pos);
-
-    final OsobBlock result = new OsobBlock(parms.getBlockSize(), parms.getBaseConceptId(blockId));
+    final ByteBuffer blockData;
 
-    for (int i = 0; i < num; ++i) {
-      final int numBytes = raFile.readInt();
-      final byte[] osobBytes = new byte[numBytes];
-      raFile.readFully(osobBytes);
-      final Osob osob = new Osob(osobBytes);
-      result.addOsob(osob);
+    if (mappedData != null) {
+      blockData = mappedData.duplicate();
+      blockData.position((int)pos);
+    }
+    else {
+      // blocks are written contiguously, so a block ends where the next starts
+      final long endPos = (blockId + 1 < index.getNumBlocks()) ? index.getDataPosition(blockId + 1) : dataLength;
+      blockData = ByteBuffer.allocate((int)(endPos - pos));
+      while (blockData.hasRemaining()) {
+        if (channel.read(blockData, pos + blockData.position()) < 0) {
+          throw new IOException("Unexpected end of osob data for block " + blockId + "!");
+        }
+      }
+      blockData.flip();
     }
 
-    return result;
+    return new OsobBlock(parms.getBlockSize(), parms.getBaseConceptId(blockId), blockData, num);
   }
 }
@@ -109,7 +109,16 @@ public class OsobDbBuilder {
   public void add(ConceptModel model) {
     if (!model.hasForms()) return;  // don't add empty forms to the osob db.
 
-    final int conceptId = model.getConceptId();
+    final OsobSerializer serializer = new OsobSerializer(true);
+    model.serialize(serializer);
+    addOsob(serializer.getOsob());
+  }
+
+  /**
+   * Add the (serialized) osob to the db.
+   */
+  public void addOsob(Osob osob) {
+    final int conceptId = osob.getConceptId();
     final int blockId = parms.getBlockId(conceptId);
     if (blockId > maxBlockId) maxBlockId = blockId;
 
@@ -119,9 +128,6 @@ public class OsobDbBuilder {
       id2block.put(blockId, block);
     }
 
-    final OsobSerializer serializer = new OsobSerializer(true);
-    model.serialize(serializer);
-    final Osob osob = serializer.getOsob();
     if (!block.addOsob(osob)) {
       System.err.println("*** WARNING: detected duplicate conceptId '" + osob.getConceptId() + "'! ...overwrote prior.");
     }
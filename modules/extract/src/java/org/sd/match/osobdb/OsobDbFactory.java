@@ -43,4 +43,14 @@ public class OsobDbFactory {
     }
     return result;
   }
+
+  /**
+   * Open a new (uncached) osob db instance, memory mapping its data file
+   * if mapData or reading it through the block cache otherwise.
+   */
+  public static final OsobDB openOsobDB(String dbPath, boolean mapData) throws IOException {
+    final OsobDB result = new OsobDbImpl(dbPath, mapData);
+    result.open();
+    return result;
+  }
 }
@@ -32,6 +32,7 @@ import java.io.IOException;
 class OsobDbImpl implements OsobDB {
   
   private String dbPath;
+  private boolean mapData;
   private OsobDbParms parms;
   private OsobBlockCache blockCache;
   private OsobData osobData;
@@ -42,14 +43,26 @@ class OsobDbImpl implements OsobDB {
    * @param dbPath  path to osobdb directory.
    */
   OsobDbImpl(String dbPath) throws IOException {
+    this(dbPath, true);
+  }
+
+  /**
+   * Construct a new osob db (reader) instance pointing to the given path.
+   *
+   * @param dbPath  path to osobdb directory.
+   * @param mapData  true to memory map the db's data file; false to read
+   *                 blocks from the data file on demand.
+   */
+  OsobDbImpl(String dbPath, boolean mapData) throws IOException {
     this.dbPath = dbPath;
+    this.mapData = mapData;
     init();
   }
 
   private final void init() throws IOException {
     this.parms = new OsobDbParms(dbPath);
     this.blockCache = new OsobBlockCache(parms.getCacheSize());
-    this.osobData = new OsobData(dbPath, parms);
+    this.osobData = new OsobData(dbPath, parms, mapData);
   }
 
   public void open() throws IOException {
@@ -67,16 +80,14 @@ class OsobDbImpl implements OsobDB {
     // translate conceptId to blockId
     final int blockId = parms.getBlockId(conceptId);
 
-    OsobBlock block = null;
-
     // get block id from block cache
-    synchronized (blockCache) {
-      block = blockCache.getBlock(blockId);
-      if (block == null) {
-        // if block isn't in cache, retrieve block by id from osob data
-        block = osobData.retrieveBlock(blockId);
-        blockCache.putBlock(blockId, block);
-      }
+    OsobBlock block = blockCache.getBlock(blockId);
+
+    if (block == null) {
+      // if block isn't in cache, retrieve block by id from osob data.
+      // retrieval is lock-free, so concurrent misses on a block may each
+      // retrieve it, but all share whichever block is cached first.
+      block = blockCache.putBlock(blockId, osobData.retrieveBlock(blockId));
     }
 
     // get osob from block
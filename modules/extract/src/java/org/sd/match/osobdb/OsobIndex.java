@@ -67,6 +67,10 @@ public class OsobIndex {
     numOsobs = null;
   }
 
+  public int getNumBlocks() {
+    return dataPos.length;
+  }
+
   public long getDataPosition(int blockId) {
     return dataPos[blockId];
   }
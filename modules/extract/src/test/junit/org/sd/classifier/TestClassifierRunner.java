@@ -0,0 +1,215 @@
+/*
+    Copyright 2011 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.classifier;
+
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.sd.extract.DocText;
+import org.sd.extract.SingleLineTextContainer;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit Tests for the ClassifierRunner class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestClassifierRunner extends TestCase {
+
+  public TestClassifierRunner(String name) {
+    super(name);
+  }
+  
+
+  /**
+   * Extracts the input line as the integer attribute, failing on "bad" lines.
+   */
+  private static final class IntExtractor extends FeatureExtractor {
+    public final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+
+    protected boolean processElement(FeatureVector result, DocText element, FeatureDictionary featureDictionary) {
+      threads.add(Thread.currentThread());
+      final String string = element.getString();
+      if ("bad".equals(string)) throw new IllegalArgumentException("bad input");
+      return result.setValue(featureDictionary.getIntegerFeatureAttribute("IntAttribute"), string);
+    }
+  }
+
+  private static final class LabelResult implements ClassificationResult {
+    private String label;
+    private double value;
+    private FeatureVector featureVector;
+
+    LabelResult(String label, double value, FeatureVector featureVector) {
+      this.label = label;
+      this.value = value;
+      this.featureVector = featureVector;
+    }
+
+    public String getLabel() { return label; }
+    public double getValue() { return value; }
+    public double getWeight() { return 1.0; }
+    public FeatureVector getFeatureVector() { return featureVector; }
+    public String getExplanation() { return null; }
+  }
+
+  /**
+   * Classifies as "Class2" when the integer attribute exceeds 30.
+   */
+  private static final class ThresholdClassifier implements Classifier {
+    public final List<Integer> batchSizes = new ArrayList<Integer>();
+
+    public ClassificationResult classify(FeatureVector featureVector, FeatureDictionary featureDictionary) {
+      final Double value = featureVector.getValue(featureDictionary.getIntegerFeatureAttribute("IntAttribute"));
+      final double label = (value != null && value > 30) ? 1.0 : 0.0;
+      return new LabelResult(featureDictionary.getClassificationLabel(label), label, featureVector);
+    }
+
+    public List<ClassificationResult> classify(List<FeatureVector> featureVectors, FeatureDictionary featureDictionary) {
+      batchSizes.add(featureVectors.size());
+      final List<ClassificationResult> result = new ArrayList<ClassificationResult>();
+      for (FeatureVector featureVector : featureVectors) {
+        result.add(classify(featureVector, featureDictionary));
+      }
+      return result;
+    }
+  }
+
+  private static final class CollectingHandler implements ClassificationHandler {
+    public final List<Long> ids = new ArrayList<Long>();
+    public final List<String> labels = new ArrayList<String>();
+    private long stopId;
+
+    CollectingHandler(long stopId) {
+      this.stopId = stopId;
+    }
+
+    public boolean handle(long id, LabeledInput labeledInput, ClassificationResult result) {
+      ids.add(id);
+      labels.add(result == null ? null : result.getLabel());
+      return id != stopId;
+    }
+  }
+
+  private final ClassifierRunner buildRunner(ThresholdClassifier classifier) throws Exception {
+    return new ClassifierRunner(buildDictionary(), new IntExtractor(), classifier);
+  }
+
+  private final FeatureDictionary buildDictionary() throws Exception {
+    final File arffFile = new File(TestClassifierRunner.class.getResource("resources/sample_valid.arff").toURI());
+    return new FeatureDictionary(arffFile);
+  }
+
+  private final List<LabeledInput> buildInputs(int numInputs, int badIndex) {
+    final List<LabeledInput> result = new ArrayList<LabeledInput>();
+    for (int i = 0; i < numInputs; ++i) {
+      final String line = (i == badIndex) ? "bad" : Integer.toString(i * 3);
+      result.add(new LabeledInput(null, "test", new SingleLineTextContainer("input" + i, line)));
+    }
+    return result;
+  }
+
+  public void testBatchClassification() throws Exception {
+    final ThresholdClassifier classifier = new ThresholdClassifier();
+    final ClassifierRunner runner = buildRunner(classifier);
+    final CollectingHandler handler = new CollectingHandler(-1);
+
+    final ClassificationMetrics metrics = runner.classify(buildInputs(25, 7).iterator(), handler, 4, 10);
+
+    assertEquals(25, handler.ids.size());
+    for (int i = 0; i < 25; ++i) {
+      assertEquals(i, handler.ids.get(i).longValue());
+      final String expected = (i == 7) ? null : (i * 3 > 30) ? "Class2" : "Class1";
+      assertEquals(expected, handler.labels.get(i));
+    }
+
+    assertEquals(3, classifier.batchSizes.size());
+    assertEquals(9, classifier.batchSizes.get(0).intValue());  // 10 minus the bad input
+    assertEquals(10, classifier.batchSizes.get(1).intValue());
+    assertEquals(5, classifier.batchSizes.get(2).intValue());
+
+    assertEquals(25, metrics.getNumInputs());
+    assertEquals(1, metrics.getNumExtractionFailures());
+    assertEquals(1, metrics.getNumClassificationFailures());
+    assertEquals(25, metrics.getExtractionMillis().getN());
+    assertEquals(3, metrics.getClassificationMillis().getN());
+    assertEquals(25, metrics.getLatencyMillis().getN());
+    assertTrue(metrics.getThroughput() >= 0.0);
+  }
+
+  public void testStopEarly() throws Exception {
+    final ThresholdClassifier classifier = new ThresholdClassifier();
+    final ClassifierRunner runner = buildRunner(classifier);
+    final CollectingHandler handler = new CollectingHandler(12);
+
+    final ClassificationMetrics metrics = runner.classify(buildInputs(100, -1).iterator(), handler, 2, 5);
+
+    assertEquals(13, handler.ids.size());
+    assertEquals(12, handler.ids.get(12).longValue());
+    assertEquals(13, metrics.getNumInputs());
+    assertEquals(0, metrics.getNumExtractionFailures());
+    assertEquals(3, classifier.batchSizes.size());
+  }
+
+  public void testSingleThread() throws Exception {
+    final ThresholdClassifier classifier = new ThresholdClassifier();
+    final ClassifierRunner runner = buildRunner(classifier);
+    final CollectingHandler handler = new CollectingHandler(-1);
+
+    final ClassificationMetrics metrics = runner.classify(buildInputs(3, -1).iterator(), handler, 1, 100);
+
+    assertEquals(3, handler.ids.size());
+    assertEquals(1, classifier.batchSizes.size());
+    assertEquals(3, metrics.getNumInputs());
+    assertEquals(runner.classify(new SingleLineTextContainer("x", "42")).getLabel(), "Class2");
+  }
+
+  public void testUnlockedDictionaryExtractsOnCallingThread() throws Exception {
+    final ThresholdClassifier classifier = new ThresholdClassifier();
+    final FeatureDictionary featureDictionary = buildDictionary();
+    final IntExtractor extractor = new IntExtractor();
+    final ClassifierRunner runner = new ClassifierRunner(featureDictionary, extractor, classifier);
+    final CollectingHandler handler = new CollectingHandler(-1);
+
+    featureDictionary.unlock();
+    runner.classify(buildInputs(20, -1).iterator(), handler, 4, 5);
+
+    assertEquals(20, handler.ids.size());
+    assertEquals(1, extractor.threads.size());
+    assertTrue(extractor.threads.contains(Thread.currentThread()));
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestClassifierRunner.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
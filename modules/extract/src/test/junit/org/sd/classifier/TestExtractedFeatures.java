@@ -68,6 +68,35 @@ public class TestExtractedFeatures extends TestCase {
     assertEquals(origArffContent, newArffContent);
   }
   
+  /**
+   * Test writing and reading back a sparse arff.
+   */
+  public void testSparseArff() throws IOException, URISyntaxException {
+    File arffFile = new File(TestExtractedFeatures.class.getResource("resources/sample_valid.arff").toURI());
+    ExtractedFeatures extractedFeatures = new ExtractedFeatures(arffFile, null);
+
+    File tmpArffFile = File.createTempFile("TestJunit", ".arff");
+    tmpArffFile.deleteOnExit();
+
+    extractedFeatures.writeToArff(tmpArffFile, true);
+
+    final String sparseArffContent = FileUtil.getTextFileAsString(tmpArffFile);
+    assertTrue(sparseArffContent.indexOf("{1 25,2 2.6,3 3.1}") > 0);
+    assertTrue(sparseArffContent.indexOf("{0 Class2,1 42,4 value2}") > 0);
+
+    ExtractedFeatures sparseFeatures = new ExtractedFeatures(tmpArffFile, null);
+    List<FeatureVector> featureVectors = sparseFeatures.getFeatureVectors();
+    assertEquals(4, featureVectors.size());
+
+    final FeatureDictionary featureDictionary = sparseFeatures.getFeatureDictionary();
+    final List<FeatureVector> origVectors = extractedFeatures.getFeatureVectors();
+    for (int i = 0; i < 4; ++i) {
+      final double[] origValues = extractedFeatures.getFeatureDictionary().getFeatureVectorAsDouble(origVectors.get(i));
+      final double[] values = featureDictionary.getFeatureVectorAsDouble(featureVectors.get(i));
+      assertTrue(java.util.Arrays.equals(origValues, values));
+    }
+  }
+  
   public static Test suite() {
     TestSuite suite = new TestSuite(TestExtractedFeatures.class);
     return suite;
@@ -88,6 +88,59 @@ public class TestFeatureDictionary extends TestCase {
     assertTrue(exceptionThrown);
   }
 
+  public void testSparseFeatureVector() {
+    FeatureDictionary featureDictionary = new FeatureDictionary("test", "class|NOMINAL|false|no,yes");
+
+    final IntegerFeatureAttribute zebra = featureDictionary.getIntegerFeatureAttribute("_bag_zebra");
+    final IntegerFeatureAttribute apple = featureDictionary.getIntegerFeatureAttribute("_bag_apple");
+    final RealFeatureAttribute weight = featureDictionary.getRealFeatureAttribute("weight");
+    final RealFeatureAttribute bias = featureDictionary.getRealFeatureAttribute("bias");
+    zebra.setDefaultValue(0.0);
+    apple.setDefaultValue(0.0);
+    bias.setDefaultValue(0.5);
+
+    // ids are assigned in creation order; indices are in dictionary order
+    assertTrue(zebra.getId() < apple.getId());
+    assertEquals(1, featureDictionary.getAttributeIndex(apple));
+    assertEquals(2, featureDictionary.getAttributeIndex(zebra));
+    assertEquals(3, featureDictionary.getAttributeIndex(bias));
+    assertEquals(4, featureDictionary.getAttributeIndex(weight));
+
+    final FeatureVector featureVector = new FeatureVector();
+    featureDictionary.setClassificationAttribute("yes", featureVector);
+    featureVector.setValue(weight, 2.5);
+    featureVector.setValue(zebra, 1.0);
+
+    final SparseVector sparseVector = featureDictionary.getFeatureVectorAsSparse(featureVector);
+    assertEquals(5, sparseVector.getNumAttributes());
+    assertEquals(4, sparseVector.getNumValues());
+    assertEquals(2, sparseVector.getIndices()[1]);
+    assertEquals(1.0, sparseVector.getValue(0));  // "yes"
+    assertEquals(0.0, sparseVector.getValue(1));  // apple not present
+    assertEquals(1.0, sparseVector.getValue(2));
+    assertEquals(0.5, sparseVector.getValue(3));  // bias default
+    assertEquals(2.5, sparseVector.getValue(4));
+
+    final double[] dense = featureDictionary.getFeatureVectorAsDouble(featureVector);
+    final Double[] expected = featureVector.getValuesValues();
+    assertEquals(expected.length, dense.length);
+    for (int i = 0; i < dense.length; ++i) {
+      assertEquals(expected[i], dense[i]);
+    }
+
+    // adding an attribute re-orders indices, but not ids
+    final int zebraId = zebra.getId();
+    final IntegerFeatureAttribute banana = featureDictionary.getIntegerFeatureAttribute("_bag_banana");
+    assertEquals(zebraId, zebra.getId());
+    assertEquals(2, featureDictionary.getAttributeIndex(banana));
+    assertEquals(3, featureDictionary.getAttributeIndex(zebra));
+    assertEquals(3, featureDictionary.getFeatureVectorAsSparse(featureVector).getIndices()[1]);
+
+    // attributes from other dictionaries aren't found
+    final FeatureDictionary other = new FeatureDictionary("other", "class|NOMINAL|false|no,yes");
+    assertEquals(-1, featureDictionary.getAttributeIndex(other.getIntegerFeatureAttribute("_bag_zebra")));
+  }
+
   public static Test suite() {
     TestSuite suite = new TestSuite(TestFeatureDictionary.class);
     return suite;
@@ -40,6 +40,7 @@ public class TestFeatureVector extends TestCase{
   private class FeatureAttributeTest implements FeatureAttribute{
     public FeatureDictionary getFeatureDictionary(){ return null; }
     public String getName(){ return null; }
+    public int getId(){ return -1; }
     public String[] getBagOfWords() { return null; }
     public Double toDouble(double value){  return null; }
     public Double toDouble(int value){ return null;  }
@@ -84,6 +85,30 @@ public class TestFeatureVector extends TestCase{
     assertTrue(attrSet.equals(expectedSet));
   }
   
+  /**
+   * Test setting, resetting, and retrieving more values than initially allocated
+   */
+  public void testManyValues(){
+    FeatureVector vector = new FeatureVector();
+    List<FeatureAttribute> attrs = new ArrayList<FeatureAttribute>();
+    for (int i = 0; i < 100; ++i) {
+      FeatureAttribute attr = new FeatureAttributeTest();
+      attrs.add(attr);
+      vector.setValue(attr, (double)i);
+    }
+    vector.setValue(attrs.get(50), -1.0);
+
+    assertEquals(100, vector.getNumValues());
+    assertEquals(100, vector.getAttributes().size());
+    for (int i = 0; i < 100; ++i) {
+      assertTrue(vector.hasValue(attrs.get(i)));
+      assertTrue(attrs.get(i) == vector.getAttributeAt(i));
+      assertEquals(i == 50 ? -1.0 : (double)i, vector.getValue(attrs.get(i)));
+    }
+    assertFalse(vector.hasValue(new FeatureAttributeTest()));
+    assertNull(vector.getValue(new FeatureAttributeTest()));
+  }
+  
   public static Test suite() {
     TestSuite suite = new TestSuite(TestFeatureVector.class);
     return suite;
@@ -0,0 +1,191 @@
+/*
+    Copyright 2011 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.extract;
+
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.sd.io.FileUtil;
+import org.sd.nlp.BreakStrategy;
+import org.sd.nlp.DateTimeBreakStrategy;
+import org.sd.nlp.DefaultBreakStrategy;
+import org.sd.nlp.GeneralBreakStrategy;
+import org.sd.nlp.StringWrapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JUnit Tests for the ExtractionPipeline class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestExtractionPipeline extends TestCase {
+
+  public TestExtractionPipeline(String name) {
+    super(name);
+  }
+  
+  private final ExtractionHarness buildHarness(ExecutorService executor) {
+    final ExtractionHarness result = new ExtractionHarness(true, false);
+    result.addExtractor(new WordsExtractor("foo"));
+    result.addExtractor(new WordsExtractor("bar"));
+    result.setExecutor(executor);
+    return result;
+  }
+
+  /**
+   * Words extractor that first wraps the doc text with its own break strategy,
+   * keeping the wrapper it was given.
+   */
+  private static final class WrappingExtractor extends WordsExtractor {
+    public final BreakStrategy breakStrategy;
+    public final StringWrapper[] wrappers;
+    private final AtomicInteger nextDocText;
+
+    WrappingExtractor(String extractionType, BreakStrategy breakStrategy, int numDocTexts) {
+      super(extractionType);
+      this.breakStrategy = breakStrategy;
+      this.wrappers = new StringWrapper[numDocTexts];
+      this.nextDocText = new AtomicInteger(0);
+    }
+
+    public List<Extraction> extract(DocText docText, AtomicBoolean die) {
+      wrappers[nextDocText.getAndIncrement()] = docText.getStringWrapper(breakStrategy);
+      return super.extract(docText, die);
+    }
+  }
+
+  private final List<String> asStrings(ExtractionResults results) {
+    final List<String> result = new ArrayList<String>();
+    for (Extraction extraction : results.getExtractions()) {
+      result.add(extraction.getExtractionType() + ":" + extraction.getDocText().getPathIndex() + ":" + extraction.asString());
+    }
+    return result;
+  }
+
+  public void testParallelMatchesSequential() throws IOException {
+    final File file = FileUtil.getFile(this.getClass(), "resources/testWordsExtractor-test1.html");
+    final List<String> expected = asStrings(buildHarness(null).run(file, null, false));
+    assertTrue(expected.size() > 0);
+
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final ExtractionHarness harness = buildHarness(executor);
+      for (int i = 0; i < 3; ++i) {
+        assertEquals(expected, asStrings(harness.run(file, null, false)));
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  public void testSharedDocTextWrappers() throws IOException {
+    final BreakStrategy[] breakStrategies = new BreakStrategy[] {
+      new DefaultBreakStrategy(),
+      GeneralBreakStrategy.getInstance(),
+      DateTimeBreakStrategy.getInstance(),
+    };
+    final int numExtractors = 9;
+    final int numDocTexts = 200;
+
+    final ExtractionPipeline pipeline = ExtractionPipeline.buildDefaultHtmlPipeline(false, true, false, new Extractor[]{});
+    final List<WrappingExtractor> extractors = new ArrayList<WrappingExtractor>();
+    for (int i = 0; i < numExtractors; ++i) {
+      final WrappingExtractor extractor = new WrappingExtractor("words" + i, breakStrategies[i % breakStrategies.length], numDocTexts);
+      extractors.add(extractor);
+      pipeline.addExtractor(extractor);
+    }
+
+    final ExecutorService executor = Executors.newFixedThreadPool(numExtractors);
+    try {
+      pipeline.setExecutor(executor);
+
+      for (int docNum = 0; docNum < numDocTexts; ++docNum) {
+        final DocText docText = DocText.makeDocText("<p>doc " + docNum + " has some shared words</p>");
+        assertNotNull(pipeline.extract(docText, null));
+
+        // extractors sharing a break strategy must have shared one cached
+        // wrapper (not lost to a racing put)
+        for (WrappingExtractor extractor : extractors) {
+          final StringWrapper wrapper = extractor.wrappers[docNum];
+          assertEquals(extractor.breakStrategy, wrapper.getBreakStrategy());
+          assertSame(wrapper, docText.getStringWrapper(extractor.breakStrategy));
+          assertEquals(docText.getString(), wrapper.string);
+        }
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  public void testRunFiles() throws IOException {
+    final File file = FileUtil.getFile(this.getClass(), "resources/testWordsExtractor-test1.html");
+    final File missing = new File(file.getParentFile(), "noSuchFile.html");
+    final List<File> files = Arrays.asList(file, file, missing, file, file, file);
+
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      // share the executor between documents and extractors
+      final ExtractionHarness harness = buildHarness(executor);
+      final List<String> expected = asStrings(buildHarness(null).run(file, null, false));
+      final List<File> handledFiles = new ArrayList<File>();
+
+      harness.run(files.iterator(), executor, 3, null, false, new ExtractionRunner.ResultsHandler() {
+          public boolean handle(File handledFile, ExtractionResults extractionResults, Exception error) {
+            handledFiles.add(handledFile);
+            if (handledFile == missing) {
+              assertNotNull(error);
+            }
+            else {
+              assertNull(error);
+              assertEquals(expected, asStrings(extractionResults));
+            }
+            return handledFiles.size() < 5;
+          }
+        });
+
+      assertEquals(files.subList(0, 5), handledFiles);
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestExtractionPipeline.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,179 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.match.osobdb;
+
+
+import org.sd.io.FileUtil;
+import org.sd.match.Osob;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit Tests for the OsobDbImpl class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestOsobDbImpl extends TestCase {
+
+  private static final int NUM_CONCEPTS = 1000;
+  private static final int BLOCK_SIZE = 10;
+
+  private File dbDir;
+
+  public TestOsobDbImpl(String name) {
+    super(name);
+  }
+  
+  protected void setUp() throws IOException {
+    final File tmpFile = File.createTempFile("TestOsobDbImpl", ".db");
+    tmpFile.delete();
+    this.dbDir = tmpFile;
+
+    // leave gaps (every 7th concept) so that some blocks aren't full
+    final OsobDbBuilder builder = new OsobDbBuilder(dbDir.getAbsolutePath(), BLOCK_SIZE, 100);
+    builder.open();
+    for (int conceptId = 0; conceptId < NUM_CONCEPTS; ++conceptId) {
+      if (conceptId % 7 == 0) continue;
+      builder.addOsob(buildOsob(conceptId));
+    }
+    builder.close();
+  }
+
+  protected void tearDown() {
+    FileUtil.deleteDir(dbDir);
+  }
+
+  private static final Osob buildOsob(int conceptId) {
+    final byte[] bytes = new byte[4 + (conceptId % 13)];
+    bytes[0] = (byte)(conceptId >>> 24);
+    bytes[1] = (byte)(conceptId >>> 16);
+    bytes[2] = (byte)(conceptId >>> 8);
+    bytes[3] = (byte)conceptId;
+    for (int i = 4; i < bytes.length; ++i) bytes[i] = (byte)(conceptId + i);
+    return new Osob(bytes);
+  }
+
+  private final void verifyOsob(int conceptId, Osob osob) {
+    if (conceptId % 7 == 0) {
+      assertNull(osob);
+    }
+    else {
+      assertNotNull(osob);
+      assertEquals(conceptId, osob.getConceptId());
+
+      final byte[] expected = buildOsob(conceptId).getBytes();
+      final byte[] got = osob.getBytes();
+      assertEquals(expected.length, got.length);
+      for (int i = 0; i < expected.length; ++i) {
+        assertEquals(expected[i], got[i]);
+      }
+    }
+  }
+
+  private final void doLookupTest(boolean mapData) throws IOException {
+    final OsobDbImpl osobDB = new OsobDbImpl(dbDir.getAbsolutePath(), mapData);
+    osobDB.open();
+
+    // lookup twice to exercise both retrieved and cached blocks
+    for (int pass = 0; pass < 2; ++pass) {
+      for (int conceptId = 0; conceptId < NUM_CONCEPTS; ++conceptId) {
+        verifyOsob(conceptId, osobDB.getOsob(conceptId));
+      }
+    }
+
+    osobDB.close();
+  }
+
+  public void testMappedLookups() throws IOException {
+    doLookupTest(true);
+  }
+
+  public void testUnmappedLookups() throws IOException {
+    doLookupTest(false);
+  }
+
+  public void testBlockIterator() throws IOException {
+    final OsobData osobData = new OsobData(dbDir.getAbsolutePath(), new OsobDbParms(dbDir.getAbsolutePath()));
+    osobData.open();
+    assertTrue(osobData.isMapped());
+
+    final OsobBlock block = osobData.retrieveBlock(3);
+    assertEquals(9, block.getNumOsobs());  // 30..39 without 35
+
+    int expectedId = 30;
+    for (Iterator<Osob> iter = block.iterator(); iter.hasNext(); ++expectedId) {
+      if (expectedId == 35) ++expectedId;
+      final Osob osob = iter.next();
+      verifyOsob(expectedId, osob);
+    }
+    assertEquals(40, expectedId);
+
+    osobData.close();
+  }
+
+  public void testConcurrentLookups() throws Exception {
+    final OsobDbImpl osobDB = new OsobDbImpl(dbDir.getAbsolutePath());
+    osobDB.open();
+
+    final ExecutorService threadPool = Executors.newFixedThreadPool(8);
+    final List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+
+    for (int i = 0; i < 8; ++i) {
+      final int startId = i * 17;
+      futures.add(threadPool.submit(new Callable<Boolean>() {
+          public Boolean call() throws IOException {
+            for (int j = 0; j < NUM_CONCEPTS; ++j) {
+              final int conceptId = (startId + j) % NUM_CONCEPTS;
+              verifyOsob(conceptId, osobDB.getOsob(conceptId));
+            }
+            return true;
+          }
+        }));
+    }
+
+    for (Future<Boolean> future : futures) {
+      assertTrue(future.get());
+    }
+
+    threadPool.shutdown();
+    osobDB.close();
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestOsobDbImpl.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
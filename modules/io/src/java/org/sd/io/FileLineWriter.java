@@ -0,0 +1,63 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.io;
+
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A FileRecordWriter of lines to a text file (as read by a FileLineIterator).
+ * <p>
+ * @author Spence Koehler
+ */
+public class FileLineWriter extends FileRecordWriter<String> {
+  
+  private BufferedWriter writer;
+
+  /**
+   * Construct to write lines to the given file.
+   */
+  public FileLineWriter(File file) throws IOException {
+    super(file);
+  }
+
+  /**
+   * Initialize for writing the file.
+   */
+  protected void init(File file) throws IOException {
+    this.writer = FileUtil.getWriter(file);
+  }
+
+  /**
+   * Write the line.
+   */
+  public void writeRecord(String line) throws IOException {
+    writer.write(line);
+    writer.newLine();
+  }
+
+  /**
+   * Close the writer.
+   */
+  public void close() throws IOException {
+    writer.close();
+  }
+}
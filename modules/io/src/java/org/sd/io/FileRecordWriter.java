@@ -0,0 +1,56 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.io;
+
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Base class to write records of type T to a file such that a corresponding
+ * FileRecordIterator reads them back.
+ * <p>
+ * @author Spence Koehler
+ */
+public abstract class FileRecordWriter<T> {
+
+  /** Initialize this instance for writing the file. */
+  protected abstract void init(File file) throws IOException;
+
+  /** Write the record. */
+  public abstract void writeRecord(T record) throws IOException;
+
+  /** Close resources for this instance. */
+  public abstract void close() throws IOException;
+
+
+  private File file;
+
+  protected FileRecordWriter(File file) throws IOException {
+    this.file = file;
+    init(file);
+  }
+
+  /**
+   * Get the file being written.
+   */
+  public File getFile() {
+    return file;
+  }
+}
@@ -22,7 +22,6 @@ package org.sd.io;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
@@ -30,6 +29,15 @@ import java.util.List;
  * Utility to iterate over multiple sorted file lines simultaneously, getting
  * all equal lines according to the recordComparer with each 'next'.
  * <p>
+ * Files are merged through a loser (tournament) tree so that each record
+ * taken from a file costs O(log k) comparisons for k files, re-playing only
+ * the path of the file that advanced.
+ * <p>
+ * When constructed with a maximum number of open files less than the number
+ * of files and extenders supply a record writer, groups of files are first
+ * merged into intermediate sorted run files (in as many passes as needed)
+ * so that no more than the maximum number of files are open at once.
+ *
  * @author Spence Koehler
  */
 public abstract class MultiFileIterator<T> implements MultiRecordIterator<T> {
@@ -39,19 +47,52 @@ public abstract class MultiFileIterator<T> implements MultiRecordIterator<T> {
    */
   protected abstract FileRecordIterator<T> buildRecordIterator(File file) throws IOException;
 
+  /**
+   * Build a FileRecordWriter instance for writing records to the given
+   * (intermediate run) file such that buildRecordIterator can read them back.
+   * <p>
+   * This default implementation returns null, meaning that records can't be
+   * written and all files will be opened at once regardless of the maximum
+   * number of open files.
+   */
+  protected FileRecordWriter<T> buildRecordWriter(File file) throws IOException {
+    return null;
+  }
+
+  /**
+   * Create a file to hold an intermediate sorted run of records.
+   * <p>
+   * This default implementation creates a temporary file (which is deleted
+   * after being merged or when this instance is closed.)
+   */
+  protected File createRunFile() throws IOException {
+    return File.createTempFile("MultiFileIterator-", ".run");
+  }
+
 
   private Comparator<T> recordComparer;
   private Container container;
   private List<T> next;
+  private List<File> runFiles;
   private final FileRecordIteratorComparator friComparator;
 
   /**
    * Iterate over the given file lines simultaneously.
    */
   public MultiFileIterator(File[] files, Comparator<T> recordComparer) {
+    this(files, recordComparer, 0);
+  }
+
+  /**
+   * Iterate over the given file lines simultaneously, keeping at most
+   * maxOpenFiles (if greater than 1 and a record writer is available) open
+   * at once.
+   */
+  public MultiFileIterator(File[] files, Comparator<T> recordComparer, int maxOpenFiles) {
     this.recordComparer = recordComparer;
     this.friComparator = new FileRecordIteratorComparator();  //note: must come before new Container()
-    this.container = new Container(files);
+    this.runFiles = new ArrayList<File>();
+    this.container = new Container(premerge(files, maxOpenFiles));
     this.next = container.get();
   }
 
@@ -60,6 +101,11 @@ public abstract class MultiFileIterator<T> implements MultiRecordIterator<T> {
    */
   public void close() throws IOException {
     container.close();
+
+    for (File runFile : runFiles) {
+      runFile.delete();
+    }
+    runFiles.clear();
   }
 
   /** Determine whether there are more strings to get. */
@@ -78,21 +124,94 @@ public abstract class MultiFileIterator<T> implements MultiRecordIterator<T> {
     throw new UnsupportedOperationException("Not supported.");
   }
 
+  /**
+   * Merge groups of maxOpenFiles files into intermediate run files until no
+   * more than maxOpenFiles remain.
+   */
+  private final File[] premerge(File[] files, int maxOpenFiles) {
+    if (maxOpenFiles <= 1) return files;
+
+    try {
+      while (files.length > maxOpenFiles) {
+        final List<File> mergedFiles = new ArrayList<File>();
+
+        for (int start = 0; start < files.length; start += maxOpenFiles) {
+          final int end = Math.min(start + maxOpenFiles, files.length);
+          if (end - start == 1) {
+            mergedFiles.add(files[start]);
+            continue;
+          }
+
+          final File runFile = mergeRun(files, start, end);
+          if (runFile == null) return files;  // can't write runs
+
+          mergedFiles.add(runFile);
+        }
+
+        files = mergedFiles.toArray(new File[mergedFiles.size()]);
+      }
+    }
+    catch (IOException e) {
+      throw new IllegalArgumentException("can't merge files", e);
+    }
+
+    return files;
+  }
+
+  /**
+   * Merge files[start, end) into a new run file.
+   *
+   * @return the run file or null if records can't be written.
+   */
+  private final File mergeRun(File[] files, int start, int end) throws IOException {
+    final File runFile = createRunFile();
+    final FileRecordWriter<T> writer = buildRecordWriter(runFile);
+
+    if (writer == null) {
+      runFile.delete();
+      return null;
+    }
+    runFiles.add(runFile);
+
+    final LoserTree tree = new LoserTree(openRecordIterators(files, start, end));
+    try {
+      while (tree.hasNext()) {
+        writer.writeRecord(tree.getWinner().next());
+        tree.replay();
+      }
+    }
+    finally {
+      writer.close();
+      tree.close();
+    }
+
+    // intermediate runs are no longer needed once merged into the next pass
+    for (int i = start; i < end; ++i) {
+      if (runFiles.remove(files[i])) files[i].delete();
+    }
+
+    return runFile;
+  }
+
+  private final List<FileRecordIterator<T>> openRecordIterators(File[] files, int start, int end) {
+    final List<FileRecordIterator<T>> result = new ArrayList<FileRecordIterator<T>>();
+    for (int i = start; i < end; ++i) {
+      try {
+        result.add(buildRecordIterator(files[i]));
+      }
+      catch (IOException e) {
+        throw new IllegalArgumentException("bad file '" + files[i] + "'", e);
+      }
+    }
+    return result;
+  }
+
   /** Container class for reader recordIterators */
   private final class Container {
-    private List<FileRecordIterator<T>> recordIterators;
+    private LoserTree tree;
 
     public Container(File[] files) {
-      this.recordIterators = new ArrayList<FileRecordIterator<T>>();
-      for (File file : files) {
-        try {
-          this.recordIterators.add(buildRecordIterator(file));
-        }
-        catch (IOException e) {
-          throw new IllegalArgumentException("bad file '" + file + "'", e);
-        }
-      }
-      Collections.sort(recordIterators, friComparator);
+      this.tree = new LoserTree(openRecordIterators(files, 0, files.length));
     }
 
     /**
@@ -102,33 +221,97 @@ public abstract class MultiFileIterator<T> implements MultiRecordIterator<T> {
       List<T> result = null;
 
       T lastRecord = null;
-      for (FileRecordIterator<T> recordIterator : recordIterators) {
-        if (!recordIterator.hasNext()) break;
-        if (lastRecord == null) {
-          do {
-            if (result == null) result = new ArrayList<T>();
-            final T curRecord = recordIterator.next();
-            result.add(curRecord);
-            lastRecord = curRecord;
-          } while (recordIterator.hasNext() && recordComparer.compare(lastRecord, recordIterator.getRecord()) == 0);
+      while (tree.hasNext()) {
+        final FileRecordIterator<T> recordIterator = tree.getWinner();
+        if (lastRecord != null && recordComparer.compare(lastRecord, recordIterator.getRecord()) != 0) {
+          break;  // winner is past the equal records
         }
-        else {
-          boolean added = false;
-          while (recordIterator.hasNext() && recordComparer.compare(lastRecord, recordIterator.getRecord()) == 0) {
-            if (result == null) result = new ArrayList<T>();
-            final T curRecord = recordIterator.next();
-            result.add(curRecord);
-            lastRecord = curRecord;
-            added = true;
-          }
 
-          if (!added) break;  // farther down the record can't be equal
+        do {
+          if (result == null) result = new ArrayList<T>();
+          final T curRecord = recordIterator.next();
+          result.add(curRecord);
+          lastRecord = curRecord;
+        } while (recordIterator.hasNext() && recordComparer.compare(lastRecord, recordIterator.getRecord()) == 0);
+
+        tree.replay();
+      }
+
+      return result;
+    }
+
+    public void close() throws IOException {
+      tree.close();
+    }
+  }
+
+  /**
+   * Loser tree over record iterators, where the winner is the iterator with
+   * the least current record (exhausted iterators lose to all others and ties
+   * go to the earlier iterator.)
+   * <p>
+   * Leaves are implicitly numbered k through 2k-1 for k iterators, internal
+   * node n (from 1 to k-1) holds the loser of the match between its children
+   * 2n and 2n+1, and node 0 holds the overall winner.
+   */
+  private final class LoserTree {
+    private List<FileRecordIterator<T>> recordIterators;
+    private int[] tree;
+
+    public LoserTree(List<FileRecordIterator<T>> recordIterators) {
+      this.recordIterators = recordIterators;
+
+      final int k = recordIterators.size();
+      this.tree = new int[Math.max(1, k)];
+
+      // play the initial tournament bottom-up
+      final int[] winners = new int[2 * k];
+      for (int i = 0; i < k; ++i) winners[k + i] = i;
+      for (int n = k - 1; n >= 1; --n) {
+        final int left = winners[2 * n];
+        final int right = winners[2 * n + 1];
+        if (beats(left, right)) {
+          winners[n] = left;
+          tree[n] = right;
+        }
+        else {
+          winners[n] = right;
+          tree[n] = left;
         }
       }
+      tree[0] = (k > 1) ? winners[1] : 0;
+    }
 
-      if (result != null) Collections.sort(recordIterators, friComparator);
+    /**
+     * Determine whether any iterator has a next record.
+     */
+    public boolean hasNext() {
+      return !recordIterators.isEmpty() && getWinner().hasNext();
+    }
 
-      return result;
+    /**
+     * Get the winning (least) record iterator.
+     */
+    public FileRecordIterator<T> getWinner() {
+      return recordIterators.get(tree[0]);
+    }
+
+    /**
+     * Re-play the winner's matches after it has advanced.
+     */
+    public void replay() {
+      final int k = recordIterators.size();
+      int winner = tree[0];
+
+      for (int n = (winner + k) / 2; n >= 1; n /= 2) {
+        if (beats(tree[n], winner)) {
+          final int loser = winner;
+          winner = tree[n];
+          tree[n] = loser;
+        }
+      }
+
+      tree[0] = winner;
     }
 
     public void close() throws IOException {
@@ -136,6 +319,11 @@ public abstract class MultiFileIterator<T> implements MultiRecordIterator<T> {
         recordIterator.close();
       }
     }
+
+    private final boolean beats(int index1, int index2) {
+      final int cmp = friComparator.compare(recordIterators.get(index1), recordIterators.get(index2));
+      return (cmp < 0) || (cmp == 0 && index1 < index2);
+    }
   }
 
   /** Container class for readers and lines */
@@ -42,6 +42,15 @@ public class MultiFileLineIterator extends MultiFileIterator<String> {
     super(files, lineComparer);
   }
 
+  /**
+   * Iterate over the given file lines simultaneously, keeping at most
+   * maxOpenFiles files open at once by first merging groups of files into
+   * intermediate sorted runs.
+   */
+  public MultiFileLineIterator(File[] files, Comparator<String> lineComparer, int maxOpenFiles) {
+    super(files, lineComparer, maxOpenFiles);
+  }
+
   /**
    * Build a RecordIterator instance for the given file.
    */
@@ -49,6 +58,13 @@ public class MultiFileLineIterator extends MultiFileIterator<String> {
     return new FileLineIterator(file);
   }
 
+  /**
+   * Build a RecordWriter instance for the given (intermediate run) file.
+   */
+  protected FileRecordWriter<String> buildRecordWriter(File file) throws IOException {
+    return new FileLineWriter(file);
+  }
+
 
   public static void main(String[] args) throws IOException {
     // args: files
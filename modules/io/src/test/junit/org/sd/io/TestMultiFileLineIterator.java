@@ -0,0 +1,140 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.io;
+
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * JUnit Tests for the MultiFileLineIterator class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestMultiFileLineIterator extends TestCase {
+
+  private static final Comparator<String> COMPARATOR = new Comparator<String>() {
+      public int compare(String s1, String s2) {
+        return s1.compareTo(s2);
+      }
+    };
+
+  private File dir;
+
+  public TestMultiFileLineIterator(String name) {
+    super(name);
+  }
+  
+  protected void setUp() throws IOException {
+    this.dir = File.createTempFile("TestMultiFileLineIterator", ".dir");
+    dir.delete();
+    dir.mkdirs();
+  }
+
+  protected void tearDown() {
+    FileUtil.deleteDir(dir);
+  }
+
+  /**
+   * Write numFiles sorted files of random lines, recording each line's
+   * expected count.
+   */
+  private final File[] writeFiles(int numFiles, int maxLines, TreeMap<String, Integer> counts) throws IOException {
+    final Random random = new Random(numFiles);
+    final File[] result = new File[numFiles];
+
+    for (int i = 0; i < numFiles; ++i) {
+      final List<String> lines = new ArrayList<String>();
+      final int numLines = random.nextInt(maxLines + 1);  // including empty files
+      for (int j = 0; j < numLines; ++j) {
+        lines.add("line-" + random.nextInt(200));
+      }
+      Collections.sort(lines);
+
+      result[i] = new File(dir, "file-" + i + ".txt");
+      final BufferedWriter writer = FileUtil.getWriter(result[i]);
+      for (String line : lines) {
+        writer.write(line);
+        writer.newLine();
+
+        final Integer count = counts.get(line);
+        counts.put(line, count == null ? 1 : count + 1);
+      }
+      writer.close();
+    }
+
+    return result;
+  }
+
+  private final void doMergeTest(int numFiles, int maxLines, int maxOpenFiles) throws IOException {
+    final TreeMap<String, Integer> counts = new TreeMap<String, Integer>();
+    final File[] files = writeFiles(numFiles, maxLines, counts);
+
+    final MultiFileLineIterator iter = new MultiFileLineIterator(files, COMPARATOR, maxOpenFiles);
+    for (String expected : counts.keySet()) {
+      assertTrue(iter.hasNext());
+      final List<String> lines = iter.next();
+      assertEquals(expected, lines.get(0));
+      assertEquals(counts.get(expected).intValue(), lines.size());
+      for (String line : lines) assertEquals(expected, line);
+    }
+    assertFalse(iter.hasNext());
+    iter.close();
+  }
+
+  public void testNoFiles() throws IOException {
+    doMergeTest(0, 10, 0);
+  }
+
+  public void testSingleFile() throws IOException {
+    doMergeTest(1, 50, 0);
+  }
+
+  public void testManyFiles() throws IOException {
+    doMergeTest(7, 50, 0);
+    doMergeTest(64, 50, 0);
+  }
+
+  public void testMultiPassMerge() throws IOException {
+    doMergeTest(64, 50, 4);   // 3 passes
+    doMergeTest(37, 50, 5);   // uneven groups
+    doMergeTest(10, 50, 2);
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestMultiFileLineIterator.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
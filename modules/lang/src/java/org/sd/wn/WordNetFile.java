@@ -18,23 +18,46 @@
 */
 package org.sd.wn;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.sd.io.FileUtil;
+import org.sd.util.LRU;
 
 /**
  * Utility to access data from a WordNet file.
  * <p>
+ * The data file is memory-mapped and read without shared position state so
+ * that instances are safe for concurrent callers. Parsed entries are kept in
+ * a bounded synset cache since sense graph walks revisit the same synsets.
+ * <p>
+ * If a pre-compiled binary synset file (see compileBinary) exists and is at
+ * least as new as the data file, entries are decoded from it instead of being
+ * parsed from text.
+ * <p>
  * @author Spence Koehler
  */
 public class WordNetFile {
   
+  public static final int DEFAULT_CACHE_SIZE = 20000;
+  public static final String BINARY_EXTENSION = ".bin";
+
+  private static final int BINARY_MAGIC = 0x574E4442;  // "WNDB"
+  private static final int BINARY_VERSION = 1;
+  private static final String CHARSET = "ISO-8859-1";  // one char per data file byte
+
   private static final Map<String, Map<POS, WordNetFile>> dict2pos2file = new HashMap<String, Map<POS, WordNetFile>>();
 
   public static final WordNetFile getInstance(String dictPath, POS partOfSpeech) throws IOException {
@@ -48,23 +71,35 @@ public class WordNetFile {
 
     WordNetFile result = null;
 
-    Map<POS, WordNetFile> pos2file = dict2pos2file.get(dictPath);
-    if (pos2file == null) {
-      pos2file = new HashMap<POS, WordNetFile>();
-      dict2pos2file.put(dictPath, pos2file);
-    }
-    result = pos2file.get(partOfSpeech);
-    if (result == null) {
-      result = new WordNetFile(dictDir, partOfSpeech);
-      pos2file.put(partOfSpeech, result);
+    synchronized (dict2pos2file) {
+      Map<POS, WordNetFile> pos2file = dict2pos2file.get(dictPath);
+      if (pos2file == null) {
+        pos2file = new HashMap<POS, WordNetFile>();
+        dict2pos2file.put(dictPath, pos2file);
+      }
+      result = pos2file.get(partOfSpeech);
+      if (result == null) {
+        result = new WordNetFile(dictDir, partOfSpeech);
+        pos2file.put(partOfSpeech, result);
+      }
     }
 
     return result;
   }
 
+  /**
+   * Get the pre-compiled binary synset file for the part of speech.
+   */
+  public static final File getBinaryFile(File dictDir, POS partOfSpeech) {
+    final File dataFile = partOfSpeech.getDataFile(dictDir);
+    return new File(dataFile.getParentFile(), dataFile.getName() + BINARY_EXTENSION);
+  }
+
   private File dictDir;
   private POS partOfSpeech;
-  private RandomAccessFile dataFile;
+  private ByteBuffer dataBuffer;
+  private BinarySynsets binarySynsets;
+  private SynsetCache synsetCache;
 
   private WordNetIndex _index;
 
@@ -72,12 +107,34 @@ public class WordNetFile {
     this.dictDir = dictDir;
     this.partOfSpeech = partOfSpeech;
 
-    this.dataFile = new RandomAccessFile(partOfSpeech.getDataFile(dictDir), "r");
+    final File dataFile = partOfSpeech.getDataFile(dictDir);
+    this.dataBuffer = mapFile(dataFile);
+
+    final File binaryFile = getBinaryFile(dictDir, partOfSpeech);
+    this.binarySynsets = (binaryFile.exists() && binaryFile.lastModified() >= dataFile.lastModified()) ?
+      new BinarySynsets(binaryFile, partOfSpeech) : null;
+
+    this.synsetCache = new SynsetCache(DEFAULT_CACHE_SIZE);
     this._index = null;
   }
 
   public void close() throws IOException {
-    this.dataFile.close();
+    synsetCache.clear();
+  }
+
+  /**
+   * Set the maximum number of parsed entries to cache, or 0 to disable
+   * caching.
+   */
+  public void setCacheSize(int cacheSize) {
+    synsetCache.setCacheSize(cacheSize);
+  }
+
+  /**
+   * Determine whether entries are decoded from a pre-compiled binary file.
+   */
+  public boolean usesBinary() {
+    return binarySynsets != null;
   }
 
   public List<Entry> getEntries(String word) {
@@ -102,24 +159,53 @@ public class WordNetFile {
   }
 
   public final Entry getEntry(long synsetOffset) {
+    Entry result = synsetCache.get(synsetOffset);
+
+    if (result == null) {
+      if (binarySynsets != null) {
+        result = binarySynsets.getEntry(synsetOffset);
+      }
+      if (result == null) {
+        final String line = readLine(synsetOffset);
+        if (line != null) {
+          result = new Entry(line, partOfSpeech);
+        }
+      }
+      if (result != null) {
+        synsetCache.put(synsetOffset, result);
+      }
+    }
 
-//todo: use an LRU cache
+    return result;
+  }
 
-    Entry result = null;
-    String line = null;
+  /**
+   * Read the data file line starting at the given offset without disturbing
+   * shared state.
+   */
+  private final String readLine(long offset) {
+    final int limit = dataBuffer.limit();
+    if (offset < 0 || offset >= limit) return null;
+
+    final int start = (int)offset;
+    int end = start;
+    while (end < limit) {
+      final byte b = dataBuffer.get(end);
+      if (b == '\n' || b == '\r') break;
+      ++end;
+    }
+
+    final byte[] bytes = new byte[end - start];
+    final ByteBuffer buffer = dataBuffer.duplicate();
+    buffer.position(start);
+    buffer.get(bytes);
 
     try {
-      dataFile.seek(synsetOffset);
-      line = dataFile.readLine();
+      return new String(bytes, CHARSET);
     }
     catch (IOException e) {
+      throw new IllegalStateException(e);
     }
-
-    if (line != null) {
-      result = new Entry(line, partOfSpeech);
-    }
-
-    return result;
   }
 
   private final WordNetIndex getIndex() {
@@ -129,6 +215,291 @@ public class WordNetFile {
     return _index;
   }
 
+  /**
+   * Compile the part of speech's data file into a binary synset file (see
+   * getBinaryFile) for faster decoding of entries.
+   *
+   * @return the number of synsets written.
+   */
+  public static final int compileBinary(File dictDir, POS partOfSpeech) throws IOException {
+    final File dataFile = partOfSpeech.getDataFile(dictDir);
+    final ByteBuffer data = mapFile(dataFile);
+    final int limit = data.limit();
+
+    // collect synset offsets and their parsed entries, skipping the license lines
+    final List<Long> offsets = new ArrayList<Long>();
+    final List<Entry> entries = new ArrayList<Entry>();
+    final StringBuilder line = new StringBuilder();
+    int lineStart = 0;
+    for (int pos = 0; pos <= limit; ++pos) {
+      final int b = (pos < limit) ? (data.get(pos) & 0xFF) : '\n';
+      if (b == '\n') {
+        if (line.length() > 0 && line.charAt(0) != ' ') {
+          offsets.add((long)lineStart);
+          entries.add(new Entry(line.toString(), partOfSpeech));
+        }
+        line.setLength(0);
+        lineStart = pos + 1;
+      }
+      else if (b != '\r') {
+        line.append((char)b);
+      }
+    }
+
+    // serialize records
+    final java.io.ByteArrayOutputStream recordBytes = new java.io.ByteArrayOutputStream();
+    final DataOutputStream records = new DataOutputStream(recordBytes);
+    final int[] positions = new int[entries.size()];
+    for (int i = 0; i < entries.size(); ++i) {
+      positions[i] = records.size();
+      writeEntry(entries.get(i), records);
+    }
+    records.flush();
+
+    // write header, offsets, positions, records
+    final File binaryFile = getBinaryFile(dictDir, partOfSpeech);
+    final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(binaryFile)));
+    try {
+      out.writeInt(BINARY_MAGIC);
+      out.writeInt(BINARY_VERSION);
+      out.writeInt(entries.size());
+      for (Long offset : offsets) out.writeLong(offset);
+      for (int position : positions) out.writeInt(position);
+      recordBytes.writeTo(out);
+    }
+    finally {
+      out.close();
+    }
+
+    return entries.size();
+  }
+
+  private static final void writeEntry(Entry entry, DataOutputStream out) throws IOException {
+    out.writeInt(entry.lexFilenum);
+    out.writeByte(entry.partOfSpeech == null ? -1 : entry.partOfSpeech.ordinal());
+
+    out.writeShort(entry.words.length);
+    for (Word word : entry.words) {
+      writeString(word.word, out);
+      out.writeShort(word.lexId);
+    }
+
+    out.writeShort(entry.pointers.length);
+    for (Pointer pointer : entry.pointers) {
+      out.writeByte(pointer.pointerSymbol.ordinal());
+      out.writeLong(pointer.synsetOffset);
+      out.writeByte(pointer.partOfSpeech == null ? -1 : pointer.partOfSpeech.ordinal());
+      out.writeShort(pointer.sourceOffset);
+      out.writeShort(pointer.targetOffset);
+    }
+
+    out.writeShort(entry.frames == null ? -1 : entry.frames.length);
+    if (entry.frames != null) {
+      for (Frame frame : entry.frames) {
+        out.writeShort(frame.frameNum);
+        out.writeShort(frame.wordNum);
+      }
+    }
+
+    writeString(entry.gloss, out);
+  }
+
+  private static final void writeString(String string, DataOutputStream out) throws IOException {
+    if (string == null) {
+      out.writeInt(-1);
+    }
+    else {
+      final byte[] bytes = string.getBytes(CHARSET);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  private static final ByteBuffer mapFile(File file) throws IOException {
+    final RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      final FileChannel channel = raf.getChannel();
+      final MappedByteBuffer result = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return result;
+    }
+    finally {
+      raf.close();  // mapping remains valid after closing
+    }
+  }
+
+
+  /**
+   * Reader over a memory-mapped binary synset file.
+   * <p>
+   * Layout: magic, version, numSynsets, sorted synset offsets (longs),
+   * record positions (ints), then records.
+   */
+  private static final class BinarySynsets {
+    private final POS partOfSpeech;
+    private final ByteBuffer buffer;
+    private final LongBuffer offsets;
+    private final int numSynsets;
+    private final int positionsStart;
+    private final int recordsStart;
+
+    BinarySynsets(File binaryFile, POS partOfSpeech) throws IOException {
+      this.partOfSpeech = partOfSpeech;
+      this.buffer = mapFile(binaryFile);
+
+      if (buffer.getInt(0) != BINARY_MAGIC || buffer.getInt(4) != BINARY_VERSION) {
+        throw new IOException("Bad binary synset file '" + binaryFile + "'!");
+      }
+
+      this.numSynsets = buffer.getInt(8);
+      final ByteBuffer offsetBytes = buffer.duplicate();
+      offsetBytes.position(12);
+      offsetBytes.limit(12 + numSynsets * 8);
+      this.offsets = offsetBytes.slice().asLongBuffer();
+      this.positionsStart = 12 + numSynsets * 8;
+      this.recordsStart = positionsStart + numSynsets * 4;
+    }
+
+    /**
+     * Decode the entry for the synset offset.
+     *
+     * @return the entry or null if the offset isn't a synset's.
+     */
+    Entry getEntry(long synsetOffset) {
+      // binary search the sorted offsets
+      int lo = 0;
+      int hi = numSynsets - 1;
+      int index = -1;
+      while (lo <= hi) {
+        final int mid = (lo + hi) >>> 1;
+        final long midOffset = offsets.get(mid);
+        if (midOffset < synsetOffset) lo = mid + 1;
+        else if (midOffset > synsetOffset) hi = mid - 1;
+        else {
+          index = mid;
+          break;
+        }
+      }
+      if (index < 0) return null;
+
+      final ByteBuffer in = buffer.duplicate();
+      in.position(recordsStart + buffer.getInt(positionsStart + index * 4));
+      return readEntry(synsetOffset, in);
+    }
+
+    private final Entry readEntry(long synsetOffset, ByteBuffer in) {
+      final POS[] poses = POS.values();
+      final PointerSymbol[] symbols = PointerSymbol.values();
+
+      final int lexFilenum = in.getInt();
+      final byte entryPos = in.get();
+
+      final Word[] words = new Word[in.getShort()];
+      for (int i = 0; i < words.length; ++i) {
+        final String word = readString(in);
+        words[i] = new Word(word, in.getShort());
+      }
+
+      final Pointer[] pointers = new Pointer[in.getShort()];
+      for (int i = 0; i < pointers.length; ++i) {
+        final PointerSymbol pointerSymbol = symbols[in.get()];
+        final long offset = in.getLong();
+        final byte pointerPos = in.get();
+        final int sourceOffset = in.getShort();
+        final int targetOffset = in.getShort();
+        pointers[i] = new Pointer(pointerSymbol, offset, pointerPos < 0 ? null : poses[pointerPos], sourceOffset, targetOffset);
+      }
+
+      final int fCount = in.getShort();
+      Frame[] frames = null;
+      if (fCount >= 0) {
+        frames = new Frame[fCount];
+        for (int i = 0; i < fCount; ++i) {
+          final int frameNum = in.getShort();
+          frames[i] = new Frame(frameNum, in.getShort());
+        }
+      }
+
+      final String gloss = readString(in);
+
+      return new Entry(synsetOffset, lexFilenum, entryPos < 0 ? null : poses[entryPos], words, pointers, frames, gloss);
+    }
+
+    private final String readString(ByteBuffer in) {
+      final int len = in.getInt();
+      if (len < 0) return null;
+
+      final byte[] bytes = new byte[len];
+      in.get(bytes);
+
+      try {
+        return new String(bytes, CHARSET);
+      }
+      catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+
+  /**
+   * Bounded cache of parsed entries, striped for concurrent access.
+   */
+  private static final class SynsetCache {
+    private static final int NUM_SEGMENTS = 16;
+
+    private final LRU<Long, Entry>[] segments;
+    private volatile int cacheSize;
+
+    @SuppressWarnings("unchecked")
+    SynsetCache(int cacheSize) {
+      this.segments = new LRU[NUM_SEGMENTS];
+      for (int i = 0; i < NUM_SEGMENTS; ++i) {
+        segments[i] = new LRU<Long, Entry>(Math.max(1, cacheSize / NUM_SEGMENTS));
+      }
+      this.cacheSize = cacheSize;
+    }
+
+    Entry get(long synsetOffset) {
+      if (cacheSize <= 0) return null;
+
+      final LRU<Long, Entry> segment = getSegment(synsetOffset);
+      synchronized (segment) {
+        return segment.get(synsetOffset);
+      }
+    }
+
+    void put(long synsetOffset, Entry entry) {
+      if (cacheSize <= 0) return;
+
+      final LRU<Long, Entry> segment = getSegment(synsetOffset);
+      synchronized (segment) {
+        segment.put(synsetOffset, entry);
+      }
+    }
+
+    void setCacheSize(int cacheSize) {
+      this.cacheSize = cacheSize;
+      for (LRU<Long, Entry> segment : segments) {
+        synchronized (segment) {
+          if (cacheSize <= 0) segment.clear();
+          else segment.setCacheSize(Math.max(1, cacheSize / NUM_SEGMENTS));
+        }
+      }
+    }
+
+    void clear() {
+      for (LRU<Long, Entry> segment : segments) {
+        synchronized (segment) {
+          segment.clear();
+        }
+      }
+    }
+
+    private final LRU<Long, Entry> getSegment(long synsetOffset) {
+      final int hash = (int)(synsetOffset ^ (synsetOffset >>> 32));
+      return segments[(hash & 0x7FFFFFFF) % NUM_SEGMENTS];
+    }
+  }
+
   public static final class Entry {
     public final long synsetOffset;   // use as check
     public final int lexFilenum;      // lexicographer file number
@@ -138,6 +509,16 @@ public class WordNetFile {
     public final Frame[] frames;      // frames (non-null for verbs only)
     public final String gloss;        // gloss string
 
+    Entry(long synsetOffset, int lexFilenum, POS partOfSpeech, Word[] words, Pointer[] pointers, Frame[] frames, String gloss) {
+      this.synsetOffset = synsetOffset;
+      this.lexFilenum = lexFilenum;
+      this.partOfSpeech = partOfSpeech;
+      this.words = words;
+      this.pointers = pointers;
+      this.frames = frames;
+      this.gloss = gloss;
+    }
+
     public Entry(String line, POS partOfSpeech) {
       final String[] glossSplit = line.split(" \\| ");
       if (glossSplit.length == 2) {
@@ -278,6 +659,14 @@ public class WordNetFile {
     public final int sourceOffset;
     public final int targetOffset;
 
+    Pointer(PointerSymbol pointerSymbol, long synsetOffset, POS partOfSpeech, int sourceOffset, int targetOffset) {
+      this.pointerSymbol = pointerSymbol;
+      this.synsetOffset = synsetOffset;
+      this.partOfSpeech = partOfSpeech;
+      this.sourceOffset = sourceOffset;
+      this.targetOffset = targetOffset;
+    }
+
     public Pointer(String[] pieces, int base, POS partOfSpeech) {
       this.pointerSymbol = WordNetUtils.getPointerSymbol(partOfSpeech, pieces[base + 1]);
       this.synsetOffset = WordNetUtils.parseLong(pieces[base + 2]);
@@ -296,6 +685,11 @@ public class WordNetFile {
 
 //todo: tie to sents.vrb file. see wndb man page "Verb Example Sentences" section.
 
+    Frame(int frameNum, int wordNum) {
+      this.frameNum = frameNum;
+      this.wordNum = wordNum;
+    }
+
     public Frame(String[] pieces, int base) {
       this.frameNum = WordNetUtils.parseInt(pieces[base + 2]);
       this.wordNum = WordNetUtils.parseHex(pieces[base + 3]);
@@ -307,7 +701,7 @@ public class WordNetFile {
 //java -Xmx640m org.sd.wn.WordNetFile /usr/local/share/download/wordnet/WordNet-3.0/dict n "hydraulic pump"
   public static void main(String[] args) throws IOException {
     //arg0: dictDir
-    //arg1: partOfSpeech (char)
+    //arg1: partOfSpeech (char) or "-compile" to compile binary synset files
     //args1+: words to lookup
 
     try {
@@ -315,6 +709,17 @@ public class WordNetFile {
       final String posChar = args[1];
       final int wordsIndex = 2;
 
+      if ("-compile".equals(posChar)) {
+        final File dictFile = dictDir == null ? WordNetUtils.getDefaultDictDir() : FileUtil.getFile(dictDir);
+        for (POS pos : new POS[]{POS.NOUN, POS.VERB, POS.ADJ, POS.ADV}) {
+          if (pos.getDataFile(dictFile).exists()) {
+            final int numSynsets = compileBinary(dictFile, pos);
+            System.out.println("Compiled " + numSynsets + " " + pos.name + " synsets to " + getBinaryFile(dictFile, pos));
+          }
+        }
+        return;
+      }
+
       final WordNetFile wordNetFile = WordNetFile.getInstance(dictDir, WordNetUtils.parsePOS(posChar));
 
       for (int i = wordsIndex; i < args.length; ++i) {
@@ -0,0 +1,173 @@
+/*
+    Copyright 2011 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.wn;
+
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.sd.io.FileUtil;
+
+/**
+ * JUnit Tests for the WordNetFile class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestWordNetFile extends TestCase {
+
+  private static final String LICENSE = "  1 This software and database is being provided to you, the LICENSEE,\n";
+  private static final String ENTITY = "%08d 03 n 01 entity 0 002 ~ %08d n 0000 ~ %08d n 0000 | that which is perceived or known or inferred";
+  private static final String THING = "%08d 03 n 02 physical_entity 0 thing 1 001 @ %08d n 0000 | an entity that has physical existence";
+  private static final String ABSTRACTION = "%08d 03 n 01 abstraction 0 001 @ %08d n 0000 | a general concept formed by extracting common features";
+
+  private File dictDir;
+  private long[] offsets;
+
+  public TestWordNetFile(String name) {
+    super(name);
+  }
+  
+
+  protected void setUp() throws IOException {
+    this.dictDir = new File(System.getProperty("java.io.tmpdir"), "TestWordNetFile." + System.nanoTime());
+    dictDir.mkdirs();
+
+    // offsets are fixed width, so line lengths don't depend on their values
+    final String[] formats = new String[]{ENTITY, THING, ABSTRACTION};
+    this.offsets = new long[formats.length];
+    long offset = LICENSE.length();
+    for (int i = 0; i < formats.length; ++i) {
+      offsets[i] = offset;
+      offset += String.format(formats[i], 0L, 0L, 0L).length() + 1;
+    }
+
+    final StringBuilder data = new StringBuilder(LICENSE);
+    data.append(String.format(ENTITY, offsets[0], offsets[1], offsets[2])).append('\n');
+    data.append(String.format(THING, offsets[1], offsets[0])).append('\n');
+    data.append(String.format(ABSTRACTION, offsets[2], offsets[0])).append('\n');
+
+    final FileOutputStream out = new FileOutputStream(POS.NOUN.getDataFile(dictDir));
+    out.write(data.toString().getBytes("ISO-8859-1"));
+    out.close();
+  }
+
+  protected void tearDown() {
+    FileUtil.deleteDir(dictDir);
+  }
+
+  private final void verifyThing(WordNetFile.Entry entry) {
+    assertNotNull(entry);
+    assertEquals(offsets[1], entry.synsetOffset);
+    assertEquals(3, entry.lexFilenum);
+    assertEquals(POS.NOUN, entry.partOfSpeech);
+    assertEquals(2, entry.words.length);
+    assertEquals("physical_entity", entry.words[0].word);
+    assertEquals("thing", entry.words[1].word);
+    assertEquals(1, entry.words[1].lexId);
+    assertEquals(1, entry.pointers.length);
+    assertEquals(PointerSymbol.HYPERNYM, entry.pointers[0].pointerSymbol);
+    assertEquals(offsets[0], entry.pointers[0].synsetOffset);
+    assertEquals(POS.NOUN, entry.pointers[0].partOfSpeech);
+    assertEquals(0, entry.frames.length);
+    assertEquals("an entity that has physical existence", entry.gloss);
+  }
+
+  public void testGetEntry() throws IOException {
+    final WordNetFile wnFile = WordNetFile.getInstance(dictDir, POS.NOUN);
+    assertFalse(wnFile.usesBinary());
+
+    final WordNetFile.Entry thing = wnFile.getEntry(offsets[1]);
+    verifyThing(thing);
+
+    // follow pointers through the cache
+    final WordNetFile.Entry entity = wnFile.getEntry(thing.pointers[0].synsetOffset);
+    assertEquals("entity", entity.words[0].word);
+    assertEquals(2, entity.pointers.length);
+    assertSame(thing, wnFile.getEntry(entity.pointers[0].synsetOffset));
+
+    // without caching, entries are equal but not the same
+    wnFile.setCacheSize(0);
+    final WordNetFile.Entry thing2 = wnFile.getEntry(offsets[1]);
+    assertEquals(thing, thing2);
+    assertNotSame(thing, thing2);
+
+    assertNull(wnFile.getEntry(100000L));
+  }
+
+  public void testBinary() throws IOException {
+    assertEquals(3, WordNetFile.compileBinary(dictDir, POS.NOUN));
+    assertTrue(WordNetFile.getBinaryFile(dictDir, POS.NOUN).exists());
+
+    final WordNetFile wnFile = WordNetFile.getInstance(dictDir, POS.NOUN);
+    assertTrue(wnFile.usesBinary());
+    wnFile.setCacheSize(0);
+
+    verifyThing(wnFile.getEntry(offsets[1]));
+
+    final WordNetFile.Entry abstraction = wnFile.getEntry(offsets[2]);
+    assertEquals("abstraction", abstraction.words[0].word);
+    assertEquals(PointerSymbol.HYPERNYM, abstraction.pointers[0].pointerSymbol);
+    assertEquals("a general concept formed by extracting common features", abstraction.gloss);
+
+    // offsets not at a synset fall back to the text data
+    assertNull(wnFile.getEntry(100000L));
+  }
+
+  public void testConcurrentGetEntry() throws Exception {
+    final WordNetFile wnFile = WordNetFile.getInstance(dictDir, POS.NOUN);
+    wnFile.setCacheSize(2);  // force evictions
+
+    final AtomicInteger failures = new AtomicInteger(0);
+    final List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < 4; ++t) {
+      final Thread thread = new Thread() {
+          public void run() {
+            for (int i = 0; i < 2000; ++i) {
+              final int index = i % offsets.length;
+              final WordNetFile.Entry entry = wnFile.getEntry(offsets[index]);
+              if (entry == null || entry.synsetOffset != offsets[index]) failures.incrementAndGet();
+            }
+          }
+        };
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) thread.join();
+
+    assertEquals(0, failures.get());
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestWordNetFile.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,86 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.util;
+
+
+/**
+ * A numbered name generator that generates every stride'th number starting
+ * from an offset.
+ * <p>
+ * Generators sharing a prefix and postfix with the same stride but distinct
+ * offsets (in [0, stride)) generate disjoint names that are all valid
+ * numbered names, so that, for example, concurrent writers can each roll
+ * their own files in a common directory.
+ *
+ * @author Spence Koehler
+ */
+public class StridedNameGenerator extends NumberedNameGenerator {
+  
+  private int offset;
+  private int stride;
+
+  /**
+   * Construct for names like [prefix].xxx.[postfix] where xxx is
+   * offset + k * stride for k = 0, 1, ...
+   *
+   * @param prefix  The prefix.
+   * @param postfix The postfix.
+   * @param numDigits  The number of digits for the counter.
+   * @param offset  The first number to generate.
+   * @param stride  The increment between numbers.
+   */
+  public StridedNameGenerator(String prefix, String postfix, int numDigits, int offset, int stride) {
+    super(prefix, postfix, numDigits);
+    this.offset = offset;
+    this.stride = stride;
+  }
+
+  /**
+   * Generate the next name after the given name.
+   *
+   * @param name preceding the next name; if null, generate the first name.
+   *
+   * @return the next name, or null if there are no more names.
+   */
+  public String getNextName(String name) {
+    String result = null;
+
+    long nextNumber = offset;
+    if (name != null) {
+      final long curNumber = getCurNumber(name);
+      nextNumber = (curNumber >= 0) ? curNumber + stride : -1;
+    }
+
+    if (nextNumber >= 0) {
+      result = getPrefix() + MathUtil.longString(nextNumber, 10, getNumDigits(), '0') + getPostfix();
+    }
+
+    return result;
+  }
+
+  /** Get the offset. */
+  public final int getOffset() {
+    return offset;
+  }
+
+  /** Get the stride. */
+  public final int getStride() {
+    return stride;
+  }
+}
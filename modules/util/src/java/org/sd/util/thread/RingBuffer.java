@@ -0,0 +1,134 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.util.thread;
+
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free ring buffer for many producers and a single consumer.
+ * <p>
+ * Producers claim slots by advancing the tail with compare-and-set and then
+ * publish their item into the claimed slot; the consumer takes published
+ * items in claim order. Offers never block: a full buffer is reported to
+ * the producer, who decides whether to wait or drop.
+ * <p>
+ * NOTE: poll and drainTo must only be called from one consumer thread.
+ *
+ * @author Spence Koehler
+ */
+public class RingBuffer<T> {
+
+  private final AtomicReferenceArray<T> slots;
+  private final int capacity;
+  private final int mask;
+
+  private final AtomicLong tail = new AtomicLong(0L);  // next slot to claim
+  private final AtomicLong head = new AtomicLong(0L);  // next slot to consume
+
+  /**
+   * Construct with at least the given capacity (rounded up to a power of 2).
+   */
+  public RingBuffer(int capacity) {
+    int size = 1;
+    while (size < capacity) size <<= 1;
+
+    this.slots = new AtomicReferenceArray<T>(size);
+    this.capacity = size;
+    this.mask = size - 1;
+  }
+
+  /**
+   * Get this buffer's capacity.
+   */
+  public int capacity() {
+    return capacity;
+  }
+
+  /**
+   * Get the (approximate when concurrently modified) number of items in
+   * this buffer, including claimed but not yet published items.
+   */
+  public int size() {
+    final long result = tail.get() - head.get();
+    return result < 0 ? 0 : (int)result;
+  }
+
+  /**
+   * Determine whether this buffer is (approximately) empty.
+   */
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   * Add the (non-null) item if there is room.
+   *
+   * @return true if added; false if this buffer is full.
+   */
+  public boolean offer(T item) {
+    if (item == null) throw new NullPointerException();
+
+    while (true) {
+      final long t = tail.get();
+      if (t - head.get() >= capacity) return false;
+
+      if (tail.compareAndSet(t, t + 1)) {
+        slots.lazySet((int)(t & mask), item);
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Remove and get the next item (consumer thread only).
+   *
+   * @return the next item or null if none has been published.
+   */
+  public T poll() {
+    final long h = head.get();
+    final int index = (int)(h & mask);
+    final T result = slots.get(index);
+
+    if (result != null) {
+      slots.lazySet(index, null);
+      head.lazySet(h + 1);
+    }
+
+    return result;
+  }
+
+  /**
+   * Remove up to maxItems published items into the collection (consumer
+   * thread only).
+   *
+   * @return the number of items drained.
+   */
+  public int drainTo(Collection<? super T> collection, int maxItems) {
+    int result = 0;
+
+    for (T item = null; result < maxItems && (item = poll()) != null; ++result) {
+      collection.add(item);
+    }
+
+    return result;
+  }
+}
@@ -0,0 +1,110 @@
+/*
+    Copyright 2009 Semantic Discovery, Inc. (www.semanticdiscovery.com)
+
+    This file is part of the Semantic Discovery Toolkit.
+
+    The Semantic Discovery Toolkit is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    The Semantic Discovery Toolkit is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with The Semantic Discovery Toolkit.  If not, see <http://www.gnu.org/licenses/>.
+*/
+package org.sd.util.thread;
+
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JUnit Tests for the RingBuffer class.
+ * <p>
+ * @author Spence Koehler
+ */
+public class TestRingBuffer extends TestCase {
+
+  public TestRingBuffer(String name) {
+    super(name);
+  }
+  
+  public void testBounds() {
+    final RingBuffer<Integer> ring = new RingBuffer<Integer>(3);
+    assertEquals(4, ring.capacity());
+    assertNull(ring.poll());
+
+    for (int i = 0; i < 4; ++i) assertTrue(ring.offer(i));
+    assertFalse(ring.offer(4));
+    assertEquals(4, ring.size());
+
+    assertEquals(0, ring.poll().intValue());
+    assertTrue(ring.offer(4));
+
+    final List<Integer> drained = new ArrayList<Integer>();
+    assertEquals(4, ring.drainTo(drained, 10));
+    assertEquals(1, drained.get(0).intValue());
+    assertEquals(4, drained.get(3).intValue());
+    assertTrue(ring.isEmpty());
+  }
+
+  public void testProducers() throws InterruptedException {
+    final RingBuffer<Integer> ring = new RingBuffer<Integer>(64);
+    final int numThreads = 4;
+    final int numPerThread = 10000;
+
+    final List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < numThreads; ++t) {
+      final int base = t * numPerThread;
+      threads.add(new Thread() {
+          public void run() {
+            for (int i = 0; i < numPerThread; ++i) {
+              while (!ring.offer(base + i)) Thread.yield();
+            }
+          }
+        });
+    }
+    for (Thread thread : threads) thread.start();
+
+    // each producer's items arrive exactly once and in order
+    final boolean[] seen = new boolean[numThreads * numPerThread];
+    final int[] last = new int[numThreads];
+    for (int t = 0; t < numThreads; ++t) last[t] = -1;
+
+    for (int count = 0; count < seen.length; ) {
+      final Integer item = ring.poll();
+      if (item == null) {
+        Thread.yield();
+        continue;
+      }
+      assertFalse(seen[item]);
+      seen[item] = true;
+
+      final int t = item / numPerThread;
+      assertTrue(item % numPerThread > last[t]);
+      last[t] = item % numPerThread;
+      ++count;
+    }
+
+    for (Thread thread : threads) thread.join();
+    assertNull(ring.poll());
+  }
+
+
+  public static Test suite() {
+    TestSuite suite = new TestSuite(TestRingBuffer.class);
+    return suite;
+  }
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -236,6 +236,31 @@ public class XmlFactory {
     return result;
   }
 
+  /**
+   * Read the xml tree from the stream, letting the XmlInputStream determine
+   * the data's encoding.
+   * <p>
+   * Note that invalid characters are replaced instead of aborting the read.
+   */
+  public static final Tree<XmlLite.Data> readXmlTree(InputStream inputStream, boolean ignoreComments, boolean htmlFlag, AtomicBoolean die, boolean requireXmlTag) throws IOException {
+    final XmlLite xmlLite = getXmlLite(ignoreComments, htmlFlag);
+
+    Tree<XmlLite.Data> result = null;
+    XmlInputStream xmlInputStream = null;
+
+    try {
+      xmlInputStream = new XmlInputStream(inputStream);
+      xmlInputStream.setThrowEncodingException(false);
+      if (!requireXmlTag || (requireXmlTag && xmlInputStream.foundXmlTag())) {
+        result = xmlLite.parse(xmlInputStream, die);
+      }
+    }
+    finally {
+      if (xmlInputStream != null) xmlInputStream.close();
+    }
+    return result;
+  }
+
   public static final Tree<XmlLite.Data> buildXmlTree(String xmlString, boolean ignoreComments, boolean htmlFlag) throws IOException {
     final XmlLite xmlLite = getXmlLite(ignoreComments, htmlFlag);
     return xmlLite.parse(xmlString);
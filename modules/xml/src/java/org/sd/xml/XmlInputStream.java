@@ -214,8 +214,12 @@ public class XmlInputStream {
    */
   public int readToChar(char theChar, StringBuilder result, int interruptChar) throws IOException {
     int codePoint = -1;
+    final boolean plainBytes = readsPlainBytes(encoding);
 
     while (true) {
+      // copy runs of bytes that decode as themselves straight out of the buffer
+      if (plainBytes) inputStream.readPlainRun(theChar, interruptChar, result);
+
       codePoint = read();
       if (codePoint == -1 || codePoint == theChar || codePoint == interruptChar) break;
       if (result != null) result.appendCodePoint(codePoint);
@@ -236,8 +240,13 @@ public class XmlInputStream {
     // adapted from JTidy's org.w3c.tidy.StreamInImpl
     int c = -1;
 
+    if (fixCR && readsPlainBytes(encoding)) {
+      c = inputStream.readPlainByte();
+      if (c >= 0) return c;
+    }
+
     while (true) {
-      if (fixCR) inputStream.mark(6);
+      if (fixCR) inputStream.markPos(6);
       c = doRead(encoding);
 
       if (fixCR && c >= 0 && !Character.isValidCodePoint(c)) {
@@ -251,7 +260,7 @@ public class XmlInputStream {
       if (c == '\n') break;
       if (c == '\r') {
         if (fixCR) {
-          inputStream.mark(6);  // unicode chars can be up to 6 bytes
+          inputStream.markPos(6);  // unicode chars can be up to 6 bytes
           c = doRead(encoding);
           if (c != '\n') {
             inputStream.reset();
@@ -283,6 +292,15 @@ public class XmlInputStream {
     return c;
   }
 
+  /**
+   * Determine whether bytes in the "plain" ascii range (tab, newline, and
+   * 32-127) are read as themselves under the encoding, such that they can
+   * be taken directly from the buffer without decoding.
+   */
+  private static final boolean readsPlainBytes(Encoding encoding) {
+    return !encoding.useReader() && encoding != Encoding.ISO2022;
+  }
+
   private final int readCharFromReader(Encoding encoding) throws IOException {
     if (inputStreamReader == null) {
       inputStreamReader = new InputStreamReader(inputStream, encoding.getLabel());
@@ -296,7 +314,7 @@ public class XmlInputStream {
       return readCharFromReader(encoding);
     }
 
-    int c = inputStream.read();
+    int c = inputStream.readByte();
     if (c < 0) return c;  // end of stream
 
     
@@ -383,7 +401,7 @@ public class XmlInputStream {
 
     // successor bytes should have the form 10XX XXXX
     for (int i = 0; i < count; ++i) {
-      c = inputStream.read();
+      c = inputStream.readByte();
       if (c < 0) return c;
       n = (n << 6) | (c & 0x3F);
     }
@@ -676,5 +694,76 @@ public class XmlInputStream {
     public int getPos() {
       return pos;
     }
+
+    /**
+     * Read the next byte, going straight to the buffer (without locking)
+     * when it holds unread bytes.
+     */
+    public int readByte() throws IOException {
+      final byte[] b = buf;
+      if (b != null && pos < count) return b[pos++] & 0xff;
+      return read();
+    }
+
+    /**
+     * Unlocked equivalent of mark for single char lookahead.
+     */
+    public void markPos(int readlimit) {
+      this.marklimit = readlimit;
+      this.markpos = pos;
+    }
+
+    /**
+     * Read the next buffered byte if it is plain ascii.
+     *
+     * @return the byte or -1 if it is not plain or not yet buffered, in which
+     *         case nothing is consumed.
+     */
+    public int readPlainByte() {
+      final byte[] b = buf;
+      if (b != null && pos < count) {
+        final int c = b[pos];
+        if (isPlain(c)) {
+          ++pos;
+          return c;
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * Consume the run of buffered plain ascii bytes up to (not including)
+     * stop1 or stop2, appending them to result if non-null.
+     *
+     * @return the number of bytes consumed.
+     */
+    public int readPlainRun(int stop1, int stop2, StringBuilder result) {
+      final byte[] b = buf;
+      if (b == null) return 0;
+
+      final int startPos = pos;
+      final int endPos = count;
+      int curPos = startPos;
+      while (curPos < endPos) {
+        final int c = b[curPos];
+        if (c == stop1 || c == stop2 || !isPlain(c)) break;
+        ++curPos;
+      }
+
+      if (result != null && curPos > startPos) {
+        result.ensureCapacity(result.length() + curPos - startPos);
+        for (int i = startPos; i < curPos; ++i) {
+          result.append((char)b[i]);
+        }
+      }
+
+      this.pos = curPos;
+      return curPos - startPos;
+    }
+
+    // plain bytes are those that read as themselves (no stripping or mapping)
+    private static final boolean isPlain(int c) {
+      return (c >= 32) || c == '\n' || c == '\t';  // (bytes over 127 are negative)
+    }
   }
 }
@@ -747,11 +747,12 @@ public class XmlLite {
 
       final int len = nameAndAttributesString.length();
       if (len > 0) {
+        int end = len;
         if ('/' == nameAndAttributesString.charAt(len - 1)) {
           this.selfTerminating = true;
-          nameAndAttributesString = nameAndAttributesString.substring(0, len - 1);
+          --end;
         }
-        this.name = parseAttributes(nameAndAttributesString, attributes);
+        this.name = parseAttributes(nameAndAttributesString, end, attributes);
       }
       else {
         this.name = "";
@@ -845,39 +846,43 @@ public class XmlLite {
     }
 
     /**
-     * Parse the name and attributes, returning the name and populating the map
-     * with attributes (mapped to values).
+     * Parse the name and attributes from the string's chars up to end,
+     * returning the name and populating the map with attributes (mapped to
+     * values).
+     * <p>
+     * Names and values are sliced directly from the string by position, so
+     * only the final name, attribute, and value strings are created.
      *
      * @return the name.
      */
-    private final String parseAttributes(String nameAndAttributesString, Map<String, String> attributes) {
-      final int nameBoundary = delimOrEnd(nameAndAttributesString, ' ', 0);
-      final String name = fixText(nameAndAttributesString.substring(0, nameBoundary));
-      if (nameBoundary < nameAndAttributesString.length()) {
-        extractAttributes(nameAndAttributesString.substring(nameBoundary + 1), attributes);
+    private final String parseAttributes(String string, int end, Map<String, String> attributes) {
+      final int nameBoundary = delimOrEnd(string, ' ', 0, end);
+      final String name = fixText(string.substring(0, nameBoundary));
+      if (nameBoundary < end) {
+        extractAttributes(string, nameBoundary + 1, end, attributes);
       }
       return commonCase ? name.toLowerCase() : name;
     }
 
-    private final void extractAttributes(String attributesString, Map<String, String> attributes) {
-      final int eqPos = attributesString.indexOf('=');
-      if (eqPos >= 0) {
-        String att = attributesString.substring(0, eqPos);
+    private final void extractAttributes(String string, int startPos, int end, Map<String, String> attributes) {
+      while (startPos <= end) {
+        final int eqPos = string.indexOf('=', startPos);
+        if (eqPos < 0 || eqPos >= end) break;
+
+        String att = string.substring(startPos, eqPos);
         if (commonCase) att = att.toLowerCase();
-        final int alen = attributesString.length();
-        final int endAttPos = endAttributePos(attributesString, eqPos + 1);
-        final int eap = (endAttPos < alen) ? endAttPos : alen;
-        final String value = (eap <= eqPos + 1) ? "" : stripQuotes(attributesString.substring(eqPos + 1, eap));
+        final int endAttPos = endAttributePos(string, eqPos + 1, end);
+        final int eap = (endAttPos < end) ? endAttPos : end;
+        final String value = (eap <= eqPos + 1) ? "" : stripQuotes(string, eqPos + 1, eap);
 
         attributes.put(fixText(att), EntityConverter.unescape(value));
 
-        if (endAttPos < attributesString.length()) {
-          extractAttributes(attributesString.substring(endAttPos + 1), attributes);
-        }
+        if (endAttPos >= end) break;
+        startPos = endAttPos + 1;
       }
     }
 
-    private final int delimOrEnd(String string, int delim, int fromPos) {
+    private final int delimOrEnd(String string, int delim, int fromPos, int end) {
       int result = -1;
 
       if (commonCase) {
@@ -892,12 +897,12 @@ public class XmlLite {
         result = string.indexOf(delim, fromPos);
       }
       
-      return (result < 0) ? string.length() : result; 
+      return (result < 0 || result > end) ? end : result; 
     }
 
-    private final int endAttributePos(String attributesString, int fromPos) {
-      if (fromPos >= attributesString.length()) return fromPos;  // empty attribute.
-      final char firstChar = attributesString.charAt(fromPos);
+    private final int endAttributePos(String string, int fromPos, int end) {
+      if (fromPos >= end) return fromPos;  // empty attribute.
+      final char firstChar = string.charAt(fromPos);
 
       return
         (firstChar == ' ') ?
@@ -908,26 +913,28 @@ public class XmlLite {
         (firstChar == '"') ?
 
         // search to end double quote
-        delimOrEnd(attributesString, '"', fromPos + 1) + 1 :
+        delimOrEnd(string, '"', fromPos + 1, end) + 1 :
 
         (firstChar == '\'') ?
 
         // search to end single quote
-        delimOrEnd(attributesString, '\'', fromPos + 1) + 1 :
+        delimOrEnd(string, '\'', fromPos + 1, end) + 1 :
 
         // search to space or end of string
-        delimOrEnd(attributesString, ' ', fromPos);
-    }
-
-    private final String stripQuotes(String string) {
-      if (string == null) return string;
-      final int len = string.length();
-      if (len == 0) return string;
-      final char firstChar = string.charAt(0);
-      final int startPos = (firstChar == '"' || firstChar == '\'') ? 1 : 0;
-      final char lastChar = string.charAt(len - 1);
-      final int endPos = (lastChar == '"' || lastChar == '\'') ? len - 1 : len;
-      return (startPos > 0 || endPos < len) ? ((endPos > startPos) ? string.substring(startPos, endPos) : "") : string;
+        delimOrEnd(string, ' ', fromPos, end);
+    }
+
+    /**
+     * Get the string's chars from startPos (inclusive) to endPos (exclusive)
+     * without surrounding quotes.
+     */
+    private final String stripQuotes(String string, int startPos, int endPos) {
+      if (endPos <= startPos) return "";
+      final char firstChar = string.charAt(startPos);
+      if (firstChar == '"' || firstChar == '\'') ++startPos;
+      final char lastChar = string.charAt(endPos - 1);
+      if (lastChar == '"' || lastChar == '\'') --endPos;
+      return (endPos > startPos) ? string.substring(startPos, endPos) : "";
     }
 
     public final Tag asTag() {
@@ -141,8 +141,7 @@ public class XmlTagParser {
 
       final String text = getBuiltText(data, false);
       if (text.length() > 0) {
-        final String ltext = text.toLowerCase();
-        if (specialScriptLogic && ltext.startsWith("script") && (ltext.length() == 6 || ltext.charAt(6) == ' ')) {
+        if (specialScriptLogic && startsWithName(text, "script")) {
           // added this section do deal with all the little nasties in html script nodes
           // things like multiple comment starts w/out ends; c-style commenting of tags; etc.
           // currently we read all data between <script> and </script> and stick it in a
@@ -152,7 +151,7 @@ public class XmlTagParser {
           final XmlLite.Script script = new XmlLite.Script(getBuiltText(scriptText, false));
           result = new TagResult(script, pos < 0);
         }
-        else if (specialScriptLogic && ltext.startsWith("style") && (ltext.length() == 5 || ltext.charAt(5) == ' ')) {
+        else if (specialScriptLogic && startsWithName(text, "style")) {
           final StringBuilder styleText = new StringBuilder();
           final int pos = readToEndOfStyle(inputStream, styleText, true);
           final XmlLite.Style style = new XmlLite.Style(getBuiltText(styleText, false));
@@ -337,12 +336,7 @@ public class XmlTagParser {
 
   // return true if builder.toString().endsWith("</script")
   private static final boolean endsWithEndScript(StringBuilder builder) {
-    final int len = builder.length();
-    if (len >= 8) {
-      final String end = builder.substring(len - 8).toLowerCase();
-      return "</script".equals(end);
-    }
-    return false;
+    return endsWithIgnoreCase(builder, "</script");
   }
 
   // return true if builder.toString().endsWith("<script" or "<script ...")
@@ -393,12 +387,7 @@ public class XmlTagParser {
 
   // return true if builder.toString().endsWith("</style")
   private static final boolean endsWithEndStyle(StringBuilder builder) {
-    final int len = builder.length();
-    if (len >= 7) {
-      final String end = builder.substring(len - 7).toLowerCase();
-      return "</style".equals(end);
-    }
-    return false;
+    return endsWithIgnoreCase(builder, "</style");
   }
 
   // return true if builder.toString().endsWith("<style" or "<style ...")
@@ -421,6 +410,37 @@ public class XmlTagParser {
     return false;
   }
 
+  // return true if text.toLowerCase() is lowerName or starts with lowerName followed by a space
+  private static final boolean startsWithName(String text, String lowerName) {
+    final int nameLen = lowerName.length();
+    final int len = text.length();
+    if (len < nameLen || (len > nameLen && text.charAt(nameLen) != ' ')) return false;
+
+    for (int i = 0; i < nameLen; ++i) {
+      if (!equalsIgnoreCase(text.charAt(i), lowerName.charAt(i))) return false;
+    }
+
+    return true;
+  }
+
+  // return true if builder.toString().toLowerCase().endsWith(lowerSuffix)
+  private static final boolean endsWithIgnoreCase(StringBuilder builder, String lowerSuffix) {
+    final int suffixLen = lowerSuffix.length();
+    final int offset = builder.length() - suffixLen;
+    if (offset < 0) return false;
+
+    for (int i = 0; i < suffixLen; ++i) {
+      if (!equalsIgnoreCase(builder.charAt(offset + i), lowerSuffix.charAt(i))) return false;
+    }
+
+    return true;
+  }
+
+  // compare the char against an (ascii) lowercased char without creating strings
+  private static final boolean equalsIgnoreCase(char c, char lowerc) {
+    return c == lowerc || (c >= 'A' && c <= 'Z' && (char)(c + ('a' - 'A')) == lowerc);
+  }
+
   public static class TagResult {
 
     private boolean endOfStream;
@@ -144,6 +144,49 @@ public class TestXmlInputStream extends TestCase {
     }
   }
 
+  private final String readAll(XmlInputStream inputStream, boolean toChar) throws IOException {
+    final StringBuilder result = new StringBuilder();
+
+    if (toChar) {
+      for (int c = inputStream.readToChar('>', result, '='); c >= 0; c = inputStream.readToChar('>', result, '=')) {
+        result.appendCodePoint(c);
+      }
+    }
+    else {
+      for (int c = inputStream.read(); c >= 0; c = inputStream.read()) {
+        result.appendCodePoint(c);
+      }
+    }
+
+    return result.toString();
+  }
+
+  public void testReadToCharMatchesRead() throws IOException {
+    final StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 4000; ++i) {
+      text.append("<a href=\"x\">caf\u00e9\r\nline\t").append(i).append("\u0001\u007f\u0093\r</a>\n");
+    }
+    final byte[] utf8Bytes = text.toString().getBytes("UTF-8");
+    final byte[] latin1Bytes = text.toString().getBytes("ISO-8859-1");
+
+    // spans multiple buffer fills
+    assertTrue(utf8Bytes.length > 100000);
+
+    for (Encoding encoding : new Encoding[]{Encoding.UTF8, Encoding.ASCII, Encoding.LATIN1, Encoding.MACROMAN, Encoding.CP1252}) {
+      for (byte[] bytes : new byte[][]{utf8Bytes, latin1Bytes}) {
+        final XmlInputStream readStream = new XmlInputStream(new ByteArrayInputStream(bytes), encoding);
+        final XmlInputStream readToCharStream = new XmlInputStream(new ByteArrayInputStream(bytes), encoding);
+        readStream.setThrowEncodingException(false);
+        readToCharStream.setThrowEncodingException(false);
+
+        assertEquals(encoding.toString(), readAll(readStream, false), readAll(readToCharStream, true));
+
+        readStream.close();
+        readToCharStream.close();
+      }
+    }
+  }
+
 
   public static Test suite() {
     TestSuite suite = new TestSuite(TestXmlInputStream.class);
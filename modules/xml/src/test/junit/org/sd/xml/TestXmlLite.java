@@ -142,6 +142,24 @@ public class TestXmlLite extends TestCase {
     validate(xmlLite, "<a href=\" >", "<a href=\" &gt;\"></a>");  // expected was "<a href=\"\"></a>"
   }
 
+  private final void doTagTest(String nameAndAttributes, boolean commonCase, String expectedName, String expectedAttributes, boolean expectedSelfTerminating) {
+    final XmlLite.Tag tag = new XmlLite.Tag(nameAndAttributes, commonCase);
+    assertEquals(expectedName, tag.name);
+    assertEquals(expectedAttributes, tag.attributes.toString());
+    assertEquals(expectedSelfTerminating, tag.isSelfTerminating());
+  }
+
+  public void testTagAttributes() {
+    doTagTest("a href=\"x y\" class='c' checked= id=q/", true, "a", "{href=x y, class=c, checked=, id=q}", true);
+    doTagTest("A HREF=\"http://x.com/?a=1&amp;b=2\" Title=\"say \\\"hi\\\" now\" b=1", true,
+              "a", "{href=http://x.com/?a=1&b=2, title=say \\\"hi\\\" now, b=1}", false);
+    doTagTest("A Title=\"say \\\"hi\\\" now\" b=1", false, "A", "{Title=say \\, i\\\" now\" b=1}", false);
+    doTagTest("td title=\"unterminated", true, "td", "{title=unterminated}", false);
+    doTagTest("img src=\"a.gif\"/", false, "img", "{src=a.gif}", true);
+    doTagTest("x a=\"\" b='' c=\"'\"", false, "x", "{a=, b=, c='}", false);
+    doTagTest("/", true, "", "{}", true);
+  }
+
   private final void doReadToEndOfScriptTest(String script, String expected) throws IOException {
     final XmlInputStream inputStream = getXmlInputStream(script);
     final StringBuilder builder = new StringBuilder();